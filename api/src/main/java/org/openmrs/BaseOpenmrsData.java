@@ -15,6 +15,9 @@ package org.openmrs;
 
 import java.util.Date;
 
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.Index;
+
 /**
  * In OpenMRS, we distinguish between data and metadata within our data model. Data (as opposed to
  * metadata) generally represent person- or patient-specific data. This provides a default abstract
@@ -35,6 +38,7 @@ public abstract class BaseOpenmrsData extends BaseOpenmrsObject implements Openm
 	
 	private Date dateChanged;
 	
+	@Field(index = Index.UN_TOKENIZED)
 	private Boolean voided = Boolean.FALSE;
 	
 	private Date dateVoided;
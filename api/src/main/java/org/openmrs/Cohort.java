@@ -19,13 +19,13 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.StringTokenizer;
-import java.util.TreeSet;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.api.ReportService;
 import org.openmrs.cohort.CohortDefinition;
 import org.openmrs.report.EvaluationContext;
+import org.openmrs.util.CompressedIntegerSet;
 import org.simpleframework.xml.Attribute;
 import org.simpleframework.xml.Element;
 import org.simpleframework.xml.ElementList;
@@ -36,6 +36,9 @@ import org.simpleframework.xml.Root;
  * {@link ReportService#evaluate(org.openmrs.report.ReportSchema, Cohort, EvaluationContext)} then
  * it will contain a link back to the CohortDefinition it came from and the EvalutionContext that
  * definition was evaluated in.
+ * <p>
+ * New cohorts keep their members in a {@link CompressedIntegerSet}, so that unions, intersections
+ * and differences of cohorts built in memory are computed on the compressed form.
  *
  * @see org.openmrs.cohort.CohortDefinition
  */
@@ -59,7 +62,7 @@ public class Cohort extends BaseOpenmrsData implements Serializable {
 	private EvaluationContext evaluationContext;
 	
 	public Cohort() {
-		memberIds = new TreeSet<Integer>();
+		memberIds = new CompressedIntegerSet();
 	}
 	
 	/**
@@ -19,17 +19,21 @@ import java.util.HashSet;
 import java.util.Locale;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.solr.analysis.EdgeNGramFilterFactory;
 import org.apache.solr.analysis.LowerCaseFilterFactory;
 import org.apache.solr.analysis.StandardFilterFactory;
 import org.apache.solr.analysis.StandardTokenizerFactory;
 import org.hibernate.search.annotations.Analyzer;
 import org.hibernate.search.annotations.AnalyzerDef;
+import org.hibernate.search.annotations.AnalyzerDefs;
 import org.hibernate.search.annotations.DocumentId;
 import org.hibernate.search.annotations.Field;
 import org.hibernate.search.annotations.FieldBridge;
+import org.hibernate.search.annotations.Fields;
 import org.hibernate.search.annotations.Index;
 import org.hibernate.search.annotations.Indexed;
 import org.hibernate.search.annotations.IndexedEmbedded;
+import org.hibernate.search.annotations.Parameter;
 import org.hibernate.search.annotations.Similarity;
 import org.hibernate.search.annotations.TokenFilterDef;
 import org.hibernate.search.annotations.TokenizerDef;
@@ -49,8 +53,15 @@ import org.simpleframework.xml.Root;
  */
 @Root
 @Indexed
-@AnalyzerDef(name = "ConceptNameAnalyzer", tokenizer = @TokenizerDef(factory = StandardTokenizerFactory.class), filters = {
-        @TokenFilterDef(factory = StandardFilterFactory.class), @TokenFilterDef(factory = LowerCaseFilterFactory.class) })
+@AnalyzerDefs( {
+        @AnalyzerDef(name = "ConceptNameAnalyzer", tokenizer = @TokenizerDef(factory = StandardTokenizerFactory.class), filters = {
+                @TokenFilterDef(factory = StandardFilterFactory.class),
+                @TokenFilterDef(factory = LowerCaseFilterFactory.class) }),
+        @AnalyzerDef(name = "ConceptNameEdgeNGramAnalyzer", tokenizer = @TokenizerDef(factory = StandardTokenizerFactory.class), filters = {
+                @TokenFilterDef(factory = StandardFilterFactory.class),
+                @TokenFilterDef(factory = LowerCaseFilterFactory.class),
+                @TokenFilterDef(factory = EdgeNGramFilterFactory.class, params = {
+                        @Parameter(name = "minGramSize", value = "1"), @Parameter(name = "maxGramSize", value = "20") }) }) })
 @Analyzer(definition = "ConceptNameAnalyzer")
 @Similarity(impl = ConceptNameSimilarity.class)
 public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidable, java.io.Serializable {
@@ -63,7 +74,9 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	@IndexedEmbedded
 	private Concept concept;
 	
-	@Field(index = Index.TOKENIZED)
+	// the edge n-grams of each word let prefix searches match single terms instead of expanding wildcards
+	@Fields( { @Field(index = Index.TOKENIZED),
+	        @Field(name = "nameEdgeNGram", index = Index.TOKENIZED, analyzer = @Analyzer(definition = "ConceptNameEdgeNGramAnalyzer")) })
 	private String name;
 	
 	@Field(index = Index.UN_TOKENIZED)
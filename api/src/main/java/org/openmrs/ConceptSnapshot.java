@@ -0,0 +1,240 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A read-only copy of the parts of a {@link Concept} that are needed to display it: its ids, the
+ * ids of its answers and set members, and its names resolved once for each of the given locales.
+ * Unlike the concept itself, a snapshot never touches the database and never walks the names of
+ * the concept, so it can be used where concepts are displayed many times over, e.g. when rendering
+ * lists of observations.
+ *
+ * @see org.openmrs.api.ConceptService#getConceptSnapshot(Integer)
+ * @since 1.12
+ */
+public class ConceptSnapshot implements java.io.Serializable {
+	
+	private static final long serialVersionUID = 2395728401735612836L;
+	
+	private final Integer conceptId;
+	
+	private final String uuid;
+	
+	private final Integer datatypeId;
+	
+	private final Integer conceptClassId;
+	
+	private final boolean set;
+	
+	private final boolean retired;
+	
+	private final int[] answerConceptIds;
+	
+	private final int[] setMemberIds;
+	
+	private final Locale[] locales;
+	
+	// the names in each of the locales, at the same index as the locale
+	private final String[] names;
+	
+	private final String[] shortNames;
+	
+	private final String[] fullySpecifiedNames;
+	
+	// the name in any locale, for locales the concept has no name in
+	private final String defaultName;
+	
+	/**
+	 * Copies the given concept, resolving its names in each of the given locales
+	 *
+	 * @param concept the concept to copy
+	 * @param locales the locales to resolve the names of the concept in, in order of preference
+	 */
+	public ConceptSnapshot(Concept concept, List<Locale> locales) {
+		conceptId = concept.getConceptId();
+		uuid = concept.getUuid();
+		datatypeId = concept.getDatatype() == null ? null : concept.getDatatype().getConceptDatatypeId();
+		conceptClassId = concept.getConceptClass() == null ? null : concept.getConceptClass().getConceptClassId();
+		set = Boolean.TRUE.equals(concept.isSet());
+		retired = Boolean.TRUE.equals(concept.isRetired());
+		
+		Collection<ConceptAnswer> answers = concept.getAnswers();
+		int[] answerIds = new int[answers.size()];
+		int i = 0;
+		for (ConceptAnswer answer : answers) {
+			if (answer.getAnswerConcept() != null) {
+				answerIds[i++] = answer.getAnswerConcept().getConceptId();
+			}
+		}
+		answerConceptIds = Arrays.copyOf(answerIds, i);
+		
+		List<Concept> setMembers = concept.getSetMembers();
+		setMemberIds = new int[setMembers.size()];
+		for (i = 0; i < setMemberIds.length; i++) {
+			setMemberIds[i] = setMembers.get(i).getConceptId();
+		}
+		
+		this.locales = locales.toArray(new Locale[locales.size()]);
+		names = new String[this.locales.length];
+		shortNames = new String[this.locales.length];
+		fullySpecifiedNames = new String[this.locales.length];
+		for (i = 0; i < this.locales.length; i++) {
+			names[i] = getName(concept.getName(this.locales[i], true));
+			shortNames[i] = getName(concept.getShortNameInLocale(this.locales[i]));
+			fullySpecifiedNames[i] = getName(concept.getFullySpecifiedName(this.locales[i]));
+		}
+		defaultName = getName(concept.getName());
+	}
+	
+	private static String getName(ConceptName conceptName) {
+		return conceptName == null ? null : conceptName.getName();
+	}
+	
+	/**
+	 * @return the id of the concept
+	 */
+	public Integer getConceptId() {
+		return conceptId;
+	}
+	
+	/**
+	 * @return the uuid of the concept
+	 */
+	public String getUuid() {
+		return uuid;
+	}
+	
+	/**
+	 * @return the id of the datatype of the concept
+	 */
+	public Integer getDatatypeId() {
+		return datatypeId;
+	}
+	
+	/**
+	 * @return the id of the class of the concept
+	 */
+	public Integer getConceptClassId() {
+		return conceptClassId;
+	}
+	
+	/**
+	 * @return whether the concept is a set
+	 */
+	public boolean isSet() {
+		return set;
+	}
+	
+	/**
+	 * @return whether the concept is retired
+	 */
+	public boolean isRetired() {
+		return retired;
+	}
+	
+	/**
+	 * @return the ids of all answer concepts, including retired ones, in the order of the answers
+	 */
+	public int[] getAnswerConceptIds() {
+		return answerConceptIds.clone();
+	}
+	
+	/**
+	 * @return the ids of the set members, sorted by their sort weight
+	 */
+	public int[] getSetMemberIds() {
+		return setMemberIds.clone();
+	}
+	
+	/**
+	 * @return the locales the names of the concept were resolved in
+	 */
+	public List<Locale> getLocales() {
+		return Collections.unmodifiableList(Arrays.asList(locales));
+	}
+	
+	/**
+	 * Gets the name of the concept in the given locale, like {@link Concept#getName(Locale)}. If
+	 * the concept has no name in the locale or the language of the locale, the name in the first
+	 * of the resolved locales that has one is returned, and otherwise the name in any locale.
+	 *
+	 * @param locale the locale to get the name in
+	 * @return the name, or null if the concept has no names
+	 * @should return the name in the given locale
+	 * @should return the name in the language of the given locale
+	 * @should return a name in another locale if there is none in the given locale
+	 */
+	public String getName(Locale locale) {
+		String name = getNameInLocale(names, locale);
+		if (name != null) {
+			return name;
+		}
+		
+		for (String nameInLocale : names) {
+			if (nameInLocale != null) {
+				return nameInLocale;
+			}
+		}
+		return defaultName;
+	}
+	
+	/**
+	 * @param locale the locale to get the short name in
+	 * @return the short name in the locale or the language of the locale, or null if there is none
+	 * @see Concept#getShortNameInLocale(Locale)
+	 */
+	public String getShortName(Locale locale) {
+		return getNameInLocale(shortNames, locale);
+	}
+	
+	/**
+	 * @param locale the locale to get the fully specified name in
+	 * @return the fully specified name in the locale or the language of the locale, or null if
+	 *         there is none
+	 * @see Concept#getFullySpecifiedName(Locale)
+	 */
+	public String getFullySpecifiedName(Locale locale) {
+		return getNameInLocale(fullySpecifiedNames, locale);
+	}
+	
+	/**
+	 * Looks up the name in the exact locale first and then in the language of the locale
+	 */
+	private String getNameInLocale(String[] namesInLocales, Locale locale) {
+		if (locale == null) {
+			return null;
+		}
+		
+		int index = indexOf(locale);
+		if (index < 0 && (locale.getCountry().length() > 0 || locale.getVariant().length() > 0)) {
+			index = indexOf(new Locale(locale.getLanguage()));
+		}
+		return index < 0 ? null : namesInLocales[index];
+	}
+	
+	private int indexOf(Locale locale) {
+		for (int i = 0; i < locales.length; i++) {
+			if (locales[i].equals(locale)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
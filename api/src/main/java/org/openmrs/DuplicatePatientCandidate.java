@@ -0,0 +1,132 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * A pair of patients that are likely duplicates of each other, with the score of how similar they
+ * are. The pairs are found by the Find Duplicate Patients Task, which only compares patients that
+ * share a blocking key, see {@link org.openmrs.api.PatientService#updateDuplicatePatientCandidates(int)}.
+ * The patient with the lower id is always the first of the pair.
+ *
+ * @since 1.12
+ */
+public class DuplicatePatientCandidate implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private Integer duplicatePatientCandidateId;
+	
+	private Patient patient;
+	
+	private Patient otherPatient;
+	
+	private Double score;
+	
+	private Date dateCreated;
+	
+	/** Default Constructor */
+	public DuplicatePatientCandidate() {
+	}
+	
+	/**
+	 * @param patient the patient with the lower id
+	 * @param otherPatient the patient with the higher id
+	 */
+	public DuplicatePatientCandidate(Patient patient, Patient otherPatient) {
+		this.patient = patient;
+		this.otherPatient = otherPatient;
+	}
+	
+	/**
+	 * @return the id of the pair
+	 */
+	public Integer getDuplicatePatientCandidateId() {
+		return duplicatePatientCandidateId;
+	}
+	
+	/**
+	 * @param duplicatePatientCandidateId the id of the pair
+	 */
+	public void setDuplicatePatientCandidateId(Integer duplicatePatientCandidateId) {
+		this.duplicatePatientCandidateId = duplicatePatientCandidateId;
+	}
+	
+	/**
+	 * @return the patient with the lower id
+	 */
+	public Patient getPatient() {
+		return patient;
+	}
+	
+	/**
+	 * @param patient the patient with the lower id
+	 */
+	public void setPatient(Patient patient) {
+		this.patient = patient;
+	}
+	
+	/**
+	 * @return the patient with the higher id
+	 */
+	public Patient getOtherPatient() {
+		return otherPatient;
+	}
+	
+	/**
+	 * @param otherPatient the patient with the higher id
+	 */
+	public void setOtherPatient(Patient otherPatient) {
+		this.otherPatient = otherPatient;
+	}
+	
+	/**
+	 * @return how similar the patients are, between 0 and 1
+	 */
+	public Double getScore() {
+		return score;
+	}
+	
+	/**
+	 * @param score how similar the patients are, between 0 and 1
+	 */
+	public void setScore(Double score) {
+		this.score = score;
+	}
+	
+	/**
+	 * @return when the pair was last scored
+	 */
+	public Date getDateCreated() {
+		return dateCreated;
+	}
+	
+	/**
+	 * @param dateCreated when the pair was last scored
+	 */
+	public void setDateCreated(Date dateCreated) {
+		this.dateCreated = dateCreated;
+	}
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "DuplicatePatientCandidate: " + (patient == null ? null : patient.getPatientId()) + " and "
+		        + (otherPatient == null ? null : otherPatient.getPatientId()) + ", score " + score;
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs;
+
+import java.io.Serializable;
+
+/**
+ * The statistics of the numeric values of the non-voided obs of a question concept. They are
+ * computed by the database, so that the obs do not need to be loaded. Percentiles are approximated
+ * from the number of values in each of a fixed number of equally wide buckets between the minimum
+ * and the maximum value, so they are off by at most the width of a bucket.
+ *
+ * @since 1.12
+ * @see org.openmrs.api.ObsService#getNumericObsStatistics(Concept)
+ */
+public class NumericObsStatistics implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final long count;
+	
+	private final Double min;
+	
+	private final Double max;
+	
+	private final Double mean;
+	
+	private final long[] buckets;
+	
+	/**
+	 * @param count the number of values
+	 * @param min the smallest value, null if there are none
+	 * @param max the largest value, null if there are none
+	 * @param mean the mean of the values, null if there are none
+	 * @param buckets the number of values in each of the equally wide buckets between min and max,
+	 *            the largest value is counted in the last one
+	 */
+	public NumericObsStatistics(long count, Double min, Double max, Double mean, long[] buckets) {
+		this.count = count;
+		this.min = min;
+		this.max = max;
+		this.mean = mean;
+		this.buckets = buckets;
+	}
+	
+	/**
+	 * @return the number of values
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * @return the smallest value, null if there are no values
+	 */
+	public Double getMin() {
+		return min;
+	}
+	
+	/**
+	 * @return the largest value, null if there are no values
+	 */
+	public Double getMax() {
+		return max;
+	}
+	
+	/**
+	 * @return the mean of the values, null if there are no values
+	 */
+	public Double getMean() {
+		return mean;
+	}
+	
+	/**
+	 * @return the approximate median of the values, null if there are no values
+	 */
+	public Double getMedian() {
+		return getPercentile(0.5);
+	}
+	
+	/**
+	 * Gets the value below which the given fraction of the values lies, interpolated within the
+	 * bucket it falls in
+	 *
+	 * @param fraction the fraction of the values, between 0 and 1
+	 * @return the approximate percentile, null if there are no values
+	 * @should return the minimum and maximum for zero and one
+	 * @should interpolate within the bucket of the percentile
+	 * @should return the value if all values are equal
+	 * @should return null if there are no values
+	 */
+	public Double getPercentile(double fraction) {
+		if (count == 0 || min == null || max == null) {
+			return null;
+		}
+		if (buckets == null || buckets.length == 0 || max.equals(min)) {
+			return min;
+		}
+		
+		double rank = Math.max(0, Math.min(1, fraction)) * count;
+		double width = (max - min) / buckets.length;
+		long below = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			if (below + buckets[i] > rank) {
+				double value = min + width * (i + (rank - below) / buckets[i]);
+				return Math.min(max, value);
+			}
+			below += buckets[i];
+		}
+		return max;
+	}
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "NumericObsStatistics: " + count + " values, min " + min + ", max " + max + ", mean " + mean;
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs;
+
+import java.io.Serializable;
+
+/**
+ * The first and the most recent non-voided obs of a person for a question concept, and the number
+ * of non-voided obs the person has for it. A row is kept for every person and concept that have obs,
+ * so that the most recent obs of a concept is found without sorting all obs of the person.
+ * <p>
+ * The rows are derived from the obs table and are updated when the transaction that changed the
+ * obs commits. They should never be changed directly.
+ *
+ * @since 1.12
+ */
+public class ObsSummary implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private Integer personId;
+	
+	private Integer conceptId;
+	
+	private Obs firstObs;
+	
+	private Obs latestObs;
+	
+	private Integer obsCount;
+	
+	/** Default Constructor */
+	public ObsSummary() {
+	}
+	
+	/**
+	 * @param personId the id of the person
+	 * @param conceptId the id of the question concept
+	 */
+	public ObsSummary(Integer personId, Integer conceptId) {
+		this.personId = personId;
+		this.conceptId = conceptId;
+	}
+	
+	/**
+	 * @return the id of the person
+	 */
+	public Integer getPersonId() {
+		return personId;
+	}
+	
+	/**
+	 * @param personId the id of the person
+	 */
+	public void setPersonId(Integer personId) {
+		this.personId = personId;
+	}
+	
+	/**
+	 * @return the id of the question concept
+	 */
+	public Integer getConceptId() {
+		return conceptId;
+	}
+	
+	/**
+	 * @param conceptId the id of the question concept
+	 */
+	public void setConceptId(Integer conceptId) {
+		this.conceptId = conceptId;
+	}
+	
+	/**
+	 * @return the obs with the earliest obsDatetime, the one with the lowest obsId if there are
+	 *         several
+	 */
+	public Obs getFirstObs() {
+		return firstObs;
+	}
+	
+	/**
+	 * @param firstObs the first obs
+	 */
+	public void setFirstObs(Obs firstObs) {
+		this.firstObs = firstObs;
+	}
+	
+	/**
+	 * @return the obs with the most recent obsDatetime, the one with the highest obsId if there are
+	 *         several
+	 */
+	public Obs getLatestObs() {
+		return latestObs;
+	}
+	
+	/**
+	 * @param latestObs the most recent obs
+	 */
+	public void setLatestObs(Obs latestObs) {
+		this.latestObs = latestObs;
+	}
+	
+	/**
+	 * @return the number of non-voided obs
+	 */
+	public Integer getObsCount() {
+		return obsCount;
+	}
+	
+	/**
+	 * @param obsCount the number of non-voided obs
+	 */
+	public void setObsCount(Integer obsCount) {
+		this.obsCount = obsCount;
+	}
+	
+	/**
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ObsSummary)) {
+			return false;
+		}
+		ObsSummary other = (ObsSummary) obj;
+		return personId != null && personId.equals(other.personId) && conceptId != null
+		        && conceptId.equals(other.conceptId);
+	}
+	
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * (personId == null ? 0 : personId.hashCode()) + (conceptId == null ? 0 : conceptId.hashCode());
+	}
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "ObsSummary: person " + personId + ", concept " + conceptId + ", " + obsCount + " obs";
+	}
+}
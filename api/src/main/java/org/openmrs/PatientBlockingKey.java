@@ -0,0 +1,107 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs;
+
+import java.io.Serializable;
+
+/**
+ * A blocking key of a patient, such as the phonetic code of the family name with the birth year.
+ * When looking for duplicate patients only the patients that share a blocking key are compared,
+ * instead of every patient with every other patient. The keys are derived from the patients by the
+ * Find Duplicate Patients Task and should never be changed directly.
+ *
+ * @see org.openmrs.patient.DuplicatePatientMatcher#getBlockingKeys(Patient)
+ * @since 1.12
+ */
+public class PatientBlockingKey implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private Integer patientId;
+	
+	private String blockingKey;
+	
+	/** Default Constructor */
+	public PatientBlockingKey() {
+	}
+	
+	/**
+	 * @param patientId the id of the patient
+	 * @param blockingKey the blocking key
+	 */
+	public PatientBlockingKey(Integer patientId, String blockingKey) {
+		this.patientId = patientId;
+		this.blockingKey = blockingKey;
+	}
+	
+	/**
+	 * @return the id of the patient
+	 */
+	public Integer getPatientId() {
+		return patientId;
+	}
+	
+	/**
+	 * @param patientId the id of the patient
+	 */
+	public void setPatientId(Integer patientId) {
+		this.patientId = patientId;
+	}
+	
+	/**
+	 * @return the blocking key
+	 */
+	public String getBlockingKey() {
+		return blockingKey;
+	}
+	
+	/**
+	 * @param blockingKey the blocking key
+	 */
+	public void setBlockingKey(String blockingKey) {
+		this.blockingKey = blockingKey;
+	}
+	
+	/**
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof PatientBlockingKey)) {
+			return false;
+		}
+		PatientBlockingKey other = (PatientBlockingKey) obj;
+		return patientId != null && patientId.equals(other.patientId) && blockingKey != null
+		        && blockingKey.equals(other.blockingKey);
+	}
+	
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * (patientId == null ? 0 : patientId.hashCode()) + (blockingKey == null ? 0 : blockingKey.hashCode());
+	}
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "PatientBlockingKey: patient " + patientId + ", " + blockingKey;
+	}
+}
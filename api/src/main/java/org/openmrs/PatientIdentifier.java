@@ -18,6 +18,14 @@ import java.lang.reflect.Method;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hibernate.search.annotations.Analyzer;
+import org.hibernate.search.annotations.DocumentId;
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.FieldBridge;
+import org.hibernate.search.annotations.Index;
+import org.hibernate.search.annotations.Indexed;
+import org.hibernate.search.annotations.Store;
+import org.openmrs.api.db.hibernate.search.bridge.OpenmrsObjectFieldBridge;
 import org.openmrs.util.OpenmrsUtil;
 
 /**
@@ -28,6 +36,8 @@ import org.openmrs.util.OpenmrsUtil;
  *
  * @see org.openmrs.PatientIdentifierType
  */
+@Indexed
+@Analyzer(definition = "LowerCaseKeywordAnalyzer")
 public class PatientIdentifier extends BaseOpenmrsData implements java.io.Serializable, Comparable<PatientIdentifier> {
 	
 	public static final long serialVersionUID = 1123121L;
@@ -39,10 +49,14 @@ public class PatientIdentifier extends BaseOpenmrsData implements java.io.Serial
 	/**
 	 * @since 1.5
 	 */
+	@DocumentId
 	private Integer patientIdentifierId;
 	
+	@Field(index = Index.UN_TOKENIZED, store = Store.YES)
+	@FieldBridge(impl = OpenmrsObjectFieldBridge.class)
 	private Patient patient;
 	
+	@Field
 	private String identifier;
 	
 	private PatientIdentifierType identifierType;
@@ -20,7 +20,16 @@ import java.util.Date;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hibernate.search.annotations.Analyzer;
+import org.hibernate.search.annotations.DocumentId;
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.FieldBridge;
+import org.hibernate.search.annotations.Fields;
+import org.hibernate.search.annotations.Index;
+import org.hibernate.search.annotations.Indexed;
+import org.hibernate.search.annotations.Store;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.db.hibernate.search.bridge.OpenmrsObjectFieldBridge;
 import org.openmrs.util.OpenmrsClassLoader;
 import org.openmrs.util.OpenmrsUtil;
 import org.simpleframework.xml.Attribute;
@@ -39,6 +48,8 @@ import org.simpleframework.xml.Root;
  * @see org.openmrs.Attributable
  */
 @Root(strict = false)
+@Indexed
+@Analyzer(definition = "LowerCaseKeywordAnalyzer")
 public class PersonAttribute extends BaseOpenmrsData implements java.io.Serializable, Comparable<PersonAttribute> {
 	
 	public static final long serialVersionUID = 11231211232111L;
@@ -47,12 +58,18 @@ public class PersonAttribute extends BaseOpenmrsData implements java.io.Serializ
 	
 	// Fields
 	
+	@DocumentId
 	private Integer personAttributeId;
 	
+	@Field(index = Index.UN_TOKENIZED, store = Store.YES)
+	@FieldBridge(impl = OpenmrsObjectFieldBridge.class)
 	private Person person;
 	
+	@Field(index = Index.UN_TOKENIZED)
+	@FieldBridge(impl = OpenmrsObjectFieldBridge.class)
 	private PersonAttributeType attributeType;
 	
+	@Fields( { @Field, @Field(name = "valueNGram", analyzer = @Analyzer(definition = "LowerCaseNGramAnalyzer")) })
 	private String value;
 	
 	/** default constructor */
@@ -24,6 +24,23 @@ import org.apache.commons.lang.builder.EqualsBuilder;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.solr.analysis.KeywordTokenizerFactory;
+import org.apache.solr.analysis.LowerCaseFilterFactory;
+import org.apache.solr.analysis.NGramFilterFactory;
+import org.hibernate.search.annotations.Analyzer;
+import org.hibernate.search.annotations.AnalyzerDef;
+import org.hibernate.search.annotations.AnalyzerDefs;
+import org.hibernate.search.annotations.DocumentId;
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.FieldBridge;
+import org.hibernate.search.annotations.Fields;
+import org.hibernate.search.annotations.Index;
+import org.hibernate.search.annotations.Indexed;
+import org.hibernate.search.annotations.Parameter;
+import org.hibernate.search.annotations.Store;
+import org.hibernate.search.annotations.TokenFilterDef;
+import org.hibernate.search.annotations.TokenizerDef;
+import org.openmrs.api.db.hibernate.search.bridge.OpenmrsObjectFieldBridge;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 import org.simpleframework.xml.Attribute;
@@ -37,6 +54,14 @@ import static org.apache.commons.lang.StringUtils.defaultString;
  * A Person can have zero to n PersonName(s).
  */
 @Root(strict = false)
+@Indexed
+@AnalyzerDefs( {
+        @AnalyzerDef(name = "LowerCaseKeywordAnalyzer", tokenizer = @TokenizerDef(factory = KeywordTokenizerFactory.class), filters = { @TokenFilterDef(factory = LowerCaseFilterFactory.class) }),
+        @AnalyzerDef(name = "LowerCaseNGramAnalyzer", tokenizer = @TokenizerDef(factory = KeywordTokenizerFactory.class), filters = {
+                @TokenFilterDef(factory = LowerCaseFilterFactory.class),
+                @TokenFilterDef(factory = NGramFilterFactory.class, params = {
+                        @Parameter(name = "minGramSize", value = "1"), @Parameter(name = "maxGramSize", value = "20") }) }) })
+@Analyzer(definition = "LowerCaseKeywordAnalyzer")
 public class PersonName extends BaseOpenmrsData implements java.io.Serializable, Cloneable, Comparable<PersonName> {
 	
 	public static final long serialVersionUID = 4353L;
@@ -45,22 +70,30 @@ public class PersonName extends BaseOpenmrsData implements java.io.Serializable,
 	
 	// Fields
 	
+	@DocumentId
 	private Integer personNameId;
 	
+	@Field(index = Index.UN_TOKENIZED, store = Store.YES)
+	@FieldBridge(impl = OpenmrsObjectFieldBridge.class)
 	private Person person;
 	
 	private Boolean preferred = false;
 	
 	private String prefix;
 	
+	// the n-grams of the names let a search that matches anywhere look up single terms
+	@Fields( { @Field, @Field(name = "givenNameNGram", analyzer = @Analyzer(definition = "LowerCaseNGramAnalyzer")) })
 	private String givenName;
 	
+	@Fields( { @Field, @Field(name = "middleNameNGram", analyzer = @Analyzer(definition = "LowerCaseNGramAnalyzer")) })
 	private String middleName;
 	
 	private String familyNamePrefix;
 	
+	@Fields( { @Field, @Field(name = "familyNameNGram", analyzer = @Analyzer(definition = "LowerCaseNGramAnalyzer")) })
 	private String familyName;
 	
+	@Fields( { @Field, @Field(name = "familyName2NGram", analyzer = @Analyzer(definition = "LowerCaseNGramAnalyzer")) })
 	private String familyName2;
 	
 	private String familyNameSuffix;
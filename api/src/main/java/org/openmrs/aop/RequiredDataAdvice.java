@@ -18,9 +18,13 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.openmrs.OpenmrsObject;
 import org.openmrs.Retireable;
@@ -42,6 +46,8 @@ import org.openmrs.util.HandlerUtil;
 import org.openmrs.util.Reflect;
 import org.openmrs.validator.ValidateUtil;
 import org.springframework.aop.MethodBeforeAdvice;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.util.StringUtils;
 
 /**
@@ -73,14 +79,33 @@ import org.springframework.util.StringUtils;
  * would then be run twice because both handlers are registered. Be sure to add the
  * {@link org.openmrs.annotation.Handler} annotation (like
  * "@Handler(supports=YourPojoThatHasUniqueSaveNeeds.class)") to your class so that it is picked up
- * by Spring automatically.
+ * by Spring automatically.<br/>
+ * <br/>
+ * The child collections to recurse into are looked up once per class and cached until the
+ * application context is refreshed.
  *
  * @see RequiredDataHandler
  * @see SaveHandler
  * @see VoidHandler
  * @since 1.5
  */
-public class RequiredDataAdvice implements MethodBeforeAdvice {
+public class RequiredDataAdvice implements MethodBeforeAdvice, ApplicationListener<ContextRefreshedEvent> {
+	
+	/**
+	 * The child collections to recurse into, by class of the object being handled
+	 */
+	private static final ConcurrentMap<Class<?>, List<ChildCollectionAccessor>> childCollectionAccessors =
+	        new ConcurrentHashMap<Class<?>, List<ChildCollectionAccessor>>();
+	
+	/**
+	 * Clears the cached child collections because classes of modules may have been replaced
+	 *
+	 * @see org.springframework.context.ApplicationListener#onApplicationEvent(org.springframework.context.ApplicationEvent)
+	 */
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		childCollectionAccessors.clear();
+	}
 	
 	/**
 	 * @see org.springframework.aop.MethodBeforeAdvice#before(java.lang.reflect.Method,
@@ -241,24 +266,33 @@ public class RequiredDataAdvice implements MethodBeforeAdvice {
 	 *            void/retire reason)
 	 * @param alreadyHandled an optional list of objects that have already been handled and should
 	 *            not be processed again. this is intended to prevent infinite recursion when
-	 *            handling collection properties.
+	 *            handling collection properties. Objects handled by this call are not added to it.
 	 * @see HandlerUtil#getHandlersForType(Class, Class)
 	 */
-	@SuppressWarnings("unchecked")
 	public static <H extends RequiredDataHandler> void recursivelyHandle(Class<H> handlerType, OpenmrsObject openmrsObject,
 	        User currentUser, Date currentDate, String other, List<OpenmrsObject> alreadyHandled) {
 		if (openmrsObject == null) {
 			return;
 		}
 		
-		Class<? extends OpenmrsObject> openmrsObjectClass = openmrsObject.getClass();
-		
-		if (alreadyHandled == null) {
-			alreadyHandled = new ArrayList<OpenmrsObject>();
+		// objects are compared by identity, comparing them by uuid would make this quadratic
+		Set<OpenmrsObject> handled = Collections.newSetFromMap(new IdentityHashMap<OpenmrsObject, Boolean>());
+		if (alreadyHandled != null) {
+			handled.addAll(alreadyHandled);
 		}
 		
+		recursivelyHandle(handlerType, openmrsObject, currentUser, currentDate, other, handled);
+	}
+	
+	/**
+	 * Handles the given object and recurses into its child collections, skipping objects that were
+	 * handled already
+	 */
+	private static <H extends RequiredDataHandler> void recursivelyHandle(Class<H> handlerType,
+	        OpenmrsObject openmrsObject, User currentUser, Date currentDate, String other, Set<OpenmrsObject> alreadyHandled) {
+		
 		// fetch all handlers for the object being saved
-		List<H> handlers = HandlerUtil.getHandlersForType(handlerType, openmrsObjectClass);
+		List<H> handlers = HandlerUtil.getHandlersForType(handlerType, openmrsObject.getClass());
 		
 		// loop over all handlers, calling onSave on each
 		for (H handler : handlers) {
@@ -266,33 +300,49 @@ public class RequiredDataAdvice implements MethodBeforeAdvice {
 		}
 		alreadyHandled.add(openmrsObject);
 		
-		Reflect reflect = new Reflect(OpenmrsObject.class);
-		List<Field> allInheritedFields = reflect.getInheritedFields(openmrsObjectClass);
-		
 		// loop over all child collections of OpenmrsObjects and recursively save on those
-		for (Field field : allInheritedFields) {
-			
-			// skip field if it's declared independent
-			if (field.isAnnotationPresent(Independent.class)) {
+		for (ChildCollectionAccessor accessor : getChildCollectionAccessors(openmrsObject.getClass())) {
+			if (accessor.isHandlerDisabled(handlerType)) {
 				continue;
 			}
 			
-			if (reflect.isCollectionField(field) && !isHandlerMarkedAsDisabled(handlerType, field)) {
-				
-				// the collection we'll be looping over
-				Collection<OpenmrsObject> childCollection = getChildCollection(openmrsObject, field);
-				
-				if (childCollection != null) {
-					for (Object collectionElement : childCollection) {
-						if (!alreadyHandled.contains(collectionElement)) {
-							recursivelyHandle(handlerType, (OpenmrsObject) collectionElement, currentUser, currentDate,
-							    other, alreadyHandled);
-						}
+			// the collection we'll be looping over
+			Collection<OpenmrsObject> childCollection = accessor.getChildCollection(openmrsObject);
+			
+			if (childCollection != null) {
+				for (OpenmrsObject collectionElement : childCollection) {
+					if (collectionElement != null && !alreadyHandled.contains(collectionElement)) {
+						recursivelyHandle(handlerType, collectionElement, currentUser, currentDate, other, alreadyHandled);
 					}
 				}
 			}
 		}
-		
+	}
+	
+	/**
+	 * Gets the child collections of OpenmrsObjects declared on the given class and its super
+	 * classes that are not marked as {@link Independent}, looking them up the first time the class
+	 * is handled
+	 *
+	 * @param openmrsObjectClass the class of the object being handled
+	 * @return the accessors for the child collections
+	 */
+	private static List<ChildCollectionAccessor> getChildCollectionAccessors(Class<?> openmrsObjectClass) {
+		List<ChildCollectionAccessor> accessors = childCollectionAccessors.get(openmrsObjectClass);
+		if (accessors == null) {
+			accessors = new ArrayList<ChildCollectionAccessor>();
+			
+			Reflect reflect = new Reflect(OpenmrsObject.class);
+			for (Field field : reflect.getInheritedFields(openmrsObjectClass)) {
+				// skip field if it's declared independent
+				if (!field.isAnnotationPresent(Independent.class) && reflect.isCollectionField(field)) {
+					accessors.add(new ChildCollectionAccessor(openmrsObjectClass, field));
+				}
+			}
+			
+			childCollectionAccessors.put(openmrsObjectClass, accessors);
+		}
+		return accessors;
 	}
 	
 	/**
@@ -393,4 +443,86 @@ public class RequiredDataAdvice implements MethodBeforeAdvice {
 		
 		return false;
 	}
+	
+	/**
+	 * Gets one child collection off of objects of a given class the same way
+	 * {@link RequiredDataAdvice#getChildCollection(OpenmrsObject, Field)} does, but with the getter
+	 * method and the {@link DisableHandlers} annotation looked up only once
+	 */
+	private static class ChildCollectionAccessor {
+		
+		private final Field field;
+		
+		private final String getterName;
+		
+		private final boolean directAccess;
+		
+		/**
+		 * the getter for the field or null if it doesn't exist
+		 */
+		private final Method getterMethod;
+		
+		private final DisableHandlers disableHandlers;
+		
+		public ChildCollectionAccessor(Class<?> openmrsObjectClass, Field field) {
+			this.field = field;
+			this.getterName = "get" + StringUtils.capitalize(field.getName());
+			this.directAccess = field.isAnnotationPresent(AllowDirectAccess.class);
+			this.disableHandlers = field.getAnnotation(DisableHandlers.class);
+			
+			Method getter = null;
+			if (directAccess) {
+				field.setAccessible(true);
+			} else {
+				try {
+					getter = openmrsObjectClass.getMethod(getterName, (Class[]) null);
+				}
+				catch (NoSuchMethodException e) {
+					// fail when the collection is actually needed, like getChildCollection does
+				}
+			}
+			this.getterMethod = getter;
+		}
+		
+		/**
+		 * @see RequiredDataAdvice#isHandlerMarkedAsDisabled(Class, Field)
+		 */
+		public boolean isHandlerDisabled(Class<? extends RequiredDataHandler> handlerType) {
+			if (disableHandlers != null) {
+				for (Class<? extends RequiredDataHandler> h : disableHandlers.handlerTypes()) {
+					if (h.isAssignableFrom(handlerType)) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+		
+		@SuppressWarnings("unchecked")
+		public Collection<OpenmrsObject> getChildCollection(OpenmrsObject openmrsObject) {
+			try {
+				if (directAccess) {
+					return (Collection<OpenmrsObject>) field.get(openmrsObject);
+				}
+				
+				if (getterMethod == null) {
+					throw new APIException("Unable to find getter method: " + getterName + " for field: " + field.getName()
+					        + " on " + openmrsObject.getClass());
+				}
+				return (Collection<OpenmrsObject>) getterMethod.invoke(openmrsObject, new Object[] {});
+			}
+			catch (IllegalAccessException e) {
+				if (directAccess) {
+					throw new APIException("Unable to get field: " + field.getName() + " on " + openmrsObject.getClass());
+				} else {
+					throw new APIException("Unable to use getter method: " + getterName + " for field: " + field.getName()
+					        + " on " + openmrsObject.getClass());
+				}
+			}
+			catch (InvocationTargetException e) {
+				throw new APIException("Unable to run getter method: " + getterName + " for field: " + field.getName()
+				        + " on " + openmrsObject.getClass());
+			}
+		}
+	}
 }
@@ -405,6 +405,10 @@ public interface AdministrationService extends OpenmrsService {
 	 * <p>
 	 * If <code>propertyName</code> is not found in the list of Global Properties currently in the
 	 * database, a null value is returned. This method should not have any authorization check.
+	 * <p>
+	 * Values are served from an in-memory cache that is kept up to date by the methods of this
+	 * service that change global properties. If the global_property table is changed by other
+	 * means, call {@link #refreshGlobalPropertyCache()}.
 	 * 
 	 * @param propertyName property key to look for
 	 * @return value of property returned or null if none
@@ -412,9 +416,34 @@ public interface AdministrationService extends OpenmrsService {
 	 * @should not fail with null propertyName
 	 * @should get property value given valid property name
 	 * @should get property in case insensitive way
+	 * @should return the new value after the property is saved
+	 * @should return null after the property is purged
 	 */
 	public String getGlobalProperty(String propertyName) throws APIException;
 	
+	/**
+	 * Clears the cached global property values used by {@link #getGlobalProperty(String)}, they
+	 * are all reloaded from the database with the next lookup. This is done at startup and only
+	 * needs to be called again if the global_property table was changed without going through this
+	 * service. This method should not have any authorization check.
+	 * 
+	 * @should pick up changes made directly in the database
+	 * @since 1.12
+	 */
+	public void refreshGlobalPropertyCache();
+	
+	/**
+	 * Evicts the given global property from the cache used by {@link #getGlobalProperty(String)},
+	 * so that it is read from the database the next time it is requested. This is meant to be
+	 * called by a clustered deployment when another node reports the property as changed through a
+	 * {@link GlobalPropertyCommitListener}. This method should not have any authorization check.
+	 * 
+	 * @param propertyName the name of the property to evict
+	 * @should pick up a change made directly in the database to the given property
+	 * @since 1.12
+	 */
+	public void refreshGlobalPropertyCache(String propertyName);
+	
 	/**
 	 * Gets the global property that has the given <code>propertyName</code>
 	 * <p>
@@ -704,6 +733,19 @@ public interface AdministrationService extends OpenmrsService {
 	 */
 	public List<Locale> getSearchLocales() throws APIException;
 	
+	/**
+	 * Gets the hit, miss and put counts of the second level cache and the query cache as a whole
+	 * and of each second level cache region. The counts are only collected while the
+	 * hibernate.generate_statistics runtime property is enabled.
+	 * 
+	 * @return a map from the summary or the region name to a map from statistic name to value
+	 * @throws APIException
+	 * @since 1.12
+	 * @should return the summary and the statistics of each cache region
+	 */
+	@Authorized(PrivilegeConstants.VIEW_ADMIN_FUNCTIONS)
+	public Map<String, Map<String, String>> getCacheStatistics() throws APIException;
+	
 	/**
 	 * Used by Spring to set the http client for accessing the openmrs implementation service
 	 *
@@ -17,6 +17,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang.NotImplementedException;
@@ -36,11 +37,13 @@ import org.openmrs.ConceptReferenceTerm;
 import org.openmrs.ConceptReferenceTermMap;
 import org.openmrs.ConceptSearchResult;
 import org.openmrs.ConceptSet;
+import org.openmrs.ConceptSnapshot;
 import org.openmrs.ConceptSource;
 import org.openmrs.ConceptStopWord;
 import org.openmrs.Drug;
 import org.openmrs.annotation.Authorized;
 import org.openmrs.api.db.ConceptDAO;
+import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.PrivilegeConstants;
 
 /**
@@ -279,6 +282,23 @@ public interface ConceptService extends OpenmrsService {
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	public Concept getConcept(Integer conceptId) throws APIException;
 	
+	/**
+	 * Gets a read-only snapshot of the concept with the given id, holding the ids of its datatype,
+	 * class, answers and set members and its names resolved in each of the allowed locales. The
+	 * snapshot is kept in memory and replaced after the concept is saved, retired or purged, so it
+	 * is a cheap way of displaying a concept many times over.
+	 * 
+	 * @param conceptId the id of the concept
+	 * @return the snapshot of the concept, or null if there is no concept with the given id
+	 * @throws APIException
+	 * @since 1.12
+	 * @should return the names, answers and set members of the concept
+	 * @should return null if there is no concept with the given id
+	 * @should return the changed names after the concept is saved
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public ConceptSnapshot getConceptSnapshot(Integer conceptId) throws APIException;
+	
 	/**
 	 * Gets the concept-name with the given id
 	 * 
@@ -767,16 +787,36 @@ public interface ConceptService extends OpenmrsService {
 	 * @param concept The concept representing the concept set
 	 * @return A List<Concept> object containing all objects within the ConceptSet
 	 * @throws APIException
+	 * @should include members added to a subset in the current transaction
 	 */
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	public List<Concept> getConceptsByConceptSet(Concept concept) throws APIException;
 	
+	/**
+	 * Checks whether a concept is a member of a concept set or of any of its subsets, without
+	 * loading the members of the set
+	 * 
+	 * @param concept the concept to look for
+	 * @param conceptSet the concept representing the concept set
+	 * @return true if the concept is in the set or in one of its subsets
+	 * @throws APIException
+	 * @should return true for a concept in a subset
+	 * @should return false for a concept not in the set
+	 * @should return false for a concept removed from the set in the current transaction
+	 * @since 1.12
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public boolean isConceptInSet(Concept concept, Concept conceptSet) throws APIException;
+	
 	/**
 	 * Find all sets that the given concept is a member of
 	 * 
 	 * @param concept
 	 * @throws APIException
 	 * @return A List<ConceptSet> object with all parent concept sets
+	 * @should return the sets directly containing the concept
+	 * @should return an empty list for a concept in no set
+	 * @should return a set the concept was added to in the current transaction
 	 */
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	public List<ConceptSet> getSetsContainingConcept(Concept concept) throws APIException;
@@ -1213,6 +1253,45 @@ public interface ConceptService extends OpenmrsService {
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	public List<Concept> getConceptsByMapping(String code, String sourceName, boolean includeRetired) throws APIException;
 	
+	/**
+	 * Looks up the concepts mapped to each of the given codes in a {@link ConceptSource} in a
+	 * single call, picking the concept of each code the same way as
+	 * {@link #getConceptByMapping(String, String, Boolean)}. The codes are looked up together and
+	 * kept in memory until a concept, reference term or concept source is changed, so this is the
+	 * cheapest way of resolving all the codes of an incoming HL7 or other integration message.
+	 * 
+	 * @param codes the codes associated with concepts within the given {@link ConceptSource}
+	 * @param sourceName the name or hl7Code of the {@link ConceptSource} to check
+	 * @param includeRetired whether or not to include retired concepts
+	 * @return a map from each of the given codes that has a mapping to its {@link Concept}, codes
+	 *         without a mapping are left out
+	 * @throws APIException if one of the codes maps to more than one non-retired concept
+	 * @should get the concepts with the given codes and source name or hl7 code
+	 * @should leave out the codes that are not mapped
+	 * @should not return retired concepts if not asked to
+	 * @should throw an exception if a code maps to two non-retired concepts
+	 * @should return a concept mapped in the current transaction
+	 * @since 1.12
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public Map<String, Concept> getConceptsByMappings(Collection<String> codes, String sourceName, boolean includeRetired)
+	        throws APIException;
+	
+	/**
+	 * Clears the concept snapshots, mappings, search results and set members kept in memory, they
+	 * are all reloaded from the database when they are next requested. This only needs to be called if the concept
+	 * dictionary was changed without going through this service. This method should not have any
+	 * authorization check.
+	 * 
+	 * @see #getConceptSnapshot(Integer)
+	 * @see #getConceptsByMapping(String, String, boolean)
+	 * @see #getConceptsByConceptSet(Concept)
+	 * 
+	 * @should pick up mappings added directly in the database
+	 * @since 1.12
+	 */
+	public void refreshConceptCaches();
+	
 	/**
 	 * Get all the concept name tags defined in the database, included voided ones
 	 * 
@@ -1340,6 +1419,10 @@ public interface ConceptService extends OpenmrsService {
 	 * @should return a search result for phrase with stop words
 	 * @should not return concepts with matching names that are voided
 	 * @should return preferred names higher
+	 * @should return the cached results of a repeated search
+	 * @should not return cached results after a concept is saved
+	 * @should find concepts with a misspelled word
+	 * @should find concepts by the beginning of a word with edge n-grams
 	 * @since 1.8
 	 */
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
@@ -1396,6 +1479,36 @@ public interface ConceptService extends OpenmrsService {
 	@Authorized( { PrivilegeConstants.MANAGE_CONCEPTS })
 	public void updateConceptIndexes(Integer conceptIdStart, Integer conceptIdEnd) throws APIException;
 	
+	/**
+	 * Rebuilds the search index of all concepts, concept names and drugs with several threads,
+	 * each of which loads the objects in batches with its own session, and logs the progress. The
+	 * number of threads is set by {@link OpenmrsConstants#GP_SEARCH_INDEXER_THREADS}. Unlike
+	 * {@link #updateConceptIndexes()}, changes that are not committed yet are not indexed, so this
+	 * should not be called from a transaction that changed concepts.
+	 * 
+	 * @throws APIException
+	 * @since 1.12
+	 */
+	@Authorized( { PrivilegeConstants.MANAGE_CONCEPTS })
+	public void rebuildConceptIndexes() throws APIException;
+	
+	/**
+	 * Updates the search index of the concepts, concept names and drugs that were created,
+	 * changed, retired or voided since the index was last rebuilt or updated by this method, as
+	 * recorded in {@link OpenmrsConstants#GP_CONCEPT_INDEX_UPDATED_UNTIL}. If it was never recorded,
+	 * the whole index is rebuilt with {@link #rebuildConceptIndexes()}. Changes made through this
+	 * service are indexed as they are committed, so this is meant to be run after the concept
+	 * dictionary was changed in the database directly, e.g. by importing a dictionary.
+	 * 
+	 * @throws APIException
+	 * @since 1.12
+	 * @should update the index of the concepts changed since the last update
+	 * @should not update the index of the concepts not changed since the last update
+	 * @should record the time up to which the index was updated
+	 */
+	@Authorized( { PrivilegeConstants.MANAGE_CONCEPTS })
+	public void updateChangedConceptIndexes() throws APIException;
+	
 	/**
 	 * Searches for concepts with the given parameters
 	 * 
@@ -630,6 +630,7 @@ public interface EncounterService extends OpenmrsService {
 	 * @should get all the unique encounters that match the specified parameter values
 	 * @should not return voided encounters if includeVoided is set to true
 	 * @should return empty list for empty query
+	 * @should not return encounters the user is not allowed to view
 	 */
 	@Authorized( { PrivilegeConstants.GET_ENCOUNTERS })
 	public List<Encounter> getEncounters(String query, Integer start, Integer length, boolean includeVoided)
@@ -679,6 +680,7 @@ public interface EncounterService extends OpenmrsService {
 	 * @return the number of encounters matching the given search phrase
 	 * @since 1.8
 	 * @should get the correct count of unique encounters
+	 * @should not count encounters the user is not allowed to view
 	 */
 	@Authorized( { PrivilegeConstants.GET_ENCOUNTERS })
 	public Integer getCountOfEncounters(String query, boolean includeVoided);
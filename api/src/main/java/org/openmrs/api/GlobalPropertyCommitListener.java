@@ -0,0 +1,36 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api;
+
+import java.util.Set;
+
+/**
+ * Spring beans implementing this interface are notified once a transaction that created, changed
+ * or deleted global properties has committed. Unlike a {@link GlobalPropertyListener}, which is
+ * called while the change is still in progress, this is the place to tell the other nodes of a
+ * clustered deployment to call {@link AdministrationService#refreshGlobalPropertyCache(String)}
+ * for the changed properties.
+ * 
+ * @since 1.12
+ */
+public interface GlobalPropertyCommitListener {
+	
+	/**
+	 * Called after a transaction that changed the given global properties has committed
+	 * 
+	 * @param propertyNames the names of the properties that were created, changed or deleted
+	 */
+	public void globalPropertiesCommitted(Set<String> propertyNames);
+	
+}
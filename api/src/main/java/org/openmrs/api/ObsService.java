@@ -17,6 +17,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 
 import org.openmrs.Cohort;
 import org.openmrs.Concept;
@@ -24,10 +25,12 @@ import org.openmrs.ConceptName;
 import org.openmrs.Encounter;
 import org.openmrs.Location;
 import org.openmrs.MimeType;
+import org.openmrs.NumericObsStatistics;
 import org.openmrs.Obs;
 import org.openmrs.Person;
 import org.openmrs.annotation.Authorized;
 import org.openmrs.api.db.ObsDAO;
+import org.openmrs.obs.ComplexDataFile;
 import org.openmrs.obs.ComplexObsHandler;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsConstants.PERSON_TYPE;
@@ -347,6 +350,123 @@ public interface ObsService extends OpenmrsService {
 	@Authorized(PrivilegeConstants.VIEW_OBS)
 	public List<Obs> getObservationsByPerson(Person who);
 	
+	/**
+	 * Gets one page of the non-voided observations of the given person, the most recent first. Obs
+	 * with the same obsDatetime are sorted by their obsId, the highest first.
+	 * 
+	 * @param who the person to get the observations of
+	 * @param start the index of the first observation to return, 0 if null
+	 * @param length the number of observations to return, all if null
+	 * @return the observations of the page
+	 * @see #getObservationCount(List, List, List, List, List, List, Integer, Date, Date, boolean)
+	 * @since 1.12
+	 * @should return the given page of the observations of the person the most recent first
+	 */
+	@Authorized(PrivilegeConstants.VIEW_OBS)
+	public List<Obs> getObservationsByPerson(Person who, Integer start, Integer length);
+	
+	/**
+	 * Gets the most recent non-voided observation of the given person for each of the given
+	 * question concepts, without loading the other observations of the person. If several
+	 * observations have the most recent obsDatetime, the one with the highest obsId is returned.
+	 * 
+	 * @param who the person to get the observations of
+	 * @param questions the question concepts
+	 * @return the most recent observation by question, questions without observations are left out
+	 * @since 1.12
+	 * @should return the most recent obs for each question
+	 * @should leave out questions without obs
+	 * @should ignore voided obs
+	 */
+	@Authorized(PrivilegeConstants.VIEW_OBS)
+	public Map<Concept, Obs> getLatestObservations(Person who, List<Concept> questions);
+	
+	/**
+	 * Rebuilds the summaries of the first and most recent observation of every person for every
+	 * question concept from the observations, and lets the most recent observations be read from
+	 * them from then on. The summaries are kept up to date when observations are saved, voided or
+	 * purged, so they only need to be rebuilt once after upgrading, or after the obs table has been
+	 * changed directly in the database.
+	 * 
+	 * @since 1.12
+	 * @should build the summaries of all persons and questions
+	 * @should let the most recent observations be read from the summaries
+	 */
+	@Authorized(PrivilegeConstants.EDIT_OBS)
+	public void rebuildObsSummaries();
+	
+	/**
+	 * Gets the count, minimum, maximum, mean and approximate percentiles of the numeric values of
+	 * the non-voided observations of the given question. They are computed by the database, so this
+	 * can be used for questions with any number of observations.
+	 * 
+	 * @param question the question concept
+	 * @return the statistics of the values, with a count of zero if there are none
+	 * @since 1.12
+	 * @should return the count min max and mean of the values
+	 * @should approximate the median of the values
+	 * @should ignore voided obs
+	 * @should return a count of zero for questions without obs
+	 */
+	@Authorized(PrivilegeConstants.VIEW_OBS)
+	public NumericObsStatistics getNumericObsStatistics(Concept question);
+	
+	/**
+	 * Counts the numeric values of the non-voided observations of the given question in each of
+	 * the given number of equally wide buckets between from and to. Values outside of the range are
+	 * not counted, the value to is counted in the last bucket.
+	 * 
+	 * @param question the question concept
+	 * @param from the lower bound of the first bucket
+	 * @param to the upper bound of the last bucket
+	 * @param bucketCount the number of buckets
+	 * @return the number of values in each bucket
+	 * @since 1.12
+	 * @should count the values in each bucket
+	 * @should not count values outside of the range
+	 */
+	@Authorized(PrivilegeConstants.VIEW_OBS)
+	public long[] getNumericObsHistogram(Concept question, Double from, Double to, int bucketCount);
+	
+	/**
+	 * Gets the mean of the numeric values of the non-voided observations of the given question for
+	 * each day that has observations
+	 * 
+	 * @param question the question concept
+	 * @return the mean by day, the earliest day first
+	 * @since 1.12
+	 * @should return the mean value of each day
+	 */
+	@Authorized(PrivilegeConstants.VIEW_OBS)
+	public SortedMap<Date, Double> getNumericObsDailyMeans(Concept question);
+	
+	/**
+	 * Counts the non-voided observations of the given question by their coded answer
+	 * 
+	 * @param question the question concept
+	 * @return the number of observations by answer, with a null key for the observations without
+	 *         an answer, the most frequent answer first
+	 * @since 1.12
+	 * @should count the obs of each answer
+	 */
+	@Authorized(PrivilegeConstants.VIEW_OBS)
+	public Map<Concept, Long> getCodedObsFrequencies(Concept question);
+	
+	/**
+	 * Gets the non-voided observations of the given question with a numeric value below lower or
+	 * above upper
+	 * 
+	 * @param question the question concept
+	 * @param lower values below this are returned, null for no lower bound
+	 * @param upper values above this are returned, null for no upper bound
+	 * @param length the maximum number of observations to return, null for all
+	 * @return the observations, ordered by their value
+	 * @since 1.12
+	 * @should return the obs with a value outside of the range
+	 */
+	@Authorized(PrivilegeConstants.VIEW_OBS)
+	public List<Obs> getNumericObservationsOutsideRange(Concept question, Double lower, Double upper, Integer length);
+	
 	/**
 	 * This method fetches observations according to the criteria in the given arguments. All
 	 * arguments are optional and nullable. If more than one argument is non-null, the result is
@@ -666,6 +786,24 @@ public interface ObsService extends OpenmrsService {
 	@Authorized( { PrivilegeConstants.VIEW_OBS })
 	public Obs getComplexObs(Integer obsId, String view) throws APIException;
 	
+	/**
+	 * Gets the file holding the given view of the complex data of an observation, so that it can be
+	 * streamed instead of being read into memory by {@link #getComplexObs(Integer, String)}
+	 * 
+	 * @param obsId the id of the observation
+	 * @param view nullable view type, as for {@link #getComplexObs(Integer, String)}
+	 * @return the file, or null if the observation is not complex, its handler does not store the
+	 *         data in files or the data is missing
+	 * @since 1.12
+	 * @see org.openmrs.obs.StreamingComplexObsHandler
+	 * @should return the file of the complex data
+	 * @should return a thumbnail of an image for the thumbnail view
+	 * @should return null for views that are not served from a file
+	 * @should return null for non complex obs
+	 */
+	@Authorized( { PrivilegeConstants.VIEW_OBS })
+	public ComplexDataFile getComplexDataFile(Integer obsId, String view) throws APIException;
+	
 	/**
 	 * Get the ComplexObsHandler that has been registered with the given key
 	 * 
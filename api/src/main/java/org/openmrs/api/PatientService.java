@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.openmrs.Concept;
+import org.openmrs.DuplicatePatientCandidate;
 import org.openmrs.Location;
 import org.openmrs.Patient;
 import org.openmrs.PatientIdentifier;
@@ -575,6 +576,10 @@ public interface PatientService extends OpenmrsService {
 	 * @throws APIException
 	 * @since 1.8
 	 * @should find a patients with a matching identifier with no digits
+	 * @should find patients by name and identifier in the search index
+	 * @should not find voided identifiers in the search index
+	 * @should return the pages of the patients in name order from the search index
+	 * @should match anywhere in the names with the search index
 	 */
 	@Authorized( { PrivilegeConstants.VIEW_PATIENTS })
 	public List<Patient> getPatients(String query, Integer start, Integer length) throws APIException;
@@ -613,18 +618,65 @@ public interface PatientService extends OpenmrsService {
 	/**
 	 * Search the database for patients that both share the given attributes. Each attribute that is
 	 * passed in must be identical to what is stored for at least one other patient for both
-	 * patients to be returned.
+	 * patients to be returned. Names and other text are compared ignoring case.<br/>
+	 * If the attributes contain "likelyDuplicates", the other attributes are ignored and the pairs
+	 * of likely duplicates found by {@link #updateDuplicatePatientCandidates(int)} are returned
+	 * instead, the most similar pairs first.
 	 * 
 	 * @param attributes attributes on a Person or Patient object. similar to: [gender, givenName,
-	 *            middleName, familyName]
+	 *            middleName, familyName], "includeVoided" to include voided patients
 	 * @return list of patients that match other patients
 	 * @throws APIException
 	 * @should fetch patients that exactly match on all given attributes
 	 * @should not return patients that exactly match on some but not all given attributes
+	 * @should include voided patients only if asked to
+	 * @should match names that differ only in case
+	 * @should return the likely duplicates if asked to
 	 */
 	@Authorized( { PrivilegeConstants.VIEW_PATIENTS })
 	public List<Patient> getDuplicatePatientsByAttributes(List<String> attributes) throws APIException;
 	
+	/**
+	 * Compares the next batch of patients with the patients they share a blocking key with, such as
+	 * the phonetic code of the family name with the birth year, and saves the pairs that score at
+	 * least the global property
+	 * {@link org.openmrs.util.OpenmrsConstants#GP_DUPLICATE_PATIENTS_MINIMUM_SCORE} as likely
+	 * duplicates. The id of the last patient compared is saved in the global property
+	 * {@link org.openmrs.util.OpenmrsConstants#GP_DUPLICATE_PATIENTS_LAST_PATIENT_ID}, so that the
+	 * next call, even after a restart, resumes after it. When all patients have been compared it
+	 * starts over.<br/>
+	 * Each call should run in its own transaction, it is run repeatedly by the Find Duplicate
+	 * Patients Task.
+	 * 
+	 * @param batchSize the number of patients to compare
+	 * @return true if there are more patients to compare, false if all have been compared
+	 * @throws APIException
+	 * @since 1.12
+	 * @should save patients sharing a blocking key that score high enough as likely duplicates
+	 * @should not save patients that score too low
+	 * @should resume after the last compared patient
+	 * @should start over when all patients have been compared
+	 * @should delete the likely duplicates of voided patients
+	 */
+	@Authorized( { PrivilegeConstants.EDIT_PATIENTS })
+	public boolean updateDuplicatePatientCandidates(int batchSize) throws APIException;
+	
+	/**
+	 * Gets the pairs of likely duplicate patients found by
+	 * {@link #updateDuplicatePatientCandidates(int)}, the most similar pairs first
+	 * 
+	 * @param includeVoided whether to include the pairs with a voided patient
+	 * @param start the index of the first pair to return, or null to start with the first
+	 * @param length the maximum number of pairs to return, or null for all
+	 * @return the pairs
+	 * @throws APIException
+	 * @since 1.12
+	 * @should return the most similar pairs first
+	 */
+	@Authorized( { PrivilegeConstants.VIEW_PATIENTS })
+	public List<DuplicatePatientCandidate> getDuplicatePatientCandidates(boolean includeVoided, Integer start,
+	        Integer length) throws APIException;
+	
 	/**
 	 * Convenience method to join two patients' information into one record.
 	 * <ol>
@@ -979,6 +1031,7 @@ public interface PatientService extends OpenmrsService {
 	 * @since 1.8
 	 * @should return the right count when a patient has multiple matching person names
 	 * @should return the right count of patients with a matching identifier with no digits
+	 * @should return the right count when searching the search index
 	 */
 	@Authorized( { PrivilegeConstants.VIEW_PATIENTS })
 	public Integer getCountOfPatients(String query);
@@ -484,6 +484,80 @@ public interface PatientSetService extends OpenmrsService {
 	 */
 	public Map<Integer, List<DrugOrder>> getCurrentDrugOrders(Cohort ps, Concept drugSet);
 	
+	/**
+	 * Streaming version of {@link #getObservations(Cohort, Concept, Date, Date)}. The cohort is
+	 * queried in chunks and the obs of each patient, most recent first, are passed to the callback
+	 * as soon as they have been read, so memory use does not grow with the size of the cohort. The
+	 * obs are evicted from the session after the callback returns.
+	 * 
+	 * @param patients the cohort to get data for
+	 * @param concept the concept of the obs
+	 * @param fromDate if not null, only obs on or after this date are included
+	 * @param toDate if not null, only obs on or before this date are included
+	 * @param callback receives the obs of each patient that has any
+	 * @since 1.12
+	 * @should pass the same obs to the callback as getObservations
+	 * @should not call the callback for an empty cohort
+	 */
+	public void streamObservations(Cohort patients, Concept concept, Date fromDate, Date toDate,
+	        PatientDataCallback<List<Obs>> callback);
+	
+	/**
+	 * Streaming version of {@link #getObservationsValues(Cohort, Concept, List, Integer, boolean)}
+	 * that passes the value rows of each patient to the callback
+	 * 
+	 * @param patients the cohort to restrict to. if null, then all patients are fetched
+	 * @param c the concept to look for in obs.concept_id
+	 * @param attributes list of attributes
+	 * @param limit the maximum number of rows per patient. If null or less than zero, return all
+	 * @param showMostRecentFirst if true, obs with the highest obsDatetime will be first
+	 * @param callback receives the value rows of each patient that has any
+	 * @since 1.12
+	 * @should pass the same values to the callback as getObservationsValues
+	 */
+	public void streamObservationsValues(Cohort patients, Concept c, List<String> attributes, Integer limit,
+	        boolean showMostRecentFirst, PatientDataCallback<List<List<Object>>> callback);
+	
+	/**
+	 * Streaming version of {@link #getEncountersByType(Cohort, List)} that passes the most recent
+	 * matching encounter of each patient to the callback. The encounters are evicted from the
+	 * session after the callback returns.
+	 * 
+	 * @param patients Cohort of patients to search. if null, then all patients are fetched
+	 * @param encTypes List<EncounterType> to include in the search
+	 * @param callback receives the most recent encounter of each patient that has any
+	 * @since 1.12
+	 * @should pass the same encounters to the callback as getEncountersByType
+	 */
+	public void streamEncountersByType(Cohort patients, List<EncounterType> encTypes,
+	        PatientDataCallback<Encounter> callback);
+	
+	/**
+	 * Streaming version of {@link #getPatientAttributes(Cohort, String, String, boolean)}
+	 * 
+	 * @param patients Cohort of patients to search. if null, then all patients are fetched
+	 * @param className
+	 * @param property
+	 * @param returnAll if true, an Object[] with all values is passed for each patient
+	 * @param callback receives the property value(s) of each patient
+	 * @since 1.12
+	 * @should pass the same values to the callback as getPatientAttributes
+	 */
+	public void streamPatientAttributes(Cohort patients, String className, String property, boolean returnAll,
+	        PatientDataCallback<Object> callback);
+	
+	/**
+	 * Streaming version of {@link #getCurrentDrugOrders(Cohort, Concept)}. The drug orders are
+	 * evicted from the session after the callback returns.
+	 * 
+	 * @param ps the cohort to get data for. if null, then all patients are fetched
+	 * @param drugSet if not null, only orders for drugs in this set are included
+	 * @param callback receives the active drug orders of each patient that has any
+	 * @since 1.12
+	 * @should pass the same drug orders to the callback as getCurrentDrugOrders
+	 */
+	public void streamCurrentDrugOrders(Cohort ps, Concept drugSet, PatientDataCallback<List<DrugOrder>> callback);
+	
 	/**
 	 * @return all active or finished drug orders whose drug concept is in the given set (or all
 	 *         drugs if that's null)
@@ -531,6 +605,22 @@ public interface PatientSetService extends OpenmrsService {
 		EARLIEST_ENCOUNTER, LATEST_ENCOUNTER, ANY_ENCOUNTER, PATIENT_HEALTH_CENTER
 	}
 	
+	/**
+	 * Receives the results of the streaming methods one patient at a time
+	 * 
+	 * @since 1.12
+	 */
+	public interface PatientDataCallback<T> {
+		
+		/**
+		 * Called once for every patient that has results
+		 * 
+		 * @param patientId the id of the patient
+		 * @param data the results for that patient
+		 */
+		public void handle(Integer patientId, T data);
+	}
+	
 	/**
 	 * Equivalent to Cohort.subtract(PatientSetService.getAllPatients(), cohort) but may eventually
 	 * perform faster by delegating to the database. (The current implementation has *not* been
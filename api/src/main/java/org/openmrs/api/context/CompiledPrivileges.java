@@ -0,0 +1,185 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.context;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openmrs.Privilege;
+import org.openmrs.Role;
+import org.openmrs.util.RoleConstants;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A compiled form of the privileges granted by a set of roles, used by
+ * {@link UserContext#hasPrivilege(String)} so that a privilege check is a single bit test instead of
+ * a walk over all roles, their parent roles and their privileges. Every privilege name is mapped to
+ * a small integer id the first time it is seen and the roles are flattened into the set of ids
+ * granted by them and all the roles they inherit from.
+ * <p>
+ * Compiled privileges are outdated when {@link #invalidate()} is called by the user service as roles,
+ * privileges or users are saved or purged. Within a transaction they are only outdated for other
+ * threads once it commits, so a change that is rolled back doesn't cause every user's privileges to
+ * be compiled again. Holders should check {@link #isCurrent()} and compile again.
+ *
+ * @since 1.12
+ */
+public class CompiledPrivileges {
+	
+	private static final ConcurrentMap<String, Integer> privilegeIds = new ConcurrentHashMap<String, Integer>();
+	
+	private static final AtomicInteger nextPrivilegeId = new AtomicInteger();
+	
+	private static final AtomicLong currentVersion = new AtomicLong();
+	
+	private final long version;
+	
+	private final boolean compiledWithPendingChanges;
+	
+	private final boolean superUser;
+	
+	private final BitSet privileges = new BitSet();
+	
+	/**
+	 * Compiles the privileges granted by the given roles and all the roles they inherit from
+	 *
+	 * @param roles the roles to compile, null entries are ignored
+	 * @should include privileges of inherited roles
+	 * @should grant every privilege if one of the roles inherits from the super user role
+	 */
+	public CompiledPrivileges(Collection<Role> roles) {
+		// read the version first so that an invalidation during compilation is noticed later
+		version = currentVersion.get();
+		compiledWithPendingChanges = isInvalidationPending();
+		
+		Set<Role> allRoles = new HashSet<Role>();
+		if (roles != null) {
+			for (Role role : roles) {
+				if (role != null) {
+					allRoles.add(role);
+					allRoles.addAll(role.getAllParentRoles());
+				}
+			}
+		}
+		
+		boolean superUser = false;
+		for (Role role : allRoles) {
+			superUser |= RoleConstants.SUPERUSER.equals(role.getRole());
+			if (role.getPrivileges() != null) {
+				for (Privilege privilege : role.getPrivileges()) {
+					if (privilege.getPrivilege() != null) {
+						privileges.set(getPrivilegeId(privilege.getPrivilege()));
+					}
+				}
+			}
+		}
+		this.superUser = superUser;
+	}
+	
+	/**
+	 * Marks all compiled privileges as outdated. If called within a transaction, they are only
+	 * outdated for the current thread until the transaction commits, and not at all for other
+	 * threads if it is rolled back.
+	 *
+	 * @should outdate compiled privileges for all threads once the transaction commits
+	 * @should not outdate compiled privileges if the transaction is rolled back
+	 */
+	public static void invalidate() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			currentVersion.incrementAndGet();
+			return;
+		}
+		
+		if (!isInvalidationPending()) {
+			TransactionSynchronizationManager.bindResource(CompiledPrivileges.class, Boolean.TRUE);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCommit() {
+					currentVersion.incrementAndGet();
+				}
+				
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(CompiledPrivileges.class);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * @return true if the transaction of the current thread changed roles, privileges or users and
+	 *         hasn't completed yet
+	 */
+	private static boolean isInvalidationPending() {
+		return TransactionSynchronizationManager.hasResource(CompiledPrivileges.class);
+	}
+	
+	/**
+	 * @return the id of the given privilege, assigning a new one if it wasn't seen before
+	 */
+	private static int getPrivilegeId(String privilege) {
+		Integer id = privilegeIds.get(privilege);
+		if (id == null) {
+			Integer newId = nextPrivilegeId.getAndIncrement();
+			id = privilegeIds.putIfAbsent(privilege, newId);
+			if (id == null) {
+				id = newId;
+			}
+		}
+		return id;
+	}
+	
+	/**
+	 * @return false if these privileges were compiled before the last call to {@link #invalidate()}
+	 *         or from changes that are not committed yet
+	 * @should return false after invalidate
+	 * @should stay true when a role is changed without being saved
+	 */
+	public boolean isCurrent() {
+		return !compiledWithPendingChanges && !isInvalidationPending() && version == currentVersion.get();
+	}
+	
+	/**
+	 * @param privilege the name of the privilege
+	 * @return true if the compiled roles grant the given privilege
+	 * @should return true if a role grants the privilege
+	 * @should return false for privileges that were never granted
+	 */
+	public boolean hasPrivilege(String privilege) {
+		if (superUser) {
+			return true;
+		}
+		if (privilege == null) {
+			return false;
+		}
+		
+		Integer id = privilegeIds.get(privilege);
+		return id != null && privileges.get(id);
+	}
+	
+	/**
+	 * @return true if one of the compiled roles is or inherits from the super user role
+	 */
+	public boolean isSuperUser() {
+		return superUser;
+	}
+}
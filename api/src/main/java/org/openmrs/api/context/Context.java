@@ -14,6 +14,7 @@
 package org.openmrs.api.context;
 
 import java.text.SimpleDateFormat;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -880,6 +881,9 @@ public class Context {
 		// TODO: Should this be one of the first things executed at startup?
 		checkCoreDataset();
 		
+		// start with a fresh global property cache now that the core properties are in place
+		getAdministrationService().refreshGlobalPropertyCache();
+		
 		getContextDAO().setupSearchIndex();
 	}
 	
@@ -1389,6 +1393,33 @@ public class Context {
 		getContextDAO().updateSearchIndexForObject(object);
 	}
 	
+	/**
+	 * Rebuilds the search index for objects of the given types with several threads, each of which
+	 * loads the objects in batches with its own session. The number of threads is set by
+	 * {@link OpenmrsConstants#GP_SEARCH_INDEXER_THREADS}. As the objects are not loaded with the
+	 * current session, changes that are not committed yet are not indexed.
+	 * 
+	 * @see #updateSearchIndex()
+	 * @param types the types to rebuild the index for
+	 * @since 1.12
+	 */
+	public static void updateSearchIndexForTypesInParallel(Class<?>... types) {
+		getContextDAO().updateSearchIndexForTypesInParallel(types);
+	}
+	
+	/**
+	 * Updates the search index for the objects of the given type with the given ids, loading them
+	 * in batches.
+	 * 
+	 * @see #updateSearchIndex()
+	 * @param type the type of the objects
+	 * @param ids the ids of the objects to index
+	 * @since 1.12
+	 */
+	public static void updateSearchIndexForObjects(Class<?> type, Collection<Integer> ids) {
+		getContextDAO().updateSearchIndexForObjects(type, ids);
+	}
+	
 	/**
 	 * @see org.openmrs.api.context.ServiceContext#setUseSystemClassLoader(boolean)
 	 * @since 1.10
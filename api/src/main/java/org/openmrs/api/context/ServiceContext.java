@@ -86,7 +86,11 @@ public class ServiceContext implements ApplicationContextAware {
 	
 	private ApplicationContext applicationContext;
 	
-	private static boolean refreshingContext = false;
+	/**
+	 * Read without holding {@link #refreshingContextLock} by {@link #getService(Class)}, so that
+	 * only callers arriving while the context is refreshing have to take the lock
+	 */
+	private static volatile boolean refreshingContext = false;
 	
 	private static final Object refreshingContextLock = new Object();
 	
@@ -96,9 +100,10 @@ public class ServiceContext implements ApplicationContextAware {
 	 */
 	private boolean useSystemClassLoader = false;
 	
-	// Cached service objects
+	// Cached service objects. The map is never modified once published, setService replaces it
+	// with a modified copy so that getService can read it without locking
 	@SuppressWarnings("unchecked")
-	Map<Class, Object> services = new HashMap<Class, Object>();
+	volatile Map<Class, Object> services = new HashMap<Class, Object>();
 	
 	// Advisors added to services by this service
 	@SuppressWarnings("unchecked")
@@ -159,10 +164,7 @@ public class ServiceContext implements ApplicationContextAware {
 				instance.removeAddedAOP(serviceClass);
 			}
 			
-			if (instance.services != null) {
-				instance.services.clear();
-				instance.services = null;
-			}
+			instance.services = null;
 			
 			if (instance.addedAdvisors != null) {
 				instance.addedAdvisors.clear();
@@ -729,23 +731,25 @@ public class ServiceContext implements ApplicationContextAware {
 		
 		// if the context is refreshing, wait until it is
 		// done -- otherwise a null service might be returned
-		synchronized (refreshingContextLock) {
-			try {
-				while (refreshingContext) {
-					if (log.isDebugEnabled()) {
-						log.debug("Waiting to get service: " + cls + " while the context is being refreshed");
+		if (refreshingContext) {
+			synchronized (refreshingContextLock) {
+				try {
+					while (refreshingContext) {
+						if (log.isDebugEnabled()) {
+							log.debug("Waiting to get service: " + cls + " while the context is being refreshed");
+						}
+						
+						refreshingContextLock.wait();
+						
+						if (log.isDebugEnabled()) {
+							log.debug("Finished waiting to get service " + cls + " while the context was being refreshed");
+						}
 					}
 					
-					refreshingContextLock.wait();
-					
-					if (log.isDebugEnabled()) {
-						log.debug("Finished waiting to get service " + cls + " while the context was being refreshed");
-					}
 				}
-				
-			}
-			catch (InterruptedException e) {
-				log.warn("Refresh lock was interrupted", e);
+				catch (InterruptedException e) {
+					log.warn("Refresh lock was interrupted", e);
+				}
 			}
 		}
 		
@@ -764,7 +768,7 @@ public class ServiceContext implements ApplicationContextAware {
 	 * @param classInstance the actual instance of the <code>cls</code> interface
 	 */
 	@SuppressWarnings("unchecked")
-	public void setService(Class cls, Object classInstance) {
+	public synchronized void setService(Class cls, Object classInstance) {
 		
 		log.debug("Setting service: " + cls);
 		
@@ -793,7 +797,9 @@ public class ServiceContext implements ApplicationContextAware {
 						moveAddedAOP(cachedService, advisedService);
 					}
 					
-					services.put(cls, advisedService);
+					Map<Class, Object> newServices = new HashMap<Class, Object>(services);
+					newServices.put(cls, advisedService);
+					services = newServices;
 				}
 				log.debug("Service: " + cls + " set successfully");
 			}
@@ -924,9 +930,7 @@ public class ServiceContext implements ApplicationContextAware {
 	 *         doneRefreshingContext()
 	 */
 	public boolean isRefreshingContext() {
-		synchronized (refreshingContextLock) {
-			return refreshingContext;
-		}
+		return refreshingContext;
 	}
 	
 	/**
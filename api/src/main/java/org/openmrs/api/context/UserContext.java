@@ -14,6 +14,7 @@
 package org.openmrs.api.context;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -80,6 +81,12 @@ public class UserContext implements Serializable {
 	 */
 	private Integer locationId;
 	
+	/**
+	 * Compiled privileges of the authenticated and anonymous roles, recompiled when the user
+	 * changes or roles are invalidated
+	 */
+	private transient volatile PrivilegeCache privilegeCache;
+	
 	/**
 	 * Default public constructor
 	 */
@@ -305,14 +312,15 @@ public class UserContext implements Serializable {
 	 * @should not authorize if authenticated role does not have specified privilege
 	 * @should not authorize if proxied user does not have specified privilege
 	 * @should not authorize if anonymous user does not have specified privilege
+	 * @should authorize privileges added to a role of the user once the role is saved
 	 */
 	public boolean hasPrivilege(String privilege) {
 		
 		// if a user has logged in, check their privileges
 		if (isAuthenticated()) {
 			
-			// check user's privileges
-			if (getAuthenticatedUser().hasPrivilege(privilege) || getAuthenticatedRole().hasPrivilege(privilege)) {
+			// All authenticated users have the "" (empty) privilege
+			if (StringUtils.isEmpty(privilege) || getPrivilegeCache().authenticated.hasPrivilege(privilege)) {
 				Context.getUserService().notifyPrivilegeListeners(getAuthenticatedUser(), privilege, true);
 				return true;
 			}
@@ -331,7 +339,7 @@ public class UserContext implements Serializable {
 			}
 		}
 		
-		if (getAnonymousRole().hasPrivilege(privilege)) {
+		if (getPrivilegeCache().anonymous.hasPrivilege(privilege)) {
 			Context.getUserService().notifyPrivilegeListeners(getAuthenticatedUser(), privilege, true);
 			return true;
 		}
@@ -341,6 +349,32 @@ public class UserContext implements Serializable {
 		return false;
 	}
 	
+	/**
+	 * Gets the compiled privileges of the current user, compiling them if the user changed or the
+	 * compiled roles were invalidated since they were last compiled
+	 *
+	 * @return the compiled privileges
+	 */
+	private PrivilegeCache getPrivilegeCache() {
+		PrivilegeCache cache = privilegeCache;
+		if (cache == null || cache.user != user || !cache.authenticated.isCurrent() || !cache.anonymous.isCurrent()) {
+			User currentUser = user;
+			CompiledPrivileges anonymous = new CompiledPrivileges(Collections.singleton(getAnonymousRole()));
+			CompiledPrivileges authenticated = anonymous;
+			if (currentUser != null) {
+				Set<Role> roles = new HashSet<Role>();
+				if (currentUser.getRoles() != null) {
+					roles.addAll(currentUser.getRoles());
+				}
+				roles.add(getAuthenticatedRole());
+				authenticated = new CompiledPrivileges(roles);
+			}
+			cache = new PrivilegeCache(currentUser, authenticated, anonymous);
+			privilegeCache = cache;
+		}
+		return cache;
+	}
+	
 	/**
 	 * Convenience method to get the Role in the system designed to be given to all users
 	 *
@@ -418,6 +452,24 @@ public class UserContext implements Serializable {
 		}
 	}
 	
+	/**
+	 * The compiled privileges for one authenticated user
+	 */
+	private static class PrivilegeCache {
+		
+		private final User user;
+		
+		private final CompiledPrivileges authenticated;
+		
+		private final CompiledPrivileges anonymous;
+		
+		public PrivilegeCache(User user, CompiledPrivileges authenticated, CompiledPrivileges anonymous) {
+			this.user = user;
+			this.authenticated = authenticated;
+			this.anonymous = anonymous;
+		}
+	}
+	
 	/**
 	 * Convenience method that sets the default location of the currently authenticated user using
 	 * the value of the user's default location property
@@ -15,6 +15,7 @@ package org.openmrs.api.db;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.openmrs.GlobalProperty;
 import org.openmrs.OpenmrsObject;
@@ -152,4 +153,9 @@ public interface AdministrationDAO {
 	 * @see org.openmrs.api.AdministrationService#validate(Object, Errors)
 	 */
 	public void validate(Object object, Errors errors) throws DAOException;
+	
+	/**
+	 * @see org.openmrs.api.AdministrationService#getCacheStatistics()
+	 */
+	public Map<String, Map<String, String>> getCacheStatistics() throws DAOException;
 }
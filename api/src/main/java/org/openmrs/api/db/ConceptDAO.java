@@ -13,6 +13,7 @@
 package org.openmrs.api.db;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -333,6 +334,47 @@ public interface ConceptDAO {
 	 */
 	public List<Concept> getConceptsByMapping(String code, String sourceName, boolean includeRetired);
 	
+	/**
+	 * Looks up the concepts mapped to any of the given codes in a single call, matching the codes
+	 * and source the same way as {@link #getConceptsByMapping(String, String, boolean)}
+	 * 
+	 * @param codes the codes to look up
+	 * @param sourceName the name or hl7 code of the concept source
+	 * @return a row with the code, the concept id and the retired flag of the concept for each
+	 *         mapping, with the concepts that are not retired first for each code
+	 * @since 1.12
+	 */
+	public List<Object[]> getConceptIdsByMapping(Collection<String> codes, String sourceName);
+	
+	/**
+	 * Gets the direct members of concept sets without loading the concepts
+	 * 
+	 * @param conceptSetIds the ids of the concept sets, or null for all concept sets
+	 * @return a row with the id of the concept set, the id of the member concept and whether the
+	 *         member is a set itself for each member, sorted by concept set and sort weight
+	 * @since 1.12
+	 */
+	public List<Object[]> getConceptSetMembers(Collection<Integer> conceptSetIds);
+	
+	/**
+	 * Gets the ids of the concepts that were created, changed or retired since the given date, or
+	 * that had a name added or voided since then
+	 * 
+	 * @param since the date to look for changes from, inclusive
+	 * @return the ids of the changed concepts
+	 * @since 1.12
+	 */
+	public List<Integer> getConceptIdsChangedSince(Date since);
+	
+	/**
+	 * Gets the ids of the drugs that were created, changed or retired since the given date
+	 * 
+	 * @param since the date to look for changes from, inclusive
+	 * @return the ids of the changed drugs
+	 * @since 1.12
+	 */
+	public List<Integer> getDrugIdsChangedSince(Date since);
+	
 	/**
 	 * Auto generated method comment
 	 * 
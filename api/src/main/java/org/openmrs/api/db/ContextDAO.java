@@ -13,6 +13,7 @@
  */
 package org.openmrs.api.db;
 
+import java.util.Collection;
 import java.util.Properties;
 
 import org.openmrs.User;
@@ -127,7 +128,8 @@ public interface ContextDAO {
 	 * Updates the search index if necessary.
 	 * <p>
 	 * The update is triggered if {@link OpenmrsConstants#GP_SEARCH_INDEX_VERSION} is blank
-	 * or the value does not match {@link OpenmrsConstants#SEARCH_INDEX_VERSION}.
+	 * or the value does not match {@link OpenmrsConstants#SEARCH_INDEX_VERSION}, or if
+	 * {@link OpenmrsConstants#GP_SEARCH_REBUILD_INDEX_AT_STARTUP} is true.
 	 */
 	public void setupSearchIndex();
 	
@@ -147,4 +149,15 @@ public interface ContextDAO {
 	 */
 	@Transactional
 	public void updateSearchIndexForType(Class<?> type);
+	
+	/**
+	 * @see Context#updateSearchIndexForTypesInParallel(Class...)
+	 */
+	public void updateSearchIndexForTypesInParallel(Class<?>... types);
+	
+	/**
+	 * @see Context#updateSearchIndexForObjects(Class, Collection)
+	 */
+	@Transactional
+	public void updateSearchIndexForObjects(Class<?> type, Collection<Integer> ids);
 }
@@ -71,10 +71,13 @@ public interface EncounterDAO {
 	 *      org.openmrs.Location, java.util.Date, java.util.Date, java.util.Collection,
 	 *      java.util.Collection, java.util.Collection, java.util.Collection, java.util.Collection,
 	 *      boolean)
+	 * @param excludedEncounterTypes the types of the encounters to leave out, e.g. because the user
+	 *            may not view them, or null
 	 */
 	public List<Encounter> getEncounters(Patient patient, Location location, Date fromDate, Date toDate,
 	        Collection<Form> enteredViaForms, Collection<EncounterType> encounterTypes, Collection<Provider> providers,
-	        Collection<VisitType> visitTypes, Collection<Visit> visits, boolean includeVoided);
+	        Collection<VisitType> visitTypes, Collection<Visit> visits, boolean includeVoided,
+	        Collection<EncounterType> excludedEncounterTypes);
 	
 	/**
 	 * Save an Encounter Type
@@ -162,10 +165,13 @@ public interface EncounterDAO {
 	 * @param start beginning index for the batch
 	 * @param length number of encounters to return in the batch
 	 * @param includeVoided Specifies whether voided encounters should be included
+	 * @param excludedEncounterTypes the types of the encounters to leave out, e.g. because the user
+	 *            may not view them, or null
 	 * @return list of {@link Encounter} based on batch settings
 	 * @see EncounterService#getEncounters(String, Integer, Integer, boolean)
 	 */
-	List<Encounter> getEncounters(String query, Integer patientId, Integer start, Integer length, boolean includeVoided);
+	List<Encounter> getEncounters(String query, Integer patientId, Integer start, Integer length, boolean includeVoided,
+	        Collection<EncounterType> excludedEncounterTypes);
 	
 	/**
 	 * Gets the location of the encounter
@@ -186,10 +192,13 @@ public interface EncounterDAO {
 	 * @param query patient name or identifier
 	 * @param patientId the patient id
 	 * @param includeVoided Specifies whether voided encounters should be included
+	 * @param excludedEncounterTypes the types of the encounters not to count, e.g. because the user
+	 *            may not view them, or null
 	 * @return the number of encounters matching the given search phrase
 	 * @see {@link EncounterService#getCountOfEncounters(String, boolean)}
 	 */
-	public Long getCountOfEncounters(String query, Integer patientId, boolean includeVoided);
+	public Long getCountOfEncounters(String query, Integer patientId, boolean includeVoided,
+	        Collection<EncounterType> excludedEncounterTypes);
 	
 	/**
 	 * @see EncounterService#getEncountersByVisit(Visit, boolean)
@@ -250,14 +259,19 @@ public interface EncounterDAO {
 	
 	/**
 	 * @see EncounterService#getEncountersByVisitsAndPatient(Patient, boolean, String, Date, Date)
+	 * @param excludedEncounterTypes the types of the encounters to leave out, e.g. because the user
+	 *            may not view them, or null
 	 */
 	List<Encounter> getEncountersByVisitsAndPatient(Patient patient, boolean includeVoided, String query, Integer start,
-	        Integer length);
+	        Integer length, Collection<EncounterType> excludedEncounterTypes);
 	
 	/**
 	 * @see EncounterService#getEncountersByVisitsAndPatientCount(Patient, boolean, String)
+	 * @param excludedEncounterTypes the types of the encounters not to count, e.g. because the user
+	 *            may not view them, or null
 	 */
-	Integer getEncountersByVisitsAndPatientCount(Patient patient, boolean includeVoided, String query);
+	Integer getEncountersByVisitsAndPatientCount(Patient patient, boolean includeVoided, String query,
+	        Collection<EncounterType> excludedEncounterTypes);
 	
 	/**
 	 * Get encounter roles by name
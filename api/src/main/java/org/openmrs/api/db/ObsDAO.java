@@ -15,13 +15,18 @@ package org.openmrs.api.db;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
 
 import org.openmrs.Concept;
 import org.openmrs.ConceptName;
 import org.openmrs.Encounter;
 import org.openmrs.Location;
 import org.openmrs.MimeType;
+import org.openmrs.NumericObsStatistics;
 import org.openmrs.Obs;
+import org.openmrs.ObsSummary;
 import org.openmrs.Person;
 import org.openmrs.api.ObsService;
 import org.openmrs.util.OpenmrsConstants.PERSON_TYPE;
@@ -98,6 +103,77 @@ public interface ObsDAO {
 	        Date fromDate, Date toDate, List<ConceptName> valueCodedNameAnswers, boolean includeVoidedObs,
 	        String accessionNumber) throws DAOException;
 	
+	/**
+	 * @see org.openmrs.api.ObsService#getObservationsByPerson(Person, Integer, Integer)
+	 */
+	public List<Obs> getObservationsByPerson(Person who, Integer start, Integer length) throws DAOException;
+	
+	/**
+	 * Gets the most recent non-voided obs of the person for each of the questions. There may be
+	 * several obs of a question if they have the same obsDatetime, in which case they are sorted by
+	 * their obsId, the highest first.
+	 * 
+	 * @param who the person to get the obs of
+	 * @param questions the question concepts
+	 * @return the most recent obs of the questions
+	 * @see org.openmrs.api.ObsService#getLatestObservations(Person, List)
+	 */
+	public List<Obs> getLatestObservations(Person who, List<Concept> questions) throws DAOException;
+	
+	/**
+	 * Updates the {@link ObsSummary} rows of the given persons and concepts from their non-voided
+	 * obs, deleting the rows of those that have none left
+	 * 
+	 * @param conceptIdsByPersonId the ids of the concepts to update by the id of the person
+	 * @since 1.12
+	 */
+	public void updateObsSummaries(Map<Integer, Set<Integer>> conceptIdsByPersonId) throws DAOException;
+	
+	/**
+	 * Builds all {@link ObsSummary} rows again from the non-voided obs. The session is cleared
+	 * after every batch of persons.
+	 * 
+	 * @see org.openmrs.api.ObsService#rebuildObsSummaries()
+	 * @since 1.12
+	 */
+	public void rebuildObsSummaries() throws DAOException;
+	
+	/**
+	 * @see org.openmrs.api.ObsService#getNumericObsStatistics(Concept)
+	 * @since 1.12
+	 */
+	public NumericObsStatistics getNumericObsStatistics(Concept question) throws DAOException;
+	
+	/**
+	 * @see org.openmrs.api.ObsService#getNumericObsHistogram(Concept, Double, Double, int)
+	 * @since 1.12
+	 */
+	public long[] getNumericObsHistogram(Concept question, double from, double to, int bucketCount) throws DAOException;
+	
+	/**
+	 * @see org.openmrs.api.ObsService#getNumericObsDailyMeans(Concept)
+	 * @since 1.12
+	 */
+	public SortedMap<Date, Double> getNumericObsDailyMeans(Concept question) throws DAOException;
+	
+	/**
+	 * Counts the non-voided obs of the given question by their coded answer
+	 * 
+	 * @param question the question concept
+	 * @return the number of obs by the id of the answer concept, null for obs without one, the most
+	 *         frequent answer first
+	 * @see org.openmrs.api.ObsService#getCodedObsFrequencies(Concept)
+	 * @since 1.12
+	 */
+	public Map<Integer, Long> getCodedObsFrequencies(Concept question) throws DAOException;
+	
+	/**
+	 * @see org.openmrs.api.ObsService#getNumericObservationsOutsideRange(Concept, Double, Double, Integer)
+	 * @since 1.12
+	 */
+	public List<Obs> getNumericObservationsOutsideRange(Concept question, Double lower, Double upper, Integer length)
+	        throws DAOException;
+	
 	/**
 	 * Auto generated method comment
 	 * 
@@ -13,8 +13,12 @@
  */
 package org.openmrs.api.db;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.openmrs.DuplicatePatientCandidate;
 import org.openmrs.Location;
 import org.openmrs.Patient;
 import org.openmrs.PatientIdentifier;
@@ -240,6 +244,70 @@ public interface PatientDAO {
 	 */
 	public List<Patient> getDuplicatePatientsByAttributes(List<String> attributes) throws DAOException;
 	
+	/**
+	 * Gets the next patients in the order of their ids, including voided patients
+	 * 
+	 * @param afterPatientId the id after which to start, or null to start with the first patient
+	 * @param batchSize the maximum number of patients to return
+	 * @return the patients
+	 * @since 1.12
+	 */
+	public List<Patient> getNextPatientBatch(Integer afterPatientId, int batchSize) throws DAOException;
+	
+	/**
+	 * Replaces the blocking keys of a patient
+	 * 
+	 * @param patient the patient
+	 * @param blockingKeys the new blocking keys of the patient, empty to delete them
+	 * @since 1.12
+	 */
+	public void savePatientBlockingKeys(Patient patient, Set<String> blockingKeys) throws DAOException;
+	
+	/**
+	 * Gets the ids of the patients that have the given blocking keys, leaving out the keys shared
+	 * by more patients than can be usefully compared
+	 * 
+	 * @param blockingKeys the blocking keys
+	 * @param maximumBlockSize the maximum number of patients sharing a key for it to be returned
+	 * @return the ids of the patients, by blocking key
+	 * @since 1.12
+	 */
+	public Map<String, Set<Integer>> getPatientIdsByBlockingKeys(Collection<String> blockingKeys, int maximumBlockSize)
+	        throws DAOException;
+	
+	/**
+	 * @see org.openmrs.api.PatientService#getDuplicatePatientCandidates(boolean, Integer, Integer)
+	 */
+	public List<DuplicatePatientCandidate> getDuplicatePatientCandidates(boolean includeVoided, Integer start,
+	        Integer length) throws DAOException;
+	
+	/**
+	 * Gets the likely duplicate pairs the given patient is part of
+	 * 
+	 * @param patient the patient
+	 * @return the pairs
+	 * @since 1.12
+	 */
+	public List<DuplicatePatientCandidate> getDuplicatePatientCandidates(Patient patient) throws DAOException;
+	
+	/**
+	 * Saves or updates a likely duplicate pair
+	 * 
+	 * @param candidate the pair
+	 * @return the saved pair
+	 * @since 1.12
+	 */
+	public DuplicatePatientCandidate saveDuplicatePatientCandidate(DuplicatePatientCandidate candidate)
+	        throws DAOException;
+	
+	/**
+	 * Deletes a likely duplicate pair
+	 * 
+	 * @param candidate the pair
+	 * @since 1.12
+	 */
+	public void deleteDuplicatePatientCandidate(DuplicatePatientCandidate candidate) throws DAOException;
+	
 	/**
 	 * @see org.openmrs.api.PatientService#isIdentifierInUseByAnotherPatient(PatientIdentifier)
 	 */
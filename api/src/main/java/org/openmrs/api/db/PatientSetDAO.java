@@ -40,6 +40,7 @@ import org.openmrs.ProgramWorkflowState;
 import org.openmrs.Relationship;
 import org.openmrs.RelationshipType;
 import org.openmrs.api.PatientSetService;
+import org.openmrs.api.PatientSetService.PatientDataCallback;
 import org.openmrs.api.PatientSetService.PatientLocationMethod;
 import org.openmrs.api.PatientSetService.TimeModifier;
 
@@ -122,6 +123,38 @@ public interface PatientSetDAO {
 	
 	public Map<Integer, List<DrugOrder>> getDrugOrders(Cohort ps, List<Concept> drugConcepts) throws DAOException;
 	
+	/**
+	 * @see PatientSetService#streamObservations(Cohort, Concept, Date, Date, PatientDataCallback)
+	 */
+	public void streamObservations(Cohort patients, Concept concept, Date fromDate, Date toDate,
+	        PatientDataCallback<List<Obs>> callback) throws DAOException;
+	
+	/**
+	 * @see PatientSetService#streamObservationsValues(Cohort, Concept, List, Integer, boolean,
+	 *      PatientDataCallback)
+	 */
+	public void streamObservationsValues(Cohort patients, Concept c, List<String> attributes, Integer limit,
+	        boolean showMostRecentFirst, PatientDataCallback<List<List<Object>>> callback) throws DAOException;
+	
+	/**
+	 * @see PatientSetService#streamEncountersByType(Cohort, List, PatientDataCallback)
+	 */
+	public void streamEncountersByType(Cohort patients, List<EncounterType> encTypes,
+	        PatientDataCallback<Encounter> callback) throws DAOException;
+	
+	/**
+	 * @see PatientSetService#streamPatientAttributes(Cohort, String, String, boolean,
+	 *      PatientDataCallback)
+	 */
+	public void streamPatientAttributes(Cohort patients, String className, String property, boolean returnAll,
+	        PatientDataCallback<Object> callback) throws DAOException;
+	
+	/**
+	 * @see PatientSetService#streamCurrentDrugOrders(Cohort, Concept, PatientDataCallback)
+	 */
+	public void streamCurrentDrugOrders(Cohort ps, List<Concept> drugConcepts,
+	        PatientDataCallback<List<DrugOrder>> callback) throws DAOException;
+	
 	public Map<Integer, List<Relationship>> getRelationships(Cohort ps, RelationshipType relType) throws DAOException;
 	
 	public Map<Integer, List<Person>> getRelatives(Cohort ps, RelationshipType relType, boolean forwards)
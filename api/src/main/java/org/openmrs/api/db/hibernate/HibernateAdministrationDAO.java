@@ -17,9 +17,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
@@ -35,6 +37,8 @@ import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.mapping.Column;
 import org.hibernate.mapping.PersistentClass;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
 import org.openmrs.GlobalProperty;
 import org.openmrs.OpenmrsObject;
 import org.openmrs.User;
@@ -378,6 +382,62 @@ public class HibernateAdministrationDAO implements AdministrationDAO, Applicatio
 		}
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.AdministrationDAO#getCacheStatistics()
+	 */
+	@Override
+	public Map<String, Map<String, String>> getCacheStatistics() throws DAOException {
+		Statistics statistics = sessionFactory.getStatistics();
+		Map<String, Map<String, String>> cacheStatistics = new LinkedHashMap<String, Map<String, String>>();
+		
+		Map<String, String> summary = new LinkedHashMap<String, String>();
+		summary.put("CacheStatistics.enabled", String.valueOf(statistics.isStatisticsEnabled()));
+		summary.put("CacheStatistics.startTime", new Date(statistics.getStartTime()).toString());
+		summary.put("CacheStatistics.secondLevelCache.hitCount", String.valueOf(statistics.getSecondLevelCacheHitCount()));
+		summary.put("CacheStatistics.secondLevelCache.missCount", String.valueOf(statistics
+		        .getSecondLevelCacheMissCount()));
+		summary.put("CacheStatistics.secondLevelCache.putCount", String.valueOf(statistics.getSecondLevelCachePutCount()));
+		summary.put("CacheStatistics.secondLevelCache.hitRatio", getHitRatio(statistics.getSecondLevelCacheHitCount(),
+		    statistics.getSecondLevelCacheMissCount()));
+		summary.put("CacheStatistics.queryCache.hitCount", String.valueOf(statistics.getQueryCacheHitCount()));
+		summary.put("CacheStatistics.queryCache.missCount", String.valueOf(statistics.getQueryCacheMissCount()));
+		summary.put("CacheStatistics.queryCache.putCount", String.valueOf(statistics.getQueryCachePutCount()));
+		summary.put("CacheStatistics.queryCache.hitRatio", getHitRatio(statistics.getQueryCacheHitCount(), statistics
+		        .getQueryCacheMissCount()));
+		summary.put("CacheStatistics.entityLoadCount", String.valueOf(statistics.getEntityLoadCount()));
+		summary.put("CacheStatistics.collectionLoadCount", String.valueOf(statistics.getCollectionLoadCount()));
+		summary.put("CacheStatistics.queryExecutionCount", String.valueOf(statistics.getQueryExecutionCount()));
+		cacheStatistics.put("CacheStatistics.title.summary", summary);
+		
+		String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+		Arrays.sort(regionNames);
+		for (String regionName : regionNames) {
+			SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(regionName);
+			if (regionStatistics == null) {
+				continue;
+			}
+			
+			// the size in memory is left out, ehcache has to serialize every element to compute it
+			Map<String, String> region = new LinkedHashMap<String, String>();
+			region.put("CacheStatistics.hitCount", String.valueOf(regionStatistics.getHitCount()));
+			region.put("CacheStatistics.missCount", String.valueOf(regionStatistics.getMissCount()));
+			region.put("CacheStatistics.putCount", String.valueOf(regionStatistics.getPutCount()));
+			region.put("CacheStatistics.hitRatio", getHitRatio(regionStatistics.getHitCount(), regionStatistics
+			        .getMissCount()));
+			region.put("CacheStatistics.elementCountInMemory", String.valueOf(regionStatistics.getElementCountInMemory()));
+			cacheStatistics.put(regionName, region);
+		}
+		
+		return cacheStatistics;
+	}
+	
+	private String getHitRatio(long hitCount, long missCount) {
+		if (hitCount + missCount == 0) {
+			return "";
+		}
+		return String.format("%.1f%%", 100.0 * hitCount / (hitCount + missCount));
+	}
+	
 	/**
 	 * Fetches all validators that are registered
 	 *
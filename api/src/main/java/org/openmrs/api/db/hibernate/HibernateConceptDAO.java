@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -27,7 +28,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.Vector;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
@@ -88,6 +88,17 @@ public class HibernateConceptDAO implements ConceptDAO {
 	
 	protected final Log log = LogFactory.getLog(getClass());
 	
+	/**
+	 * The number of codes looked up per query by {@link #getConceptIdsByMapping(Collection, String)},
+	 * to stay below the limit some databases have on the number of parameters
+	 */
+	private static final int MAPPING_CODES_BATCH_SIZE = 500;
+	
+	/**
+	 * The number of concept sets looked up per query by {@link #getConceptSetMembers(Collection)}
+	 */
+	private static final int CONCEPT_SET_IDS_BATCH_SIZE = 500;
+	
 	private SessionFactory sessionFactory;
 	
 	/**
@@ -458,6 +469,7 @@ public class HibernateConceptDAO implements ConceptDAO {
 			crit.add(Restrictions.eq("retired", false));
 		}
 		
+		crit.setCacheable(true);
 		return crit.list();
 	}
 	
@@ -501,6 +513,7 @@ public class HibernateConceptDAO implements ConceptDAO {
 			crit.add(Restrictions.eq("retired", false));
 		}
 		
+		crit.setCacheable(true);
 		return crit.list();
 	}
 	
@@ -642,17 +655,26 @@ public class HibernateConceptDAO implements ConceptDAO {
 			query.append(" name:(\"" + escapedName + "\")^0.7");
 			
 			if (!tokenizedName.isEmpty()) {
+				boolean useEdgeNGrams = isConceptSearchUsingEdgeNGrams();
+				
 				query.append(" OR (");
 				for (String token : tokenizedName) {
 					query.append(" (name:(");
 					
 					//Include exact
 					query.append(token);
-					query.append(")^0.6 OR name:(");
+					query.append(")^0.6 OR ");
 					
 					//Include partial
-					query.append(token);
-					query.append("*)^0.3 OR name:(");
+					if (useEdgeNGrams) {
+						query.append("nameEdgeNGram:(");
+						query.append(token);
+						query.append(")^0.3 OR name:(");
+					} else {
+						query.append("name:(");
+						query.append(token);
+						query.append("*)^0.3 OR name:(");
+					}
 					
 					//Include similar
 					query.append(token);
@@ -667,6 +689,15 @@ public class HibernateConceptDAO implements ConceptDAO {
 		return query;
 	}
 	
+	/**
+	 * Words of the phrase are analyzed into the same edge n-grams as the indexed names, and as the
+	 * query parser requires all of them, a name matches if one of its words starts with the word
+	 */
+	private boolean isConceptSearchUsingEdgeNGrams() {
+		return Boolean.valueOf(Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_CONCEPT_SEARCH_USE_EDGE_NGRAMS, "false").trim());
+	}
+	
 	private List<String> tokenizeConceptName(final String escapedName, final Set<Locale> locales) {
 		List<String> words = new ArrayList<String>();
 		words.addAll(Arrays.asList(escapedName.trim().split(" ")));
@@ -832,34 +863,6 @@ public class HibernateConceptDAO implements ConceptDAO {
 		        .list();
 	}
 	
-	/**
-	 * returns a list of n-generations of parents of a concept in a concept set
-	 *
-	 * @param Concept current
-	 * @return List<Concept>
-	 * @throws DAOException
-	 */
-	@SuppressWarnings("unchecked")
-	private List<Concept> getParents(Concept current) throws DAOException {
-		List<Concept> parents = new Vector<Concept>();
-		if (current != null) {
-			Query query = sessionFactory.getCurrentSession().createQuery(
-			    "from Concept c join c.conceptSets sets where sets.concept = ?").setEntity(0, current);
-			List<Concept> immed_parents = query.list();
-			for (Concept c : immed_parents) {
-				parents.addAll(getParents(c));
-			}
-			parents.add(current);
-			if (log.isDebugEnabled()) {
-				log.debug("parents found: ");
-				for (Concept c : parents) {
-					log.debug("id: " + c.getConceptId());
-				}
-			}
-		}
-		return parents;
-	}
-	
 	/**
 	 * @see org.openmrs.api.db.ConceptDAO#getLocalesOfConceptNames()
 	 */
@@ -923,6 +926,7 @@ public class HibernateConceptDAO implements ConceptDAO {
 			criteria.add(Restrictions.eq("retired", false));
 		}
 		
+		criteria.setCacheable(true);
 		return criteria.list();
 	}
 	
@@ -1058,6 +1062,72 @@ public class HibernateConceptDAO implements ConceptDAO {
 		return (List<Concept>) criteria.list();
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getConceptIdsByMapping(java.util.Collection, java.lang.String)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getConceptIdsByMapping(Collection<String> codes, String sourceName) {
+		List<String> codeList = new ArrayList<String>(codes);
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (int i = 0; i < codeList.size(); i += MAPPING_CODES_BATCH_SIZE) {
+			List<String> batch = codeList.subList(i, Math.min(i + MAPPING_CODES_BATCH_SIZE, codeList.size()));
+			Query query = sessionFactory.getCurrentSession().createQuery(
+			    "select distinct term.code, concept.conceptId, concept.retired from ConceptMap map "
+			            + "join map.conceptReferenceTerm term join term.conceptSource source join map.concept concept "
+			            + "where term.code in (:codes) and (source.name = :sourceName or source.hl7Code = :sourceName) "
+			            + "order by concept.retired, concept.conceptId");
+			query.setParameterList("codes", batch);
+			query.setString("sourceName", sourceName);
+			rows.addAll(query.list());
+		}
+		return rows;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getConceptSetMembers(java.util.Collection)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getConceptSetMembers(Collection<Integer> conceptSetIds) {
+		String hql = "select cs.conceptSet.conceptId, member.conceptId, member.set from ConceptSet cs "
+		        + "join cs.concept member ";
+		String order = "order by cs.conceptSet.conceptId, cs.sortWeight, cs.conceptSetId";
+		if (conceptSetIds == null) {
+			return sessionFactory.getCurrentSession().createQuery(hql + order).list();
+		}
+		
+		List<Integer> idList = new ArrayList<Integer>(conceptSetIds);
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (int i = 0; i < idList.size(); i += CONCEPT_SET_IDS_BATCH_SIZE) {
+			List<Integer> batch = idList.subList(i, Math.min(i + CONCEPT_SET_IDS_BATCH_SIZE, idList.size()));
+			Query query = sessionFactory.getCurrentSession().createQuery(
+			    hql + "where cs.conceptSet.conceptId in (:conceptSetIds) " + order);
+			query.setParameterList("conceptSetIds", batch);
+			rows.addAll(query.list());
+		}
+		return rows;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getConceptIdsChangedSince(java.util.Date)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Integer> getConceptIdsChangedSince(Date since) {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select c.conceptId from Concept c where c.dateCreated >= :since or c.dateChanged >= :since "
+		            + "or c.dateRetired >= :since or exists (from ConceptName n where n.concept = c "
+		            + "and (n.dateCreated >= :since or n.dateVoided >= :since))").setTimestamp("since", since).list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getDrugIdsChangedSince(java.util.Date)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Integer> getDrugIdsChangedSince(Date since) {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select d.drugId from Drug d where d.dateCreated >= :since or d.dateChanged >= :since "
+		            + "or d.dateRetired >= :since").setTimestamp("since", since).list();
+	}
+	
 	/**
 	 * @see org.openmrs.api.db.ConceptDAO#getConceptByUuid(java.lang.String)
 	 */
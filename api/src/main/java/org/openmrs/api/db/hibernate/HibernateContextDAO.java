@@ -15,10 +15,16 @@ package org.openmrs.api.db.hibernate;
 
 import java.io.InputStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -29,7 +35,9 @@ import org.hibernate.ScrollMode;
 import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Restrictions;
 import org.hibernate.search.FullTextSession;
+import org.hibernate.search.MassIndexer;
 import org.hibernate.search.Search;
 import org.hibernate.stat.QueryStatistics;
 import org.hibernate.stat.Statistics;
@@ -40,6 +48,7 @@ import org.openmrs.User;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.context.ContextAuthenticationException;
 import org.openmrs.api.db.ContextDAO;
+import org.openmrs.api.db.hibernate.search.IndexingProgressLogger;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 import org.openmrs.util.Security;
@@ -58,6 +67,17 @@ public class HibernateContextDAO implements ContextDAO {
 	
 	private static Log log = LogFactory.getLog(HibernateContextDAO.class);
 	
+	/**
+	 * The number of objects indexed with the current session before the index is flushed and the
+	 * session is cleared
+	 */
+	private static final int SEARCH_INDEX_BATCH_SIZE = 1000;
+	
+	/**
+	 * The number of objects each thread of the mass indexer loads at once
+	 */
+	private static final int SEARCH_INDEXER_LOAD_BATCH_SIZE = 100;
+	
 	/**
 	 * Hibernate session factory
 	 */
@@ -324,6 +344,51 @@ public class HibernateContextDAO implements ContextDAO {
 	 * @see org.openmrs.api.context.Context#startup(Properties)
 	 */
 	public void startup(Properties properties) {
+		configureCacheRegions(properties);
+	}
+	
+	/**
+	 * Applies the region sizes given in the runtime properties to the second level cache, so that
+	 * they can be tuned per deployment without changing ehcache.xml
+	 *
+	 * @see OpenmrsConstants#CACHE_REGION_RUNTIME_PROPERTY_PREFIX
+	 */
+	private void configureCacheRegions(Properties properties) {
+		String prefix = OpenmrsConstants.CACHE_REGION_RUNTIME_PROPERTY_PREFIX;
+		String suffix = OpenmrsConstants.CACHE_REGION_MAX_ELEMENTS_RUNTIME_PROPERTY_SUFFIX;
+		
+		for (String property : properties.stringPropertyNames()) {
+			if (!property.startsWith(prefix) || !property.endsWith(suffix)
+			        || property.length() <= prefix.length() + suffix.length()) {
+				continue;
+			}
+			
+			String regionName = property.substring(prefix.length(), property.length() - suffix.length());
+			String value = properties.getProperty(property).trim();
+			int maxElements;
+			try {
+				maxElements = Integer.parseInt(value);
+			}
+			catch (NumberFormatException e) {
+				log.warn("Ignoring invalid size '" + value + "' for cache region " + regionName);
+				continue;
+			}
+			
+			boolean found = false;
+			for (CacheManager cacheManager : CacheManager.ALL_CACHE_MANAGERS) {
+				Ehcache cache = cacheManager.getEhcache(regionName);
+				if (cache != null) {
+					cache.getCacheConfiguration().setMaxElementsInMemory(maxElements);
+					found = true;
+				}
+			}
+			
+			if (found) {
+				log.info("Set the maximum number of elements in cache region " + regionName + " to " + maxElements);
+			} else {
+				log.warn("Unable to find cache region " + regionName + " to set its size");
+			}
+		}
 	}
 	
 	/**
@@ -435,12 +500,13 @@ public class HibernateContextDAO implements ContextDAO {
 			session.setCacheMode(CacheMode.IGNORE);
 			
 			//Scrollable results will avoid loading too many objects in memory
-			ScrollableResults results = session.createCriteria(type).setFetchSize(1000).scroll(ScrollMode.FORWARD_ONLY);
+			ScrollableResults results = session.createCriteria(type).setFetchSize(SEARCH_INDEX_BATCH_SIZE).scroll(
+			    ScrollMode.FORWARD_ONLY);
 			int index = 0;
 			while (results.next()) {
 				index++;
 				session.index(results.get(0)); //index each element
-				if (index % 1000 == 0) {
+				if (index % SEARCH_INDEX_BATCH_SIZE == 0) {
 					session.flushToIndexes(); //apply changes to indexes
 					session.clear(); //free memory since the queue is processed
 				}
@@ -464,14 +530,96 @@ public class HibernateContextDAO implements ContextDAO {
 		session.flushToIndexes();
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.ContextDAO#updateSearchIndexForTypesInParallel(java.lang.Class[])
+	 */
+	@Override
+	public void updateSearchIndexForTypesInParallel(Class<?>... types) {
+		try {
+			createMassIndexer(types).startAndWait();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while updating the search index", e);
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ContextDAO#updateSearchIndexForObjects(java.lang.Class,
+	 *      java.util.Collection)
+	 */
+	@Override
+	public void updateSearchIndexForObjects(Class<?> type, Collection<Integer> ids) {
+		FullTextSession session = Search.getFullTextSession(sessionFactory.getCurrentSession());
+		String idProperty = sessionFactory.getClassMetadata(type).getIdentifierPropertyName();
+		IndexingProgressLogger progress = new IndexingProgressLogger("Updating the search index for "
+		        + type.getSimpleName());
+		progress.addToTotalCount(ids.size());
+		
+		//Prepare session for batch work
+		session.flush();
+		session.clear();
+		
+		FlushMode flushMode = session.getFlushMode();
+		CacheMode cacheMode = session.getCacheMode();
+		try {
+			session.setFlushMode(FlushMode.MANUAL);
+			session.setCacheMode(CacheMode.IGNORE);
+			
+			List<Integer> idList = new ArrayList<Integer>(ids);
+			for (int i = 0; i < idList.size(); i += SEARCH_INDEX_BATCH_SIZE) {
+				List<Integer> batch = idList.subList(i, Math.min(i + SEARCH_INDEX_BATCH_SIZE, idList.size()));
+				List<?> objects = session.createCriteria(type).add(Restrictions.in(idProperty, batch)).list();
+				for (Object object : objects) {
+					session.index(object);
+				}
+				session.flushToIndexes(); //apply changes to indexes
+				session.clear(); //free memory since the queue is processed
+				progress.documentsAdded(objects.size());
+			}
+		}
+		finally {
+			session.setFlushMode(flushMode);
+			session.setCacheMode(cacheMode);
+		}
+		progress.indexingCompleted();
+	}
+	
+	/**
+	 * Creates a mass indexer for the given types, or for all indexed types if none are given, which
+	 * loads the objects with the number of threads set by
+	 * {@link OpenmrsConstants#GP_SEARCH_INDEXER_THREADS} and logs its progress
+	 */
+	private MassIndexer createMassIndexer(Class<?>... types) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		String threadsGp = Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_SEARCH_INDEXER_THREADS, "");
+		if (StringUtils.isNotBlank(threadsGp)) {
+			try {
+				threads = Math.max(1, Integer.parseInt(threadsGp.trim()));
+			}
+			catch (NumberFormatException e) {
+				log.warn("Invalid value of " + OpenmrsConstants.GP_SEARCH_INDEXER_THREADS + ": " + threadsGp
+				        + ", using " + threads + " threads");
+			}
+		}
+		
+		FullTextSession session = Search.getFullTextSession(sessionFactory.getCurrentSession());
+		return session.createIndexer(types).threadsToLoadObjects(threads).batchSizeToLoadObjects(
+		    SEARCH_INDEXER_LOAD_BATCH_SIZE).cacheMode(CacheMode.IGNORE).progressMonitor(
+		    new IndexingProgressLogger("Updating the search index"));
+	}
+	
 	/**
 	 * @see org.openmrs.api.db.ContextDAO#setupSearchIndex()
 	 */
 	@Override
 	public void setupSearchIndex() {
 		String gp = Context.getAdministrationService().getGlobalProperty(OpenmrsConstants.GP_SEARCH_INDEX_VERSION, "");
+		boolean rebuildAtStartup = Boolean.valueOf(Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_SEARCH_REBUILD_INDEX_AT_STARTUP, "false"));
 		
-		if (!OpenmrsConstants.SEARCH_INDEX_VERSION.toString().equals(gp)) {
+		if (rebuildAtStartup || !OpenmrsConstants.SEARCH_INDEX_VERSION.toString().equals(gp)) {
 			updateSearchIndex();
 		}
 	}
@@ -483,7 +631,7 @@ public class HibernateContextDAO implements ContextDAO {
 	public void updateSearchIndex() {
 		try {
 			log.info("Updating the search index... It may take a few minutes.");
-			Search.getFullTextSession(sessionFactory.getCurrentSession()).createIndexer().startAndWait();
+			createMassIndexer().startAndWait();
 			
 			GlobalProperty gp = Context.getAdministrationService().getGlobalPropertyObject(
 			    OpenmrsConstants.GP_SEARCH_INDEX_VERSION);
@@ -112,13 +112,15 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	/**
 	 * @see org.openmrs.api.db.EncounterDAO#getEncounters(org.openmrs.Patient, org.openmrs.Location,
 	 *      java.util.Date, java.util.Date, java.util.Collection, java.util.Collection,
-	 *      java.util.Collection, boolean)
+	 *      java.util.Collection, java.util.Collection, java.util.Collection, boolean,
+	 *      java.util.Collection)
 	 */
 	@SuppressWarnings("unchecked")
 	@Override
 	public List<Encounter> getEncounters(Patient patient, Location location, Date fromDate, Date toDate,
 	        Collection<Form> enteredViaForms, Collection<EncounterType> encounterTypes, Collection<Provider> providers,
-	        Collection<VisitType> visitTypes, Collection<Visit> visits, boolean includeVoided) {
+	        Collection<VisitType> visitTypes, Collection<Visit> visits, boolean includeVoided,
+	        Collection<EncounterType> excludedEncounterTypes) {
 		
 		Criteria crit = sessionFactory.getCurrentSession().createCriteria(Encounter.class);
 		
@@ -154,6 +156,7 @@ public class HibernateEncounterDAO implements EncounterDAO {
 		if (!includeVoided) {
 			crit.add(Restrictions.eq("voided", false));
 		}
+		addExcludedEncounterTypesRestriction(crit, "encounterType", excludedEncounterTypes);
 		crit.addOrder(Order.asc("encounterDatetime"));
 		return crit.list();
 	}
@@ -206,6 +209,7 @@ public class HibernateEncounterDAO implements EncounterDAO {
 			criteria.add(Restrictions.eq("retired", false));
 		}
 		
+		criteria.setCacheable(true);
 		return criteria.list();
 	}
 	
@@ -246,16 +250,16 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	
 	/**
 	 * @see org.openmrs.api.db.EncounterDAO#getEncounters(String, Integer, Integer, Integer,
-	 *      boolean)
+	 *      boolean, Collection)
 	 */
 	@SuppressWarnings("unchecked")
 	public List<Encounter> getEncounters(String query, Integer patientId, Integer start, Integer length,
-	        boolean includeVoided) {
+	        boolean includeVoided, Collection<EncounterType> excludedEncounterTypes) {
 		if (StringUtils.isBlank(query) && patientId == null) {
 			return Collections.emptyList();
 		}
 		
-		Criteria criteria = createEncounterByQueryCriteria(query, patientId, includeVoided, true);
+		Criteria criteria = createEncounterByQueryCriteria(query, patientId, includeVoided, excludedEncounterTypes, true);
 		
 		if (start != null) {
 			criteria.setFirstResult(start);
@@ -328,11 +332,12 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	
 	/**
 	 * @see org.openmrs.api.db.EncounterDAO#getCountOfEncounters(java.lang.String,
-	 *      java.lang.Integer, boolean)
+	 *      java.lang.Integer, boolean, java.util.Collection)
 	 */
 	@Override
-	public Long getCountOfEncounters(String query, Integer patientId, boolean includeVoided) {
-		Criteria criteria = createEncounterByQueryCriteria(query, patientId, includeVoided, false);
+	public Long getCountOfEncounters(String query, Integer patientId, boolean includeVoided,
+	        Collection<EncounterType> excludedEncounterTypes) {
+		Criteria criteria = createEncounterByQueryCriteria(query, patientId, includeVoided, excludedEncounterTypes, false);
 		
 		criteria.setProjection(Projections.countDistinct("enc.encounterId"));
 		return (Long) criteria.uniqueResult();
@@ -345,15 +350,17 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	 * @param query patient name or identifier
 	 * @param patientId the patient id
 	 * @param includeVoided Specifies whether voided encounters should be included
+	 * @param excludedEncounterTypes the types of the encounters to leave out, or null
 	 * @param orderByNames specifies whether the encounters should be ordered by person names
 	 * @return Criteria
 	 */
 	private Criteria createEncounterByQueryCriteria(String query, Integer patientId, boolean includeVoided,
-	        boolean orderByNames) {
+	        Collection<EncounterType> excludedEncounterTypes, boolean orderByNames) {
 		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Encounter.class, "enc");
 		if (!includeVoided) {
 			criteria.add(Restrictions.eq("enc.voided", false));
 		}
+		addExcludedEncounterTypesRestriction(criteria, "enc.encounterType", excludedEncounterTypes);
 		
 		criteria = criteria.createCriteria("patient", "pat");
 		if (patientId != null) {
@@ -473,7 +480,7 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	 */
 	@Override
 	public List<EncounterRole> getAllEncounterRoles(boolean includeRetired) throws DAOException {
-		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(EncounterRole.class);
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(EncounterRole.class).setCacheable(true);
 		return includeRetired ? criteria.list() : criteria.add(Restrictions.eq("retired", includeRetired)).list();
 	}
 	
@@ -510,13 +517,14 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	
 	/**
 	 * @see org.openmrs.api.db.EncounterDAO#getEncountersByVisitsAndPatient(org.openmrs.Patient,
-	 *      boolean, java.lang.String, java.lang.Integer, java.lang.Integer)
+	 *      boolean, java.lang.String, java.lang.Integer, java.lang.Integer, java.util.Collection)
 	 */
 	@Override
 	public List<Encounter> getEncountersByVisitsAndPatient(Patient patient, boolean includeVoided, String query,
-	        Integer start, Integer length) {
+	        Integer start, Integer length, Collection<EncounterType> excludedEncounterTypes) {
 		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Encounter.class);
 		addEncountersByPatientCriteria(criteria, patient, includeVoided, query);
+		addExcludedEncounterTypesRestriction(criteria, "encounterType", excludedEncounterTypes);
 		
 		@SuppressWarnings("unchecked")
 		List<Encounter> encounters = criteria.list();
@@ -561,10 +569,11 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	
 	/**
 	 * @see org.openmrs.api.db.EncounterDAO#getEncountersByVisitsAndPatientCount(org.openmrs.Patient,
-	 *      boolean, java.lang.String)
+	 *      boolean, java.lang.String, java.util.Collection)
 	 */
 	@Override
-	public Integer getEncountersByVisitsAndPatientCount(Patient patient, boolean includeVoided, String query) {
+	public Integer getEncountersByVisitsAndPatientCount(Patient patient, boolean includeVoided, String query,
+	        Collection<EncounterType> excludedEncounterTypes) {
 		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Visit.class);
 		addEmptyVisitsByPatientCriteria(criteria, patient, includeVoided, query);
 		
@@ -573,6 +582,7 @@ public class HibernateEncounterDAO implements EncounterDAO {
 		
 		criteria = sessionFactory.getCurrentSession().createCriteria(Encounter.class);
 		addEncountersByPatientCriteria(criteria, patient, includeVoided, query);
+		addExcludedEncounterTypesRestriction(criteria, "encounterType", excludedEncounterTypes);
 		
 		criteria.setProjection(Projections.rowCount());
 		count = count + ((Number) criteria.uniqueResult()).intValue();
@@ -602,6 +612,23 @@ public class HibernateEncounterDAO implements EncounterDAO {
 		criteria.addOrder(Order.desc("visitId"));
 	}
 	
+	/**
+	 * Leaves out the encounters of the given types, so that the encounters a user may not view are
+	 * neither loaded nor counted
+	 *
+	 * @param criteria the criteria for encounters
+	 * @param property the path of the encounter type property of the encounters
+	 * @param excludedEncounterTypes the types of the encounters to leave out, or null
+	 */
+	private void addExcludedEncounterTypesRestriction(Criteria criteria, String property,
+	        Collection<EncounterType> excludedEncounterTypes) {
+		if (excludedEncounterTypes != null && !excludedEncounterTypes.isEmpty()) {
+			// encounters without a type can be viewed by anyone
+			criteria.add(Restrictions.or(Restrictions.isNull(property), Restrictions.not(Restrictions.in(property,
+			    excludedEncounterTypes))));
+		}
+	}
+	
 	private void addEncountersByPatientCriteria(Criteria criteria, Patient patient, boolean includeVoided, String query) {
 		criteria.add(Restrictions.eq("patient", patient));
 		criteria.createAlias("visit", "visit", Criteria.LEFT_JOIN);
@@ -98,6 +98,7 @@ public class HibernateLocationDAO implements LocationDAO {
 			criteria.addOrder(Order.asc("retired"));
 		}
 		criteria.addOrder(Order.asc("name"));
+		criteria.setCacheable(true);
 		return criteria.list();
 	}
 	
@@ -13,15 +13,24 @@
  */
 package org.openmrs.api.db.hibernate;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hibernate.Criteria;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Property;
@@ -32,7 +41,9 @@ import org.openmrs.ConceptName;
 import org.openmrs.Encounter;
 import org.openmrs.Location;
 import org.openmrs.MimeType;
+import org.openmrs.NumericObsStatistics;
 import org.openmrs.Obs;
+import org.openmrs.ObsSummary;
 import org.openmrs.Patient;
 import org.openmrs.Person;
 import org.openmrs.User;
@@ -49,6 +60,12 @@ import org.openmrs.util.OpenmrsConstants.PERSON_TYPE;
  */
 public class HibernateObsDAO implements ObsDAO {
 	
+	// the number of persons whose obs summaries are rebuilt at a time
+	private static final int OBS_SUMMARY_REBUILD_BATCH_SIZE = 500;
+	
+	// the number of buckets the percentiles of numeric obs are approximated from
+	private static final int PERCENTILE_BUCKETS = 1000;
+	
 	protected final Log log = LogFactory.getLog(getClass());
 	
 	protected SessionFactory sessionFactory;
@@ -171,6 +188,271 @@ public class HibernateObsDAO implements ObsDAO {
 		return (Long) criteria.list().get(0);
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.ObsDAO#getObservationsByPerson(Person, Integer, Integer)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Obs> getObservationsByPerson(Person who, Integer start, Integer length) throws DAOException {
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Obs.class);
+		criteria.add(Restrictions.eq("person", who));
+		criteria.add(Restrictions.eq("voided", false));
+		criteria.addOrder(Order.desc("obsDatetime"));
+		criteria.addOrder(Order.desc("obsId"));
+		if (start != null) {
+			criteria.setFirstResult(start);
+		}
+		if (length != null && length > 0) {
+			criteria.setMaxResults(length);
+		}
+		return criteria.list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ObsDAO#getLatestObservations(Person, List)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Obs> getLatestObservations(Person who, List<Concept> questions) throws DAOException {
+		if (ObsSummaryInterceptor.isSummaryUpToDate()) {
+			List<Integer> conceptIds = new ArrayList<Integer>(questions.size());
+			for (Concept question : questions) {
+				conceptIds.add(question.getConceptId());
+			}
+			return sessionFactory.getCurrentSession().createQuery(
+			    "select s.latestObs from ObsSummary s where s.personId = :personId and s.conceptId in (:conceptIds)")
+			        .setInteger("personId", who.getPersonId()).setParameterList("conceptIds", conceptIds).list();
+		}
+		
+		// the subquery is answered from the index on the person and concept of the obs
+		return sessionFactory.getCurrentSession().createQuery(
+		    "from Obs o where o.person = :person and o.concept in (:questions) and o.voided = false"
+		            + " and o.obsDatetime = (select max(latest.obsDatetime) from Obs latest"
+		            + " where latest.person = o.person and latest.concept = o.concept and latest.voided = false)"
+		            + " order by o.obsId desc").setParameter("person", who).setParameterList("questions", questions)
+		        .list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ObsDAO#updateObsSummaries(java.util.Map)
+	 */
+	public void updateObsSummaries(Map<Integer, Set<Integer>> conceptIdsByPersonId) throws DAOException {
+		Session session = sessionFactory.getCurrentSession();
+		// the summaries are computed from the obs table, so pending changes to obs are written first
+		session.flush();
+		
+		// the persons are locked in the order of their ids, so that transactions cannot deadlock
+		for (Map.Entry<Integer, Set<Integer>> entry : new TreeMap<Integer, Set<Integer>>(conceptIdsByPersonId).entrySet()) {
+			lockPerson(session, entry.getKey());
+			for (Integer conceptId : entry.getValue()) {
+				updateObsSummary(session, entry.getKey(), conceptId);
+			}
+		}
+		session.flush();
+	}
+	
+	/**
+	 * Locks the row of the person until the transaction completes. Concurrent transactions that
+	 * change obs of the same person wait for each other here, instead of both finding no summary and
+	 * inserting the same new one, which fails the second commit on the primary key.
+	 */
+	private void lockPerson(Session session, Integer personId) {
+		session.createSQLQuery(
+		    "select person_id from person where person_id = :personId"
+		            + HibernateUtil.getDialect(sessionFactory).getForUpdateString()).setInteger("personId", personId)
+		        .list();
+	}
+	
+	private void updateObsSummary(Session session, Integer personId, Integer conceptId) {
+		ObsSummary summary = (ObsSummary) session.get(ObsSummary.class, new ObsSummary(personId, conceptId));
+		
+		String where = " from Obs o where o.personId = :personId and o.concept.conceptId = :conceptId and o.voided = false";
+		Long count = (Long) session.createQuery("select count(*)" + where).setInteger("personId", personId).setInteger(
+		    "conceptId", conceptId).uniqueResult();
+		if (count == 0) {
+			if (summary != null) {
+				session.delete(summary);
+			}
+			return;
+		}
+		
+		Integer firstObsId = (Integer) session.createQuery("select o.obsId" + where + " order by o.obsDatetime, o.obsId")
+		        .setInteger("personId", personId).setInteger("conceptId", conceptId).setMaxResults(1).uniqueResult();
+		Integer latestObsId = (Integer) session.createQuery(
+		    "select o.obsId" + where + " order by o.obsDatetime desc, o.obsId desc").setInteger("personId", personId)
+		        .setInteger("conceptId", conceptId).setMaxResults(1).uniqueResult();
+		
+		boolean isNew = summary == null;
+		if (isNew) {
+			summary = new ObsSummary(personId, conceptId);
+		}
+		summary.setObsCount(count.intValue());
+		summary.setFirstObs((Obs) session.load(Obs.class, firstObsId));
+		summary.setLatestObs((Obs) session.load(Obs.class, latestObsId));
+		if (isNew) {
+			session.save(summary);
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ObsDAO#rebuildObsSummaries()
+	 */
+	@SuppressWarnings("unchecked")
+	public void rebuildObsSummaries() throws DAOException {
+		Session session = sessionFactory.getCurrentSession();
+		session.flush();
+		session.createQuery("delete from ObsSummary").executeUpdate();
+		
+		List<Integer> personIds = session.createQuery(
+		    "select distinct o.personId from Obs o where o.voided = false order by o.personId").list();
+		for (int i = 0; i < personIds.size(); i += OBS_SUMMARY_REBUILD_BATCH_SIZE) {
+			List<Integer> batch = personIds.subList(i, Math.min(i + OBS_SUMMARY_REBUILD_BATCH_SIZE, personIds.size()));
+			
+			// one pass over the obs of the batch sorted the same way as the summaries are defined
+			List<Object[]> rows = session.createQuery(
+			    "select o.personId, o.concept.conceptId, o.obsId from Obs o where o.voided = false"
+			            + " and o.personId in (:personIds)"
+			            + " order by o.personId, o.concept.conceptId, o.obsDatetime, o.obsId").setParameterList(
+			    "personIds", batch).list();
+			
+			ObsSummary summary = null;
+			for (Object[] row : rows) {
+				Integer personId = (Integer) row[0];
+				Integer conceptId = (Integer) row[1];
+				Obs obs = (Obs) session.load(Obs.class, (Integer) row[2]);
+				if (summary == null || !summary.getPersonId().equals(personId)
+				        || !summary.getConceptId().equals(conceptId)) {
+					if (summary != null) {
+						session.save(summary);
+					}
+					summary = new ObsSummary(personId, conceptId);
+					summary.setFirstObs(obs);
+					summary.setObsCount(0);
+				}
+				summary.setLatestObs(obs);
+				summary.setObsCount(summary.getObsCount() + 1);
+			}
+			if (summary != null) {
+				session.save(summary);
+			}
+			
+			session.flush();
+			session.clear();
+			log.debug("Rebuilt the obs summaries of " + (i + batch.size()) + " of " + personIds.size() + " persons");
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ObsDAO#getNumericObsStatistics(org.openmrs.Concept)
+	 */
+	public NumericObsStatistics getNumericObsStatistics(Concept question) throws DAOException {
+		Object[] row = (Object[]) sessionFactory.getCurrentSession().createQuery(
+		    "select count(o.valueNumeric), min(o.valueNumeric), max(o.valueNumeric), avg(o.valueNumeric)"
+		            + " from Obs o where o.concept = :question and o.voided = false").setParameter("question", question)
+		        .uniqueResult();
+		
+		long count = ((Number) row[0]).longValue();
+		if (count == 0) {
+			return new NumericObsStatistics(0, null, null, null, null);
+		}
+		Double min = ((Number) row[1]).doubleValue();
+		Double max = ((Number) row[2]).doubleValue();
+		Double mean = ((Number) row[3]).doubleValue();
+		long[] buckets = getNumericObsHistogram(question, min, max, PERCENTILE_BUCKETS);
+		return new NumericObsStatistics(count, min, max, mean, buckets);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ObsDAO#getNumericObsHistogram(org.openmrs.Concept, double, double, int)
+	 */
+	public long[] getNumericObsHistogram(Concept question, double from, double to, int bucketCount) throws DAOException {
+		long[] buckets = new long[bucketCount];
+		double width = (to - from) / bucketCount;
+		String where = " from obs where concept_id = :conceptId and voided = false"
+		        + " and value_numeric >= :from and value_numeric <= :to";
+		
+		if (width <= 0) {
+			// all values are equal
+			Number count = (Number) sessionFactory.getCurrentSession().createSQLQuery("select count(*)" + where)
+			        .setInteger("conceptId", question.getConceptId()).setDouble("from", from).setDouble("to", to)
+			        .uniqueResult();
+			buckets[0] = count.longValue();
+			return buckets;
+		}
+		
+		// the bounds are literals, a parameter in both the select and the group by would not match
+		String bucket = "floor((value_numeric - " + BigDecimal.valueOf(from).toPlainString() + ") / "
+		        + BigDecimal.valueOf(width).toPlainString() + ")";
+		List<Object[]> rows = sessionFactory.getCurrentSession().createSQLQuery(
+		    "select " + bucket + ", count(*)" + where + " group by " + bucket).setInteger("conceptId",
+		    question.getConceptId()).setDouble("from", from).setDouble("to", to).list();
+		for (Object[] row : rows) {
+			// the largest value belongs to the last bucket
+			int index = Math.max(0, Math.min(bucketCount - 1, ((Number) row[0]).intValue()));
+			buckets[index] += ((Number) row[1]).longValue();
+		}
+		return buckets;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ObsDAO#getNumericObsDailyMeans(org.openmrs.Concept)
+	 */
+	public SortedMap<Date, Double> getNumericObsDailyMeans(Concept question) throws DAOException {
+		List<Object[]> rows = sessionFactory.getCurrentSession().createSQLQuery(
+		    "select cast(obs_datetime as date), avg(value_numeric) from obs"
+		            + " where concept_id = :conceptId and voided = false and value_numeric is not null"
+		            + " group by cast(obs_datetime as date)").setInteger("conceptId", question.getConceptId()).list();
+		
+		SortedMap<Date, Double> means = new TreeMap<Date, Double>();
+		for (Object[] row : rows) {
+			means.put(new Date(((Date) row[0]).getTime()), ((Number) row[1]).doubleValue());
+		}
+		return means;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ObsDAO#getCodedObsFrequencies(org.openmrs.Concept)
+	 */
+	public Map<Integer, Long> getCodedObsFrequencies(Concept question) throws DAOException {
+		List<Object[]> rows = sessionFactory.getCurrentSession().createQuery(
+		    "select o.valueCoded.conceptId, count(*) from Obs o where o.concept = :question and o.voided = false"
+		            + " group by o.valueCoded.conceptId order by count(*) desc").setParameter("question", question)
+		        .list();
+		
+		Map<Integer, Long> frequencies = new LinkedHashMap<Integer, Long>();
+		for (Object[] row : rows) {
+			frequencies.put((Integer) row[0], ((Number) row[1]).longValue());
+		}
+		return frequencies;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ObsDAO#getNumericObservationsOutsideRange(org.openmrs.Concept,
+	 *      java.lang.Double, java.lang.Double, java.lang.Integer)
+	 */
+	public List<Obs> getNumericObservationsOutsideRange(Concept question, Double lower, Double upper, Integer length)
+	        throws DAOException {
+		if (lower == null && upper == null) {
+			return new ArrayList<Obs>();
+		}
+		
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Obs.class, "obs");
+		criteria.add(Restrictions.eq("concept", question));
+		criteria.add(Restrictions.eq("voided", false));
+		Disjunction outside = Restrictions.disjunction();
+		if (lower != null) {
+			outside.add(Restrictions.lt("valueNumeric", lower));
+		}
+		if (upper != null) {
+			outside.add(Restrictions.gt("valueNumeric", upper));
+		}
+		criteria.add(outside);
+		criteria.addOrder(Order.asc("valueNumeric"));
+		criteria.addOrder(Order.asc("obsId"));
+		if (length != null) {
+			criteria.setMaxResults(length);
+		}
+		return criteria.list();
+	}
+	
 	/**
 	 * A utility method for creating a criteria based on parameters (which are optional)
 	 *
@@ -486,6 +486,7 @@ public class HibernateOrderDAO implements OrderDAO {
 		if (!includeRetired) {
 			c.add(Restrictions.eq("retired", false));
 		}
+		c.setCacheable(true);
 		return c.list();
 	}
 	
@@ -17,10 +17,16 @@ import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 
@@ -29,11 +35,15 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hibernate.Criteria;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
+import org.openmrs.DuplicatePatientCandidate;
 import org.openmrs.Location;
 import org.openmrs.Patient;
+import org.openmrs.PatientBlockingKey;
 import org.openmrs.PatientIdentifier;
 import org.openmrs.PatientIdentifierType;
 import org.openmrs.PatientIdentifierType.UniquenessBehavior;
@@ -42,6 +52,7 @@ import org.openmrs.PersonName;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.PatientDAO;
+import org.openmrs.util.OpenmrsConstants;
 
 /**
  * Hibernate specific database methods for the PatientService
@@ -54,6 +65,10 @@ public class HibernatePatientDAO implements PatientDAO {
 	
 	protected final Log log = LogFactory.getLog(getClass());
 	
+	private static final int DUPLICATE_PATIENTS_FETCH_SIZE = 500;
+	
+	private static final int DUPLICATE_PATIENTS_BATCH_SIZE = 1000;
+	
 	/**
 	 * Hibernate session factory
 	 */
@@ -223,6 +238,16 @@ public class HibernatePatientDAO implements PatientDAO {
 			return Collections.emptyList();
 		}
 		
+		if (isPatientSearchUsingIndex()) {
+			int maximumSearchResults = HibernatePersonDAO.getMaximumSearchResults();
+			List<Integer> patientIds = new PatientSearchIndexQuery(sessionFactory).findPatientIds(query,
+			    start != null ? start : 0, length != null && length < maximumSearchResults ? length
+			            : maximumSearchResults);
+			if (patientIds != null) {
+				return getPatientsInOrder(patientIds);
+			}
+		}
+		
 		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Patient.class);
 		criteria = new PatientSearchCriteria(sessionFactory, criteria).prepareCriteria(query);
 		setFirstAndMaxResult(criteria, start, length);
@@ -230,6 +255,15 @@ public class HibernatePatientDAO implements PatientDAO {
 		return criteria.list();
 	}
 	
+	/**
+	 * @return true if {@link OpenmrsConstants#GP_PATIENT_SEARCH_USE_INDEX} is enabled
+	 * @see PatientSearchIndexQuery
+	 */
+	private boolean isPatientSearchUsingIndex() {
+		return Boolean.valueOf(Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_PATIENT_SEARCH_USE_INDEX, "false"));
+	}
+	
 	private void setFirstAndMaxResult(Criteria criteria, Integer start, Integer length) {
 		if (start != null) {
 			criteria.setFirstResult(start);
@@ -322,6 +356,10 @@ public class HibernatePatientDAO implements PatientDAO {
 	 * @see org.openmrs.api.PatientService#deletePatient(org.openmrs.Patient)
 	 */
 	public void deletePatient(Patient patient) throws DAOException {
+		savePatientBlockingKeys(patient, Collections.<String> emptySet());
+		for (DuplicatePatientCandidate candidate : getDuplicatePatientCandidates(patient)) {
+			deleteDuplicatePatientCandidate(candidate);
+		}
 		HibernatePersonDAO.deletePersonAndAttributes(sessionFactory, patient);
 	}
 	
@@ -401,97 +439,284 @@ public class HibernatePatientDAO implements PatientDAO {
 		criteria.addOrder(Order.desc("required")); //required first
 		criteria.addOrder(Order.asc("name"));
 		criteria.addOrder(Order.asc("patientIdentifierTypeId"));
+		criteria.setCacheable(true);
 		
 		return criteria.list();
 	}
 	
 	/**
+	 * Instead of joining every patient to every other patient, the values of the given attributes
+	 * are read once per patient, sorted by the database. Patients that share all values end up next
+	 * to each other, so the duplicates are found in a single pass over the sorted rows. Text is
+	 * sorted in lower case, so that values that differ only in case are next to each other whatever
+	 * the collation of the database.
+	 *
 	 * @see org.openmrs.api.db.PatientDAO#getDuplicatePatientsByAttributes(java.util.List)
 	 */
-	@SuppressWarnings("unchecked")
 	public List<Patient> getDuplicatePatientsByAttributes(List<String> attributes) {
 		List<Patient> patients = new Vector<Patient>();
 		
 		if (attributes.size() > 0) {
-			String select = "select distinct p1 from Patient p1, Patient p2";
-			String where = " where p1 <> p2 ";
+			String select = "select p.patientId";
+			String from = " from Patient p";
+			String where = " where 1 = 1";
 			String orderBy = " order by ";
 			
-			Class patient = Patient.class;
-			Set<String> patientFieldNames = new HashSet<String>(patient.getDeclaredFields().length);
-			for (Field f : patient.getDeclaredFields()) {
-				patientFieldNames.add(f.getName());
-				log.debug(f.getName());
-			}
-			
-			Class person = Person.class;
-			Set<String> personFieldNames = new HashSet<String>(person.getDeclaredFields().length);
-			for (Field f : person.getDeclaredFields()) {
-				personFieldNames.add(f.getName());
-				log.debug(f.getName());
-			}
-			
-			Class personName = PersonName.class;
-			Set<String> personNameFieldNames = new HashSet<String>(personName.getDeclaredFields().length);
-			for (Field f : personName.getDeclaredFields()) {
-				personNameFieldNames.add(f.getName());
-				log.debug(f.getName());
-			}
-			
-			Class identifier = PatientIdentifier.class;
-			Set<String> identifierFieldNames = new HashSet<String>(identifier.getDeclaredFields().length);
-			for (Field f : identifier.getDeclaredFields()) {
-				identifierFieldNames.add(f.getName());
-				log.debug(f.getName());
-			}
+			Map<String, Class<?>> patientFields = getDeclaredFieldTypes(Patient.class);
+			Map<String, Class<?>> personFields = getDeclaredFieldTypes(Person.class);
+			Map<String, Class<?>> personNameFields = getDeclaredFieldTypes(PersonName.class);
+			Map<String, Class<?>> identifierFields = getDeclaredFieldTypes(PatientIdentifier.class);
 			
 			if (!attributes.contains("includeVoided")) {
-				where += "and p1.voided = false and p2.voided = false ";
+				where += " and p.voided = false";
 			}
 			
+			String alias;
+			Class<?> type;
 			for (String s : attributes) {
-				if (patientFieldNames.contains(s)) {
-					where += " and p1." + s + " = p2." + s;
-					orderBy += "p1." + s + ", ";
-				} else if (personFieldNames.contains(s)) {
-					if (!select.contains("Person ")) {
-						select += ", Person person1, Person person2";
-						where += " and p1.patientId = person1.personId and p2.patientId = person2.personId ";
-					}
-					where += " and person1." + s + " = person2." + s;
-					orderBy += "person1." + s + ", ";
-				} else if (personNameFieldNames.contains(s)) {
-					if (!select.contains("PersonName")) {
-						select += ", PersonName pn1, PersonName pn2";
-						where += " and p1 = pn1.person and p2 = pn2.person ";
+				if (patientFields.containsKey(s) || personFields.containsKey(s)) {
+					alias = "p.";
+					type = patientFields.containsKey(s) ? patientFields.get(s) : personFields.get(s);
+				} else if (personNameFields.containsKey(s)) {
+					if (!from.contains("PersonName")) {
+						from += ", PersonName pn";
+						where += " and p = pn.person";
 					}
-					where += " and pn1." + s + " = pn2." + s;
-					orderBy += "pn1." + s + ", ";
-				} else if (identifierFieldNames.contains(s)) {
-					if (!select.contains("PatientIdentifier")) {
-						select += ", PatientIdentifier pi1, PatientIdentifier pi2";
-						where += " and p1 = pi1.patient and p2 = pi2.patient ";
+					alias = "pn.";
+					type = personNameFields.get(s);
+				} else if (identifierFields.containsKey(s)) {
+					if (!from.contains("PatientIdentifier")) {
+						from += ", PatientIdentifier pi";
+						where += " and p = pi.patient";
 					}
-					where += " and pi1." + s + " = pi2." + s;
-					orderBy += "pi1." + s + ", ";
+					alias = "pi.";
+					type = identifierFields.get(s);
 				} else {
 					log.warn("Unidentified attribute: " + s);
+					continue;
+				}
+				select += ", " + alias + s;
+				if (String.class.equals(type)) {
+					orderBy += "lower(" + alias + s + "), ";
+				} else {
+					orderBy += alias + s + ", ";
 				}
 			}
 			
-			int index = orderBy.lastIndexOf(", ");
-			orderBy = orderBy.substring(0, index);
+			if (!select.contains(",")) {
+				return patients;
+			}
+			
+			Query query = sessionFactory.getCurrentSession().createQuery(select + from + where + orderBy + "p.patientId");
+			query.setFetchSize(DUPLICATE_PATIENTS_FETCH_SIZE);
 			
-			select = select + where + orderBy;
+			Set<Integer> duplicateIds = new LinkedHashSet<Integer>();
+			Set<Integer> groupIds = new LinkedHashSet<Integer>();
+			Object[] groupValues = null;
 			
-			Query query = sessionFactory.getCurrentSession().createQuery(select);
+			ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+			try {
+				while (results.next()) {
+					Object[] row = results.get();
+					Object[] values = new Object[row.length - 1];
+					System.arraycopy(row, 1, values, 0, values.length);
+					
+					// like the database, never consider null values equal
+					if (Arrays.asList(values).contains(null)) {
+						continue;
+					}
+					
+					if (groupValues == null || !haveEqualValues(groupValues, values)) {
+						if (groupIds.size() > 1) {
+							duplicateIds.addAll(groupIds);
+						}
+						groupIds.clear();
+						groupValues = values;
+					}
+					groupIds.add((Integer) row[0]);
+				}
+			}
+			finally {
+				results.close();
+			}
+			if (groupIds.size() > 1) {
+				duplicateIds.addAll(groupIds);
+			}
 			
-			patients = query.list();
+			patients.addAll(getPatientsInOrder(new ArrayList<Integer>(duplicateIds)));
 		}
 		
 		return patients;
 	}
 	
+	private Map<String, Class<?>> getDeclaredFieldTypes(Class<?> type) {
+		Map<String, Class<?>> fieldTypes = new HashMap<String, Class<?>>(type.getDeclaredFields().length);
+		for (Field f : type.getDeclaredFields()) {
+			fieldTypes.put(f.getName(), f.getType());
+			log.debug(f.getName());
+		}
+		return fieldTypes;
+	}
+	
+	/**
+	 * Strings are compared ignoring case, as they are sorted in lower case
+	 */
+	private boolean haveEqualValues(Object[] values, Object[] otherValues) {
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] instanceof String && otherValues[i] instanceof String) {
+				if (!((String) values[i]).equalsIgnoreCase((String) otherValues[i])) {
+					return false;
+				}
+			} else if (!values[i].equals(otherValues[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#getNextPatientBatch(java.lang.Integer, int)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Patient> getNextPatientBatch(Integer afterPatientId, int batchSize) throws DAOException {
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Patient.class);
+		if (afterPatientId != null) {
+			criteria.add(Restrictions.gt("patientId", afterPatientId));
+		}
+		criteria.addOrder(Order.asc("patientId"));
+		criteria.setMaxResults(batchSize);
+		return criteria.list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#savePatientBlockingKeys(org.openmrs.Patient, java.util.Set)
+	 */
+	@SuppressWarnings("unchecked")
+	public void savePatientBlockingKeys(Patient patient, Set<String> blockingKeys) throws DAOException {
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(PatientBlockingKey.class);
+		criteria.add(Restrictions.eq("patientId", patient.getPatientId()));
+		
+		// the keys of a patient rarely change, only the changed ones are written
+		Set<String> newBlockingKeys = new HashSet<String>(blockingKeys);
+		for (PatientBlockingKey key : (List<PatientBlockingKey>) criteria.list()) {
+			if (!newBlockingKeys.remove(key.getBlockingKey())) {
+				sessionFactory.getCurrentSession().delete(key);
+			}
+		}
+		for (String blockingKey : newBlockingKeys) {
+			sessionFactory.getCurrentSession().save(new PatientBlockingKey(patient.getPatientId(), blockingKey));
+		}
+	}
+	
+	/**
+	 * The patients sharing each key are counted by the database first, and only the patients of the
+	 * keys shared by at most the maximum number of patients are read.
+	 *
+	 * @see org.openmrs.api.db.PatientDAO#getPatientIdsByBlockingKeys(java.util.Collection, int)
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, Set<Integer>> getPatientIdsByBlockingKeys(Collection<String> blockingKeys, int maximumBlockSize)
+	        throws DAOException {
+		Map<String, Set<Integer>> patientIds = new HashMap<String, Set<Integer>>();
+		List<String> keys = new ArrayList<String>(blockingKeys);
+		for (int i = 0; i < keys.size(); i += DUPLICATE_PATIENTS_BATCH_SIZE) {
+			Query countQuery = sessionFactory.getCurrentSession().createQuery(
+			    "select k.blockingKey from PatientBlockingKey k where k.blockingKey in (:keys) group by k.blockingKey "
+			            + "having count(k.patientId) <= :maximumBlockSize");
+			countQuery.setParameterList("keys", keys.subList(i, Math.min(i + DUPLICATE_PATIENTS_BATCH_SIZE, keys.size())));
+			countQuery.setInteger("maximumBlockSize", maximumBlockSize);
+			List<String> smallBlockKeys = countQuery.list();
+			if (smallBlockKeys.isEmpty()) {
+				continue;
+			}
+			
+			Query query = sessionFactory.getCurrentSession().createQuery(
+			    "select k.blockingKey, k.patientId from PatientBlockingKey k where k.blockingKey in (:keys)");
+			query.setParameterList("keys", smallBlockKeys);
+			for (Object[] row : (List<Object[]>) query.list()) {
+				String key = (String) row[0];
+				if (!patientIds.containsKey(key)) {
+					patientIds.put(key, new HashSet<Integer>());
+				}
+				patientIds.get(key).add((Integer) row[1]);
+			}
+		}
+		return patientIds;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#getDuplicatePatientCandidates(boolean, java.lang.Integer,
+	 *      java.lang.Integer)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<DuplicatePatientCandidate> getDuplicatePatientCandidates(boolean includeVoided, Integer start,
+	        Integer length) throws DAOException {
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(DuplicatePatientCandidate.class);
+		if (!includeVoided) {
+			criteria.createAlias("patient", "patient");
+			criteria.createAlias("otherPatient", "otherPatient");
+			criteria.add(Restrictions.eq("patient.voided", false));
+			criteria.add(Restrictions.eq("otherPatient.voided", false));
+		}
+		criteria.addOrder(Order.desc("score"));
+		criteria.addOrder(Order.asc("duplicatePatientCandidateId"));
+		if (start != null) {
+			criteria.setFirstResult(start);
+		}
+		if (length != null) {
+			criteria.setMaxResults(length);
+		}
+		return criteria.list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#getDuplicatePatientCandidates(org.openmrs.Patient)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<DuplicatePatientCandidate> getDuplicatePatientCandidates(Patient patient) throws DAOException {
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(DuplicatePatientCandidate.class);
+		criteria.add(Restrictions.or(Restrictions.eq("patient", patient), Restrictions.eq("otherPatient", patient)));
+		return criteria.list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#saveDuplicatePatientCandidate(org.openmrs.DuplicatePatientCandidate)
+	 */
+	public DuplicatePatientCandidate saveDuplicatePatientCandidate(DuplicatePatientCandidate candidate)
+	        throws DAOException {
+		sessionFactory.getCurrentSession().saveOrUpdate(candidate);
+		return candidate;
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#deleteDuplicatePatientCandidate(org.openmrs.DuplicatePatientCandidate)
+	 */
+	public void deleteDuplicatePatientCandidate(DuplicatePatientCandidate candidate) throws DAOException {
+		sessionFactory.getCurrentSession().delete(candidate);
+	}
+	
+	/**
+	 * Loads the patients with the given ids, in batches, keeping the order of the ids
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Patient> getPatientsInOrder(List<Integer> patientIds) {
+		Map<Integer, Patient> patientsById = new HashMap<Integer, Patient>(patientIds.size());
+		for (int i = 0; i < patientIds.size(); i += DUPLICATE_PATIENTS_BATCH_SIZE) {
+			List<Integer> batch = patientIds.subList(i, Math.min(i + DUPLICATE_PATIENTS_BATCH_SIZE, patientIds.size()));
+			Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Patient.class);
+			criteria.add(Restrictions.in("patientId", batch));
+			for (Patient patient : (List<Patient>) criteria.list()) {
+				patientsById.put(patient.getPatientId(), patient);
+			}
+		}
+		
+		List<Patient> patients = new ArrayList<Patient>(patientIds.size());
+		for (Integer patientId : patientIds) {
+			patients.add(patientsById.get(patientId));
+		}
+		return patients;
+	}
+	
 	/**
 	 * @see org.openmrs.api.db.PatientDAO#getPatientByUuid(java.lang.String)
 	 */
@@ -612,6 +837,13 @@ public class HibernatePatientDAO implements PatientDAO {
 			return 0L;
 		}
 		
+		if (isPatientSearchUsingIndex()) {
+			Long count = new PatientSearchIndexQuery(sessionFactory).countPatients(query);
+			if (count != null) {
+				return count;
+			}
+		}
+		
 		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Patient.class);
 		criteria = new PatientSearchCriteria(sessionFactory, criteria).prepareCriteria(query);
 		
@@ -19,10 +19,14 @@ import org.hibernate.CacheMode;
 import org.hibernate.Criteria;
 import org.hibernate.FetchMode;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.ProjectionList;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.type.StandardBasicTypes;
 import org.hibernate.type.StringType;
 import org.openmrs.Cohort;
 import org.openmrs.Concept;
@@ -54,6 +58,7 @@ import org.openmrs.api.ObsService;
 import org.openmrs.api.PatientService;
 import org.openmrs.api.PatientSetService;
 import org.openmrs.api.PatientSetService.Modifier;
+import org.openmrs.api.PatientSetService.PatientDataCallback;
 import org.openmrs.api.PatientSetService.PatientLocationMethod;
 import org.openmrs.api.PatientSetService.TimeModifier;
 import org.openmrs.api.context.Context;
@@ -107,6 +112,18 @@ public class HibernatePatientSetDAO implements PatientSetDAO {
 	 */
 	private SessionFactory sessionFactory;
 	
+	/**
+	 * The number of patient ids that the streaming methods put in the in clause of one query
+	 */
+	private static final int STREAMING_CHUNK_SIZE = 1000;
+	
+	/**
+	 * The fetch size used by the streaming methods. This is deliberately not the MySQL streaming
+	 * value (Integer.MIN_VALUE) because callbacks may need to run queries of their own while a
+	 * chunk is being read.
+	 */
+	private static final int STREAMING_FETCH_SIZE = 500;
+	
 	/**
 	 * Set sessionFactory.getCurrentSession() factory
 	 *
@@ -682,13 +699,21 @@ public class HibernatePatientSetDAO implements PatientSetDAO {
 			
 		} else if (timeModifier == TimeModifier.FIRST || timeModifier == TimeModifier.LAST) {
 			boolean isFirst = timeModifier == PatientSetService.TimeModifier.FIRST;
-			sb.append("select o.person_id " + "from obs o inner join (" + "    select person_id, "
-			        + (isFirst ? "min" : "max") + "(obs_datetime) as obs_datetime" + "    from obs"
-			        + "    where voided = false and concept_id = :concept_id " + dateSqlForSubquery
-			        + "    group by person_id"
-			        + ") subq on o.person_id = subq.person_id and o.obs_datetime = subq.obs_datetime "
-			        + " inner join patient p on o.person_id = p.patient_id and p.voided = false "
-			        + "where o.voided = false and o.concept_id = :concept_id ");
+			if (fromDate == null && toDate == null && ObsSummaryInterceptor.isSummaryUpToDate()) {
+				// the summaries hold the first and latest obs of each patient, no need to group all obs
+				sb.append("select o.person_id from obs_summary s inner join obs o on o.obs_id = s."
+				        + (isFirst ? "first_obs_id" : "latest_obs_id")
+				        + " inner join patient p on o.person_id = p.patient_id and p.voided = false "
+				        + "where s.concept_id = :concept_id ");
+			} else {
+				sb.append("select o.person_id " + "from obs o inner join (" + "    select person_id, "
+				        + (isFirst ? "min" : "max") + "(obs_datetime) as obs_datetime" + "    from obs"
+				        + "    where voided = false and concept_id = :concept_id " + dateSqlForSubquery
+				        + "    group by person_id"
+				        + ") subq on o.person_id = subq.person_id and o.obs_datetime = subq.obs_datetime "
+				        + " inner join patient p on o.person_id = p.patient_id and p.voided = false "
+				        + "where o.voided = false and o.concept_id = :concept_id ");
+			}
 			
 		} else if (doSqlAggregation) {
 			String sqlAggregator = timeModifier.toString();
@@ -1148,8 +1173,69 @@ public class HibernatePatientSetDAO implements PatientSetDAO {
 	        Integer limit, boolean showMostRecentFirst) {
 		Map<Integer, List<List<Object>>> ret = new HashMap<Integer, List<List<Object>>>();
 		
+		Criteria criteria = createObservationsValuesCriteria(c, attributes, patients == null ? null : patients
+		        .getMemberIds());
+		
+		if (limit != null && limit == 1 && showMostRecentFirst && ObsSummaryInterceptor.isSummaryUpToDate()) {
+			// only the most recent obs of each patient is wanted, which the summaries already know
+			criteria.add(Restrictions.sqlRestriction(
+			    "{alias}.obs_id in (select latest_obs_id from obs_summary where concept_id = ?)", c.getConceptId(),
+			    StandardBasicTypes.INTEGER));
+		}
+		
+		if (showMostRecentFirst) {
+			criteria.addOrder(org.hibernate.criterion.Order.desc("obs.obsDatetime"));
+		} else {
+			criteria.addOrder(org.hibernate.criterion.Order.asc("obs.obsDatetime"));
+		}
+		
+		long start = System.currentTimeMillis();
+		List<Object[]> rows = criteria.list();
+		log.debug("Took: " + (System.currentTimeMillis() - start) + " ms to run the patient/obs query");
+		
+		boolean conditional = hasConditionalValueColumns(c, attributes);
+		
+		// set up the return map
+		for (Object[] rowArray : rows) {
+			//log.debug("row[0]: " + row[0] + " row[1]: " + row[1] + (row.length > 2 ? " row[2]: " + row[2] : ""));
+			Integer ptId = (Integer) rowArray[0];
+			
+			List<List<Object>> oldArr = ret.get(ptId);
+			
+			// if we have already fetched all of the results the user wants 
+			if (limit != null && limit > 0 && oldArr != null && oldArr.size() >= limit) {
+				// the user provided a limit value and this patient already has more than
+				// that number of values.
+				// do nothing with this row
+			} else {
+				List<Object> row = getObservationsValuesRow(rowArray, conditional);
+				
+				// if we haven't seen a different row for this patient already:
+				if (oldArr == null) {
+					List<List<Object>> arr = new Vector<List<Object>>();
+					arr.add(row);
+					ret.put(ptId, arr);
+				}
+				// if we have seen a row for this patient already
+				else {
+					oldArr.add(row);
+					ret.put(ptId, oldArr);
+				}
+			}
+		}
+		
+		return ret;
+		
+	}
+	
+	/**
+	 * Creates the projection query used by getObservationsValues, without any ordering. The first
+	 * column of each row is the patient id.
+	 * 
+	 * @param patientIds the patients to restrict to, or null for all patients
+	 */
+	private Criteria createObservationsValuesCriteria(Concept c, List<String> attributes, Collection<Integer> patientIds) {
 		List<String> aliases = new Vector<String>();
-		Boolean conditional = false;
 		
 		Criteria criteria = sessionFactory.getCurrentSession().createCriteria("org.openmrs.Obs", "obs");
 		criteria.setCacheMode(CacheMode.IGNORE);
@@ -1160,9 +1246,6 @@ public class HibernatePatientSetDAO implements PatientSetDAO {
 			List<String> classNames = new Vector<String>();
 			if (attribute == null) {
 				columns = findObsValueColumnName(c);
-				if (columns.size() > 1) {
-					conditional = true;
-				}
 				continue;
 				//log.debug("c: " + c.getConceptId() + " attribute: " + attribute);
 			} else if (attribute.equals("valueDate")) {
@@ -1216,73 +1299,50 @@ public class HibernatePatientSetDAO implements PatientSetDAO {
 		criteria.setProjection(projections);
 		
 		// only restrict on patient ids if some were passed in
-		if (patients != null) {
-			criteria.add(Restrictions.in("obs.personId", patients.getMemberIds()));
+		if (patientIds != null) {
+			criteria.add(Restrictions.in("obs.personId", patientIds));
 		}
 		
 		criteria.add(Restrictions.eq("obs.concept", c));
 		criteria.add(Restrictions.eq("obs.voided", false));
 		
-		if (showMostRecentFirst) {
-			criteria.addOrder(org.hibernate.criterion.Order.desc("obs.obsDatetime"));
-		} else {
-			criteria.addOrder(org.hibernate.criterion.Order.asc("obs.obsDatetime"));
-		}
-		
-		long start = System.currentTimeMillis();
-		List<Object[]> rows = criteria.list();
-		log.debug("Took: " + (System.currentTimeMillis() - start) + " ms to run the patient/obs query");
-		
-		// set up the return map
-		for (Object[] rowArray : rows) {
-			//log.debug("row[0]: " + row[0] + " row[1]: " + row[1] + (row.length > 2 ? " row[2]: " + row[2] : ""));
-			Integer ptId = (Integer) rowArray[0];
-			
-			List<List<Object>> oldArr = ret.get(ptId);
-			
-			// if we have already fetched all of the results the user wants 
-			if (limit != null && limit > 0 && oldArr != null && oldArr.size() >= limit) {
-				// the user provided a limit value and this patient already has more than
-				// that number of values.
-				// do nothing with this row
-			} else {
-				Boolean tmpConditional = conditional.booleanValue();
-				
-				// get all columns
-				int index = 1;
-				List<Object> row = new Vector<Object>();
-				while (index < rowArray.length) {
-					Object value = rowArray[index++];
-					if (tmpConditional) {
-						if (index == 2 && value != null) {
-							// skip null first value if we must
-							row.add(value);
-						} else {
-							row.add(rowArray[index]);
-						}
-						tmpConditional = false;
-						index++; // increment counter for next column.  (Skips over value_concept)
-					} else {
-						row.add(value == null ? "" : value);
-					}
-				}
-				
-				// if we haven't seen a different row for this patient already:
-				if (oldArr == null) {
-					List<List<Object>> arr = new Vector<List<Object>>();
-					arr.add(row);
-					ret.put(ptId, arr);
-				}
-				// if we have seen a row for this patient already
-				else {
-					oldArr.add(row);
-					ret.put(ptId, oldArr);
+		return criteria;
+	}
+	
+	/**
+	 * @return true if the obs value of the given concept is spread over two columns, in which case
+	 *         the first non null one is used
+	 */
+	private boolean hasConditionalValueColumns(Concept c, List<String> attributes) {
+		return attributes.contains(null) && findObsValueColumnName(c).size() > 1;
+	}
+	
+	/**
+	 * Converts a row of the query created by createObservationsValuesCriteria to the values
+	 * returned for one obs
+	 */
+	private List<Object> getObservationsValuesRow(Object[] rowArray, boolean conditional) {
+		boolean tmpConditional = conditional;
+		
+		// get all columns
+		int index = 1;
+		List<Object> row = new Vector<Object>();
+		while (index < rowArray.length) {
+			Object value = rowArray[index++];
+			if (tmpConditional) {
+				if (index == 2 && value != null) {
+					// skip null first value if we must
+					row.add(value);
+				} else {
+					row.add(rowArray[index]);
 				}
+				tmpConditional = false;
+				index++; // increment counter for next column.  (Skips over value_concept)
+			} else {
+				row.add(value == null ? "" : value);
 			}
 		}
-		
-		return ret;
-		
+		return row;
 	}
 	
 	public static List<String> findObsValueColumnName(Concept c) {
@@ -1309,20 +1369,9 @@ public class HibernatePatientSetDAO implements PatientSetDAO {
 	public Map<Integer, Encounter> getEncountersByType(Cohort patients, List<EncounterType> encTypes) {
 		Map<Integer, Encounter> ret = new HashMap<Integer, Encounter>();
 		
-		// default query
-		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Encounter.class);
-		criteria.setCacheMode(CacheMode.IGNORE);
-		
 		// this "where clause" is only necessary if patients were passed in
-		if (patients != null && patients.size() > 0) {
-			criteria.add(Restrictions.in("patient.personId", patients.getMemberIds()));
-		}
-		
-		criteria.add(Restrictions.eq("voided", false));
-		
-		if (encTypes != null && encTypes.size() > 0) {
-			criteria.add(Restrictions.in("encounterType", encTypes));
-		}
+		Criteria criteria = createEncountersByTypeCriteria(encTypes, patients != null && patients.size() > 0 ? patients
+		        .getMemberIds() : null);
 		
 		criteria.addOrder(org.hibernate.criterion.Order.desc("patient.personId"));
 		criteria.addOrder(org.hibernate.criterion.Order.desc("encounterDatetime"));
@@ -1340,6 +1389,28 @@ public class HibernatePatientSetDAO implements PatientSetDAO {
 		return ret;
 	}
 	
+	/**
+	 * Creates the query used by getEncountersByType, without any ordering
+	 * 
+	 * @param patientIds the patients to restrict to, or null for all patients
+	 */
+	private Criteria createEncountersByTypeCriteria(List<EncounterType> encTypes, Collection<Integer> patientIds) {
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Encounter.class);
+		criteria.setCacheMode(CacheMode.IGNORE);
+		
+		if (patientIds != null) {
+			criteria.add(Restrictions.in("patient.personId", patientIds));
+		}
+		
+		criteria.add(Restrictions.eq("voided", false));
+		
+		if (encTypes != null && encTypes.size() > 0) {
+			criteria.add(Restrictions.in("encounterType", encTypes));
+		}
+		
+		return criteria;
+	}
+	
 	/**
 	 * Gets a list of encounters associated with the given form, filtered by the given patient set.
 	 *
@@ -1486,8 +1557,49 @@ public class HibernatePatientSetDAO implements PatientSetDAO {
 	        throws DAOException {
 		Map<Integer, Object> ret = new HashMap<Integer, Object>();
 		
-		className = "org.openmrs." + className;
+		Criteria criteria = createPatientAttributesCriteria("org.openmrs." + className, property, patients == null ? null
+		        : patients.getMemberIds(), false);
+		List<Object[]> rows = criteria.list();
+		
+		// set up the return map
+		if (returnAll) {
+			for (Object[] row : rows) {
+				Integer ptId = (Integer) row[0];
+				Object columnValue = row[1];
+				if (!ret.containsKey(ptId)) {
+					Object[] arr = { columnValue };
+					ret.put(ptId, arr);
+				} else {
+					Object[] oldArr = (Object[]) ret.get(ptId);
+					Object[] newArr = new Object[oldArr.length + 1];
+					System.arraycopy(oldArr, 0, newArr, 0, oldArr.length);
+					newArr[oldArr.length] = columnValue;
+					ret.put(ptId, newArr);
+				}
+			}
+		} else {
+			for (Object[] row : rows) {
+				Integer ptId = (Integer) row[0];
+				Object columnValue = row[1];
+				if (!ret.containsKey(ptId)) {
+					ret.put(ptId, columnValue);
+				}
+			}
+		}
 		
+		return ret;
+	}
+	
+	/**
+	 * Creates the projection query used by getPatientAttributes. The first column of each row is
+	 * the patient id and the second one the value of the property.
+	 * 
+	 * @param className the fully qualified class name
+	 * @param patientIds the patients to restrict to, or null for all patients
+	 * @param orderByPatient whether to sort the rows by patient id before anything else
+	 */
+	private Criteria createPatientAttributesCriteria(String className, String property, Collection<Integer> patientIds,
+	        boolean orderByPatient) {
 		// default query
 		Criteria criteria = null;
 		
@@ -1510,8 +1622,11 @@ public class HibernatePatientSetDAO implements PatientSetDAO {
 			projectionList.add(Projections.property("person.personId"));
 			projectionList.add(Projections.property(property));
 			
-			if (patients != null) {
-				criteria.add(Restrictions.in("person.personId", patients.getMemberIds()));
+			if (patientIds != null) {
+				criteria.add(Restrictions.in("person.personId", patientIds));
+			}
+			if (orderByPatient) {
+				criteria.addOrder(org.hibernate.criterion.Order.asc("person.personId"));
 			}
 			
 			// do not include voided person rows
@@ -1529,8 +1644,11 @@ public class HibernatePatientSetDAO implements PatientSetDAO {
 			projectionList.add(Projections.property("patient.personId"));
 			projectionList.add(Projections.property(property));
 			
-			if (patients != null) {
-				criteria.add(Restrictions.in("patient.personId", patients.getMemberIds()));
+			if (patientIds != null) {
+				criteria.add(Restrictions.in("patient.personId", patientIds));
+			}
+			if (orderByPatient) {
+				criteria.addOrder(org.hibernate.criterion.Order.asc("patient.personId"));
 			}
 			
 			// do not include voided patients
@@ -1556,35 +1674,8 @@ public class HibernatePatientSetDAO implements PatientSetDAO {
 		}
 		
 		criteria.addOrder(org.hibernate.criterion.Order.desc("dateCreated"));
-		List<Object[]> rows = criteria.list();
 		
-		// set up the return map
-		if (returnAll) {
-			for (Object[] row : rows) {
-				Integer ptId = (Integer) row[0];
-				Object columnValue = row[1];
-				if (!ret.containsKey(ptId)) {
-					Object[] arr = { columnValue };
-					ret.put(ptId, arr);
-				} else {
-					Object[] oldArr = (Object[]) ret.get(ptId);
-					Object[] newArr = new Object[oldArr.length + 1];
-					System.arraycopy(oldArr, 0, newArr, 0, oldArr.length);
-					newArr[oldArr.length] = columnValue;
-					ret.put(ptId, newArr);
-				}
-			}
-		} else {
-			for (Object[] row : rows) {
-				Integer ptId = (Integer) row[0];
-				Object columnValue = row[1];
-				if (!ret.containsKey(ptId)) {
-					ret.put(ptId, columnValue);
-				}
-			}
-		}
-		
-		return ret;
+		return criteria;
 	}
 	
 	/**
@@ -1909,15 +2000,38 @@ public class HibernatePatientSetDAO implements PatientSetDAO {
 	        throws DAOException {
 		Map<Integer, List<DrugOrder>> ret = new HashMap<Integer, List<DrugOrder>>();
 		
+		// this "where clause" is only necessary if patients were passed in
+		Criteria criteria = createCurrentDrugOrdersCriteria(drugConcepts, patients == null ? null : patients
+		        .getMemberIds());
+		criteria.addOrder(org.hibernate.criterion.Order.asc("startDate"));
+		log.debug("criteria: " + criteria);
+		List<DrugOrder> temp = criteria.list();
+		for (DrugOrder regimen : temp) {
+			Integer ptId = regimen.getPatient().getPatientId();
+			List<DrugOrder> list = ret.get(ptId);
+			if (list == null) {
+				list = new ArrayList<DrugOrder>();
+				ret.put(ptId, list);
+			}
+			list.add(regimen);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Creates the query used by getCurrentDrugOrders, without any ordering
+	 * 
+	 * @param patientIds the patients to restrict to, or null for all patients
+	 */
+	private Criteria createCurrentDrugOrdersCriteria(List<Concept> drugConcepts, Collection<Integer> patientIds) {
 		Date now = new Date();
 		
 		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(DrugOrder.class);
 		criteria.setFetchMode("patient", FetchMode.JOIN);
 		criteria.setCacheMode(CacheMode.IGNORE);
 		
-		// this "where clause" is only necessary if patients were passed in
-		if (patients != null) {
-			criteria.add(Restrictions.in("patient.personId", patients.getMemberIds()));
+		if (patientIds != null) {
+			criteria.add(Restrictions.in("patient.personId", patientIds));
 		}
 		
 		//criteria.add(Restrictions.in("encounter.patient.personId", ids));
@@ -1930,19 +2044,8 @@ public class HibernatePatientSetDAO implements PatientSetDAO {
 		criteria.add(Restrictions.and(Restrictions.or(Restrictions.isNull("autoExpireDate"), Restrictions.gt(
 		    "autoExpireDate", now)), Restrictions
 		        .or(Restrictions.isNull("dateStopped"), Restrictions.gt("dateStopped", now))));
-		criteria.addOrder(org.hibernate.criterion.Order.asc("startDate"));
-		log.debug("criteria: " + criteria);
-		List<DrugOrder> temp = criteria.list();
-		for (DrugOrder regimen : temp) {
-			Integer ptId = regimen.getPatient().getPatientId();
-			List<DrugOrder> list = ret.get(ptId);
-			if (list == null) {
-				list = new ArrayList<DrugOrder>();
-				ret.put(ptId, list);
-			}
-			list.add(regimen);
-		}
-		return ret;
+		
+		return criteria;
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -1980,6 +2083,301 @@ public class HibernatePatientSetDAO implements PatientSetDAO {
 		return ret;
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.PatientSetDAO#streamObservations(Cohort, Concept, Date, Date,
+	 *      PatientDataCallback)
+	 */
+	public void streamObservations(Cohort patients, final Concept concept, final Date fromDate, final Date toDate,
+	        PatientDataCallback<List<Obs>> callback) throws DAOException {
+		streamByPatient(patients, true, new ChunkQuery() {
+			
+			public Criteria createCriteria(Collection<Integer> patientIds) {
+				Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Obs.class);
+				criteria.add(Restrictions.eq("concept", concept));
+				if (patientIds != null) {
+					criteria.add(Restrictions.in("person.personId", patientIds));
+				}
+				if (fromDate != null) {
+					criteria.add(Restrictions.ge("obsDatetime", fromDate));
+				}
+				if (toDate != null) {
+					criteria.add(Restrictions.le("obsDatetime", toDate));
+				}
+				criteria.add(Restrictions.eq("voided", false));
+				criteria.addOrder(org.hibernate.criterion.Order.asc("person.personId"));
+				criteria.addOrder(org.hibernate.criterion.Order.desc("obsDatetime"));
+				return criteria;
+			}
+		}, new EntityListCollector<Obs>() {
+			
+			@Override
+			public Integer getPatientId(Object[] row) {
+				return ((Obs) row[0]).getPersonId();
+			}
+		}, callback);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientSetDAO#streamObservationsValues(Cohort, Concept, List,
+	 *      Integer, boolean, PatientDataCallback)
+	 */
+	public void streamObservationsValues(Cohort patients, final Concept c, final List<String> attributes,
+	        final Integer limit, final boolean showMostRecentFirst, PatientDataCallback<List<List<Object>>> callback)
+	        throws DAOException {
+		final boolean conditional = hasConditionalValueColumns(c, attributes);
+		streamByPatient(patients, false, new ChunkQuery() {
+			
+			public Criteria createCriteria(Collection<Integer> patientIds) {
+				Criteria criteria = createObservationsValuesCriteria(c, attributes, patientIds);
+				criteria.addOrder(org.hibernate.criterion.Order.asc("obs.personId"));
+				if (showMostRecentFirst) {
+					criteria.addOrder(org.hibernate.criterion.Order.desc("obs.obsDatetime"));
+				} else {
+					criteria.addOrder(org.hibernate.criterion.Order.asc("obs.obsDatetime"));
+				}
+				return criteria;
+			}
+		}, new PatientRowCollector<List<List<Object>>>() {
+			
+			private List<List<Object>> rows = new Vector<List<Object>>();
+			
+			@Override
+			public Integer getPatientId(Object[] row) {
+				return (Integer) row[0];
+			}
+			
+			@Override
+			public void add(Object[] row) {
+				if (limit == null || limit <= 0 || rows.size() < limit) {
+					rows.add(getObservationsValuesRow(row, conditional));
+				}
+			}
+			
+			@Override
+			public List<List<Object>> finish() {
+				List<List<Object>> ret = rows;
+				rows = new Vector<List<Object>>();
+				return ret;
+			}
+		}, callback);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientSetDAO#streamEncountersByType(Cohort, List,
+	 *      PatientDataCallback)
+	 */
+	public void streamEncountersByType(Cohort patients, final List<EncounterType> encTypes,
+	        PatientDataCallback<Encounter> callback) throws DAOException {
+		streamByPatient(patients, true, new ChunkQuery() {
+			
+			public Criteria createCriteria(Collection<Integer> patientIds) {
+				Criteria criteria = createEncountersByTypeCriteria(encTypes, patientIds);
+				criteria.addOrder(org.hibernate.criterion.Order.asc("patient.personId"));
+				criteria.addOrder(org.hibernate.criterion.Order.desc("encounterDatetime"));
+				return criteria;
+			}
+		}, new PatientRowCollector<Encounter>() {
+			
+			private Encounter mostRecent;
+			
+			@Override
+			public Integer getPatientId(Object[] row) {
+				return ((Encounter) row[0]).getPatientId();
+			}
+			
+			@Override
+			public void add(Object[] row) {
+				if (mostRecent == null) {
+					mostRecent = (Encounter) row[0];
+				}
+			}
+			
+			@Override
+			public Encounter finish() {
+				Encounter ret = mostRecent;
+				mostRecent = null;
+				return ret;
+			}
+		}, callback);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientSetDAO#streamPatientAttributes(Cohort, String, String,
+	 *      boolean, PatientDataCallback)
+	 */
+	public void streamPatientAttributes(Cohort patients, String className, final String property,
+	        final boolean returnAll, PatientDataCallback<Object> callback) throws DAOException {
+		final String fullClassName = "org.openmrs." + className;
+		streamByPatient(patients, false, new ChunkQuery() {
+			
+			public Criteria createCriteria(Collection<Integer> patientIds) {
+				return createPatientAttributesCriteria(fullClassName, property, patientIds, true);
+			}
+		}, new PatientRowCollector<Object>() {
+			
+			private List<Object> values = new ArrayList<Object>();
+			
+			@Override
+			public Integer getPatientId(Object[] row) {
+				return (Integer) row[0];
+			}
+			
+			@Override
+			public void add(Object[] row) {
+				if (returnAll || values.isEmpty()) {
+					values.add(row[1]);
+				}
+			}
+			
+			@Override
+			public Object finish() {
+				Object ret = returnAll ? values.toArray() : values.get(0);
+				values.clear();
+				return ret;
+			}
+		}, callback);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientSetDAO#streamCurrentDrugOrders(Cohort, List,
+	 *      PatientDataCallback)
+	 */
+	public void streamCurrentDrugOrders(Cohort patients, final List<Concept> drugConcepts,
+	        PatientDataCallback<List<DrugOrder>> callback) throws DAOException {
+		streamByPatient(patients, true, new ChunkQuery() {
+			
+			public Criteria createCriteria(Collection<Integer> patientIds) {
+				Criteria criteria = createCurrentDrugOrdersCriteria(drugConcepts, patientIds);
+				criteria.addOrder(org.hibernate.criterion.Order.asc("patient.personId"));
+				criteria.addOrder(org.hibernate.criterion.Order.asc("startDate"));
+				return criteria;
+			}
+		}, new EntityListCollector<DrugOrder>() {
+			
+			@Override
+			public Integer getPatientId(Object[] row) {
+				return ((DrugOrder) row[0]).getPatient().getPatientId();
+			}
+		}, callback);
+	}
+	
+	/**
+	 * Runs a query for every {@link #STREAMING_CHUNK_SIZE} patients of the cohort and passes the
+	 * rows of each patient to the callback as soon as they have all been read. The queries must
+	 * be sorted by patient id so that the rows of a patient are next to each other.
+	 * 
+	 * @param patients the cohort to get data for, or null for all patients
+	 * @param evictRows whether the rows are entities that should be evicted from the session after
+	 *            the callback has been called
+	 */
+	private <T> void streamByPatient(Cohort patients, boolean evictRows, ChunkQuery query,
+	        PatientRowCollector<T> collector, PatientDataCallback<T> callback) {
+		if (patients == null) {
+			streamChunk(query.createCriteria(null), evictRows, collector, callback);
+			return;
+		}
+		
+		List<Integer> chunk = new ArrayList<Integer>(STREAMING_CHUNK_SIZE);
+		for (Integer patientId : patients.getMemberIds()) {
+			chunk.add(patientId);
+			if (chunk.size() == STREAMING_CHUNK_SIZE) {
+				streamChunk(query.createCriteria(chunk), evictRows, collector, callback);
+				chunk.clear();
+			}
+		}
+		if (!chunk.isEmpty()) {
+			streamChunk(query.createCriteria(chunk), evictRows, collector, callback);
+		}
+	}
+	
+	private <T> void streamChunk(Criteria criteria, boolean evictRows, PatientRowCollector<T> collector,
+	        PatientDataCallback<T> callback) {
+		criteria.setCacheMode(CacheMode.IGNORE);
+		criteria.setFetchSize(STREAMING_FETCH_SIZE);
+		
+		List<Object> loaded = new ArrayList<Object>();
+		Integer currentPatientId = null;
+		ScrollableResults results = criteria.scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				Object[] row = results.get();
+				Integer patientId = collector.getPatientId(row);
+				if (currentPatientId != null && !currentPatientId.equals(patientId)) {
+					handlePatient(currentPatientId, collector, callback, loaded);
+				}
+				currentPatientId = patientId;
+				collector.add(row);
+				if (evictRows) {
+					loaded.add(row[0]);
+				}
+			}
+			if (currentPatientId != null) {
+				handlePatient(currentPatientId, collector, callback, loaded);
+			}
+		}
+		finally {
+			results.close();
+		}
+	}
+	
+	private <T> void handlePatient(Integer patientId, PatientRowCollector<T> collector, PatientDataCallback<T> callback,
+	        List<Object> loaded) {
+		callback.handle(patientId, collector.finish());
+		
+		Session session = sessionFactory.getCurrentSession();
+		for (Object entity : loaded) {
+			session.evict(entity);
+		}
+		loaded.clear();
+	}
+	
+	/**
+	 * Creates the query for one chunk of patients of a streaming method
+	 */
+	private interface ChunkQuery {
+		
+		/**
+		 * @param patientIds the patients to restrict to, or null for all patients
+		 */
+		public Criteria createCriteria(Collection<Integer> patientIds);
+	}
+	
+	/**
+	 * Turns the rows of one patient into the value that is passed to the callback
+	 */
+	private static abstract class PatientRowCollector<T> {
+		
+		public abstract Integer getPatientId(Object[] row);
+		
+		public abstract void add(Object[] row);
+		
+		/**
+		 * @return the value for the rows added since the last call
+		 */
+		public abstract T finish();
+	}
+	
+	/**
+	 * Collects the entities of one patient into a list
+	 */
+	private static abstract class EntityListCollector<E> extends PatientRowCollector<List<E>> {
+		
+		private List<E> entities = new ArrayList<E>();
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public void add(Object[] row) {
+			entities.add((E) row[0]);
+		}
+		
+		@Override
+		public List<E> finish() {
+			List<E> ret = entities;
+			entities = new ArrayList<E>();
+			return ret;
+		}
+	}
+	
 	/* 
 	 * This is a small hack to make the relationships work right in Neal's report code. It will be refactored
 	 * when I implement a relationship type filter for the cohort builder. -DJ
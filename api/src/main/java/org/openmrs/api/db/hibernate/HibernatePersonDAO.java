@@ -361,6 +361,7 @@ public class HibernatePersonDAO implements PersonDAO {
 		}
 		
 		criteria.addOrder(Order.asc("sortWeight"));
+		criteria.setCacheable(true);
 		
 		return criteria.list();
 	}
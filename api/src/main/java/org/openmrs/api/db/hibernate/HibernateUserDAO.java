@@ -189,7 +189,8 @@ public class HibernateUserDAO implements UserDAO {
 	 */
 	@SuppressWarnings("unchecked")
 	public List<Privilege> getAllPrivileges() throws DAOException {
-		return sessionFactory.getCurrentSession().createQuery("from Privilege p order by p.privilege").list();
+		return sessionFactory.getCurrentSession().createQuery("from Privilege p order by p.privilege").setCacheable(true)
+		        .list();
 	}
 	
 	/**
@@ -234,7 +235,7 @@ public class HibernateUserDAO implements UserDAO {
 	 */
 	@SuppressWarnings("unchecked")
 	public List<Role> getAllRoles() throws DAOException {
-		return sessionFactory.getCurrentSession().createQuery("from Role r order by r.role").list();
+		return sessionFactory.getCurrentSession().createQuery("from Role r order by r.role").setCacheable(true).list();
 	}
 	
 	/**
@@ -61,7 +61,7 @@ public class HibernateVisitDAO implements VisitDAO {
 	@SuppressWarnings("unchecked")
 	@Transactional(readOnly = true)
 	public List<VisitType> getAllVisitTypes() throws APIException {
-		return getCurrentSession().createCriteria(VisitType.class).list();
+		return getCurrentSession().createCriteria(VisitType.class).setCacheable(true).list();
 	}
 	
 	/**
@@ -69,7 +69,7 @@ public class HibernateVisitDAO implements VisitDAO {
 	 */
 	@Override
 	public List<VisitType> getAllVisitTypes(boolean includeRetired) throws DAOException {
-		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(VisitType.class);
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(VisitType.class).setCacheable(true);
 		return includeRetired ? criteria.list() : criteria.add(Restrictions.eq("retired", includeRetired)).list();
 	}
 	
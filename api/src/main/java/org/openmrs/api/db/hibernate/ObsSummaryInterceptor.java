@@ -0,0 +1,291 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+import org.openmrs.Concept;
+import org.openmrs.GlobalProperty;
+import org.openmrs.Obs;
+import org.openmrs.ObsSummary;
+import org.openmrs.Person;
+import org.openmrs.api.GlobalPropertyListener;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.db.ObsDAO;
+import org.openmrs.util.OpenmrsConstants;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the {@link ObsSummary} rows up to date. It records the person and concept of every obs that
+ * is inserted, updated or deleted, also when the obs is saved by a cascade from its encounter, and
+ * updates the summaries of them just before the transaction commits, so that they are committed or
+ * rolled back together with the obs.
+ * <p>
+ * Until then, the summaries do not reflect the changes of the transaction, so the transaction reads
+ * the most recent obs from the obs table instead, see {@link #isSummaryUpToDate()}. Obs that are
+ * changed outside of a Spring managed transaction are not recorded, the summaries are then only
+ * corrected by rebuilding them.
+ * <p>
+ * Whether the summaries have been built is read from the global property
+ * {@link OpenmrsConstants#GP_OBS_SUMMARY_BUILT} once and cached until the property is changed.
+ *
+ * @since 1.12
+ */
+public class ObsSummaryInterceptor extends EmptyInterceptor implements GlobalPropertyListener {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private static final Log log = LogFactory.getLog(ObsSummaryInterceptor.class);
+	
+	// the changes of the current transaction are bound to this key
+	private static final Object CHANGES_KEY = new Object();
+	
+	// bound while the current transaction changes the global property, which it then reads uncached
+	private static final Object SUMMARY_BUILT_CHANGED_KEY = new Object();
+	
+	private static final Object summaryBuiltLock = new Object();
+	
+	// the cached value of the global property, null until it is read
+	private static volatile Boolean summaryBuilt = null;
+	
+	// incremented when the global property changes, so that a value read before is not cached
+	private static int summaryBuiltGeneration = 0;
+	
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onSave(java.lang.Object, java.io.Serializable,
+	 *      java.lang.Object[], java.lang.String[], org.hibernate.type.Type[])
+	 */
+	@Override
+	public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		if (entity instanceof Obs) {
+			getChanges().obs.add((Obs) entity);
+		}
+		return false;
+	}
+	
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onFlushDirty(java.lang.Object, java.io.Serializable,
+	 *      java.lang.Object[], java.lang.Object[], java.lang.String[], org.hibernate.type.Type[])
+	 */
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+	        String[] propertyNames, Type[] types) {
+		if (entity instanceof Obs) {
+			Changes changes = getChanges();
+			changes.obs.add((Obs) entity);
+			// the obs may have been moved to another person or concept
+			if (previousState != null) {
+				changes.add(previousState, propertyNames);
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onDelete(java.lang.Object, java.io.Serializable,
+	 *      java.lang.Object[], java.lang.String[], org.hibernate.type.Type[])
+	 */
+	@Override
+	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		if (entity instanceof Obs) {
+			getChanges().add(state, propertyNames);
+		}
+	}
+	
+	/**
+	 * @return true if the summaries have been built and the current transaction has not changed any
+	 *         obs, so that the most recent obs can be read from the summaries
+	 * @should cache the global property until it is changed
+	 * @should read the global property changed by the current transaction
+	 */
+	static boolean isSummaryUpToDate() {
+		if (TransactionSynchronizationManager.hasResource(CHANGES_KEY)) {
+			return false;
+		}
+		if (TransactionSynchronizationManager.hasResource(SUMMARY_BUILT_CHANGED_KEY)) {
+			return readSummaryBuilt();
+		}
+		
+		Boolean built = summaryBuilt;
+		if (built == null) {
+			int generation;
+			synchronized (summaryBuiltLock) {
+				generation = summaryBuiltGeneration;
+			}
+			built = readSummaryBuilt();
+			synchronized (summaryBuiltLock) {
+				if (generation == summaryBuiltGeneration) {
+					summaryBuilt = built;
+				}
+			}
+		}
+		return built;
+	}
+	
+	private static boolean readSummaryBuilt() {
+		String built = Context.getAdministrationService().getGlobalProperty(OpenmrsConstants.GP_OBS_SUMMARY_BUILT,
+		    "false");
+		return Boolean.valueOf(built.trim());
+	}
+	
+	/**
+	 * Clears the cached value of the global property. When it is changed within a transaction, the
+	 * transaction reads its own value until it completes and the cached value is cleared again, so
+	 * other threads never cache a value that is not committed yet.
+	 */
+	private static void summaryBuiltChanged() {
+		clearSummaryBuilt();
+		
+		if (TransactionSynchronizationManager.isSynchronizationActive()
+		        && !TransactionSynchronizationManager.hasResource(SUMMARY_BUILT_CHANGED_KEY)) {
+			TransactionSynchronizationManager.bindResource(SUMMARY_BUILT_CHANGED_KEY, Boolean.TRUE);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(SUMMARY_BUILT_CHANGED_KEY);
+					clearSummaryBuilt();
+				}
+			});
+		}
+	}
+	
+	private static void clearSummaryBuilt() {
+		synchronized (summaryBuiltLock) {
+			summaryBuiltGeneration++;
+			summaryBuilt = null;
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.GlobalPropertyListener#supportsPropertyName(java.lang.String)
+	 */
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return OpenmrsConstants.GP_OBS_SUMMARY_BUILT.equalsIgnoreCase(propertyName);
+	}
+	
+	/**
+	 * @see org.openmrs.api.GlobalPropertyListener#globalPropertyChanged(org.openmrs.GlobalProperty)
+	 */
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		summaryBuiltChanged();
+	}
+	
+	/**
+	 * @see org.openmrs.api.GlobalPropertyListener#globalPropertyDeleted(java.lang.String)
+	 */
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		summaryBuiltChanged();
+	}
+	
+	/**
+	 * @return the changes of the current transaction, which are not kept if there is no transaction
+	 */
+	private Changes getChanges() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			log.debug("Obs changed outside of a transaction, the obs summaries will not be updated");
+			return new Changes();
+		}
+		
+		Changes changes = (Changes) TransactionSynchronizationManager.getResource(CHANGES_KEY);
+		if (changes != null) {
+			return changes;
+		}
+		
+		final Changes newChanges = new Changes();
+		TransactionSynchronizationManager.bindResource(CHANGES_KEY, newChanges);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			
+			@Override
+			public void beforeCommit(boolean readOnly) {
+				ObsDAO dao = Context.getRegisteredComponent("obsDAO", ObsDAO.class);
+				// updating the summaries flushes the session, which may record more changes
+				Map<Integer, Set<Integer>> conceptIdsByPersonId = newChanges.drain();
+				while (!conceptIdsByPersonId.isEmpty()) {
+					dao.updateObsSummaries(conceptIdsByPersonId);
+					conceptIdsByPersonId = newChanges.drain();
+				}
+			}
+			
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(CHANGES_KEY);
+			}
+		});
+		return newChanges;
+	}
+	
+	/**
+	 * The obs changed by a transaction and the persons and concepts of the deleted obs and of the
+	 * previous state of the updated ones
+	 */
+	private static class Changes {
+		
+		private final Set<Obs> obs = new HashSet<Obs>();
+		
+		private final Map<Integer, Set<Integer>> conceptIdsByPersonId = new HashMap<Integer, Set<Integer>>();
+		
+		private void add(Object[] state, String[] propertyNames) {
+			Person person = null;
+			Concept concept = null;
+			for (int i = 0; i < propertyNames.length; i++) {
+				if ("person".equals(propertyNames[i])) {
+					person = (Person) state[i];
+				} else if ("concept".equals(propertyNames[i])) {
+					concept = (Concept) state[i];
+				}
+			}
+			add(person, concept);
+		}
+		
+		private void add(Person person, Concept concept) {
+			if (person == null || person.getPersonId() == null || concept == null || concept.getConceptId() == null) {
+				return;
+			}
+			Set<Integer> conceptIds = conceptIdsByPersonId.get(person.getPersonId());
+			if (conceptIds == null) {
+				conceptIds = new HashSet<Integer>();
+				conceptIdsByPersonId.put(person.getPersonId(), conceptIds);
+			}
+			conceptIds.add(concept.getConceptId());
+		}
+		
+		/**
+		 * @return the persons and concepts changed since the last call
+		 */
+		private Map<Integer, Set<Integer>> drain() {
+			// the ids of new persons and obs are only known once they have been saved
+			for (Obs o : obs) {
+				add(o.getPerson(), o.getConcept());
+			}
+			obs.clear();
+			
+			Map<Integer, Set<Integer>> drained = new HashMap<Integer, Set<Integer>>(conceptIdsByPersonId);
+			conceptIdsByPersonId.clear();
+			return drained;
+		}
+	}
+}
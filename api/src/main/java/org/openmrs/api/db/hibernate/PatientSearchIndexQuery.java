@@ -0,0 +1,447 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermsFilter;
+import org.apache.lucene.search.WildcardQuery;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.MatchMode;
+import org.hibernate.search.FullTextQuery;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonName;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.db.hibernate.search.LuceneQuery;
+import org.openmrs.util.OpenmrsConstants;
+
+/**
+ * Finds the persons matching a patient search query in the search index of {@link PersonName},
+ * {@link PatientIdentifier} and {@link PersonAttribute}. The names, identifiers and searchable
+ * attributes are matched the same way as by {@link PatientSearchCriteria#prepareCriteria(String)},
+ * but without the joins and like expressions that force the database to scan the tables.
+ * <p>
+ * Matching persons are found through their names, which are sorted and paged in the index. The
+ * persons that are not patients or are voided patients are left out by checking one page of hits
+ * after the other in the database, so a search that matches a large part of the index doesn't
+ * load all of the hits.
+ * <p>
+ * The index is only updated when a transaction is committed, so changes made in the current
+ * transaction are not visible.
+ *
+ * @since 1.12
+ */
+public class PatientSearchIndexQuery {
+
+	private static final String[] NAME_FIELDS = { "givenName", "middleName", "familyName", "familyName2" };
+
+	/**
+	 * The names are sorted the same way as by {@link PatientSearchCriteria}
+	 */
+	private static final Sort NAME_SORT = new Sort(new SortField("givenName", SortField.STRING), new SortField(
+	        "middleName", SortField.STRING), new SortField("familyName", SortField.STRING));
+
+	/**
+	 * The number of hits checked in the database at once, which keeps the in clause of the query
+	 * below the limits of the databases
+	 */
+	static final int BATCH_SIZE = 1000;
+
+	/**
+	 * The largest n-gram of a value in the index, longer terms are matched by their n-grams
+	 */
+	private static final int MAX_GRAM_SIZE = 20;
+
+	private final SessionFactory sessionFactory;
+
+	private final PatientSearchCriteria patientSearchCriteria;
+
+	/**
+	 * @param sessionFactory
+	 */
+	public PatientSearchIndexQuery(SessionFactory sessionFactory) {
+		this.sessionFactory = sessionFactory;
+		this.patientSearchCriteria = new PatientSearchCriteria(sessionFactory, null);
+	}
+
+	/**
+	 * Finds one page of the non-voided patients with a name, identifier or searchable attribute
+	 * that matches the query, in the order of their names
+	 *
+	 * @param query the name, identifier or attribute to search for
+	 * @param firstResult the index of the first patient to return
+	 * @param maxResults the maximum number of patients to return
+	 * @return the ids of the matching patients, or null if the query or the identifier search
+	 *         settings cannot be reproduced with the index, in which case the database has to be
+	 *         searched instead
+	 */
+	List<Integer> findPatientIds(String query, int firstResult, int maxResults) {
+		LuceneQuery<PersonName> nameQuery = createPersonNameQuery(query, true);
+		if (nameQuery == null) {
+			return null;
+		}
+
+		Set<Integer> personIds = new HashSet<Integer>();
+		List<Integer> patientIds = new ArrayList<Integer>();
+		long first = 0;
+		while (patientIds.size() < firstResult + maxResults) {
+			List<Object> names = nameQuery.listPartProjection(first, (long) BATCH_SIZE, FullTextQuery.DOCUMENT).getList();
+			if (names.isEmpty()) {
+				break;
+			}
+
+			List<Integer> batch = getPersonIds(names);
+			batch.removeAll(personIds);
+			personIds.addAll(batch);
+			patientIds.addAll(getNonVoidedPatientIds(batch));
+			first += BATCH_SIZE;
+		}
+
+		if (patientIds.size() <= firstResult) {
+			return new ArrayList<Integer>();
+		}
+		return patientIds.subList(firstResult, Math.min(patientIds.size(), firstResult + maxResults));
+	}
+
+	/**
+	 * Counts the non-voided patients with a name, identifier or searchable attribute that matches
+	 * the query
+	 *
+	 * @param query the name, identifier or attribute to search for
+	 * @return the number of matching patients, or null if the database has to be searched instead
+	 * @see #findPatientIds(String, int, int)
+	 */
+	Long countPatients(String query) {
+		LuceneQuery<PersonName> nameQuery = createPersonNameQuery(query, false);
+		if (nameQuery == null) {
+			return null;
+		}
+
+		List<Integer> personIds = getPersonIds(nameQuery.listProjection(FullTextQuery.DOCUMENT));
+		long count = 0;
+		for (int i = 0; i < personIds.size(); i += BATCH_SIZE) {
+			count += getNonVoidedPatientIds(personIds.subList(i, Math.min(i + BATCH_SIZE, personIds.size()))).size();
+		}
+		return count;
+	}
+
+	/**
+	 * Creates the query for the non-voided names that match the query, together with the names of
+	 * the persons with a matching identifier or searchable attribute
+	 *
+	 * @param sorted whether to sort the names like {@link PatientSearchCriteria} does
+	 * @return the query, or null if the query cannot be reproduced with the index
+	 */
+	private LuceneQuery<PersonName> createPersonNameQuery(String query, final boolean sorted) {
+		// a Lucene wildcard query has no way to escape these
+		if (query.indexOf('*') >= 0 || query.indexOf('?') >= 0) {
+			return null;
+		}
+
+		String[] queryParts = patientSearchCriteria.getQueryParts(query);
+		if (queryParts.length == 0) {
+			return null;
+		}
+
+		Query identifierQuery = createIdentifierQuery(query);
+		if (identifierQuery == null) {
+			return null;
+		}
+
+		Set<Integer> personIds = new HashSet<Integer>();
+		personIds.addAll(findPersonIds(PatientIdentifier.class, "patient", identifierQuery));
+		Query attributeQuery = createAttributeQuery(queryParts);
+		if (attributeQuery != null) {
+			personIds.addAll(findPersonIds(PersonAttribute.class, "person", attributeQuery));
+		}
+
+		final BooleanQuery nameQuery = new BooleanQuery();
+		nameQuery.add(createNameQuery(queryParts), Occur.SHOULD);
+		if (!personIds.isEmpty()) {
+			// a filter rather than a term per person, which would be limited by the maximum clause count
+			TermsFilter personFilter = new TermsFilter();
+			for (Integer personId : personIds) {
+				personFilter.addTerm(new Term("person", personId.toString()));
+			}
+			BooleanQuery namesOfPersons = new BooleanQuery();
+			namesOfPersons.add(newNotVoidedQuery(), Occur.MUST);
+			namesOfPersons.add(new ConstantScoreQuery(personFilter), Occur.MUST);
+			nameQuery.add(namesOfPersons, Occur.SHOULD);
+		}
+
+		return new LuceneQuery<PersonName>(
+		                                   sessionFactory.getCurrentSession(), PersonName.class) {
+
+			@Override
+			protected Query prepareQuery() {
+				return nameQuery;
+			}
+
+			@Override
+			protected void adjustFullTextQuery(FullTextQuery fullTextQuery) {
+				if (sorted) {
+					fullTextQuery.setSort(NAME_SORT);
+				}
+			}
+		};
+	}
+
+	/**
+	 * @param personIds at most {@link #BATCH_SIZE} person ids
+	 * @return the ids of the persons that are non-voided patients, in the given order
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Integer> getNonVoidedPatientIds(List<Integer> personIds) {
+		if (personIds.isEmpty()) {
+			return personIds;
+		}
+
+		Set<Integer> patientIds = new HashSet<Integer>(sessionFactory.getCurrentSession().createQuery(
+		    "select p.patientId from Patient p where p.patientId in (:ids) and p.voided = false").setParameterList("ids",
+		    personIds).list());
+		List<Integer> result = new ArrayList<Integer>(patientIds.size());
+		for (Integer personId : personIds) {
+			if (patientIds.contains(personId)) {
+				result.add(personId);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Every part has to match one of the name fields, either on its own or together with the
+	 * parts before it
+	 */
+	private Query createNameQuery(String[] nameParts) {
+		BooleanQuery query = new BooleanQuery();
+		query.add(newNotVoidedQuery(), Occur.MUST);
+
+		StringBuilder multiName = new StringBuilder(nameParts[0]);
+		for (int i = 0; i < nameParts.length; i++) {
+			Query partQuery = createNameFieldsQuery(nameParts[i]);
+
+			if (i > 0) {
+				multiName.append(" ");
+				multiName.append(nameParts[i]);
+
+				BooleanQuery singleOrMultiName = new BooleanQuery();
+				singleOrMultiName.add(partQuery, Occur.SHOULD);
+				singleOrMultiName.add(createNameFieldsQuery(multiName.toString()), Occur.SHOULD);
+				partQuery = singleOrMultiName;
+			}
+
+			query.add(partQuery, Occur.MUST);
+		}
+
+		return query;
+	}
+
+	private Query createNameFieldsQuery(String name) {
+		MatchMode matchMode = patientSearchCriteria.isShortName(name) ? MatchMode.EXACT : patientSearchCriteria
+		        .getMatchMode();
+
+		BooleanQuery query = new BooleanQuery();
+		for (String field : NAME_FIELDS) {
+			query.add(newMatchQuery(field, name, matchMode), Occur.SHOULD);
+		}
+		return query;
+	}
+
+	/**
+	 * @return the query for the identifier search, or null if a regular expression is configured
+	 *         for it
+	 */
+	private Query createIdentifierQuery(String identifier) {
+		AdministrationService adminService = Context.getAdministrationService();
+		String regex = adminService.getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_IDENTIFIER_REGEX, "");
+		String patternSearch = adminService.getGlobalProperty(
+		    OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_IDENTIFIER_SEARCH_PATTERN, "");
+
+		// remove padding from identifier search string
+		if (Pattern.matches("^\\^.{1}\\*.*$", regex)) {
+			identifier = patientSearchCriteria.removePadding(identifier, regex);
+		}
+
+		BooleanQuery query = new BooleanQuery();
+		query.add(newNotVoidedQuery(), Occur.MUST);
+
+		if (org.springframework.util.StringUtils.hasLength(patternSearch)) {
+			BooleanQuery patternQuery = new BooleanQuery();
+			for (String pattern : patternSearch.split(",")) {
+				String value = patientSearchCriteria.replaceSearchString(pattern, identifier);
+				patternQuery.add(newMatchQuery("identifier", value, MatchMode.EXACT), Occur.SHOULD);
+			}
+			query.add(patternQuery, Occur.MUST);
+		} else if (regex.equals("") || HibernateUtil.isHSQLDialect(sessionFactory)) {
+			String prefix = adminService.getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_IDENTIFIER_PREFIX, "");
+			String suffix = adminService.getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_IDENTIFIER_SUFFIX, "");
+			Query likeQuery = newLikeQuery("identifier", prefix, identifier, suffix);
+			if (likeQuery == null) {
+				return null;
+			}
+			query.add(likeQuery, Occur.MUST);
+		} else {
+			// MySQL regular expressions have no equivalent in the index
+			return null;
+		}
+
+		return query;
+	}
+
+	/**
+	 * Every part has to be contained in the value of the same searchable attribute
+	 *
+	 * @return the query, or null if there are no searchable attribute types
+	 */
+	@SuppressWarnings("unchecked")
+	private Query createAttributeQuery(String[] queryParts) {
+		List<Integer> searchableTypeIds = sessionFactory.getCurrentSession().createQuery(
+		    "select t.personAttributeTypeId from PersonAttributeType t where t.searchable = true").list();
+		if (searchableTypeIds.isEmpty()) {
+			return null;
+		}
+
+		BooleanQuery query = new BooleanQuery();
+		query.add(newNotVoidedQuery(), Occur.MUST);
+
+		// the searchable flag is checked here rather than indexed so that changing it takes effect at once
+		BooleanQuery typeQuery = new BooleanQuery();
+		for (Integer typeId : searchableTypeIds) {
+			typeQuery.add(new TermQuery(new Term("attributeType", typeId.toString())), Occur.SHOULD);
+		}
+		query.add(typeQuery, Occur.MUST);
+
+		for (String queryPart : queryParts) {
+			query.add(newMatchQuery("value", queryPart, MatchMode.ANYWHERE), Occur.MUST);
+		}
+
+		return query;
+	}
+
+	private Query newNotVoidedQuery() {
+		return new TermQuery(new Term("voided", Boolean.FALSE.toString()));
+	}
+
+	/**
+	 * The indexed values are lower cased, so matching is case insensitive like ilike
+	 */
+	private Query newMatchQuery(String field, String value, MatchMode matchMode) {
+		String term = value.toLowerCase();
+		if (MatchMode.START.equals(matchMode)) {
+			return new PrefixQuery(new Term(field, term));
+		} else if (MatchMode.ANYWHERE.equals(matchMode)) {
+			return newNGramQuery(field + "NGram", term);
+		}
+		return new TermQuery(new Term(field, term));
+	}
+
+	/**
+	 * Matches values that contain the term by looking up its n-grams, instead of a wildcard query
+	 * with a leading wildcard, which would have to go through every term of the field. A term that
+	 * is longer than the largest n-gram has to contain all of its n-grams of that size that start at
+	 * every {@link #MAX_GRAM_SIZE}th character and at its end.
+	 */
+	private Query newNGramQuery(String field, String term) {
+		if (term.length() <= MAX_GRAM_SIZE) {
+			return new TermQuery(new Term(field, term));
+		}
+
+		BooleanQuery query = new BooleanQuery();
+		Set<String> grams = new LinkedHashSet<String>();
+		for (int i = 0; i + MAX_GRAM_SIZE < term.length(); i += MAX_GRAM_SIZE) {
+			grams.add(term.substring(i, i + MAX_GRAM_SIZE));
+		}
+		grams.add(term.substring(term.length() - MAX_GRAM_SIZE));
+		for (String gram : grams) {
+			query.add(new TermQuery(new Term(field, gram)), Occur.MUST);
+		}
+		return query;
+	}
+
+	/**
+	 * Turns the SQL like expression prefix + value + suffix into the equivalent index query, where
+	 * only the prefix and suffix may contain wildcards
+	 *
+	 * @return the query, or null if the prefix or suffix cannot be converted
+	 */
+	private Query newLikeQuery(String field, String prefix, String value, String suffix) {
+		if (prefix.matches(".*[*?\\\\].*") || suffix.matches(".*[*?\\\\].*")) {
+			return null;
+		}
+
+		String term = (prefix.replace('%', '*').replace('_', '?') + value + suffix.replace('%', '*').replace('_', '?'))
+		        .toLowerCase();
+		int firstWildcard = Math.min(indexOfOrLength(term, '*'), indexOfOrLength(term, '?'));
+		if (firstWildcard == term.length()) {
+			return new TermQuery(new Term(field, term));
+		} else if (firstWildcard == term.length() - 1 && term.endsWith("*")) {
+			return new PrefixQuery(new Term(field, term.substring(0, firstWildcard)));
+		}
+		return new WildcardQuery(new Term(field, term));
+	}
+
+	private int indexOfOrLength(String s, char c) {
+		int index = s.indexOf(c);
+		return index < 0 ? s.length() : index;
+	}
+
+	/**
+	 * @param personField the stored field that holds the id of the person
+	 */
+	private <T> List<Integer> findPersonIds(Class<T> type, String personField, final Query query) {
+		LuceneQuery<T> luceneQuery = new LuceneQuery<T>(
+		                                                sessionFactory.getCurrentSession(), type) {
+
+			@Override
+			protected Query prepareQuery() {
+				return query;
+			}
+		};
+
+		return getPersonIds(luceneQuery.listProjection(FullTextQuery.DOCUMENT), personField);
+	}
+
+	/**
+	 * @return the distinct person ids of the projected name documents, in the order of the names
+	 */
+	private List<Integer> getPersonIds(List<Object> nameDocuments) {
+		return new ArrayList<Integer>(new LinkedHashSet<Integer>(getPersonIds(nameDocuments, "person")));
+	}
+
+	private List<Integer> getPersonIds(List<Object> documents, String personField) {
+		List<Integer> personIds = new ArrayList<Integer>(documents.size());
+		for (Object row : documents) {
+			Document document = (Document) ((Object[]) row)[0];
+			personIds.add(Integer.valueOf(document.get(personField)));
+		}
+		return personIds;
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate.search;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.search.batchindexing.MassIndexerProgressMonitor;
+
+/**
+ * Logs the progress of an update of the search index about every tenth of the way, with the
+ * number of objects indexed per second so far. It is used by the mass indexer, whose threads call
+ * it concurrently, as well as by incremental updates.
+ * 
+ * @since 1.12
+ */
+public class IndexingProgressLogger implements MassIndexerProgressMonitor {
+	
+	private static final Log log = LogFactory.getLog(IndexingProgressLogger.class);
+	
+	/**
+	 * The least number of objects indexed between two progress messages
+	 */
+	private static final long MIN_LOG_INTERVAL = 1000;
+	
+	private final String description;
+	
+	private final long startTime = System.currentTimeMillis();
+	
+	private final AtomicLong totalCount = new AtomicLong();
+	
+	private final AtomicLong indexedCount = new AtomicLong();
+	
+	/**
+	 * @param description what is being indexed, to start the log messages with
+	 */
+	public IndexingProgressLogger(String description) {
+		this.description = description;
+	}
+	
+	/**
+	 * @see org.hibernate.search.batchindexing.MassIndexerProgressMonitor#addToTotalCount(long)
+	 */
+	public void addToTotalCount(long count) {
+		long total = totalCount.addAndGet(count);
+		log.info(description + ": " + total + " objects to index");
+	}
+	
+	/**
+	 * @see org.hibernate.search.batchindexing.MassIndexerProgressMonitor#entitiesLoaded(int)
+	 */
+	public void entitiesLoaded(int size) {
+	}
+	
+	/**
+	 * @see org.hibernate.search.batchindexing.MassIndexerProgressMonitor#documentsBuilt(int)
+	 */
+	public void documentsBuilt(int number) {
+	}
+	
+	/**
+	 * @see org.hibernate.search.batchindexing.MassIndexerProgressMonitor#documentsAdded(long)
+	 */
+	public void documentsAdded(long increment) {
+		long indexed = indexedCount.addAndGet(increment);
+		long interval = Math.max(MIN_LOG_INTERVAL, totalCount.get() / 10);
+		if (indexed / interval > (indexed - increment) / interval) {
+			long total = totalCount.get();
+			log.info(description + ": indexed " + indexed + " of " + total + " objects ("
+			        + (total > 0 ? indexed * 100 / total : 100) + "%), " + getObjectsPerSecond(indexed)
+			        + " objects per second");
+		}
+	}
+	
+	/**
+	 * @see org.hibernate.search.batchindexing.MassIndexerProgressMonitor#indexingCompleted()
+	 */
+	public void indexingCompleted() {
+		long indexed = indexedCount.get();
+		log.info(description + ": finished indexing " + indexed + " objects in "
+		        + (System.currentTimeMillis() - startTime) / 1000 + " seconds");
+	}
+	
+	/**
+	 * @return the number of objects indexed so far
+	 */
+	public long getIndexedCount() {
+		return indexedCount.get();
+	}
+	
+	private long getObjectsPerSecond(long indexed) {
+		long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+		return indexed * 1000 / elapsed;
+	}
+}
@@ -40,6 +40,12 @@ import org.openmrs.collection.ListPart;
  */
 public abstract class LuceneQuery<T> extends SearchQuery<T> {
 	
+	/**
+	 * The number of leading characters a fuzzy match must share with the searched word. Without it
+	 * a fuzzy query compares the word against every term in the index.
+	 */
+	public static final int FUZZY_PREFIX_LENGTH = 1;
+	
 	private FullTextQuery fullTextQuery;
 	
 	private Set<Set<Term>> includeTerms = new HashSet<Set<Term>>();
@@ -196,6 +202,7 @@ public abstract class LuceneQuery<T> extends SearchQuery<T> {
 		Analyzer analyzer = getFullTextSession().getSearchFactory().getAnalyzer(getType());
 		QueryParser queryParser = new QueryParser(Version.LUCENE_31, null, analyzer);
 		queryParser.setDefaultOperator(Operator.AND);
+		queryParser.setFuzzyPrefixLength(FUZZY_PREFIX_LENGTH);
 		return queryParser;
 	}
 	
@@ -26,6 +26,9 @@ public class OpenmrsObjectFieldBridge implements StringBridge {
 	 */
 	@Override
 	public String objectToString(Object obj) {
+		if (obj == null) {
+			return null;
+		}
 		OpenmrsObject openmrsObject = (OpenmrsObject) obj;
 		return openmrsObject.getId().toString();
 	}
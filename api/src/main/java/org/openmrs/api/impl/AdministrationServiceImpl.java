@@ -88,6 +88,8 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 	
 	protected AdministrationDAO dao;
 	
+	private GlobalPropertyCache globalPropertyCache;
+	
 	private EventListeners eventListeners;
 	
 	/**
@@ -108,6 +110,7 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 	 */
 	public void setAdministrationDAO(AdministrationDAO dao) {
 		this.dao = dao;
+		this.globalPropertyCache = new GlobalPropertyCache(dao);
 	}
 	
 	public void setEventListeners(EventListeners eventListeners) {
@@ -619,7 +622,23 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 			return null;
 		}
 		
-		return dao.getGlobalProperty(propertyName);
+		return globalPropertyCache.getGlobalProperty(propertyName);
+	}
+	
+	/**
+	 * @see org.openmrs.api.AdministrationService#refreshGlobalPropertyCache()
+	 */
+	public void refreshGlobalPropertyCache() {
+		globalPropertyCache.allGlobalPropertiesChanged();
+	}
+	
+	/**
+	 * @see org.openmrs.api.AdministrationService#refreshGlobalPropertyCache(java.lang.String)
+	 */
+	public void refreshGlobalPropertyCache(String propertyName) {
+		if (propertyName != null) {
+			globalPropertyCache.evict(propertyName);
+		}
 	}
 	
 	/**
@@ -683,6 +702,7 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 		}
 		gp.setPropertyValue(propertyValue);
 		dao.saveGlobalProperty(gp);
+		globalPropertyCache.globalPropertyChanged(propertyName);
 	}
 	
 	/**
@@ -696,6 +716,7 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 		}
 		gp.setPropertyValue(propertyValue);
 		dao.saveGlobalProperty(gp);
+		globalPropertyCache.globalPropertyChanged(propertyName);
 	}
 	
 	/**
@@ -757,6 +778,7 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 	public void purgeGlobalProperty(GlobalProperty globalProperty) throws APIException {
 		notifyGlobalPropertyDelete(globalProperty.getProperty());
 		dao.deleteGlobalProperty(globalProperty);
+		globalPropertyCache.globalPropertyChanged(globalProperty.getProperty());
 	}
 	
 	/**
@@ -783,6 +805,7 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 		if (gp.getProperty() != null && gp.getProperty().length() > 0) {
 			CustomDatatypeUtil.saveIfDirty(gp);
 			dao.saveGlobalProperty(gp);
+			globalPropertyCache.globalPropertyChanged(gp.getProperty());
 			notifyGlobalPropertyChange(gp);
 			return gp;
 		}
@@ -798,7 +821,12 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 			return null;
 		}
 		
-		return dao.executeSQL(sql, selectOnly);
+		List<List<Object>> result = dao.executeSQL(sql, selectOnly);
+		if (!selectOnly) {
+			// the statement might have changed global properties behind our back
+			globalPropertyCache.allGlobalPropertiesChanged();
+		}
+		return result;
 	}
 	
 	/**
@@ -1252,6 +1280,15 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 		dao.validate(object, errors);
 	}
 	
+	/**
+	 * @see org.openmrs.api.AdministrationService#getCacheStatistics()
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Map<String, Map<String, String>> getCacheStatistics() throws APIException {
+		return dao.getCacheStatistics();
+	}
+	
 	/**
 	 * @see org.openmrs.api.AdministrationService#getSearchLocales(org.openmrs.User)
 	 */
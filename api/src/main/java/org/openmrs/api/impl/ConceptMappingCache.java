@@ -0,0 +1,256 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openmrs.api.db.ConceptDAO;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Holds the ids of the concepts mapped to a code in a concept source, as looked up by
+ * {@link ConceptServiceImpl#getConceptsByMapping(String, String, boolean)}. HL7 and other
+ * integration messages resolve the same few codes over and over, so each source and code is only
+ * looked up in the database the first time, including codes that are not mapped to any concept.
+ * Codes that are not cached yet are looked up together in a single query.
+ * <p>
+ * The number of cached codes is bounded, the least recently used ones are dropped first. As
+ * mappings are rarely changed, all codes are evicted whenever a concept, reference term or concept
+ * source is changed. A transaction that changed them bypasses the cache until it completes, and
+ * the codes are evicted again once it completes, so no other thread sees mappings that were rolled
+ * back.
+ *
+ * @since 1.12
+ */
+public class ConceptMappingCache {
+	
+	/**
+	 * The default number of source and code combinations to cache
+	 */
+	public static final int DEFAULT_MAX_MAPPINGS = 10000;
+	
+	private final ConceptDAO dao;
+	
+	private final Map<MappingKey, MappedConcepts> mappings;
+	
+	// incremented on every eviction, so that mappings loaded from older data are not published
+	private final AtomicLong generation = new AtomicLong();
+	
+	/**
+	 * @param dao the dao to look up the codes that are not cached yet with
+	 * @param maxMappings the number of source and code combinations to cache at most
+	 */
+	public ConceptMappingCache(ConceptDAO dao, final int maxMappings) {
+		this.dao = dao;
+		this.mappings = new LinkedHashMap<MappingKey, MappedConcepts>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<MappingKey, MappedConcepts> eldest) {
+				return size() > maxMappings;
+			}
+		};
+	}
+	
+	/**
+	 * Gets the ids of the concepts mapped to each of the given codes in the given source
+	 *
+	 * @param codes the codes to look up
+	 * @param sourceName the name or hl7 code of the concept source
+	 * @param includeRetired whether retired concepts should be included, they are sorted after
+	 *            the concepts that are not retired
+	 * @return a map from each of the given codes to the ids of the concepts it is mapped to, which
+	 *         is empty if it is not mapped to any concept
+	 */
+	public Map<String, List<Integer>> getConceptIds(Collection<String> codes, String sourceName, boolean includeRetired) {
+		Map<String, MappedConcepts> found = new HashMap<String, MappedConcepts>();
+		Set<String> missing = new LinkedHashSet<String>();
+		
+		boolean changed = isChangedInCurrentTransaction();
+		if (changed) {
+			missing.addAll(codes);
+		} else {
+			synchronized (mappings) {
+				for (String code : codes) {
+					MappedConcepts mapped = mappings.get(new MappingKey(sourceName, code));
+					if (mapped != null) {
+						found.put(code, mapped);
+					} else {
+						missing.add(code);
+					}
+				}
+			}
+		}
+		
+		if (!missing.isEmpty()) {
+			long generationBeforeLoad = generation.get();
+			Map<String, MappedConcepts> loaded = load(missing, sourceName);
+			found.putAll(loaded);
+			
+			if (!changed) {
+				synchronized (mappings) {
+					// a mapping may have been changed while they were loaded
+					if (generation.get() == generationBeforeLoad) {
+						for (Map.Entry<String, MappedConcepts> entry : loaded.entrySet()) {
+							mappings.put(new MappingKey(sourceName, entry.getKey()), entry.getValue());
+						}
+					}
+				}
+			}
+		}
+		
+		Map<String, List<Integer>> conceptIds = new HashMap<String, List<Integer>>();
+		for (Map.Entry<String, MappedConcepts> entry : found.entrySet()) {
+			conceptIds.put(entry.getKey(), entry.getValue().getConceptIds(includeRetired));
+		}
+		return conceptIds;
+	}
+	
+	/**
+	 * Evicts all mappings. If called within a transaction, the cache is bypassed until the
+	 * transaction completes and all mappings are evicted again then.
+	 */
+	public void mappingsChanged() {
+		evictAll();
+		
+		if (!TransactionSynchronizationManager.isSynchronizationActive() || isChangedInCurrentTransaction()) {
+			return;
+		}
+		
+		TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(ConceptMappingCache.this);
+				evictAll();
+			}
+		});
+	}
+	
+	/**
+	 * Evicts all mappings
+	 */
+	public void evictAll() {
+		synchronized (mappings) {
+			generation.incrementAndGet();
+			mappings.clear();
+		}
+	}
+	
+	private boolean isChangedInCurrentTransaction() {
+		return TransactionSynchronizationManager.hasResource(this);
+	}
+	
+	/**
+	 * Looks up the given codes with a single query, a code that matches none of the rows is
+	 * mapped to no concepts
+	 */
+	private Map<String, MappedConcepts> load(Set<String> codes, String sourceName) {
+		Map<String, List<Object[]>> rowsByCode = new HashMap<String, List<Object[]>>();
+		for (String code : codes) {
+			rowsByCode.put(code, new ArrayList<Object[]>());
+		}
+		
+		for (Object[] row : dao.getConceptIdsByMapping(codes, sourceName)) {
+			String rowCode = (String) row[0];
+			if (rowsByCode.containsKey(rowCode)) {
+				rowsByCode.get(rowCode).add(row);
+			} else {
+				// the database compares the codes case insensitively
+				for (Map.Entry<String, List<Object[]>> entry : rowsByCode.entrySet()) {
+					if (entry.getKey().equalsIgnoreCase(rowCode)) {
+						entry.getValue().add(row);
+					}
+				}
+			}
+		}
+		
+		Map<String, MappedConcepts> loaded = new HashMap<String, MappedConcepts>();
+		for (Map.Entry<String, List<Object[]>> entry : rowsByCode.entrySet()) {
+			loaded.put(entry.getKey(), new MappedConcepts(entry.getValue()));
+		}
+		return loaded;
+	}
+	
+	/**
+	 * The ids of the concepts a code is mapped to, the ones that are not retired first
+	 */
+	private static class MappedConcepts {
+		
+		private final List<Integer> conceptIds;
+		
+		private final List<Integer> nonRetiredConceptIds;
+		
+		/**
+		 * @param rows the concept id and retired flag of each concept, sorted by the flag
+		 */
+		public MappedConcepts(List<Object[]> rows) {
+			List<Integer> all = new ArrayList<Integer>(rows.size());
+			List<Integer> nonRetired = new ArrayList<Integer>(rows.size());
+			for (Object[] row : rows) {
+				Integer conceptId = (Integer) row[1];
+				if (all.contains(conceptId)) {
+					continue;
+				}
+				all.add(conceptId);
+				if (!Boolean.TRUE.equals(row[2])) {
+					nonRetired.add(conceptId);
+				}
+			}
+			this.conceptIds = all;
+			this.nonRetiredConceptIds = nonRetired;
+		}
+		
+		public List<Integer> getConceptIds(boolean includeRetired) {
+			return new ArrayList<Integer>(includeRetired ? conceptIds : nonRetiredConceptIds);
+		}
+	}
+	
+	private static class MappingKey {
+		
+		private final String sourceName;
+		
+		private final String code;
+		
+		public MappingKey(String sourceName, String code) {
+			this.sourceName = sourceName;
+			this.code = code;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof MappingKey)) {
+				return false;
+			}
+			MappingKey other = (MappingKey) obj;
+			return sourceName.equals(other.sourceName) && code.equals(other.code);
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * sourceName.hashCode() + code.hashCode();
+		}
+	}
+}
@@ -0,0 +1,266 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openmrs.Concept;
+import org.openmrs.ConceptClass;
+import org.openmrs.ConceptDatatype;
+import org.openmrs.ConceptName;
+import org.openmrs.ConceptSearchResult;
+import org.openmrs.OpenmrsObject;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.db.ConceptDAO;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Holds the ranked hits and the counts of the concept searches done by
+ * {@link ConceptServiceImpl#getConcepts(String, List, boolean, List, List, List, List, Concept, Integer, Integer)}
+ * and
+ * {@link ConceptServiceImpl#getCountOfConcepts(String, List, boolean, List, List, List, List, Concept)}
+ * . The concept autocomplete repeats the same searches as the user types, so only the ids of the
+ * matching concept names are cached and the names and concepts are then mostly found in the second
+ * level cache.
+ * <p>
+ * The number of cached searches is bounded, the least recently used ones are dropped first. All
+ * searches are evicted whenever a concept or a stop word is changed or the search index is updated.
+ * A transaction that changed them bypasses the cache until it completes, and the searches are
+ * evicted again once it completes, after the search index has been updated.
+ *
+ * @since 1.12
+ */
+public class ConceptSearchCache {
+	
+	/**
+	 * The default number of searches to cache
+	 */
+	public static final int DEFAULT_MAX_SEARCHES = 1000;
+	
+	private final ConceptDAO dao;
+	
+	private final Map<SearchKey, List<Integer>> hits;
+	
+	private final Map<SearchKey, Integer> counts;
+	
+	// incremented on every eviction, so that searches of an older index are not published
+	private final AtomicLong generation = new AtomicLong();
+	
+	/**
+	 * @param dao the dao to search with if a search is not cached yet
+	 * @param maxSearches the number of searches and the number of counts to cache at most
+	 */
+	public ConceptSearchCache(ConceptDAO dao, int maxSearches) {
+		this.dao = dao;
+		this.hits = newLruMap(maxSearches);
+		this.counts = newLruMap(maxSearches);
+	}
+	
+	/**
+	 * @see ConceptDAO#getConcepts(String, List, boolean, List, List, List, List, Concept, Integer,
+	 *      Integer)
+	 */
+	public List<ConceptSearchResult> getConcepts(String phrase, List<Locale> locales, boolean includeRetired,
+	        List<ConceptClass> requireClasses, List<ConceptClass> excludeClasses, List<ConceptDatatype> requireDatatypes,
+	        List<ConceptDatatype> excludeDatatypes, Concept answersToConcept, Integer start, Integer size) {
+		if (isChangedInCurrentTransaction()) {
+			return dao.getConcepts(phrase, locales, includeRetired, requireClasses, excludeClasses, requireDatatypes,
+			    excludeDatatypes, answersToConcept, start, size);
+		}
+		
+		SearchKey key = new SearchKey(phrase, locales, includeRetired, requireClasses, excludeClasses, requireDatatypes,
+		        excludeDatatypes, answersToConcept, start, size);
+		
+		List<Integer> conceptNameIds;
+		synchronized (hits) {
+			conceptNameIds = hits.get(key);
+		}
+		
+		if (conceptNameIds != null) {
+			List<ConceptSearchResult> results = toResults(phrase, conceptNameIds);
+			if (results != null) {
+				return results;
+			}
+		}
+		
+		long generationBeforeSearch = generation.get();
+		List<ConceptSearchResult> results = dao.getConcepts(phrase, locales, includeRetired, requireClasses,
+		    excludeClasses, requireDatatypes, excludeDatatypes, answersToConcept, start, size);
+		
+		conceptNameIds = new ArrayList<Integer>(results.size());
+		for (ConceptSearchResult result : results) {
+			conceptNameIds.add(result.getConceptName().getConceptNameId());
+		}
+		
+		synchronized (hits) {
+			// a concept may have been changed during the search
+			if (generation.get() == generationBeforeSearch) {
+				hits.put(key, conceptNameIds);
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * @see ConceptDAO#getCountOfConcepts(String, List, boolean, List, List, List, List, Concept)
+	 */
+	public Integer getCountOfConcepts(String phrase, List<Locale> locales, boolean includeRetired,
+	        List<ConceptClass> requireClasses, List<ConceptClass> excludeClasses, List<ConceptDatatype> requireDatatypes,
+	        List<ConceptDatatype> excludeDatatypes, Concept answersToConcept) {
+		if (isChangedInCurrentTransaction()) {
+			return dao.getCountOfConcepts(phrase, locales, includeRetired, requireClasses, excludeClasses,
+			    requireDatatypes, excludeDatatypes, answersToConcept);
+		}
+		
+		SearchKey key = new SearchKey(phrase, locales, includeRetired, requireClasses, excludeClasses, requireDatatypes,
+		        excludeDatatypes, answersToConcept, null, null);
+		
+		synchronized (counts) {
+			Integer count = counts.get(key);
+			if (count != null) {
+				return count;
+			}
+		}
+		
+		long generationBeforeSearch = generation.get();
+		Integer count = dao.getCountOfConcepts(phrase, locales, includeRetired, requireClasses, excludeClasses,
+		    requireDatatypes, excludeDatatypes, answersToConcept);
+		
+		synchronized (counts) {
+			if (generation.get() == generationBeforeSearch) {
+				counts.put(key, count);
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Evicts all searches. If called within a transaction, the cache is bypassed until the
+	 * transaction completes and all searches are evicted again then.
+	 */
+	public void conceptsChanged() {
+		evictAll();
+		
+		if (!TransactionSynchronizationManager.isSynchronizationActive() || isChangedInCurrentTransaction()) {
+			return;
+		}
+		
+		TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(ConceptSearchCache.this);
+				evictAll();
+			}
+		});
+	}
+	
+	/**
+	 * Evicts all searches
+	 */
+	public void evictAll() {
+		// both locks are held, so a search started before the eviction is never published after it
+		synchronized (hits) {
+			synchronized (counts) {
+				generation.incrementAndGet();
+				hits.clear();
+				counts.clear();
+			}
+		}
+	}
+	
+	private boolean isChangedInCurrentTransaction() {
+		return TransactionSynchronizationManager.hasResource(this);
+	}
+	
+	/**
+	 * @return the results for the given concept names in the same order, or null if one of them no
+	 *         longer exists
+	 */
+	private List<ConceptSearchResult> toResults(String phrase, List<Integer> conceptNameIds) {
+		List<ConceptSearchResult> results = new ArrayList<ConceptSearchResult>(conceptNameIds.size());
+		for (Integer conceptNameId : conceptNameIds) {
+			ConceptName name = dao.getConceptName(conceptNameId);
+			if (name == null) {
+				return null;
+			}
+			results.add(new ConceptSearchResult(phrase, name.getConcept(), name));
+		}
+		return results;
+	}
+	
+	private static <V> Map<SearchKey, V> newLruMap(final int maxSize) {
+		return new LinkedHashMap<SearchKey, V>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<SearchKey, V> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+	
+	/**
+	 * The arguments of a search, where the classes, datatypes and concepts are identified by their
+	 * ids
+	 */
+	private static class SearchKey {
+		
+		private final Object[] values;
+		
+		public SearchKey(String phrase, List<Locale> locales, boolean includeRetired, List<ConceptClass> requireClasses,
+		    List<ConceptClass> excludeClasses, List<ConceptDatatype> requireDatatypes,
+		    List<ConceptDatatype> excludeDatatypes, Concept answersToConcept, Integer start, Integer size) {
+			// the dao searches in the locale of the user if no locales are given
+			List<Locale> searchLocales = locales != null ? new ArrayList<Locale>(locales) : Collections
+			        .singletonList(Context.getLocale());
+			this.values = new Object[] { phrase, searchLocales, includeRetired, toIds(requireClasses),
+			        toIds(excludeClasses), toIds(requireDatatypes), toIds(excludeDatatypes),
+			        answersToConcept != null ? answersToConcept.getConceptId() : null, start, size };
+		}
+		
+		private static List<Integer> toIds(List<? extends OpenmrsObject> items) {
+			List<Integer> ids = new ArrayList<Integer>();
+			if (items != null) {
+				for (OpenmrsObject item : items) {
+					ids.add(item.getId());
+				}
+			}
+			return ids;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SearchKey)) {
+				return false;
+			}
+			return Arrays.equals(values, ((SearchKey) obj).values);
+		}
+		
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(values);
+		}
+	}
+}
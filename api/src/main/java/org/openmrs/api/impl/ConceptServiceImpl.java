@@ -16,6 +16,8 @@ package org.openmrs.api.impl;
 import static org.apache.commons.lang.StringUtils.contains;
 
 import java.lang.reflect.InvocationTargetException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -51,6 +53,7 @@ import org.openmrs.ConceptReferenceTerm;
 import org.openmrs.ConceptReferenceTermMap;
 import org.openmrs.ConceptSearchResult;
 import org.openmrs.ConceptSet;
+import org.openmrs.ConceptSnapshot;
 import org.openmrs.ConceptSource;
 import org.openmrs.ConceptStopWord;
 import org.openmrs.Drug;
@@ -83,6 +86,19 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	
 	private ConceptDAO dao;
 	
+	private ConceptSnapshotCache conceptSnapshotCache;
+	
+	private ConceptMappingCache conceptMappingCache;
+	
+	private ConceptSearchCache conceptSearchCache;
+	
+	private ConceptSetClosureCache conceptSetClosureCache;
+	
+	/**
+	 * The format of {@link OpenmrsConstants#GP_CONCEPT_INDEX_UPDATED_UNTIL}
+	 */
+	private static final String CONCEPT_INDEX_UPDATED_UNTIL_FORMAT = "yyyy-MM-dd HH:mm:ss.SSS";
+	
 	private static Concept trueConcept;
 	
 	private static Concept falseConcept;
@@ -92,6 +108,10 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	public void setConceptDAO(ConceptDAO dao) {
 		this.dao = dao;
+		this.conceptSnapshotCache = new ConceptSnapshotCache(dao);
+		this.conceptMappingCache = new ConceptMappingCache(dao, ConceptMappingCache.DEFAULT_MAX_MAPPINGS);
+		this.conceptSearchCache = new ConceptSearchCache(dao, ConceptSearchCache.DEFAULT_MAX_SEARCHES);
+		this.conceptSetClosureCache = new ConceptSetClosureCache(dao);
 	}
 	
 	/**
@@ -283,6 +303,10 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		concept.setChangedBy(Context.getAuthenticatedUser());
 		
 		Concept conceptToReturn = dao.saveConcept(concept);
+		conceptSnapshotCache.conceptChanged(conceptToReturn.getConceptId());
+		conceptMappingCache.mappingsChanged();
+		conceptSearchCache.conceptsChanged();
+		conceptSetClosureCache.conceptChanged(conceptToReturn.getConceptId());
 		
 		// add/remove entries in the concept_word table (used for searching)
 		this.updateConceptIndex(conceptToReturn);
@@ -315,6 +339,12 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		}
 		
 		dao.purgeConcept(concept);
+		if (concept.getConceptId() != null) {
+			conceptSnapshotCache.conceptChanged(concept.getConceptId());
+			conceptSetClosureCache.conceptChanged(concept.getConceptId());
+		}
+		conceptMappingCache.mappingsChanged();
+		conceptSearchCache.conceptsChanged();
 	}
 	
 	/**
@@ -331,6 +361,9 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 			
 			concept.setRetired(true);
 			concept.setRetireReason(reason);
+			conceptSnapshotCache.conceptChanged(concept.getConceptId());
+			conceptMappingCache.mappingsChanged();
+			conceptSearchCache.conceptsChanged();
 			return dao.saveConcept(concept);
 			
 		}
@@ -369,6 +402,17 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		return dao.getConcept(conceptId);
 	}
 	
+	/**
+	 * @see org.openmrs.api.ConceptService#getConceptSnapshot(java.lang.Integer)
+	 */
+	@Transactional(readOnly = true)
+	public ConceptSnapshot getConceptSnapshot(Integer conceptId) throws APIException {
+		if (conceptId == null) {
+			return null;
+		}
+		return conceptSnapshotCache.getConceptSnapshot(conceptId, Context.getAdministrationService().getAllowedLocales());
+	}
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#getConceptName(java.lang.Integer)
 	 */
@@ -848,10 +892,22 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Transactional(readOnly = true)
 	public List<Concept> getConceptsByConceptSet(Concept c) {
-		Set<Integer> alreadySeen = new HashSet<Integer>();
-		List<Concept> ret = new ArrayList<Concept>();
-		explodeConceptSetHelper(c, ret, alreadySeen);
-		return ret;
+		if (c.getConceptId() == null) {
+			return new ArrayList<Concept>();
+		}
+		return getConceptsByIds(conceptSetClosureCache.getDescendantIds(c.getConceptId()));
+	}
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#isConceptInSet(org.openmrs.Concept, org.openmrs.Concept)
+	 */
+	@Transactional(readOnly = true)
+	public boolean isConceptInSet(Concept concept, Concept conceptSet) {
+		if (concept == null || conceptSet == null || concept.getConceptId() == null
+		        || conceptSet.getConceptId() == null) {
+			return false;
+		}
+		return conceptSetClosureCache.isInSet(concept.getConceptId(), conceptSet.getConceptId());
 	}
 	
 	/**
@@ -863,6 +919,11 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 			return Collections.emptyList();
 		}
 		
+		// most concepts are in no set, which the members of the sets in memory already tell
+		Set<Integer> setIds = conceptSetClosureCache.getParentSetIds(concept.getConceptId());
+		if (setIds != null && setIds.isEmpty()) {
+			return Collections.emptyList();
+		}
 		return dao.getSetsContainingConcept(concept);
 	}
 	
@@ -1124,30 +1185,6 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		return dao.getMaxConceptId();
 	}
 	
-	/**
-	 * Utility method used by getConceptsInSet(Concept concept)
-	 * 
-	 * @param concept
-	 * @param ret
-	 * @param alreadySeen
-	 */
-	private void explodeConceptSetHelper(Concept concept, Collection<Concept> ret, Collection<Integer> alreadySeen) {
-		if (alreadySeen.contains(concept.getConceptId())) {
-			return;
-		}
-		alreadySeen.add(concept.getConceptId());
-		List<ConceptSet> cs = getConceptSets(concept);
-		for (ConceptSet set : cs) {
-			Concept c = set.getConcept();
-			if (c.isSet()) {
-				ret.add(c);
-				explodeConceptSetHelper(c, ret, alreadySeen);
-			} else {
-				ret.add(c);
-			}
-		}
-	}
-	
 	/**
 	 * @see org.openmrs.api.ConceptService#getConceptNameTagByName(java.lang.String)
 	 */
@@ -1194,7 +1231,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 * @see org.openmrs.api.ConceptService#purgeConceptSource(org.openmrs.ConceptSource)
 	 */
 	public ConceptSource purgeConceptSource(ConceptSource cs) throws APIException {
-		
+		conceptMappingCache.mappingsChanged();
 		return dao.deleteConceptSource(cs);
 	}
 	
@@ -1203,6 +1240,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	public ConceptSource retireConceptSource(ConceptSource cs, String reason) throws APIException {
 		// retireReason is automatically set in BaseRetireHandler
+		conceptMappingCache.mappingsChanged();
 		return dao.saveConceptSource(cs);
 	}
 	
@@ -1210,6 +1248,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 * @see org.openmrs.api.ConceptService#saveConceptSource(org.openmrs.ConceptSource)
 	 */
 	public ConceptSource saveConceptSource(ConceptSource conceptSource) throws APIException {
+		conceptMappingCache.mappingsChanged();
 		return dao.saveConceptSource(conceptSource);
 	}
 	
@@ -1344,7 +1383,17 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Transactional(readOnly = true)
 	public Concept getConceptByMapping(String code, String sourceName, Boolean includeRetired) throws APIException {
 		List<Concept> concepts = Context.getConceptService().getConceptsByMapping(code, sourceName, includeRetired);
-		
+		return getConceptByMapping(concepts, code, sourceName);
+	}
+	
+	/**
+	 * Picks the concept of a mapping out of the concepts that are mapped to its code
+	 * 
+	 * @param concepts the concepts mapped to the code, the ones that are not retired first
+	 * @return the only non-retired concept, or the first retired concept if there is none
+	 * @throws APIException if there is more than one non-retired concept
+	 */
+	private Concept getConceptByMapping(List<Concept> concepts, String code, String sourceName) throws APIException {
 		if (concepts.size() == 0) {
 			return null;
 		}
@@ -1374,7 +1423,61 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Transactional(readOnly = true)
 	public List<Concept> getConceptsByMapping(String code, String sourceName, boolean includeRetired) throws APIException {
-		return dao.getConceptsByMapping(code, sourceName, includeRetired);
+		if (code == null || sourceName == null) {
+			return dao.getConceptsByMapping(code, sourceName, includeRetired);
+		}
+		
+		List<Integer> conceptIds = conceptMappingCache.getConceptIds(Collections.singleton(code), sourceName,
+		    includeRetired).get(code);
+		return getConceptsByIds(conceptIds);
+	}
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#getConceptsByMappings(java.util.Collection,
+	 *      java.lang.String, boolean)
+	 */
+	@Transactional(readOnly = true)
+	public Map<String, Concept> getConceptsByMappings(Collection<String> codes, String sourceName, boolean includeRetired)
+	        throws APIException {
+		Map<String, Concept> concepts = new HashMap<String, Concept>();
+		if (sourceName == null) {
+			return concepts;
+		}
+		
+		Set<String> nonNullCodes = new HashSet<String>(codes);
+		nonNullCodes.remove(null);
+		Map<String, List<Integer>> conceptIds = conceptMappingCache.getConceptIds(nonNullCodes, sourceName, includeRetired);
+		for (Map.Entry<String, List<Integer>> entry : conceptIds.entrySet()) {
+			Concept concept = getConceptByMapping(getConceptsByIds(entry.getValue()), entry.getKey(), sourceName);
+			if (concept != null) {
+				concepts.put(entry.getKey(), concept);
+			}
+		}
+		return concepts;
+	}
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#refreshConceptCaches()
+	 */
+	public void refreshConceptCaches() {
+		conceptSnapshotCache.evictAll();
+		conceptMappingCache.evictAll();
+		conceptSearchCache.evictAll();
+		conceptSetClosureCache.evictAll();
+	}
+	
+	/**
+	 * Loads the concepts with the given ids, which are mostly found in the second level cache
+	 */
+	private List<Concept> getConceptsByIds(List<Integer> conceptIds) {
+		List<Concept> concepts = new ArrayList<Concept>(conceptIds.size());
+		for (Integer conceptId : conceptIds) {
+			Concept concept = dao.getConcept(conceptId);
+			if (concept != null) {
+				concepts.add(concept);
+			}
+		}
+		return concepts;
 	}
 	
 	/**
@@ -1582,6 +1685,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 * @see org.openmrs.api.ConceptService#saveConceptStopWord(org.openmrs.ConceptStopWord)
 	 */
 	public ConceptStopWord saveConceptStopWord(ConceptStopWord conceptStopWord) throws APIException {
+		conceptSearchCache.conceptsChanged();
 		try {
 			return dao.saveConceptStopWord(conceptStopWord);
 		}
@@ -1597,6 +1701,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 * @see org.openmrs.api.ConceptService#deleteConceptStopWord(Integer)
 	 */
 	public void deleteConceptStopWord(Integer conceptStopWordId) throws APIException {
+		conceptSearchCache.conceptsChanged();
 		try {
 			dao.deleteConceptStopWord(conceptStopWordId);
 		}
@@ -1640,8 +1745,8 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 			excludeDatatypes = new Vector<ConceptDatatype>();
 		}
 		
-		return dao.getConcepts(phrase, locales, includeRetired, requireClasses, excludeClasses, requireDatatypes,
-		    excludeDatatypes, answersToConcept, start, size);
+		return conceptSearchCache.getConcepts(phrase, locales, includeRetired, requireClasses, excludeClasses,
+		    requireDatatypes, excludeDatatypes, answersToConcept, start, size);
 		
 	}
 	
@@ -1658,6 +1763,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 				Context.updateSearchIndexForObject(concept);
 			}
 		}
+		conceptSearchCache.conceptsChanged();
 	}
 	
 	/**
@@ -1666,6 +1772,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	public void updateConceptIndex(Concept concept) throws APIException {
 		Context.updateSearchIndexForObject(concept);
+		conceptSearchCache.conceptsChanged();
 	}
 	
 	/**
@@ -1674,6 +1781,56 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	public void updateConceptIndexes() throws APIException {
 		Context.updateSearchIndexForType(ConceptName.class);
+		conceptSearchCache.conceptsChanged();
+	}
+	
+	/**
+	 * @see ConceptService#rebuildConceptIndexes()
+	 */
+	@Override
+	public void rebuildConceptIndexes() throws APIException {
+		Date started = new Date();
+		Context.updateSearchIndexForTypesInParallel(Concept.class, ConceptName.class, Drug.class);
+		conceptSearchCache.evictAll();
+		setConceptIndexUpdatedUntil(started);
+	}
+	
+	/**
+	 * @see ConceptService#updateChangedConceptIndexes()
+	 */
+	@Override
+	public void updateChangedConceptIndexes() throws APIException {
+		String updatedUntil = Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_CONCEPT_INDEX_UPDATED_UNTIL);
+		if (!StringUtils.hasText(updatedUntil)) {
+			Context.getConceptService().rebuildConceptIndexes();
+			return;
+		}
+		
+		Date since;
+		try {
+			since = new SimpleDateFormat(CONCEPT_INDEX_UPDATED_UNTIL_FORMAT).parse(updatedUntil.trim());
+		}
+		catch (ParseException e) {
+			throw new APIException("Invalid value of " + OpenmrsConstants.GP_CONCEPT_INDEX_UPDATED_UNTIL + ": "
+			        + updatedUntil, e);
+		}
+		
+		// changes made while the index is updated are picked up by the next update
+		Date started = new Date();
+		List<Integer> conceptIds = dao.getConceptIdsChangedSince(since);
+		List<Integer> drugIds = dao.getDrugIdsChangedSince(since);
+		
+		// the names of each concept are indexed along with it
+		Context.updateSearchIndexForObjects(Concept.class, conceptIds);
+		Context.updateSearchIndexForObjects(Drug.class, drugIds);
+		conceptSearchCache.evictAll();
+		setConceptIndexUpdatedUntil(started);
+	}
+	
+	private void setConceptIndexUpdatedUntil(Date date) {
+		Context.getAdministrationService().setGlobalProperty(OpenmrsConstants.GP_CONCEPT_INDEX_UPDATED_UNTIL,
+		    new SimpleDateFormat(CONCEPT_INDEX_UPDATED_UNTIL_FORMAT).format(date));
 	}
 	
 	/**
@@ -1698,8 +1855,8 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 			excludeDatatypes = new Vector<ConceptDatatype>();
 		}
 		
-		return dao.getCountOfConcepts(phrase, locales, includeRetired, requireClasses, excludeClasses, requireDatatypes,
-		    excludeDatatypes, answersToConcept);
+		return conceptSearchCache.getCountOfConcepts(phrase, locales, includeRetired, requireClasses, excludeClasses,
+		    requireDatatypes, excludeDatatypes, answersToConcept);
 	}
 	
 	/**
@@ -1910,6 +2067,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Override
 	public ConceptReferenceTerm saveConceptReferenceTerm(ConceptReferenceTerm conceptReferenceTerm) throws APIException {
+		conceptMappingCache.mappingsChanged();
 		return dao.saveConceptReferenceTerm(conceptReferenceTerm);
 	}
 	
@@ -1942,6 +2100,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		if (dao.isConceptReferenceTermInUse(conceptReferenceTerm)) {
 			throw new APIException(Context.getMessageSourceService().getMessage("ConceptRefereceTerm.inUse"));
 		}
+		conceptMappingCache.mappingsChanged();
 		dao.deleteConceptReferenceTerm(conceptReferenceTerm);
 	}
 	
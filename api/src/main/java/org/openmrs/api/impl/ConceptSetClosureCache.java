@@ -0,0 +1,327 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openmrs.Concept;
+import org.openmrs.api.db.ConceptDAO;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Holds the members of all concept sets in memory, so that the concepts in a set and its subsets
+ * as returned by {@link ConceptServiceImpl#getConceptsByConceptSet(Concept)} are found without
+ * loading every concept set from the database level by level. The transitive members of a set are
+ * computed from the direct members the first time they are needed and kept until a set changes.
+ * <p>
+ * The direct members of all sets are loaded with a single query the first time. When a concept is
+ * changed, only its own members and the members of the sets that contain it are loaded again once
+ * the transaction that changed it completes. Until then, that transaction loads the members of the
+ * sets it asks for from the database, so it sees its own changes and no other thread sees changes
+ * that were rolled back.
+ *
+ * @since 1.12
+ */
+public class ConceptSetClosureCache {
+	
+	private final ConceptDAO dao;
+	
+	// the direct members of each set, null until they are loaded
+	private Map<Integer, Members> members;
+	
+	// the sets that directly contain each concept
+	private final Map<Integer, Set<Integer>> parents = new HashMap<Integer, Set<Integer>>();
+	
+	// the sets whose members have to be loaded again
+	private final Set<Integer> staleSetIds = new HashSet<Integer>();
+	
+	private final Map<Integer, List<Integer>> descendants = new HashMap<Integer, List<Integer>>();
+	
+	private final Map<Integer, Set<Integer>> descendantSets = new HashMap<Integer, Set<Integer>>();
+	
+	/**
+	 * @param dao the dao to load the members of the sets with
+	 */
+	public ConceptSetClosureCache(ConceptDAO dao) {
+		this.dao = dao;
+	}
+	
+	/**
+	 * Gets the ids of the concepts in the given set and in all of its subsets. Like the recursion
+	 * it replaces, the members of a set come in the order of their sort weight, each subset is
+	 * followed by its own members, and a concept in several subsets is listed once per subset.
+	 *
+	 * @param conceptSetId the id of the concept set
+	 * @return the ids of the members, empty if the concept is not a set
+	 */
+	public List<Integer> getDescendantIds(Integer conceptSetId) {
+		if (isChangedInCurrentTransaction()) {
+			return explode(conceptSetId, loadReachable(conceptSetId));
+		}
+		
+		synchronized (this) {
+			prepare();
+			List<Integer> ids = descendants.get(conceptSetId);
+			if (ids == null) {
+				ids = Collections.unmodifiableList(explode(conceptSetId, members));
+				descendants.put(conceptSetId, ids);
+			}
+			return ids;
+		}
+	}
+	
+	/**
+	 * @param conceptId the id of a concept
+	 * @param conceptSetId the id of a concept set
+	 * @return true if the concept is in the set or in one of its subsets
+	 */
+	public boolean isInSet(Integer conceptId, Integer conceptSetId) {
+		if (isChangedInCurrentTransaction()) {
+			return getDescendantIds(conceptSetId).contains(conceptId);
+		}
+		
+		synchronized (this) {
+			prepare();
+			Set<Integer> ids = descendantSets.get(conceptSetId);
+			if (ids == null) {
+				ids = new HashSet<Integer>(getDescendantIds(conceptSetId));
+				descendantSets.put(conceptSetId, ids);
+			}
+			return ids.contains(conceptId);
+		}
+	}
+	
+	/**
+	 * Gets the ids of the sets that directly contain the given concept, from the members of all sets
+	 * in memory
+	 *
+	 * @param conceptId the id of a concept
+	 * @return the ids of the sets, or null if a concept was changed in the current transaction, in
+	 *         which case the sets have to be looked up in the database
+	 */
+	public Set<Integer> getParentSetIds(Integer conceptId) {
+		if (isChangedInCurrentTransaction()) {
+			return null;
+		}
+		
+		synchronized (this) {
+			prepare();
+			Set<Integer> setIds = parents.get(conceptId);
+			return setIds == null ? Collections.<Integer> emptySet() : new HashSet<Integer>(setIds);
+		}
+	}
+	
+	/**
+	 * Marks the members of the given concept and of the sets containing it to be loaded again. If
+	 * called within a transaction, the cache is bypassed until the transaction completes and the
+	 * sets are marked when it completes.
+	 *
+	 * @param conceptId the id of the changed concept
+	 */
+	public void conceptChanged(final Integer conceptId) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			markStale(Collections.singleton(conceptId));
+			return;
+		}
+		
+		@SuppressWarnings("unchecked")
+		Set<Integer> changedIds = (Set<Integer>) TransactionSynchronizationManager.getResource(this);
+		if (changedIds != null) {
+			changedIds.add(conceptId);
+			return;
+		}
+		
+		final Set<Integer> newChangedIds = new HashSet<Integer>();
+		newChangedIds.add(conceptId);
+		TransactionSynchronizationManager.bindResource(this, newChangedIds);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(ConceptSetClosureCache.this);
+				markStale(newChangedIds);
+			}
+		});
+	}
+	
+	/**
+	 * Evicts the members of all sets
+	 */
+	public synchronized void evictAll() {
+		members = null;
+		parents.clear();
+		staleSetIds.clear();
+		descendants.clear();
+		descendantSets.clear();
+	}
+	
+	private boolean isChangedInCurrentTransaction() {
+		return TransactionSynchronizationManager.hasResource(this);
+	}
+	
+	private synchronized void markStale(Collection<Integer> conceptIds) {
+		if (members == null) {
+			return;
+		}
+		for (Integer conceptId : conceptIds) {
+			staleSetIds.add(conceptId);
+			// whether the concept is a set itself is stored with the sets containing it
+			Set<Integer> setIds = parents.get(conceptId);
+			if (setIds != null) {
+				staleSetIds.addAll(setIds);
+			}
+		}
+	}
+	
+	/**
+	 * Loads the members of all sets the first time and the members of the stale sets afterwards
+	 */
+	private void prepare() {
+		if (members == null) {
+			List<Object[]> rows = dao.getConceptSetMembers(null);
+			members = new HashMap<Integer, Members>();
+			addMembers(rows);
+			staleSetIds.clear();
+		} else if (!staleSetIds.isEmpty()) {
+			for (Integer setId : staleSetIds) {
+				Members old = members.remove(setId);
+				if (old != null) {
+					for (int memberId : old.conceptIds) {
+						Set<Integer> setIds = parents.get(memberId);
+						if (setIds != null) {
+							setIds.remove(setId);
+							if (setIds.isEmpty()) {
+								parents.remove(memberId);
+							}
+						}
+					}
+				}
+			}
+			addMembers(dao.getConceptSetMembers(staleSetIds));
+			staleSetIds.clear();
+			
+			// the transitive members are quickly computed again from the direct ones in memory
+			descendants.clear();
+			descendantSets.clear();
+		}
+	}
+	
+	private void addMembers(List<Object[]> rows) {
+		for (Map.Entry<Integer, Members> entry : toMembers(rows).entrySet()) {
+			members.put(entry.getKey(), entry.getValue());
+			for (int memberId : entry.getValue().conceptIds) {
+				Set<Integer> setIds = parents.get(memberId);
+				if (setIds == null) {
+					setIds = new HashSet<Integer>();
+					parents.put(memberId, setIds);
+				}
+				setIds.add(entry.getKey());
+			}
+		}
+	}
+	
+	/**
+	 * Loads the members of the given set and its subsets from the database, one level of subsets
+	 * per query
+	 */
+	private Map<Integer, Members> loadReachable(Integer conceptSetId) {
+		Map<Integer, Members> reachable = new HashMap<Integer, Members>();
+		Set<Integer> toLoad = Collections.singleton(conceptSetId);
+		Set<Integer> loaded = new HashSet<Integer>();
+		while (!toLoad.isEmpty()) {
+			loaded.addAll(toLoad);
+			Map<Integer, Members> level = toMembers(dao.getConceptSetMembers(toLoad));
+			reachable.putAll(level);
+			
+			toLoad = new HashSet<Integer>();
+			for (Members setMembers : level.values()) {
+				for (int i = 0; i < setMembers.conceptIds.length; i++) {
+					if (setMembers.sets[i] && !loaded.contains(setMembers.conceptIds[i])) {
+						toLoad.add(setMembers.conceptIds[i]);
+					}
+				}
+			}
+		}
+		return reachable;
+	}
+	
+	private static Map<Integer, Members> toMembers(List<Object[]> rows) {
+		Map<Integer, List<Object[]>> rowsBySet = new HashMap<Integer, List<Object[]>>();
+		for (Object[] row : rows) {
+			Integer setId = (Integer) row[0];
+			List<Object[]> setRows = rowsBySet.get(setId);
+			if (setRows == null) {
+				setRows = new ArrayList<Object[]>();
+				rowsBySet.put(setId, setRows);
+			}
+			setRows.add(row);
+		}
+		
+		Map<Integer, Members> membersBySet = new HashMap<Integer, Members>();
+		for (Map.Entry<Integer, List<Object[]>> entry : rowsBySet.entrySet()) {
+			membersBySet.put(entry.getKey(), new Members(entry.getValue()));
+		}
+		return membersBySet;
+	}
+	
+	private static List<Integer> explode(Integer conceptSetId, Map<Integer, Members> graph) {
+		List<Integer> ids = new ArrayList<Integer>();
+		explode(conceptSetId, graph, ids, new HashSet<Integer>());
+		return ids;
+	}
+	
+	private static void explode(Integer conceptSetId, Map<Integer, Members> graph, List<Integer> ids,
+	        Set<Integer> alreadySeen) {
+		if (!alreadySeen.add(conceptSetId)) {
+			return;
+		}
+		Members setMembers = graph.get(conceptSetId);
+		if (setMembers == null) {
+			return;
+		}
+		for (int i = 0; i < setMembers.conceptIds.length; i++) {
+			ids.add(setMembers.conceptIds[i]);
+			if (setMembers.sets[i]) {
+				explode(setMembers.conceptIds[i], graph, ids, alreadySeen);
+			}
+		}
+	}
+	
+	/**
+	 * The direct members of a set in the order of their sort weight
+	 */
+	private static class Members {
+		
+		private final int[] conceptIds;
+		
+		private final boolean[] sets;
+		
+		public Members(List<Object[]> rows) {
+			conceptIds = new int[rows.size()];
+			sets = new boolean[rows.size()];
+			for (int i = 0; i < rows.size(); i++) {
+				conceptIds[i] = (Integer) rows.get(i)[1];
+				sets[i] = Boolean.TRUE.equals(rows.get(i)[2]);
+			}
+		}
+	}
+}
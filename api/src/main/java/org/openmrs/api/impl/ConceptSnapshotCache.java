@@ -0,0 +1,150 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openmrs.Concept;
+import org.openmrs.ConceptSnapshot;
+import org.openmrs.api.db.ConceptDAO;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Holds the {@link ConceptSnapshot}s returned by {@link ConceptServiceImpl#getConceptSnapshot(Integer)}.
+ * A snapshot is built the first time a concept is requested and replaced after the concept is
+ * changed, so the dictionary is refreshed one concept at a time rather than reloaded as a whole.
+ * <p>
+ * A concept that is changed within a transaction is evicted immediately, bypassed by that
+ * transaction until it completes and evicted again once it completes, so no other thread sees
+ * names that were rolled back. All snapshots are dropped when the allowed locales change.
+ *
+ * @since 1.12
+ */
+public class ConceptSnapshotCache {
+	
+	private final ConceptDAO dao;
+	
+	private final ConcurrentMap<Integer, ConceptSnapshot> snapshots = new ConcurrentHashMap<Integer, ConceptSnapshot>();
+	
+	// incremented on every eviction, so that a snapshot built from older data is not published
+	private final AtomicLong generation = new AtomicLong();
+	
+	private volatile List<Locale> locales = new ArrayList<Locale>();
+	
+	/**
+	 * @param dao the dao to load the concepts that are not cached yet with
+	 */
+	public ConceptSnapshotCache(ConceptDAO dao) {
+		this.dao = dao;
+	}
+	
+	/**
+	 * Gets the snapshot of the given concept, building it if it is not cached yet
+	 *
+	 * @param conceptId the id of the concept
+	 * @param allowedLocales the locales to resolve the names of the concept in
+	 * @return the snapshot, or null if there is no concept with the given id
+	 */
+	public ConceptSnapshot getConceptSnapshot(Integer conceptId, List<Locale> allowedLocales) {
+		if (!allowedLocales.equals(locales)) {
+			locales = new ArrayList<Locale>(allowedLocales);
+			evictAll();
+		}
+		
+		Set<Integer> changedInTransaction = getChangedInCurrentTransaction();
+		boolean changed = changedInTransaction != null && changedInTransaction.contains(conceptId);
+		
+		ConceptSnapshot snapshot = changed ? null : snapshots.get(conceptId);
+		if (snapshot == null) {
+			long generationBeforeLoad = generation.get();
+			Concept concept = dao.getConcept(conceptId);
+			if (concept == null) {
+				return null;
+			}
+			snapshot = new ConceptSnapshot(concept, allowedLocales);
+			
+			if (!changed) {
+				snapshots.put(conceptId, snapshot);
+				// the concept may have been changed while the snapshot was built
+				if (generation.get() != generationBeforeLoad) {
+					snapshots.remove(conceptId, snapshot);
+				}
+			}
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * Evicts the snapshot of the given concept. If called within a transaction, it is bypassed
+	 * until the transaction completes and evicted again then.
+	 *
+	 * @param conceptId the id of the concept that was changed
+	 */
+	public void conceptChanged(Integer conceptId) {
+		evict(conceptId);
+		
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return;
+		}
+		
+		Set<Integer> changed = getChangedInCurrentTransaction();
+		if (changed == null) {
+			final Set<Integer> changedInTransaction = new HashSet<Integer>();
+			TransactionSynchronizationManager.bindResource(this, changedInTransaction);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(ConceptSnapshotCache.this);
+					for (Integer changedId : changedInTransaction) {
+						evict(changedId);
+					}
+				}
+			});
+			changed = changedInTransaction;
+		}
+		changed.add(conceptId);
+	}
+	
+	/**
+	 * Evicts the snapshot of a single concept
+	 *
+	 * @param conceptId the id of the concept to evict
+	 */
+	public void evict(Integer conceptId) {
+		generation.incrementAndGet();
+		snapshots.remove(conceptId);
+	}
+	
+	/**
+	 * Evicts all snapshots
+	 */
+	public void evictAll() {
+		generation.incrementAndGet();
+		snapshots.clear();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Set<Integer> getChangedInCurrentTransaction() {
+		return (Set<Integer>) TransactionSynchronizationManager.getResource(this);
+	}
+}
@@ -89,8 +89,7 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 			throw new IllegalArgumentException("The 'query' parameter is required and cannot be null");
 		}
 		
-		return Context.getEncounterService().filterEncountersByViewPermissions(
-		    dao.getEncounters(query, null, null, null, includeVoided), null);
+		return dao.getEncounters(query, null, null, null, includeVoided, getEncounterTypesNotViewable());
 	}
 	
 	/**
@@ -294,9 +293,8 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	public List<Encounter> getEncounters(Patient who, Location loc, Date fromDate, Date toDate,
 	        Collection<Form> enteredViaForms, Collection<EncounterType> encounterTypes, Collection<User> providers,
 	        boolean includeVoided) {
-		return Context.getEncounterService().filterEncountersByViewPermissions(
-		    dao.getEncounters(who, loc, fromDate, toDate, enteredViaForms, encounterTypes, usersToProviders(providers),
-		        null, null, includeVoided), null);
+		return dao.getEncounters(who, loc, fromDate, toDate, enteredViaForms, encounterTypes, usersToProviders(providers),
+		    null, null, includeVoided, getEncounterTypesNotViewable());
 	}
 	
 	/**
@@ -327,9 +325,8 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	public List<Encounter> getEncounters(Patient who, Location loc, Date fromDate, Date toDate,
 	        Collection<Form> enteredViaForms, Collection<EncounterType> encounterTypes, Collection<Provider> providers,
 	        Collection<VisitType> visitTypes, Collection<Visit> visits, boolean includeVoided) {
-		return Context.getEncounterService().filterEncountersByViewPermissions(
-		    dao.getEncounters(who, loc, fromDate, toDate, enteredViaForms, encounterTypes, providers, visitTypes, visits,
-		        includeVoided), null);
+		return dao.getEncounters(who, loc, fromDate, toDate, enteredViaForms, encounterTypes, providers, visitTypes, visits,
+		    includeVoided, getEncounterTypesNotViewable());
 	}
 	
 	/**
@@ -739,8 +736,7 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	@Transactional(readOnly = true)
 	public List<Encounter> getEncounters(String query, Integer start, Integer length, boolean includeVoided)
 	        throws APIException {
-		return Context.getEncounterService().filterEncountersByViewPermissions(
-		    dao.getEncounters(query, null, start, length, includeVoided), null);
+		return dao.getEncounters(query, null, start, length, includeVoided, getEncounterTypesNotViewable());
 	}
 	
 	/**
@@ -751,8 +747,7 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	@Transactional(readOnly = true)
 	public List<Encounter> getEncounters(String query, Integer patientId, Integer start, Integer length,
 	        boolean includeVoided) throws APIException {
-		return Context.getEncounterService().filterEncountersByViewPermissions(
-		    dao.getEncounters(query, patientId, start, length, includeVoided), null);
+		return dao.getEncounters(query, patientId, start, length, includeVoided, getEncounterTypesNotViewable());
 	}
 	
 	/**
@@ -761,7 +756,8 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	@Override
 	@Transactional(readOnly = true)
 	public Integer getCountOfEncounters(String query, boolean includeVoided) {
-		return OpenmrsUtil.convertToInteger(dao.getCountOfEncounters(query, null, includeVoided));
+		return OpenmrsUtil.convertToInteger(dao.getCountOfEncounters(query, null, includeVoided,
+		    getEncounterTypesNotViewable()));
 	}
 	
 	/**
@@ -916,8 +912,8 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	@Transactional(readOnly = true)
 	public List<Encounter> getEncountersByVisitsAndPatient(Patient patient, boolean includeVoided, String query,
 	        Integer start, Integer length) throws APIException {
-		return Context.getEncounterService().filterEncountersByViewPermissions(
-		    dao.getEncountersByVisitsAndPatient(patient, includeVoided, query, start, length), null);
+		return dao.getEncountersByVisitsAndPatient(patient, includeVoided, query, start, length,
+		    getEncounterTypesNotViewable());
 	}
 	
 	/**
@@ -928,7 +924,33 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	@Transactional(readOnly = true)
 	public Integer getEncountersByVisitsAndPatientCount(Patient patient, boolean includeVoided, String query)
 	        throws APIException {
-		return dao.getEncountersByVisitsAndPatientCount(patient, includeVoided, query);
+		return dao.getEncountersByVisitsAndPatientCount(patient, includeVoided, query, getEncounterTypesNotViewable());
+	}
+	
+	/**
+	 * Gets the encounter types whose encounters the authenticated user may not view, so that the
+	 * queries leave them out instead of loading whole pages and removing them afterwards like
+	 * {@link #filterEncountersByViewPermissions(List, User)}
+	 *
+	 * @return the encounter types with a view privilege the user does not have, or null if the user
+	 *         may view all encounters
+	 */
+	private List<EncounterType> getEncounterTypesNotViewable() {
+		User user = Context.getAuthenticatedUser();
+		// super users have every privilege, so the encounter types need not be looked at
+		if (user != null && user.isSuperUser()) {
+			return null;
+		}
+		
+		// retired types are included because their encounters are still found by the queries, the
+		// list comes from the query cache
+		List<EncounterType> encounterTypes = new ArrayList<EncounterType>();
+		for (EncounterType encounterType : dao.getAllEncounterTypes(true)) {
+			if (!userHasEncounterPrivilege(encounterType.getViewPrivilege(), user)) {
+				encounterTypes.add(encounterType);
+			}
+		}
+		return encounterTypes.isEmpty() ? null : encounterTypes;
 	}
 	
 	/**
@@ -1037,7 +1059,7 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	 * Convenient method that safely checks if user has given encounter privilege
 	 *
 	 * @param privilege the privilege to test
-	 * @param user the user instance to check if it has given privilege
+	 * @param user the user instance to check if it has given privilege, may be null
 	 * @return true if given user has specified privilege
 	 */
 	private boolean userHasEncounterPrivilege(Privilege privilege, User user) {
@@ -1046,7 +1068,7 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 			return true;
 		}
 		
-		return user.hasPrivilege(privilege.getPrivilege());
+		return user != null && user.hasPrivilege(privilege.getPrivilege());
 	}
 	
 	/**
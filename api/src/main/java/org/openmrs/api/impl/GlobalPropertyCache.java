@@ -0,0 +1,290 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.GlobalPropertyCommitListener;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.db.AdministrationDAO;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A read-mostly, in-memory copy of the global property values used by
+ * {@link AdministrationServiceImpl#getGlobalProperty(String)}. Readers never lock: the values are
+ * held in an immutable snapshot that is replaced atomically whenever entries are added or evicted.
+ * The first lookup after the cache was cleared loads all global properties with a single query.
+ * <p>
+ * Property names are matched case insensitively, like in the database. A property that is changed
+ * within a transaction is evicted immediately, bypassed by that transaction until it completes and
+ * evicted again once it completes, so other threads never keep seeing a value that was rolled back
+ * or replaced. After a commit, all registered {@link GlobalPropertyCommitListener}s are told which
+ * properties changed so that other nodes of a cluster can evict them as well.
+ *
+ * @since 1.12
+ */
+public class GlobalPropertyCache {
+	
+	private static final Log log = LogFactory.getLog(GlobalPropertyCache.class);
+	
+	private final AdministrationDAO dao;
+	
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>(Snapshot.empty(0));
+	
+	/**
+	 * @param dao the dao to load global properties that are not cached yet with
+	 */
+	public GlobalPropertyCache(AdministrationDAO dao) {
+		this.dao = dao;
+	}
+	
+	/**
+	 * Gets the value of the given global property, loading it from the database if it is not
+	 * cached yet
+	 *
+	 * @param propertyName the name of the global property
+	 * @return the value of the property or null if it does not exist
+	 */
+	public String getGlobalProperty(String propertyName) {
+		String key = propertyName.toLowerCase();
+		Set<String> changedInTransaction = getChangedInCurrentTransaction();
+		if (changedInTransaction != null && changedInTransaction.contains(key)) {
+			return dao.getGlobalProperty(propertyName);
+		}
+		
+		Snapshot current = snapshot.get();
+		if (current.empty) {
+			loadAll(current, changedInTransaction);
+			current = snapshot.get();
+		}
+		
+		if (current.values.containsKey(key)) {
+			return current.values.get(key);
+		} else if (current.complete) {
+			return null;
+		}
+		
+		String value = dao.getGlobalProperty(propertyName);
+		put(current.generation, key, value);
+		return value;
+	}
+	
+	/**
+	 * Evicts the given global property from the cache. If called within a transaction, the
+	 * property is evicted again when the transaction completes and commit listeners are notified
+	 * after it commits.
+	 *
+	 * @param propertyName the name of the global property that was changed
+	 */
+	public void globalPropertyChanged(String propertyName) {
+		String key = propertyName.toLowerCase();
+		evict(key);
+		
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			notifyCommitListeners(Collections.singleton(key));
+			return;
+		}
+		
+		Set<String> changed = getChangedInCurrentTransaction();
+		if (changed == null) {
+			final Set<String> changedInTransaction = new HashSet<String>();
+			TransactionSynchronizationManager.bindResource(this, changedInTransaction);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(GlobalPropertyCache.this);
+					for (String changedKey : changedInTransaction) {
+						evict(changedKey);
+					}
+					if (status == TransactionSynchronization.STATUS_COMMITTED) {
+						notifyCommitListeners(changedInTransaction);
+					}
+				}
+			});
+			changed = changedInTransaction;
+		}
+		changed.add(key);
+	}
+	
+	/**
+	 * Evicts all global properties from the cache, e.g. after running arbitrary sql. If called
+	 * within a transaction, they are evicted again when the transaction completes.
+	 */
+	public void allGlobalPropertiesChanged() {
+		evictAll();
+		
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					evictAll();
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Evicts a single global property so that it is read from the database the next time it is
+	 * requested
+	 *
+	 * @param propertyName the name of the global property to evict
+	 */
+	public void evict(String propertyName) {
+		String key = propertyName.toLowerCase();
+		while (true) {
+			Snapshot current = snapshot.get();
+			Map<String, String> values = current.values;
+			if (values.containsKey(key)) {
+				values = new HashMap<String, String>(values);
+				values.remove(key);
+				values = Collections.unmodifiableMap(values);
+			}
+			// the property may have been created, so a missing entry no longer means it doesn't exist
+			if (snapshot.compareAndSet(current, new Snapshot(values, current.generation + 1, false, current.empty))) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Evicts all global properties, they are loaded from the database again on the next lookup
+	 */
+	public void evictAll() {
+		while (true) {
+			Snapshot current = snapshot.get();
+			if (snapshot.compareAndSet(current, Snapshot.empty(current.generation + 1))) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Replaces an empty snapshot with all global properties from the database, unless an eviction
+	 * happened in the meantime
+	 */
+	private void loadAll(Snapshot current, Set<String> changedInTransaction) {
+		List<GlobalProperty> globalProperties = dao.getAllGlobalProperties();
+		
+		Map<String, String> values = new HashMap<String, String>(globalProperties.size() * 2);
+		for (GlobalProperty gp : globalProperties) {
+			values.put(gp.getProperty().toLowerCase(), gp.getPropertyValue());
+		}
+		
+		// don't publish what the current transaction changed but didn't commit yet
+		boolean complete = true;
+		if (changedInTransaction != null && !changedInTransaction.isEmpty()) {
+			values.keySet().removeAll(changedInTransaction);
+			complete = false;
+		}
+		
+		if (snapshot.compareAndSet(current, new Snapshot(Collections.unmodifiableMap(values), current.generation,
+		        complete, false))) {
+			if (log.isDebugEnabled()) {
+				log.debug("Loaded " + values.size() + " global properties into the cache");
+			}
+		}
+	}
+	
+	/**
+	 * Adds a value loaded from the database unless an eviction happened since the load started, in
+	 * which case the value might be outdated already
+	 */
+	private void put(long generation, String key, String value) {
+		while (true) {
+			Snapshot current = snapshot.get();
+			if (current.generation != generation) {
+				return;
+			}
+			Map<String, String> values = new HashMap<String, String>(current.values);
+			values.put(key, value);
+			if (snapshot.compareAndSet(current, new Snapshot(Collections.unmodifiableMap(values), generation,
+			        current.complete, current.empty))) {
+				return;
+			}
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Set<String> getChangedInCurrentTransaction() {
+		return (Set<String>) TransactionSynchronizationManager.getResource(this);
+	}
+	
+	private void notifyCommitListeners(Set<String> propertyNames) {
+		List<GlobalPropertyCommitListener> listeners;
+		try {
+			listeners = Context.getRegisteredComponents(GlobalPropertyCommitListener.class);
+		}
+		catch (Exception e) {
+			log.debug("Unable to look up global property commit listeners", e);
+			return;
+		}
+		
+		for (GlobalPropertyCommitListener listener : listeners) {
+			try {
+				listener.globalPropertiesCommitted(Collections.unmodifiableSet(propertyNames));
+			}
+			catch (Exception e) {
+				log.error("Error while notifying " + listener.getClass().getName() + " of committed global properties", e);
+			}
+		}
+	}
+	
+	/**
+	 * An immutable set of cached values. The generation is incremented on every eviction so that
+	 * values loaded before an eviction are not added afterwards.
+	 */
+	private static class Snapshot {
+		
+		/**
+		 * the cached values, including null values for properties known not to exist
+		 */
+		private final Map<String, String> values;
+		
+		private final long generation;
+		
+		/**
+		 * whether values holds every global property, so that anything else doesn't exist
+		 */
+		private final boolean complete;
+		
+		/**
+		 * whether nothing was loaded since the cache was last cleared
+		 */
+		private final boolean empty;
+		
+		public Snapshot(Map<String, String> values, long generation, boolean complete, boolean empty) {
+			this.values = values;
+			this.generation = generation;
+			this.complete = complete;
+			this.empty = empty;
+		}
+		
+		public static Snapshot empty(long generation) {
+			return new Snapshot(Collections.<String, String> emptyMap(), generation, false, true);
+		}
+	}
+}
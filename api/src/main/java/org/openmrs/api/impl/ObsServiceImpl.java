@@ -13,32 +13,39 @@
  */
 package org.openmrs.api.impl;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.Vector;
 
 import org.openmrs.Cohort;
 import org.openmrs.Concept;
 import org.openmrs.ConceptName;
 import org.openmrs.Encounter;
+import org.openmrs.GlobalProperty;
 import org.openmrs.Location;
 import org.openmrs.MimeType;
+import org.openmrs.NumericObsStatistics;
 import org.openmrs.Obs;
 import org.openmrs.Patient;
 import org.openmrs.Person;
 import org.openmrs.aop.RequiredDataAdvice;
 import org.openmrs.api.APIException;
+import org.openmrs.api.AdministrationService;
 import org.openmrs.api.EncounterService;
 import org.openmrs.api.ObsService;
 import org.openmrs.api.PatientService;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.ObsDAO;
 import org.openmrs.api.handler.SaveHandler;
+import org.openmrs.obs.ComplexDataFile;
 import org.openmrs.obs.ComplexObsHandler;
+import org.openmrs.obs.StreamingComplexObsHandler;
 import org.openmrs.util.OpenmrsClassLoader;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsConstants.PERSON_TYPE;
@@ -498,6 +505,100 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 		    false);
 	}
 	
+	/**
+	 * @see org.openmrs.api.ObsService#getObservationsByPerson(org.openmrs.Person, java.lang.Integer,
+	 *      java.lang.Integer)
+	 */
+	@Transactional(readOnly = true)
+	public List<Obs> getObservationsByPerson(Person who, Integer start, Integer length) {
+		return dao.getObservationsByPerson(who, start, length);
+	}
+	
+	/**
+	 * @see org.openmrs.api.ObsService#getLatestObservations(org.openmrs.Person, java.util.List)
+	 */
+	@Transactional(readOnly = true)
+	public Map<Concept, Obs> getLatestObservations(Person who, List<Concept> questions) {
+		Map<Concept, Obs> latest = new LinkedHashMap<Concept, Obs>();
+		if (who == null || questions == null || questions.isEmpty()) {
+			return latest;
+		}
+		
+		// the obs with the highest id comes first among those with the same obsDatetime
+		for (Obs obs : dao.getLatestObservations(who, questions)) {
+			if (!latest.containsKey(obs.getConcept())) {
+				latest.put(obs.getConcept(), obs);
+			}
+		}
+		return latest;
+	}
+	
+	/**
+	 * @see org.openmrs.api.ObsService#rebuildObsSummaries()
+	 */
+	public void rebuildObsSummaries() {
+		dao.rebuildObsSummaries();
+		
+		// saved as an object, so that the listeners caching the property are told about the change
+		AdministrationService as = Context.getAdministrationService();
+		GlobalProperty summaryBuilt = as.getGlobalPropertyObject(OpenmrsConstants.GP_OBS_SUMMARY_BUILT);
+		if (summaryBuilt == null) {
+			summaryBuilt = new GlobalProperty(OpenmrsConstants.GP_OBS_SUMMARY_BUILT);
+		}
+		summaryBuilt.setPropertyValue("true");
+		as.saveGlobalProperty(summaryBuilt);
+	}
+	
+	/**
+	 * @see org.openmrs.api.ObsService#getNumericObsStatistics(org.openmrs.Concept)
+	 */
+	@Transactional(readOnly = true)
+	public NumericObsStatistics getNumericObsStatistics(Concept question) {
+		return dao.getNumericObsStatistics(question);
+	}
+	
+	/**
+	 * @see org.openmrs.api.ObsService#getNumericObsHistogram(org.openmrs.Concept, java.lang.Double,
+	 *      java.lang.Double, int)
+	 */
+	@Transactional(readOnly = true)
+	public long[] getNumericObsHistogram(Concept question, Double from, Double to, int bucketCount) {
+		if (from == null || to == null || from > to || bucketCount < 1) {
+			throw new APIException("A histogram needs a range and at least one bucket");
+		}
+		return dao.getNumericObsHistogram(question, from, to, bucketCount);
+	}
+	
+	/**
+	 * @see org.openmrs.api.ObsService#getNumericObsDailyMeans(org.openmrs.Concept)
+	 */
+	@Transactional(readOnly = true)
+	public SortedMap<Date, Double> getNumericObsDailyMeans(Concept question) {
+		return dao.getNumericObsDailyMeans(question);
+	}
+	
+	/**
+	 * @see org.openmrs.api.ObsService#getCodedObsFrequencies(org.openmrs.Concept)
+	 */
+	@Transactional(readOnly = true)
+	public Map<Concept, Long> getCodedObsFrequencies(Concept question) {
+		Map<Concept, Long> frequencies = new LinkedHashMap<Concept, Long>();
+		for (Map.Entry<Integer, Long> entry : dao.getCodedObsFrequencies(question).entrySet()) {
+			Concept answer = entry.getKey() == null ? null : Context.getConceptService().getConcept(entry.getKey());
+			frequencies.put(answer, entry.getValue());
+		}
+		return frequencies;
+	}
+	
+	/**
+	 * @see org.openmrs.api.ObsService#getNumericObservationsOutsideRange(org.openmrs.Concept,
+	 *      java.lang.Double, java.lang.Double, java.lang.Integer)
+	 */
+	@Transactional(readOnly = true)
+	public List<Obs> getNumericObservationsOutsideRange(Concept question, Double lower, Double upper, Integer length) {
+		return dao.getNumericObservationsOutsideRange(question, lower, upper, length);
+	}
+	
 	/**
 	 * @see org.openmrs.api.ObsService#getObservations(org.openmrs.Person, boolean includeVoided)
 	 * @deprecated use {@link #getObservationsByPerson(Person)}
@@ -630,6 +731,11 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 	@Deprecated
 	@Transactional(readOnly = true)
 	public List<Obs> getLastNObservations(Integer n, Person who, Concept question, boolean includeVoided) {
+		if (n != null && n == 1 && !includeVoided && who != null && question != null) {
+			return new Vector<Obs>(Context.getObsService().getLatestObservations(who, Collections.singletonList(question))
+			        .values());
+		}
+		
 		List<Person> whom = new Vector<Person>();
 		whom.add(who);
 		List<Concept> questions = new Vector<Concept>();
@@ -808,6 +914,23 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 		return obs;
 	}
 	
+	/**
+	 * @see org.openmrs.api.ObsService#getComplexDataFile(java.lang.Integer, java.lang.String)
+	 */
+	@Transactional(readOnly = true)
+	public ComplexDataFile getComplexDataFile(Integer obsId, String view) throws APIException {
+		Obs obs = dao.getObs(obsId);
+		
+		if (obs != null && obs.isComplex()) {
+			ComplexObsHandler handler = getHandler(obs);
+			if (handler instanceof StreamingComplexObsHandler) {
+				return ((StreamingComplexObsHandler) handler).getComplexDataFile(obs, view);
+			}
+		}
+		
+		return null;
+	}
+	
 	/**
 	 * Internal method to remove ComplexData when an Obs is purged.
 	 */
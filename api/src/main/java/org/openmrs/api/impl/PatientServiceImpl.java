@@ -17,8 +17,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -29,6 +31,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.Concept;
+import org.openmrs.DuplicatePatientCandidate;
 import org.openmrs.Encounter;
 import org.openmrs.Location;
 import org.openmrs.Obs;
@@ -47,6 +50,7 @@ import org.openmrs.Visit;
 import org.openmrs.activelist.Allergy;
 import org.openmrs.activelist.Problem;
 import org.openmrs.api.APIException;
+import org.openmrs.api.AdministrationService;
 import org.openmrs.api.BlankIdentifierException;
 import org.openmrs.api.DuplicateIdentifierException;
 import org.openmrs.api.EncounterService;
@@ -62,6 +66,7 @@ import org.openmrs.api.UserService;
 import org.openmrs.api.VisitService;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.PatientDAO;
+import org.openmrs.patient.DuplicatePatientMatcher;
 import org.openmrs.patient.IdentifierValidator;
 import org.openmrs.patient.impl.LuhnIdentifierValidator;
 import org.openmrs.person.PersonMergeLog;
@@ -89,6 +94,12 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 	
 	private PatientDAO dao;
 	
+	/**
+	 * Blocking keys shared by more patients than this are not used to find likely duplicates, so
+	 * many patients cannot be usefully compared with each other
+	 */
+	private static final int DUPLICATE_PATIENTS_MAXIMUM_BLOCK_SIZE = 100;
+	
 	/**
 	 * PatientIdentifierValidators registered through spring's applicationContext-service.xml
 	 */
@@ -768,9 +779,111 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 			throw new APIException("There must be at least one attribute supplied to search on");
 		}
 		
+		if (attributes.contains("likelyDuplicates")) {
+			Set<Patient> patients = new LinkedHashSet<Patient>();
+			for (DuplicatePatientCandidate candidate : dao.getDuplicatePatientCandidates(attributes
+			        .contains("includeVoided"), null, null)) {
+				patients.add(candidate.getPatient());
+				patients.add(candidate.getOtherPatient());
+			}
+			return new ArrayList<Patient>(patients);
+		}
+		
 		return dao.getDuplicatePatientsByAttributes(attributes);
 	}
 	
+	/**
+	 * @see org.openmrs.api.PatientService#updateDuplicatePatientCandidates(int)
+	 */
+	public boolean updateDuplicatePatientCandidates(int batchSize) throws APIException {
+		AdministrationService as = Context.getAdministrationService();
+		Integer lastPatientId = as.getGlobalPropertyValue(OpenmrsConstants.GP_DUPLICATE_PATIENTS_LAST_PATIENT_ID, 0);
+		Double minimumScore = as.getGlobalPropertyValue(OpenmrsConstants.GP_DUPLICATE_PATIENTS_MINIMUM_SCORE, 0.6);
+		
+		List<Patient> batch = dao.getNextPatientBatch(lastPatientId, batchSize);
+		
+		// the keys of the whole batch are saved first, so that its patients are compared with each other too
+		Map<Patient, Set<String>> blockingKeys = new LinkedHashMap<Patient, Set<String>>();
+		Set<String> batchBlockingKeys = new HashSet<String>();
+		for (Patient patient : batch) {
+			Set<String> keys = DuplicatePatientMatcher.getBlockingKeys(patient);
+			dao.savePatientBlockingKeys(patient, keys);
+			blockingKeys.put(patient, keys);
+			batchBlockingKeys.addAll(keys);
+		}
+		Map<String, Set<Integer>> blocks = dao.getPatientIdsByBlockingKeys(batchBlockingKeys,
+		    DUPLICATE_PATIENTS_MAXIMUM_BLOCK_SIZE);
+		
+		Date dateCreated = new Date();
+		for (Map.Entry<Patient, Set<String>> entry : blockingKeys.entrySet()) {
+			Patient patient = entry.getKey();
+			
+			Set<Integer> otherPatientIds = new HashSet<Integer>();
+			for (String key : entry.getValue()) {
+				if (blocks.containsKey(key)) {
+					otherPatientIds.addAll(blocks.get(key));
+				}
+			}
+			otherPatientIds.remove(patient.getPatientId());
+			
+			Map<Integer, DuplicatePatientCandidate> previousCandidates = new HashMap<Integer, DuplicatePatientCandidate>();
+			for (DuplicatePatientCandidate candidate : dao.getDuplicatePatientCandidates(patient)) {
+				Patient otherPatient = candidate.getOtherPatient();
+				if (otherPatient.getPatientId().equals(patient.getPatientId())) {
+					otherPatient = candidate.getPatient();
+				}
+				previousCandidates.put(otherPatient.getPatientId(), candidate);
+			}
+			
+			for (Integer otherPatientId : otherPatientIds) {
+				Patient otherPatient = dao.getPatient(otherPatientId);
+				double score = DuplicatePatientMatcher.getScore(patient, otherPatient);
+				DuplicatePatientCandidate candidate = previousCandidates.remove(otherPatientId);
+				if (score < minimumScore) {
+					if (candidate != null) {
+						dao.deleteDuplicatePatientCandidate(candidate);
+					}
+					continue;
+				}
+				
+				if (candidate == null) {
+					if (patient.getPatientId() < otherPatientId) {
+						candidate = new DuplicatePatientCandidate(patient, otherPatient);
+					} else {
+						candidate = new DuplicatePatientCandidate(otherPatient, patient);
+					}
+				}
+				candidate.setScore(score);
+				candidate.setDateCreated(dateCreated);
+				dao.saveDuplicatePatientCandidate(candidate);
+			}
+			
+			// the patients no longer share a blocking key, e.g. a name has been corrected or a patient voided
+			for (DuplicatePatientCandidate candidate : previousCandidates.values()) {
+				dao.deleteDuplicatePatientCandidate(candidate);
+			}
+		}
+		
+		if (batch.isEmpty()) {
+			as.setGlobalProperty(OpenmrsConstants.GP_DUPLICATE_PATIENTS_LAST_PATIENT_ID, "0");
+			return false;
+		}
+		
+		lastPatientId = batch.get(batch.size() - 1).getPatientId();
+		as.setGlobalProperty(OpenmrsConstants.GP_DUPLICATE_PATIENTS_LAST_PATIENT_ID, lastPatientId.toString());
+		return true;
+	}
+	
+	/**
+	 * @see org.openmrs.api.PatientService#getDuplicatePatientCandidates(boolean, java.lang.Integer,
+	 *      java.lang.Integer)
+	 */
+	@Transactional(readOnly = true)
+	public List<DuplicatePatientCandidate> getDuplicatePatientCandidates(boolean includeVoided, Integer start,
+	        Integer length) throws APIException {
+		return dao.getDuplicatePatientCandidates(includeVoided, start, length);
+	}
+	
 	/**
 	 * generate a relationship hash for use in mergePatients; follows the convention:
 	 * [relationshipType][A|B][relativeId]
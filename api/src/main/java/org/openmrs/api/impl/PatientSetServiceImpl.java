@@ -50,6 +50,7 @@ import org.openmrs.Relationship;
 import org.openmrs.RelationshipType;
 import org.openmrs.api.APIAuthenticationException;
 import org.openmrs.api.PatientSetService;
+import org.openmrs.api.PatientSetService.PatientDataCallback;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.PatientSetDAO;
@@ -459,6 +460,13 @@ public class PatientSetServiceImpl extends BaseOpenmrsService implements Patient
 	 *         null)
 	 */
 	public Map<Integer, List<DrugOrder>> getCurrentDrugOrders(Cohort ps, Concept drugSet) {
+		return getPatientSetDAO().getCurrentDrugOrders(ps, getDrugConcepts(drugSet));
+	}
+	
+	/**
+	 * @return the members of the given drug set, or null if drugSet is null
+	 */
+	private List<Concept> getDrugConcepts(Concept drugSet) {
 		List<Concept> drugConcepts = null;
 		if (drugSet != null) {
 			List<ConceptSet> concepts = Context.getConceptService().getConceptSetsByConcept(drugSet);
@@ -469,7 +477,63 @@ public class PatientSetServiceImpl extends BaseOpenmrsService implements Patient
 		}
 		log.debug("drugSet: " + drugSet);
 		log.debug("drugConcepts: " + drugConcepts);
-		return getPatientSetDAO().getCurrentDrugOrders(ps, drugConcepts);
+		return drugConcepts;
+	}
+	
+	/**
+	 * @see org.openmrs.api.PatientSetService#streamObservations(Cohort, Concept, Date, Date,
+	 *      PatientDataCallback)
+	 */
+	public void streamObservations(Cohort patients, Concept concept, Date fromDate, Date toDate,
+	        PatientDataCallback<List<Obs>> callback) {
+		if (patients == null || patients.size() == 0) {
+			return;
+		}
+		getPatientSetDAO().streamObservations(patients, concept, fromDate, toDate, callback);
+	}
+	
+	/**
+	 * @see org.openmrs.api.PatientSetService#streamObservationsValues(Cohort, Concept, List,
+	 *      Integer, boolean, PatientDataCallback)
+	 */
+	public void streamObservationsValues(Cohort patients, Concept c, List<String> attributes, Integer limit,
+	        boolean showMostRecentFirst, PatientDataCallback<List<List<Object>>> callback) {
+		if (attributes == null) {
+			attributes = new Vector<String>();
+		}
+		
+		// add null for the actual obs value
+		if (attributes.size() < 1 || attributes.get(0) != null) {
+			attributes.add(0, null);
+		}
+		
+		getPatientSetDAO().streamObservationsValues(patients, c, attributes, limit, showMostRecentFirst, callback);
+	}
+	
+	/**
+	 * @see org.openmrs.api.PatientSetService#streamEncountersByType(Cohort, List,
+	 *      PatientDataCallback)
+	 */
+	public void streamEncountersByType(Cohort patients, List<EncounterType> encTypes,
+	        PatientDataCallback<Encounter> callback) {
+		getPatientSetDAO().streamEncountersByType(patients, encTypes, callback);
+	}
+	
+	/**
+	 * @see org.openmrs.api.PatientSetService#streamPatientAttributes(Cohort, String, String,
+	 *      boolean, PatientDataCallback)
+	 */
+	public void streamPatientAttributes(Cohort patients, String className, String property, boolean returnAll,
+	        PatientDataCallback<Object> callback) {
+		getPatientSetDAO().streamPatientAttributes(patients, className, property, returnAll, callback);
+	}
+	
+	/**
+	 * @see org.openmrs.api.PatientSetService#streamCurrentDrugOrders(Cohort, Concept,
+	 *      PatientDataCallback)
+	 */
+	public void streamCurrentDrugOrders(Cohort ps, Concept drugSet, PatientDataCallback<List<DrugOrder>> callback) {
+		getPatientSetDAO().streamCurrentDrugOrders(ps, getDrugConcepts(drugSet), callback);
 	}
 	
 	/**
@@ -33,6 +33,7 @@ import org.openmrs.api.APIAuthenticationException;
 import org.openmrs.api.APIException;
 import org.openmrs.api.CannotDeleteRoleWithChildrenException;
 import org.openmrs.api.UserService;
+import org.openmrs.api.context.CompiledPrivileges;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.UserDAO;
@@ -105,6 +106,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 			OpenmrsUtil.validatePassword(user.getUsername(), password, user.getSystemId());
 		}
 		
+		CompiledPrivileges.invalidate();
 		return dao.saveUser(user, password);
 	}
 	
@@ -263,6 +265,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 			throw new APIException("Cannot delete a core privilege");
 		}
 		
+		CompiledPrivileges.invalidate();
 		dao.deletePrivilege(privilege);
 	}
 	
@@ -270,6 +273,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 	 * @see org.openmrs.api.UserService#savePrivilege(org.openmrs.Privilege)
 	 */
 	public Privilege savePrivilege(Privilege privilege) throws APIException {
+		CompiledPrivileges.invalidate();
 		return dao.savePrivilege(privilege);
 	}
 	
@@ -327,6 +331,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 			throw new CannotDeleteRoleWithChildrenException();
 		}
 		
+		CompiledPrivileges.invalidate();
 		dao.deleteRole(role);
 	}
 	
@@ -343,6 +348,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		
 		checkPrivileges(role);
 		
+		CompiledPrivileges.invalidate();
 		return dao.saveRole(role);
 	}
 	
@@ -568,6 +574,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 	 * @see org.openmrs.api.UserService#purgeUser(org.openmrs.User)
 	 */
 	public void purgeUser(User user) throws APIException {
+		CompiledPrivileges.invalidate();
 		dao.deleteUser(user);
 	}
 	
@@ -579,6 +586,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 			throw new APIException("I don't think we want to cascade here");
 		}
 		
+		CompiledPrivileges.invalidate();
 		dao.deleteUser(user);
 	}
 	
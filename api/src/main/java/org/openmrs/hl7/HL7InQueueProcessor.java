@@ -13,9 +13,21 @@
  */
 package org.openmrs.hl7;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.util.OpenmrsConstants;
 import org.springframework.transaction.annotation.Transactional;
 
 import ca.uhn.hl7v2.HL7Exception;
@@ -25,6 +37,13 @@ import ca.uhn.hl7v2.HL7Exception;
  * table depending on success or failure of the processing. You may, however, set a global property
  * that causes the processor to ignore messages regarding unknown patients from a non-local HL7
  * source. (i.e. those messages neither go to the archive or the error table.)
+ * <p>
+ * By default the queue is drained one entry at a time. If the
+ * {@link OpenmrsConstants#GP_HL7_PROCESSOR_WORKERS} global property is set to more than one,
+ * pending entries are claimed in batches and divided among a pool of workers by patient
+ * identifier, so that messages for the same patient are still processed in the order they were
+ * received. Each worker runs in its own session and every entry is processed in its own
+ * transaction.
  *
  * @version 1.0
  */
@@ -35,7 +54,9 @@ public class HL7InQueueProcessor /* implements Runnable */{
 	
 	private static Boolean isRunning = false; // allow only one running
 	
-	private static Integer count = 0;
+	private static final AtomicInteger count = new AtomicInteger();
+	
+	private static volatile HL7InQueueProcessorStatistics statistics;
 	
 	// processor per JVM
 	
@@ -47,7 +68,16 @@ public class HL7InQueueProcessor /* implements Runnable */{
 	}
 	
 	public static void setCount(Integer count) {
-		HL7InQueueProcessor.count = count;
+		HL7InQueueProcessor.count.set(count);
+	}
+	
+	/**
+	 * @return the statistics of the current or last run of the processor, or null if it has not
+	 *         run yet
+	 * @since 1.12
+	 */
+	public static HL7InQueueProcessorStatistics getStatistics() {
+		return statistics;
 	}
 	
 	/**
@@ -68,8 +98,7 @@ public class HL7InQueueProcessor /* implements Runnable */{
 		catch (HL7Exception e) {
 			log.error("Unable to process hl7 in queue", e);
 		}
-		setCount(count + 1);
-		if (count > 25) {
+		if (count.incrementAndGet() > 25) {
 			// clean up memory after processing each queue entry (otherwise, the
 			// memory-intensive process may crash or eat up all our memory)
 			try {
@@ -101,6 +130,9 @@ public class HL7InQueueProcessor /* implements Runnable */{
 	
 	/**
 	 * Starts up a thread to process all existing HL7InQueue entries
+	 *
+	 * @should process entries behind entries that stay pending with several workers
+	 * @should process the entries of a patient in order on one worker
 	 */
 	public void processHL7InQueue() throws HL7Exception {
 		synchronized (isRunning) {
@@ -112,8 +144,24 @@ public class HL7InQueueProcessor /* implements Runnable */{
 		}
 		try {
 			log.debug("Start processing hl7 in queue");
-			while (processNextHL7InQueue()) {
-				// loop until queue is empty
+			int workers = Context.getAdministrationService().getGlobalPropertyValue(
+			    OpenmrsConstants.GP_HL7_PROCESSOR_WORKERS, 1);
+			if (workers > 1) {
+				processHL7InQueueInParallel(workers);
+			} else {
+				statistics = new HL7InQueueProcessorStatistics(1);
+				try {
+					long start = System.nanoTime();
+					while (processNextHL7InQueue()) {
+						// loop until queue is empty
+						long now = System.nanoTime();
+						statistics.messageProcessed(0, now - start);
+						start = now;
+					}
+				}
+				finally {
+					statistics.finished();
+				}
 			}
 			log.debug("Done processing hl7 in queue");
 		}
@@ -122,4 +170,162 @@ public class HL7InQueueProcessor /* implements Runnable */{
 		}
 	}
 	
+	/**
+	 * Drains the queue by repeatedly claiming a batch of pending entries, dividing it among the
+	 * given number of workers by patient identifier and waiting for all workers to finish before
+	 * claiming the next batch.
+	 *
+	 * @param workers the number of workers to process entries with
+	 */
+	private void processHL7InQueueInParallel(int workers) {
+		int batchSize = Context.getAdministrationService().getGlobalPropertyValue(
+		    OpenmrsConstants.GP_HL7_PROCESSOR_BATCH_SIZE, 100);
+		HL7Service hl7Service = Context.getHL7Service();
+		UserContext userContext = Context.getUserContext();
+		statistics = new HL7InQueueProcessorStatistics(workers);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(workers, new WorkerThreadFactory());
+		try {
+			// batches are claimed in id order, so entries that are still pending after a worker had
+			// its turn are not claimed again and can't keep the entries behind them from being processed
+			Integer lastClaimedId = null;
+			while (true) {
+				statistics.batchClaimed(hl7Service.countHL7InQueue(HL7Constants.HL7_STATUS_PENDING, null));
+				List<HL7InQueue> batch = hl7Service.getNextHL7InQueueBatch(lastClaimedId, batchSize);
+				if (batch.isEmpty()) {
+					break;
+				}
+				
+				List<List<Integer>> partitions = new ArrayList<List<Integer>>(workers);
+				for (int i = 0; i < workers; i++) {
+					partitions.add(new ArrayList<Integer>());
+				}
+				for (HL7InQueue hl7InQueue : batch) {
+					partitions.get(getPartition(hl7InQueue, workers)).add(hl7InQueue.getHL7InQueueId());
+					lastClaimedId = hl7InQueue.getHL7InQueueId();
+				}
+				
+				// the workers load the entries in their own sessions
+				Context.clearSession();
+				
+				List<Future<Void>> futures = new ArrayList<Future<Void>>(workers);
+				for (int i = 0; i < workers; i++) {
+					if (!partitions.get(i).isEmpty()) {
+						futures.add(executor.submit(new PartitionWorker(i, partitions.get(i), userContext)));
+					}
+				}
+				for (Future<Void> future : futures) {
+					try {
+						future.get();
+					}
+					catch (ExecutionException e) {
+						log.error("Error in hl7 inbound queue worker", e.getCause());
+					}
+					catch (InterruptedException e) {
+						log.warn("HL7 processor interrupted while waiting for workers", e);
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+				
+				if (log.isDebugEnabled()) {
+					log.debug("Processed hl7 in queue batch: " + statistics);
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+			statistics.finished();
+			log.info("Done processing hl7 in queue with " + workers + " workers: " + statistics);
+		}
+	}
+	
+	/**
+	 * Picks the worker a queue entry is assigned to. Entries are partitioned by the patient
+	 * identifier found in the message so that messages for the same patient are always processed
+	 * by the same worker in queue order; entries without an identifier are spread by their id.
+	 *
+	 * @param hl7InQueue the queue entry
+	 * @param workers the number of workers
+	 * @return the index of the worker to process the entry with
+	 */
+	private int getPartition(HL7InQueue hl7InQueue, int workers) {
+		String key = HL7Util.getPatientIdentifierFromRawMessage(hl7InQueue.getHL7Data());
+		int hash = key != null ? key.hashCode() : hl7InQueue.getHL7InQueueId();
+		return (hash & Integer.MAX_VALUE) % workers;
+	}
+	
+	/**
+	 * Processes the queue entries assigned to one worker in order, within its own session
+	 */
+	private class PartitionWorker implements Callable<Void> {
+		
+		private final int worker;
+		
+		private final List<Integer> hl7InQueueIds;
+		
+		private final UserContext userContext;
+		
+		public PartitionWorker(int worker, List<Integer> hl7InQueueIds, UserContext userContext) {
+			this.worker = worker;
+			this.hl7InQueueIds = hl7InQueueIds;
+			this.userContext = userContext;
+		}
+		
+		/**
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		@Override
+		public Void call() throws Exception {
+			processPartition(worker, hl7InQueueIds, userContext);
+			return null;
+		}
+	}
+	
+	/**
+	 * Processes the queue entries assigned to one worker in order, within a new session. This is
+	 * called on the worker's thread.
+	 *
+	 * @param worker the index of the worker
+	 * @param hl7InQueueIds the ids of the queue entries, in the order they were received
+	 * @param userContext the user context of the thread that started the processor
+	 */
+	void processPartition(int worker, List<Integer> hl7InQueueIds, UserContext userContext) {
+		Context.openSession();
+		try {
+			Context.setUserContext(userContext);
+			HL7Service hl7Service = Context.getHL7Service();
+			for (Integer hl7InQueueId : hl7InQueueIds) {
+				long start = System.nanoTime();
+				HL7InQueue hl7InQueue = hl7Service.getHL7InQueue(hl7InQueueId);
+				// skip entries that were removed or picked up by someone else in the meantime
+				if (hl7InQueue != null && HL7Constants.HL7_STATUS_PENDING.equals(hl7InQueue.getMessageState())) {
+					processHL7InQueue(hl7InQueue);
+					statistics.messageProcessed(worker, System.nanoTime() - start);
+				}
+			}
+		}
+		finally {
+			Context.closeSession();
+		}
+	}
+	
+	/**
+	 * Creates named daemon threads for the hl7 processor workers
+	 */
+	private static class WorkerThreadFactory implements ThreadFactory {
+		
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+		
+		/**
+		 * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+		 */
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "HL7 Inbound Queue Worker-" + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+	
 }
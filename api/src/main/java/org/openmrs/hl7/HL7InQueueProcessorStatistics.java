@@ -0,0 +1,194 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.hl7;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters collected by the {@link HL7InQueueProcessor} while it drains the inbound queue. One
+ * instance is created per run of the processor; the most recent one is available from
+ * {@link HL7InQueueProcessor#getStatistics()} and can be used to size the worker pool.
+ *
+ * @since 1.12
+ */
+public class HL7InQueueProcessorStatistics {
+	
+	private final int workerCount;
+	
+	private final Date startDate = new Date();
+	
+	private volatile Date endDate;
+	
+	private volatile int backlogDepth;
+	
+	private final AtomicLong processedCount = new AtomicLong();
+	
+	private final AtomicLong batchCount = new AtomicLong();
+	
+	private final AtomicLongArray workerProcessedCounts;
+	
+	private final AtomicLongArray workerTotalNanos;
+	
+	private final AtomicLongArray workerMaxNanos;
+	
+	/**
+	 * @param workerCount the number of workers processing queue entries during this run
+	 */
+	public HL7InQueueProcessorStatistics(int workerCount) {
+		this.workerCount = workerCount;
+		this.workerProcessedCounts = new AtomicLongArray(workerCount);
+		this.workerTotalNanos = new AtomicLongArray(workerCount);
+		this.workerMaxNanos = new AtomicLongArray(workerCount);
+	}
+	
+	/**
+	 * Records a processed queue entry
+	 *
+	 * @param worker the index of the worker that processed the entry
+	 * @param elapsedNanos the time it took to process the entry
+	 */
+	void messageProcessed(int worker, long elapsedNanos) {
+		processedCount.incrementAndGet();
+		workerProcessedCounts.incrementAndGet(worker);
+		workerTotalNanos.addAndGet(worker, elapsedNanos);
+		
+		long max = workerMaxNanos.get(worker);
+		while (elapsedNanos > max && !workerMaxNanos.compareAndSet(worker, max, elapsedNanos)) {
+			max = workerMaxNanos.get(worker);
+		}
+	}
+	
+	/**
+	 * Records that a new batch was claimed from the queue
+	 *
+	 * @param backlogDepth the number of pending queue entries at the time the batch was claimed
+	 */
+	void batchClaimed(int backlogDepth) {
+		this.backlogDepth = backlogDepth;
+		batchCount.incrementAndGet();
+	}
+	
+	/**
+	 * Marks this run as finished
+	 */
+	void finished() {
+		endDate = new Date();
+	}
+	
+	/**
+	 * @return the number of workers used for this run
+	 */
+	public int getWorkerCount() {
+		return workerCount;
+	}
+	
+	/**
+	 * @return the date this run started
+	 */
+	public Date getStartDate() {
+		return startDate;
+	}
+	
+	/**
+	 * @return the date this run finished or null if it is still running
+	 */
+	public Date getEndDate() {
+		return endDate;
+	}
+	
+	/**
+	 * @return true if the processor is still draining the queue
+	 */
+	public boolean isRunning() {
+		return endDate == null;
+	}
+	
+	/**
+	 * @return the number of pending queue entries when the last batch was claimed
+	 */
+	public int getBacklogDepth() {
+		return backlogDepth;
+	}
+	
+	/**
+	 * @return the number of batches claimed from the queue so far
+	 */
+	public long getBatchCount() {
+		return batchCount.get();
+	}
+	
+	/**
+	 * @return the number of queue entries processed so far
+	 */
+	public long getProcessedCount() {
+		return processedCount.get();
+	}
+	
+	/**
+	 * @return the average number of queue entries processed per second over the whole run
+	 */
+	public double getThroughput() {
+		long end = endDate == null ? System.currentTimeMillis() : endDate.getTime();
+		long elapsed = Math.max(1, end - startDate.getTime());
+		return processedCount.get() * 1000d / elapsed;
+	}
+	
+	/**
+	 * @param worker the index of the worker
+	 * @return the number of queue entries processed by the given worker
+	 */
+	public long getProcessedCount(int worker) {
+		return workerProcessedCounts.get(worker);
+	}
+	
+	/**
+	 * @param worker the index of the worker
+	 * @return the average time in milliseconds the given worker took to process a queue entry
+	 */
+	public double getAverageLatency(int worker) {
+		long count = workerProcessedCounts.get(worker);
+		if (count == 0) {
+			return 0;
+		}
+		return workerTotalNanos.get(worker) / 1000000d / count;
+	}
+	
+	/**
+	 * @param worker the index of the worker
+	 * @return the longest time in milliseconds the given worker took to process a queue entry
+	 */
+	public double getMaxLatency(int worker) {
+		return workerMaxNanos.get(worker) / 1000000d;
+	}
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("processed=").append(getProcessedCount());
+		sb.append(", batches=").append(getBatchCount());
+		sb.append(", backlog=").append(getBacklogDepth());
+		sb.append(", throughput=").append(String.format("%.2f", getThroughput())).append("/s");
+		for (int i = 0; i < workerCount; i++) {
+			sb.append(", worker[").append(i).append("]={processed=").append(getProcessedCount(i));
+			sb.append(", avg=").append(String.format("%.1f", getAverageLatency(i))).append("ms");
+			sb.append(", max=").append(String.format("%.1f", getMaxLatency(i))).append("ms}");
+		}
+		return sb.toString();
+	}
+}
@@ -274,6 +274,23 @@ public interface HL7Service extends OpenmrsService {
 	@Authorized(HL7Constants.PRIV_VIEW_HL7_IN_QUEUE)
 	public HL7InQueue getNextHL7InQueue() throws APIException;
 	
+	/**
+	 * Get the oldest pending queue items in the database after the given one, in the order they
+	 * were received. Callers page through the queue by passing the id of the last item of the
+	 * previous batch, so that items that stay pending don't keep returning.
+	 * 
+	 * @param afterHL7InQueueId only items with a greater id are returned, null to start at the
+	 *            first pending item
+	 * @param batchSize the maximum number of queue items to return
+	 * @return up to <code>batchSize</code> pending queue items ordered by id
+	 * @should return pending queue items ordered by id
+	 * @should not return more items than the given batch size
+	 * @should only return queue items after the given id
+	 * @since 1.12
+	 */
+	@Authorized(HL7Constants.PRIV_VIEW_HL7_IN_QUEUE)
+	public List<HL7InQueue> getNextHL7InQueueBatch(Integer afterHL7InQueueId, int batchSize) throws APIException;
+	
 	/**
 	 * Completely delete the hl7 in queue item from the database.
 	 * 
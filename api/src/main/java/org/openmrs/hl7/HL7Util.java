@@ -302,4 +302,44 @@ public class HL7Util {
 		//TODO Should take care of the case where the user is using removable media, this might explode
 		return OpenmrsUtil.getDirectoryInApplicationDataDirectory(archiveDir);
 	}
+	
+	/**
+	 * Extracts the first patient identifier (PID-3.1) from a raw ER7 encoded hl7 message without
+	 * running it through the hapi parser. This is cheap enough to be used for routing queue entries
+	 * before they are actually processed, e.g. so that messages for the same patient end up on the
+	 * same worker.
+	 *
+	 * @param hl7Data the raw hl7 message
+	 * @return the first patient identifier in the PID segment or null if none could be found
+	 * @should return the first patient identifier in the pid segment
+	 * @should return null if there is no pid segment
+	 * @should return null for a malformed message
+	 * @should use the encoding characters declared in the msh segment
+	 */
+	public static String getPatientIdentifierFromRawMessage(String hl7Data) {
+		if (hl7Data == null || hl7Data.length() < 8 || !hl7Data.startsWith("MSH")) {
+			return null;
+		}
+		
+		char fieldSeparator = hl7Data.charAt(3);
+		char componentSeparator = hl7Data.charAt(4);
+		char repetitionSeparator = hl7Data.charAt(5);
+		
+		for (String segment : hl7Data.split("[\\r\\n]+")) {
+			if (!segment.startsWith("PID" + fieldSeparator)) {
+				continue;
+			}
+			
+			String[] fields = StringUtils.splitPreserveAllTokens(segment, fieldSeparator);
+			if (fields.length < 4) {
+				return null;
+			}
+			
+			String identifier = StringUtils.substringBefore(fields[3], String.valueOf(repetitionSeparator));
+			identifier = StringUtils.substringBefore(identifier, String.valueOf(componentSeparator));
+			return StringUtils.isBlank(identifier) ? null : identifier.trim();
+		}
+		
+		return null;
+	}
 }
@@ -84,6 +84,11 @@ public interface HL7DAO {
 	 */
 	public HL7InQueue getNextHL7InQueue() throws DAOException;
 	
+	/**
+	 * @see org.openmrs.hl7.HL7Service#getNextHL7InQueueBatch(Integer, int)
+	 */
+	public List<HL7InQueue> getNextHL7InQueueBatch(Integer afterHL7InQueueId, int batchSize) throws DAOException;
+	
 	/**
 	 * @see org.openmrs.hl7.HL7Service#deleteHL7InQueue(org.openmrs.hl7.HL7InQueue)
 	 */
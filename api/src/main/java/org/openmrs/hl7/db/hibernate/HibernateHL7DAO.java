@@ -205,6 +205,21 @@ public class HibernateHL7DAO implements HL7DAO {
 		return (HL7InQueue) query.uniqueResult();
 	}
 	
+	/**
+	 * @see org.openmrs.hl7.db.HL7DAO#getNextHL7InQueueBatch(Integer, int)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<HL7InQueue> getNextHL7InQueueBatch(Integer afterHL7InQueueId, int batchSize) throws DAOException {
+		Criteria crit = sessionFactory.getCurrentSession().createCriteria(HL7InQueue.class);
+		crit.add(Restrictions.eq("messageState", HL7Constants.HL7_STATUS_PENDING));
+		if (afterHL7InQueueId != null) {
+			crit.add(Restrictions.gt("HL7InQueueId", afterHL7InQueueId));
+		}
+		crit.addOrder(Order.asc("HL7InQueueId"));
+		crit.setMaxResults(batchSize);
+		return crit.list();
+	}
+	
 	/**
 	 * @see org.openmrs.hl7.db.HL7DAO#deleteHL7InQueue(org.openmrs.hl7.HL7InQueue)
 	 */
@@ -17,8 +17,10 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -43,6 +45,7 @@ import org.openmrs.Provider;
 import org.openmrs.Relationship;
 import org.openmrs.RelationshipType;
 import org.openmrs.User;
+import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
 import org.openmrs.hl7.HL7Constants;
 import org.openmrs.hl7.HL7InQueueProcessor;
@@ -256,6 +259,8 @@ public class ORUR01Handler implements Application {
 		}
 		
 		ORU_R01_PATIENT_RESULT patientResult = oru.getPATIENT_RESULT();
+		preloadMappedConcepts(patientResult);
+		
 		int numObr = patientResult.getORDER_OBSERVATIONReps();
 		for (int i = 0; i < numObr; i++) {
 			if (log.isDebugEnabled()) {
@@ -845,7 +850,8 @@ public class ORUR01Handler implements Application {
 				title = obs.getValueCodedName().getName();
 			}
 			if (!StringUtils.hasText(title)) {
-				title = c.getName().getName();
+				// only the name is needed, which the snapshot has already resolved
+				title = Context.getConceptService().getConceptSnapshot(c.getConceptId()).getName(Context.getLocale());
 			}
 			obs.setComplexData(new ComplexData(title, value.getData().getValue()));
 		} else {
@@ -971,6 +977,50 @@ public class ORUR01Handler implements Application {
 		return getConcept(hl7ConceptId, codingSystem, uid);
 	}
 	
+	/**
+	 * Looks up the concepts of the OBR and OBX codes of all coding systems other than the local one
+	 * together, so that the lookup of each segment by {@link #getConcept(CE, String)} is served from
+	 * memory instead of running a query per segment
+	 *
+	 * @param patientResult the results to look up the codes of
+	 * @throws HL7Exception if the segments cannot be read
+	 */
+	private void preloadMappedConcepts(ORU_R01_PATIENT_RESULT patientResult) throws HL7Exception {
+		Map<String, Set<String>> codesByCodingSystem = new HashMap<String, Set<String>>();
+		for (int i = 0; i < patientResult.getORDER_OBSERVATIONReps(); i++) {
+			ORU_R01_ORDER_OBSERVATION orderObs = patientResult.getORDER_OBSERVATION(i);
+			addMappedCode(codesByCodingSystem, orderObs.getOBR().getUniversalServiceIdentifier());
+			for (int j = 0; j < orderObs.getOBSERVATIONReps(); j++) {
+				addMappedCode(codesByCodingSystem, orderObs.getOBSERVATION(j).getOBX().getObservationIdentifier());
+			}
+		}
+		
+		for (Map.Entry<String, Set<String>> entry : codesByCodingSystem.entrySet()) {
+			try {
+				Context.getConceptService().getConceptsByMappings(entry.getValue(), entry.getKey(), true);
+			}
+			catch (APIException e) {
+				// a code mapped to more than one concept is reported when its segment is processed
+				log.debug("Unable to preload the concepts of coding system " + entry.getKey(), e);
+			}
+		}
+	}
+	
+	private void addMappedCode(Map<String, Set<String>> codesByCodingSystem, CE codedElement) {
+		String hl7ConceptId = codedElement.getIdentifier().getValue();
+		String codingSystem = codedElement.getNameOfCodingSystem().getValue();
+		if (hl7ConceptId == null || codingSystem == null || HL7Constants.HL7_LOCAL_CONCEPT.equals(codingSystem)) {
+			return;
+		}
+		
+		Set<String> codes = codesByCodingSystem.get(codingSystem);
+		if (codes == null) {
+			codes = new HashSet<String>();
+			codesByCodingSystem.put(codingSystem, codes);
+		}
+		codes.add(hl7ConceptId);
+	}
+	
 	/**
 	 * Get a concept object representing this conceptId and coding system.<br/>
 	 * If codingSystem is 99DCT, then a new Concept with the given conceptId is returned.<br/>
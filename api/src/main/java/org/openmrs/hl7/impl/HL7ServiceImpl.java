@@ -368,6 +368,14 @@ public class HL7ServiceImpl extends BaseOpenmrsService implements HL7Service {
 		return dao.getNextHL7InQueue();
 	}
 	
+	/**
+	 * @see org.openmrs.hl7.HL7Service#getNextHL7InQueueBatch(Integer, int)
+	 */
+	@Transactional(readOnly = true)
+	public List<HL7InQueue> getNextHL7InQueueBatch(Integer afterHL7InQueueId, int batchSize) throws APIException {
+		return dao.getNextHL7InQueueBatch(afterHL7InQueueId, batchSize);
+	}
+	
 	/**
 	 * @see org.openmrs.hl7.HL7Service#deleteHL7InQueue(org.openmrs.hl7.HL7InQueue)
 	 * @deprecated
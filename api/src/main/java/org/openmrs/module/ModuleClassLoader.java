@@ -172,39 +172,17 @@ public class ModuleClassLoader extends URLClassLoader {
 	private static List<URL> getUrls(final Module module) {
 		List<URL> result = new LinkedList<URL>();
 		
-		File tmpModuleDir = getLibCacheFolderForModule(module);
-		File tmpModuleJar = new File(tmpModuleDir, module.getModuleId() + ".jar");
-		
-		if (!tmpModuleJar.exists()) {
-			try {
-				tmpModuleJar.createNewFile();
-			}
-			catch (IOException io) {
-				log.warn("Unable to create tmpModuleFile", io);
-			}
-		}
-		
-		// copy the module jar into that temporary folder
-		FileInputStream in = null;
-		FileOutputStream out = null;
+		// the files of an unchanged module file were already extracted by an earlier startup
+		File tmpModuleDir;
 		try {
-			in = new FileInputStream(module.getFile());
-			out = new FileOutputStream(tmpModuleJar);
-			OpenmrsUtil.copyFile(in, out);
+			tmpModuleDir = ModuleExtractionCache.getExtractionFolder(module);
 		}
-		catch (IOException io) {
-			log.warn("Unable to copy tmpModuleFile", io);
-		}
-		finally {
-			try {
-				in.close();
-			}
-			catch (Exception e) { /* pass */}
-			try {
-				out.close();
-			}
-			catch (Exception e) { /* pass */}
+		catch (IOException e) {
+			log.warn("Unable to use the extraction cache for module " + module.getModuleId(), e);
+			tmpModuleDir = getLibCacheFolderForModule(module);
+			extractModuleFiles(module);
 		}
+		File tmpModuleJar = new File(tmpModuleDir, module.getModuleId() + ".jar");
 		
 		// add the module jar as a url in the classpath of the classloader
 		URL moduleFileURL = null;
@@ -218,11 +196,6 @@ public class ModuleClassLoader extends URLClassLoader {
 		
 		// add each defined jar in the /lib folder, add as a url in the classpath of the classloader
 		try {
-			if (log.isDebugEnabled()) {
-				log.debug("Expanding /lib folder in module");
-			}
-			
-			ModuleUtil.expandJar(module.getFile(), tmpModuleDir, "lib", true);
 			File libdir = new File(tmpModuleDir, "lib");
 			
 			if (libdir != null && libdir.exists()) {
@@ -258,15 +231,93 @@ public class ModuleClassLoader extends URLClassLoader {
 		catch (MalformedURLException e) {
 			log.warn("Error while adding module 'lib' folder to URL result list");
 		}
-		catch (IOException io) {
-			log.warn("Error while expanding lib folder", io);
-		}
 		
 		// add each xml document to the url list
 		
 		return result;
 	}
 	
+	/**
+	 * Extracts the files of the given modules into the {@link ModuleExtractionCache} concurrently,
+	 * so that creating their class loaders afterwards does not have to do it one module at a time.
+	 * The files of modules that were extracted before are not extracted again.
+	 *
+	 * @param modules the modules about to be started
+	 * @see ModuleFactory#startModules()
+	 */
+	public static void extractModuleFiles(Collection<Module> modules) {
+		// initialize the cache folder once before the threads each look it up
+		ModuleExtractionCache.getCacheFolder();
+		
+		Map<Module, Exception> failures = ModuleStartupPlanner.runInParallel(modules,
+		    new ModuleStartupPlanner.Task<Module>() {
+			    
+			    @Override
+			    public void run(Module module) throws Exception {
+				    long start = System.currentTimeMillis();
+				    ModuleExtractionCache.getExtractionFolder(module);
+				    ModuleStartupPlanner.recordPhase(module.getModuleId(), "extract", start);
+			    }
+		    });
+		for (Map.Entry<Module, Exception> failure : failures.entrySet()) {
+			// the files are extracted again when the class loader of the module is created
+			log.warn("Unable to extract the files of module " + failure.getKey().getModuleId(), failure.getValue());
+		}
+	}
+	
+	/**
+	 * Copies the module jar into the library cache folder of the module and expands the jars in
+	 * its lib folder there, if the module cannot use the {@link ModuleExtractionCache}
+	 *
+	 * @param module the module whose files to extract
+	 */
+	private static void extractModuleFiles(final Module module) {
+		File tmpModuleDir = getLibCacheFolderForModule(module);
+		File tmpModuleJar = new File(tmpModuleDir, module.getModuleId() + ".jar");
+		
+		if (!tmpModuleJar.exists()) {
+			try {
+				tmpModuleJar.createNewFile();
+			}
+			catch (IOException io) {
+				log.warn("Unable to create tmpModuleFile", io);
+			}
+		}
+		
+		// copy the module jar into that temporary folder
+		FileInputStream in = null;
+		FileOutputStream out = null;
+		try {
+			in = new FileInputStream(module.getFile());
+			out = new FileOutputStream(tmpModuleJar);
+			OpenmrsUtil.copyFile(in, out);
+		}
+		catch (IOException io) {
+			log.warn("Unable to copy tmpModuleFile", io);
+		}
+		finally {
+			try {
+				in.close();
+			}
+			catch (Exception e) { /* pass */}
+			try {
+				out.close();
+			}
+			catch (Exception e) { /* pass */}
+		}
+		
+		try {
+			if (log.isDebugEnabled()) {
+				log.debug("Expanding /lib folder in module");
+			}
+			
+			ModuleUtil.expandJar(module.getFile(), tmpModuleDir, "lib", true);
+		}
+		catch (IOException io) {
+			log.warn("Error while expanding lib folder", io);
+		}
+	}
+	
 	/**
 	 * Determines whether or not the given resource should be available on the classpath based on
 	 * OpenMRS version and/or modules' version. It uses the conditionalResources section specified in config.xml.
@@ -438,7 +489,9 @@ public class ModuleClassLoader extends URLClassLoader {
 		List<URL> newUrls = getUrls(getModule(), getURLs());
 		for (URL u : newUrls) {
 			addURL(u);
+			addAllAdditionalPackages(ModuleUtil.getPackagesFromFile(OpenmrsUtil.url2file(u)));
 		}
+		ModuleClassLoaderIndex.invalidate();
 		
 		if (log.isDebugEnabled()) {
 			StringBuffer buf = new StringBuffer();
@@ -502,7 +555,8 @@ public class ModuleClassLoader extends URLClassLoader {
 		Class<?> result = null;
 		
 		//if this class was already loaded by some other class loader, do not load it again.
-		Collection<ModuleClassLoader> classLoaders = ModuleFactory.getModuleClassLoaders();
+		Collection<ModuleClassLoader> classLoaders = ModuleClassLoaderIndex.getInstance().getClassLoadersContainingClass(
+		    name);
 		for (ModuleClassLoader classLoader : classLoaders) {
 			if (classLoader == this) {
 				continue;
@@ -613,7 +667,10 @@ public class ModuleClassLoader extends URLClassLoader {
 		// we didn't find a loaded class and this isn't a class
 		// from another module
 		try {
-			result = findClass(name);
+			// skip searching the jars if none of them has the package of the class
+			if (ModuleClassLoaderIndex.getInstance().mayContainClass(this, name)) {
+				result = findClass(name);
+			}
 		}
 		catch (LinkageError le) {
 			throw le;
@@ -953,7 +1010,10 @@ public class ModuleClassLoader extends URLClassLoader {
 			return null;
 		}
 		
-		URL result = super.findResource(name);
+		URL result = null;
+		if (ModuleClassLoaderIndex.getInstance().mayContainResource(this, name)) {
+			result = super.findResource(name);
+		}
 		if (result != null) { // found resource in this module class path
 			if (isResourceVisible(name, result, requestor)) {
 				return result;
@@ -1038,10 +1098,12 @@ public class ModuleClassLoader extends URLClassLoader {
 		if ((seenModules != null) && seenModules.contains(getModule().getModuleId())) {
 			return;
 		}
-		for (Enumeration<URL> enm = super.findResources(name); enm.hasMoreElements();) {
-			URL url = enm.nextElement();
-			if (isResourceVisible(name, url, requestor)) {
-				result.add(url);
+		if (ModuleClassLoaderIndex.getInstance().mayContainResource(this, name)) {
+			for (Enumeration<URL> enm = super.findResources(name); enm.hasMoreElements();) {
+				URL url = enm.nextElement();
+				if (isResourceVisible(name, url, requestor)) {
+					result.add(url);
+				}
 			}
 		}
 		//		if (resourceLoader != null) {
@@ -1158,6 +1220,7 @@ public class ModuleClassLoader extends URLClassLoader {
 	 */
 	public void setAdditionalPackages(Set<String> additionalPackages) {
 		this.additionalPackages = additionalPackages;
+		ModuleClassLoaderIndex.invalidate();
 	}
 	
 	/**
@@ -1174,8 +1237,11 @@ public class ModuleClassLoader extends URLClassLoader {
 		
 		// its pointless to add a package that is below the module's package
 		// name because we are automatically looking at that in the classloader
-		if (!additionalPackage.startsWith(module.getPackageName())) {
-			this.additionalPackages.add(additionalPackage);
+		String packageName = module.getPackageName();
+		boolean belowModulePackage = additionalPackage.equals(packageName)
+		        || additionalPackage.startsWith(packageName + ".");
+		if (!belowModulePackage && this.additionalPackages.add(additionalPackage)) {
+			ModuleClassLoaderIndex.invalidate();
 		}
 	}
 	
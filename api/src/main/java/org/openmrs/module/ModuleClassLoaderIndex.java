@@ -0,0 +1,395 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maps package names to the {@link ModuleClassLoader}s of the started modules that provide them,
+ * so that a class or resource is only looked up in the modules that can contain it instead of in
+ * every module. The packages of a module are its package name from config.xml and its
+ * {@link ModuleClassLoader#getAdditionalPackages()}, i.e. the directories of the omod and its
+ * libraries.
+ * <p>
+ * The index also remembers the classes and resources that none of the modules nor the parent
+ * class loader could find, which are otherwise looked up again every time a library probes for an
+ * optional class or a message bundle. The index is dropped whenever a module is started or stopped
+ * or the packages of a module change, and built again on the next lookup. Until then the class
+ * loaders found for a package are remembered as well, so that each package is matched only once.
+ *
+ * @since 1.12
+ */
+public class ModuleClassLoaderIndex {
+	
+	/**
+	 * The number of missing classes and the number of missing resources remembered at most
+	 */
+	public static final int MAX_MISSING_NAMES = 10000;
+	
+	// the number of packages whose class loaders are remembered at most
+	private static final int MAX_PACKAGES = 10000;
+	
+	private static volatile ModuleClassLoaderIndex instance;
+	
+	private static final AtomicLong classLookups = new AtomicLong();
+	
+	private static final AtomicLong classLookupNanos = new AtomicLong();
+	
+	private static final AtomicLong missingClassHits = new AtomicLong();
+	
+	private static final AtomicLong resourceLookups = new AtomicLong();
+	
+	private static final AtomicLong resourceLookupNanos = new AtomicLong();
+	
+	private static final AtomicLong missingResourceHits = new AtomicLong();
+	
+	// the class loaders of the modules with a package equal to or above a package
+	private final Map<String, List<ModuleClassLoader>> classLoadersByPackage = new HashMap<String, List<ModuleClassLoader>>();
+	
+	// the class loaders of the modules with a package below a package
+	private final Map<String, List<ModuleClassLoader>> classLoadersBelowPackage = new HashMap<String, List<ModuleClassLoader>>();
+	
+	private final List<ModuleClassLoader> allClassLoaders;
+	
+	private final Set<ModuleClassLoader> indexedClassLoaders;
+	
+	// false if a module has a class path entry other than a jar, whose packages are unknown
+	private final boolean resourcesIndexed;
+	
+	// the class loaders worked out for a package of a class and for the package of a resource, until
+	// the index is dropped
+	private final Map<String, List<ModuleClassLoader>> classLoadersForPackage;
+	
+	private final Map<String, List<ModuleClassLoader>> classLoadersForResourcePackage;
+	
+	private final Set<String> missingClasses = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	
+	private final Set<String> missingResources = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	
+	ModuleClassLoaderIndex(Collection<ModuleClassLoader> classLoaders) {
+		allClassLoaders = Collections.unmodifiableList(new ArrayList<ModuleClassLoader>(classLoaders));
+		indexedClassLoaders = new HashSet<ModuleClassLoader>(allClassLoaders);
+		classLoadersForPackage = new ConcurrentHashMap<String, List<ModuleClassLoader>>();
+		classLoadersForResourcePackage = new ConcurrentHashMap<String, List<ModuleClassLoader>>();
+		
+		boolean onlyJars = true;
+		for (ModuleClassLoader classLoader : allClassLoaders) {
+			Set<String> packages = new HashSet<String>();
+			packages.add(classLoader.getModule().getPackageName());
+			if (classLoader.getAdditionalPackages() != null) {
+				packages.addAll(classLoader.getAdditionalPackages());
+			}
+			
+			for (String packageName : packages) {
+				add(classLoadersByPackage, packageName, classLoader);
+				for (int i = packageName.indexOf('.'); i > 0; i = packageName.indexOf('.', i + 1)) {
+					add(classLoadersBelowPackage, packageName.substring(0, i), classLoader);
+				}
+			}
+			
+			for (URL url : classLoader.getURLs()) {
+				if (!url.getPath().endsWith(".jar")) {
+					onlyJars = false;
+				}
+			}
+		}
+		resourcesIndexed = onlyJars;
+	}
+	
+	/**
+	 * @return the index of the class loaders of the modules that are currently started
+	 */
+	public static ModuleClassLoaderIndex getInstance() {
+		ModuleClassLoaderIndex index = instance;
+		if (index == null) {
+			synchronized (ModuleClassLoaderIndex.class) {
+				index = instance;
+				if (index == null) {
+					index = new ModuleClassLoaderIndex(ModuleFactory.getModuleClassLoaders());
+					instance = index;
+				}
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * Drops the index, it has to be called whenever a module class loader is added or removed or
+	 * the packages of one change
+	 */
+	public static void invalidate() {
+		synchronized (ModuleClassLoaderIndex.class) {
+			instance = null;
+		}
+	}
+	
+	/**
+	 * Gets the class loaders of the modules that provide the package of the given class or one of
+	 * the packages above it, matching the packages the same way as
+	 * {@link org.openmrs.util.OpenmrsClassLoader#loadClass(String, boolean)} always did
+	 *
+	 * @param className the fully qualified name of the class
+	 * @return the class loaders that may be able to load the class, which must not be modified
+	 */
+	public List<ModuleClassLoader> getClassLoadersForClass(String className) {
+		int lastDot = className.lastIndexOf('.');
+		if (lastDot <= 0) {
+			return Collections.emptyList();
+		}
+		return getClassLoadersForPackage(className.substring(0, lastDot));
+	}
+	
+	/**
+	 * Gets the class loaders of the modules whose omod or libraries may contain the given class,
+	 * which are the ones that may have already loaded it
+	 *
+	 * @param className the fully qualified name of the class
+	 * @return the class loaders that may contain the class, which must not be modified
+	 */
+	public List<ModuleClassLoader> getClassLoadersContainingClass(String className) {
+		int lastDot = className.lastIndexOf('.');
+		if (!resourcesIndexed || lastDot <= 0) {
+			return allClassLoaders;
+		}
+		return getClassLoadersForPackage(className.substring(0, lastDot));
+	}
+	
+	/**
+	 * Gets the class loaders of the modules that may contain the given resource. The resources in
+	 * the root of a jar, in META-INF or in the web folder of an omod are not indexed, so all class
+	 * loaders are returned for them.
+	 *
+	 * @param name the name of the resource, e.g. org/openmrs/module/foo/bar.xml
+	 * @return the class loaders that may contain the resource, which must not be modified
+	 */
+	public List<ModuleClassLoader> getClassLoadersForResource(String name) {
+		String packageName = getResourcePackage(name);
+		if (packageName == null) {
+			return allClassLoaders;
+		}
+		
+		List<ModuleClassLoader> result = classLoadersForResourcePackage.get(packageName);
+		if (result == null) {
+			Set<ModuleClassLoader> classLoaders = new LinkedHashSet<ModuleClassLoader>(
+			        getClassLoadersForPackage(packageName));
+			List<ModuleClassLoader> below = classLoadersBelowPackage.get(packageName);
+			if (below != null) {
+				classLoaders.addAll(below);
+			}
+			result = toList(classLoaders);
+			putBounded(classLoadersForResourcePackage, packageName, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * @param classLoader the class loader of a module
+	 * @param className the fully qualified name of a class
+	 * @return false if the omod and libraries of the module cannot contain the class
+	 */
+	public boolean mayContainClass(ModuleClassLoader classLoader, String className) {
+		return !indexedClassLoaders.contains(classLoader)
+		        || getClassLoadersContainingClass(className).contains(classLoader);
+	}
+	
+	/**
+	 * @param classLoader the class loader of a module
+	 * @param name the name of a resource
+	 * @return false if the omod and libraries of the module cannot contain the resource
+	 */
+	public boolean mayContainResource(ModuleClassLoader classLoader, String name) {
+		return !indexedClassLoaders.contains(classLoader) || getClassLoadersForResource(name).contains(classLoader);
+	}
+	
+	/**
+	 * @param className the fully qualified name of a class
+	 * @return true if the class was not found by any class loader since the index was built
+	 */
+	public boolean isMissingClass(String className) {
+		if (missingClasses.contains(className)) {
+			missingClassHits.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Remembers that a class was not found by any class loader
+	 *
+	 * @param className the fully qualified name of the class
+	 */
+	public void addMissingClass(String className) {
+		addBounded(missingClasses, className);
+	}
+	
+	/**
+	 * @param name the name of a resource
+	 * @return true if the resource was not found by any class loader since the index was built
+	 */
+	public boolean isMissingResource(String name) {
+		if (missingResources.contains(name)) {
+			missingResourceHits.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Remembers that a resource was not found by any class loader
+	 *
+	 * @param name the name of the resource
+	 */
+	public void addMissingResource(String name) {
+		addBounded(missingResources, name);
+	}
+	
+	/**
+	 * Records a class lookup for the statistics
+	 *
+	 * @param startNanos the value of {@link System#nanoTime()} when the lookup started
+	 */
+	public static void classLookupDone(long startNanos) {
+		classLookups.incrementAndGet();
+		classLookupNanos.addAndGet(System.nanoTime() - startNanos);
+	}
+	
+	/**
+	 * Records a resource lookup for the statistics
+	 *
+	 * @param startNanos the value of {@link System#nanoTime()} when the lookup started
+	 */
+	public static void resourceLookupDone(long startNanos) {
+		resourceLookups.incrementAndGet();
+		resourceLookupNanos.addAndGet(System.nanoTime() - startNanos);
+	}
+	
+	/**
+	 * @return the number of class and resource lookups, the time spent on them and the number of
+	 *         lookups answered by the remembered missing names since the last reset
+	 */
+	public static String getStatistics() {
+		return classLookups.get() + " class lookups in "
+		        + TimeUnit.NANOSECONDS.toMillis(classLookupNanos.get()) + " ms (" + missingClassHits.get()
+		        + " known to be missing), " + resourceLookups.get() + " resource lookups in "
+		        + TimeUnit.NANOSECONDS.toMillis(resourceLookupNanos.get()) + " ms (" + missingResourceHits.get()
+		        + " known to be missing)";
+	}
+	
+	/**
+	 * Resets the statistics
+	 */
+	public static void resetStatistics() {
+		classLookups.set(0);
+		classLookupNanos.set(0);
+		missingClassHits.set(0);
+		resourceLookups.set(0);
+		resourceLookupNanos.set(0);
+		missingResourceHits.set(0);
+	}
+	
+	/**
+	 * @return the class loaders with the given package or a package above it, only matching whole
+	 *         package names, so that org.openmrs.module.foo does not match org.openmrs.module.foobar
+	 */
+	private List<ModuleClassLoader> getClassLoadersForPackage(String packageName) {
+		List<ModuleClassLoader> result = classLoadersForPackage.get(packageName);
+		if (result == null) {
+			Set<ModuleClassLoader> classLoaders = new LinkedHashSet<ModuleClassLoader>();
+			for (int i = packageName.indexOf('.'); i > 0; i = packageName.indexOf('.', i + 1)) {
+				addAll(classLoaders, classLoadersByPackage.get(packageName.substring(0, i)));
+			}
+			addAll(classLoaders, classLoadersByPackage.get(packageName));
+			result = toList(classLoaders);
+			putBounded(classLoadersForPackage, packageName, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * @return the package of the directory of the resource, or null if the resource is not indexed
+	 */
+	private String getResourcePackage(String name) {
+		if (!resourcesIndexed) {
+			return null;
+		}
+		
+		String path = name.startsWith("/") ? name.substring(1) : name;
+		if (path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
+		}
+		
+		int lastSlash = path.lastIndexOf('/');
+		if (lastSlash <= 0) {
+			return null;
+		}
+		
+		String directory = path.substring(0, lastSlash);
+		// the directories skipped by ModuleUtil#getPackagesFromFile(File)
+		if (directory.equals("lib") || directory.startsWith("META-INF") || directory.startsWith("web/module")) {
+			return null;
+		}
+		return directory.replace('/', '.');
+	}
+	
+	private static void addBounded(Set<String> names, String name) {
+		if (names.size() >= MAX_MISSING_NAMES) {
+			names.clear();
+		}
+		names.add(name);
+	}
+	
+	private static void putBounded(Map<String, List<ModuleClassLoader>> map, String packageName,
+	        List<ModuleClassLoader> classLoaders) {
+		if (map.size() >= MAX_PACKAGES) {
+			map.clear();
+		}
+		map.put(packageName, classLoaders);
+	}
+	
+	private static void addAll(Set<ModuleClassLoader> classLoaders, List<ModuleClassLoader> toAdd) {
+		if (toAdd != null) {
+			classLoaders.addAll(toAdd);
+		}
+	}
+	
+	private static List<ModuleClassLoader> toList(Set<ModuleClassLoader> classLoaders) {
+		if (classLoaders.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(new ArrayList<ModuleClassLoader>(classLoaders));
+	}
+	
+	private static void add(Map<String, List<ModuleClassLoader>> map, String key, ModuleClassLoader classLoader) {
+		List<ModuleClassLoader> classLoaders = map.get(key);
+		if (classLoaders == null) {
+			classLoaders = new ArrayList<ModuleClassLoader>();
+			map.put(key, classLoaders);
+		}
+		if (!classLoaders.contains(classLoader)) {
+			classLoaders.add(classLoader);
+		}
+	}
+}
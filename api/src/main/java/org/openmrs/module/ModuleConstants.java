@@ -52,6 +52,15 @@ public class ModuleConstants {
 	 */
 	public static final String REPOSITORY_FOLDER_PROPERTY_DEFAULT = "modules";
 	
+	/**
+	 * Name of the folder in the application data directory that holds the extracted files of the
+	 * module files, so that they are only extracted again when a module file changes
+	 * 
+	 * @see ModuleExtractionCache
+	 * @since 1.12
+	 */
+	public static final String EXTRACTION_CACHE_FOLDER = "module_cache";
+	
 	/**
 	 * Setting either of these properties to false will block web administration of modules
 	 * 
@@ -0,0 +1,248 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.util.OpenmrsUtil;
+
+/**
+ * Holds the extracted files of the module files in the application data directory, so that they
+ * survive a restart and are only extracted again when a module file changes. Each module file is
+ * extracted into a folder named after the module id and the SHA-1 hash of the file, which holds a
+ * copy of the module file named moduleId.jar and the expanded lib folder of the module.
+ * <p>
+ * The files are extracted into a temporary folder that is only renamed to its final name once all
+ * files are written, so that a folder of the cache is never used half extracted.
+ *
+ * @since 1.12
+ */
+public class ModuleExtractionCache {
+	
+	private static final Log log = LogFactory.getLog(ModuleExtractionCache.class);
+	
+	// marks a folder of the cache whose extraction has not completed yet
+	private static final String TEMPORARY_FOLDER_SUFFIX = ".tmp";
+	
+	// temporary folders younger than this may still be written to by another instance
+	private static final long TEMPORARY_FOLDER_MAX_AGE = 60 * 60 * 1000;
+	
+	// the hashes of the module files by path, valid while the length and date of the file are unchanged
+	private static final Map<String, FileHash> fileHashes = new ConcurrentHashMap<String, FileHash>();
+	
+	/**
+	 * Gets the folder with the extracted files of the given module, extracting them first if the
+	 * module file has not been extracted before
+	 *
+	 * @param module the module whose files to get
+	 * @return the folder holding moduleId.jar and the lib folder of the module
+	 * @throws IOException if the module file cannot be read or extracted
+	 * @should extract the module file into a folder named after its hash
+	 * @should reuse the folder of an unchanged module file
+	 */
+	public static File getExtractionFolder(Module module) throws IOException {
+		String hash = getFileHash(module.getFile());
+		File folder = new File(getCacheFolder(), getFolderName(module.getModuleId(), hash));
+		if (folder.isDirectory()) {
+			return folder;
+		}
+		
+		File temporaryFolder = new File(folder.getPath() + "." + System.nanoTime() + TEMPORARY_FOLDER_SUFFIX);
+		if (!temporaryFolder.mkdirs()) {
+			throw new IOException("Unable to create folder " + temporaryFolder.getAbsolutePath());
+		}
+		
+		try {
+			extract(module, temporaryFolder);
+			
+			// another thread or instance may have extracted the same file in the meantime
+			if (!temporaryFolder.renameTo(folder) && !folder.isDirectory()) {
+				throw new IOException("Unable to rename " + temporaryFolder.getAbsolutePath() + " to "
+				        + folder.getAbsolutePath());
+			}
+		}
+		finally {
+			if (temporaryFolder.exists()) {
+				OpenmrsUtil.deleteDirectory(temporaryFolder);
+			}
+		}
+		
+		if (log.isDebugEnabled()) {
+			log.debug("Extracted module " + module.getModuleId() + " into " + folder.getAbsolutePath());
+		}
+		return folder;
+	}
+	
+	/**
+	 * Deletes the extracted files of all module files other than the files of the given modules,
+	 * and what is left of extractions that did not complete
+	 *
+	 * @param modules the modules whose extracted files to keep
+	 * @should delete the folders of other module files
+	 */
+	public static void deleteStaleExtractions(Collection<Module> modules) {
+		Set<String> folderNamesToKeep = new HashSet<String>();
+		for (Module module : modules) {
+			if (module.getFile() == null) {
+				continue;
+			}
+			try {
+				folderNamesToKeep.add(getFolderName(module.getModuleId(), getFileHash(module.getFile())));
+			}
+			catch (IOException e) {
+				log.warn("Unable to hash the file of module " + module.getModuleId(), e);
+			}
+		}
+		
+		File[] folders = getCacheFolder().listFiles();
+		if (folders == null) {
+			return;
+		}
+		
+		long now = System.currentTimeMillis();
+		for (File folder : folders) {
+			if (!folder.isDirectory() || folderNamesToKeep.contains(folder.getName())) {
+				continue;
+			}
+			if (folder.getName().endsWith(TEMPORARY_FOLDER_SUFFIX)
+			        && now - folder.lastModified() < TEMPORARY_FOLDER_MAX_AGE) {
+				continue;
+			}
+			
+			try {
+				OpenmrsUtil.deleteDirectory(folder);
+				log.debug("Deleted stale module extraction " + folder.getAbsolutePath());
+			}
+			catch (IOException e) {
+				log.warn("Unable to delete stale module extraction " + folder.getAbsolutePath(), e);
+			}
+		}
+	}
+	
+	/**
+	 * Gets the SHA-1 hash of the given file. The hash is computed again only if the length or the
+	 * last modified date of the file changed since it was last computed.
+	 *
+	 * @param file the file to hash
+	 * @return the hash as a lower case hex string
+	 * @throws IOException if the file cannot be read
+	 * @should return the same hash for files with the same content
+	 * @should return a new hash when the file changes
+	 */
+	public static String getFileHash(File file) throws IOException {
+		String path = file.getAbsolutePath();
+		FileHash fileHash = fileHashes.get(path);
+		if (fileHash != null && fileHash.length == file.length() && fileHash.lastModified == file.lastModified()) {
+			return fileHash.hash;
+		}
+		
+		fileHash = new FileHash(file.length(), file.lastModified(), computeHash(file));
+		fileHashes.put(path, fileHash);
+		return fileHash.hash;
+	}
+	
+	/**
+	 * @return the folder in the application data directory that holds the extracted files
+	 */
+	public static File getCacheFolder() {
+		File folder = new File(OpenmrsUtil.getApplicationDataDirectory(), ModuleConstants.EXTRACTION_CACHE_FOLDER);
+		if (!folder.exists()) {
+			folder.mkdirs();
+		}
+		return folder;
+	}
+	
+	private static String getFolderName(String moduleId, String hash) {
+		return moduleId + "-" + hash;
+	}
+	
+	/**
+	 * Copies the module file into the given folder and expands its lib folder there
+	 */
+	private static void extract(Module module, File folder) throws IOException {
+		InputStream in = null;
+		FileOutputStream out = null;
+		try {
+			in = new FileInputStream(module.getFile());
+			out = new FileOutputStream(new File(folder, module.getModuleId() + ".jar"));
+			OpenmrsUtil.copyFile(in, out);
+		}
+		finally {
+			if (in != null) {
+				in.close();
+			}
+			if (out != null) {
+				out.close();
+			}
+		}
+		
+		ModuleUtil.expandJar(module.getFile(), folder, "lib", true);
+	}
+	
+	private static String computeHash(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new ModuleException("System cannot find the SHA-1 algorithm", e);
+		}
+		
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		finally {
+			in.close();
+		}
+		
+		StringBuilder hash = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hash.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return hash.toString();
+	}
+	
+	private static class FileHash {
+		
+		private final long length;
+		
+		private final long lastModified;
+		
+		private final String hash;
+		
+		public FileHash(long length, long lastModified, String hash) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.hash = hash;
+		}
+	}
+}
@@ -32,6 +32,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.Vector;
 import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
@@ -48,6 +49,7 @@ import org.openmrs.api.context.Daemon;
 import org.openmrs.module.Extension.MEDIA_TYPE;
 import org.openmrs.util.DatabaseUpdateException;
 import org.openmrs.util.DatabaseUpdater;
+import org.openmrs.util.HandlerUtil;
 import org.openmrs.util.InputRequiredException;
 import org.openmrs.util.OpenmrsClassLoader;
 import org.openmrs.util.OpenmrsConstants;
@@ -70,6 +72,20 @@ public class ModuleFactory {
 	
 	protected static Map<String, List<Extension>> extensionMap = new HashMap<String, List<Extension>>();
 	
+	// the extensions returned for each point id, including those of its media types, null if stale
+	private static volatile Map<String, List<Extension>> extensionIndex = null;
+	
+	private static final Object extensionIndexLock = new Object();
+	
+	// the number of extension lookups done by the current thread and the nanoseconds they took
+	private static final ThreadLocal<long[]> extensionLookups = new ThreadLocal<long[]>() {
+		
+		@Override
+		protected long[] initialValue() {
+			return new long[2];
+		}
+	};
+	
 	// maps to keep track of the memory and objects to free/close
 	protected static Map<Module, ModuleClassLoader> moduleClassLoaders = new WeakHashMap<Module, ModuleClassLoader>();
 	
@@ -176,17 +192,40 @@ public class ModuleFactory {
 	 * @param modulesToLoad the list of files to try and load
 	 */
 	public static void loadModules(List<File> modulesToLoad) {
-		// loop over the modules and load all the modules that we can
+		List<File> moduleFiles = new ArrayList<File>();
 		for (File f : modulesToLoad) {
 			// ignore .svn folder and the like
 			if (!f.getName().startsWith(".")) {
-				try {
-					Module mod = loadModule(f, true); // last module loaded wins
-					log.debug("Loaded module: " + mod + " successfully");
-				}
-				catch (Exception e) {
-					log.debug("Unable to load file in module directory: " + f + ". Skipping file.", e);
+				moduleFiles.add(f);
+			}
+		}
+		
+		// the config.xml files are parsed concurrently, but the modules are loaded in the given order
+		final Map<File, Module> parsedModules = Collections.synchronizedMap(new HashMap<File, Module>());
+		Map<File, Exception> failures = ModuleStartupPlanner.runInParallel(moduleFiles,
+		    new ModuleStartupPlanner.Task<File>() {
+			    
+			    @Override
+			    public void run(File moduleFile) throws Exception {
+				    long start = System.currentTimeMillis();
+				    Module module = getModuleFromFile(moduleFile);
+				    parsedModules.put(moduleFile, module);
+				    ModuleStartupPlanner.recordPhase(module.getModuleId(), "parse", start);
+			    }
+		    });
+		
+		// loop over the modules and load all the modules that we can
+		for (File f : moduleFiles) {
+			try {
+				if (failures.containsKey(f)) {
+					throw failures.get(f);
 				}
+				Module mod = parsedModules.get(f);
+				loadModule(mod, true); // last module loaded wins
+				log.debug("Loaded module: " + mod + " successfully");
+			}
+			catch (Exception e) {
+				log.debug("Unable to load file in module directory: " + f + ". Skipping file.", e);
 			}
 		}
 		
@@ -220,7 +259,7 @@ public class ModuleFactory {
 			try {
 				Context.addProxyPrivilege("");
 				AdministrationService as = Context.getAdministrationService();
-				// try and start the modules that should be started
+				List<Module> modulesToStart = new ArrayList<Module>();
 				for (Module mod : getLoadedModulesCoreFirst()) {
 					if (mod.isStarted()) {
 						continue; // skip over modules that are already started
@@ -237,25 +276,36 @@ public class ModuleFactory {
 					// as this is probably the first time they are loading it
 					if (startedProp == null || startedProp.equals("true") || "true".equalsIgnoreCase(mandatoryProp)
 					        || mod.isMandatory() || isCoreToOpenmrs) {
-						if (requiredModulesStarted(mod)) {
-							try {
-								if (log.isDebugEnabled()) {
-									log.debug("starting module: " + mod.getModuleId());
-								}
-								
-								startModule(mod);
-							}
-							catch (Exception e) {
-								log.error("Error while starting module: " + mod.getName(), e);
-								mod.setStartupErrorMessage("Error while starting module", e);
-								notifySuperUsersAboutModuleFailure(mod);
-							}
-						} else {
-							// if not all the modules required by this mod are loaded, save it for later
-							leftoverModules.add(mod);
+						modulesToStart.add(mod);
+					}
+				}
+				
+				// the files of the modules don't depend on each other, but the database changes,
+				// activators and the module maps do, so the modules themselves are started one by one
+				ModuleClassLoader.extractModuleFiles(modulesToStart);
+				
+				// try and start the modules that should be started, each after the modules it depends on
+				for (Module mod : ModuleStartupPlanner.getStartupOrder(modulesToStart)) {
+					if (requiredModulesStarted(mod)) {
+						try {
 							if (log.isDebugEnabled()) {
-								log.debug("cannot start because required modules are not started: " + mod.getModuleId());
+								log.debug("starting module: " + mod.getModuleId());
 							}
+							
+							long start = System.currentTimeMillis();
+							startModule(mod);
+							ModuleStartupPlanner.recordPhase(mod.getModuleId(), "start", start);
+						}
+						catch (Exception e) {
+							log.error("Error while starting module: " + mod.getName(), e);
+							mod.setStartupErrorMessage("Error while starting module", e);
+							notifySuperUsersAboutModuleFailure(mod);
+						}
+					} else {
+						// if not all the modules required by this mod are loaded, save it for later
+						leftoverModules.add(mod);
+						if (log.isDebugEnabled()) {
+							log.debug("cannot start because required modules are not started: " + mod.getModuleId());
 						}
 					}
 				}
@@ -620,6 +670,7 @@ public class ModuleFactory {
 				// fire up the classloader for this module
 				ModuleClassLoader moduleClassLoader = new ModuleClassLoader(module, ModuleFactory.class.getClassLoader());
 				getModuleClassLoaderMap().put(module, moduleClassLoader);
+				ModuleClassLoaderIndex.invalidate();
 				
 				// don't load the advice objects into the Context
 				// At startup, the spring context isn't refreshed until all modules
@@ -668,6 +719,7 @@ public class ModuleFactory {
 						extensions.add(ext);
 					}
 				}
+				invalidateExtensionIndex();
 				
 				// run the module's sql update script
 				// This and the property updates are the only things that can't
@@ -700,6 +752,7 @@ public class ModuleFactory {
 				
 				// effectively mark this module as started successfully
 				getStartedModulesMap().put(moduleId, module);
+				HandlerUtil.clearCachedHandlers();
 				if (actualStartupOrder == null) {
 					actualStartupOrder = new LinkedHashSet<String>();
 				}
@@ -961,6 +1014,9 @@ public class ModuleFactory {
 			catch (Exception e) {
 				throw new ModuleException("Unable to update data model using liquibase.xml.", module.getName(), e);
 			}
+			
+			// the changesets may have inserted or updated global properties directly in the database
+			Context.getAdministrationService().refreshGlobalPropertyCache();
 		}
 	}
 	
@@ -1050,6 +1106,7 @@ public class ModuleFactory {
 			}
 			
 			getStartedModulesMap().remove(moduleId);
+			HandlerUtil.clearCachedHandlers();
 			if (actualStartupOrder != null) {
 				actualStartupOrder.remove(moduleId);
 				for (Module depModule : dependentModulesStopped) {
@@ -1092,9 +1149,10 @@ public class ModuleFactory {
 					for (Extension ext : mod.getExtensions()) {
 						String extId = ext.getExtensionId();
 						try {
-							List<Extension> tmpExtensions = getExtensions(extId);
-							tmpExtensions.remove(ext);
-							getExtensionMap().put(extId, tmpExtensions);
+							List<Extension> tmpExtensions = getExtensionMap().get(extId);
+							if (tmpExtensions != null) {
+								tmpExtensions.remove(ext);
+							}
 						}
 						catch (Exception exterror) {
 							log.warn("Error while getting extension: " + ext, exterror);
@@ -1104,6 +1162,9 @@ public class ModuleFactory {
 				catch (Exception e) {
 					log.warn("Error while getting extensions from module: " + moduleId, e);
 				}
+				finally {
+					invalidateExtensionIndex();
+				}
 			}
 			
 			//Run the onShutdown() method for openmrs services in this module.
@@ -1166,7 +1227,9 @@ public class ModuleFactory {
 			log.warn("Module: " + mod.getModuleId() + " does not exist");
 		}
 		
-		return moduleClassLoaders.remove(mod);
+		ModuleClassLoader classLoader = moduleClassLoaders.remove(mod);
+		ModuleClassLoaderIndex.invalidate();
+		return classLoader;
 	}
 	
 	/**
@@ -1204,38 +1267,23 @@ public class ModuleFactory {
 	 * extension list if no modules extend this pointId
 	 *
 	 * @param pointId
-	 * @return List of extensions
+	 * @return unmodifiable List of extensions
+	 * @should return the extensions of the point id and of all its media types
+	 * @should return an empty list if no modules extend the point id
+	 * @should return the changed extensions once the index is invalidated
 	 */
 	public static List<Extension> getExtensions(String pointId) {
-		List<Extension> extensions = null;
-		Map<String, List<Extension>> extensionMap = getExtensionMap();
+		long start = System.nanoTime();
 		
-		// get all extensions for this exact pointId
-		extensions = extensionMap.get(pointId);
+		List<Extension> extensions = getExtensionIndex().get(pointId);
 		if (extensions == null) {
-			extensions = new ArrayList<Extension>();
+			extensions = Collections.emptyList();
 		}
 		
-		// if this pointId doesn't contain the separator character, search
-		// for this point prepended with each MEDIA TYPE
-		if (pointId.contains(Extension.extensionIdSeparator) == false) {
-			for (MEDIA_TYPE mediaType : Extension.MEDIA_TYPE.values()) {
-				
-				// get all extensions for this type and point id
-				List<Extension> tmpExtensions = extensionMap.get(Extension.toExtensionId(pointId, mediaType));
-				
-				// 'extensions' should be a unique list
-				if (tmpExtensions != null) {
-					for (Extension ext : tmpExtensions) {
-						if (extensions.contains(ext) == false) {
-							extensions.add(ext);
-						}
-					}
-				}
-			}
+		if (log.isDebugEnabled()) {
+			log.debug("Getting extensions defined by : " + pointId);
 		}
-		
-		log.debug("Getting extensions defined by : " + pointId);
+		extensionLookupDone(start);
 		return extensions;
 	}
 	
@@ -1245,19 +1293,121 @@ public class ModuleFactory {
 	 *
 	 * @param pointId
 	 * @param type Extension.MEDIA_TYPE
-	 * @return List of extensions
+	 * @return unmodifiable List of extensions
 	 */
 	public static List<Extension> getExtensions(String pointId, Extension.MEDIA_TYPE type) {
+		long start = System.nanoTime();
+		
 		String key = Extension.toExtensionId(pointId, type);
-		List<Extension> extensions = getExtensionMap().get(key);
+		List<Extension> extensions = getExtensionIndex().get(key);
 		if (extensions != null) {
-			log.debug("Getting extensions defined by : " + key);
+			if (log.isDebugEnabled()) {
+				log.debug("Getting extensions defined by : " + key);
+			}
+			extensionLookupDone(start);
 			return extensions;
 		} else {
 			return getExtensions(pointId);
 		}
 	}
 	
+	/**
+	 * @return the extensions returned for each point id, built from the extension map the first
+	 *         time it is needed after a module was started or stopped
+	 */
+	private static Map<String, List<Extension>> getExtensionIndex() {
+		Map<String, List<Extension>> index = extensionIndex;
+		if (index == null) {
+			synchronized (extensionIndexLock) {
+				if (extensionIndex == null) {
+					extensionIndex = buildExtensionIndex();
+				}
+				index = extensionIndex;
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * Maps each extension id to its extensions, and each point id without a media type to its own
+	 * extensions followed by the extensions of all of its media types that are not already in the
+	 * list
+	 */
+	private static Map<String, List<Extension>> buildExtensionIndex() {
+		Map<String, List<Extension>> extensionMap = getExtensionMap();
+		Map<String, List<Extension>> index = new HashMap<String, List<Extension>>();
+		Set<String> pointIds = new LinkedHashSet<String>();
+		
+		for (Map.Entry<String, List<Extension>> entry : extensionMap.entrySet()) {
+			String extensionId = entry.getKey();
+			int separator = extensionId.indexOf(Extension.extensionIdSeparator);
+			if (separator < 0) {
+				pointIds.add(extensionId);
+			} else {
+				pointIds.add(extensionId.substring(0, separator));
+				index.put(extensionId, Collections.unmodifiableList(new ArrayList<Extension>(entry.getValue())));
+			}
+		}
+		
+		for (String pointId : pointIds) {
+			List<Extension> extensions = new ArrayList<Extension>();
+			if (extensionMap.get(pointId) != null) {
+				extensions.addAll(extensionMap.get(pointId));
+			}
+			for (MEDIA_TYPE mediaType : Extension.MEDIA_TYPE.values()) {
+				List<Extension> mediaTypeExtensions = extensionMap.get(Extension.toExtensionId(pointId, mediaType));
+				if (mediaTypeExtensions != null) {
+					for (Extension ext : mediaTypeExtensions) {
+						if (!extensions.contains(ext)) {
+							extensions.add(ext);
+						}
+					}
+				}
+			}
+			if (!extensions.isEmpty()) {
+				index.put(pointId, Collections.unmodifiableList(extensions));
+			}
+		}
+		
+		return index;
+	}
+	
+	/**
+	 * Makes {@link #getExtensions(String)} build its index from the extension map again. Has to be
+	 * called after the extension map is changed.
+	 */
+	static void invalidateExtensionIndex() {
+		synchronized (extensionIndexLock) {
+			extensionIndex = null;
+		}
+	}
+	
+	private static void extensionLookupDone(long startNanos) {
+		long[] lookups = extensionLookups.get();
+		lookups[0]++;
+		lookups[1] += System.nanoTime() - startNanos;
+	}
+	
+	/**
+	 * @return the number of extension lookups done by the current thread since the last
+	 *         {@link #resetExtensionLookupStatistics()} and the time they took, e.g. to be logged
+	 *         with the timing of a request
+	 * @since 1.12
+	 */
+	public static String getExtensionLookupStatistics() {
+		long[] lookups = extensionLookups.get();
+		return lookups[0] + " extension lookups in " + TimeUnit.NANOSECONDS.toMicros(lookups[1]) + " microseconds";
+	}
+	
+	/**
+	 * Resets the extension lookup statistics of the current thread, e.g. at the start of a request
+	 *
+	 * @since 1.12
+	 */
+	public static void resetExtensionLookupStatistics() {
+		extensionLookups.remove();
+	}
+	
 	/**
 	 * Get a list of required Privileges defined by the modules
 	 *
@@ -1379,7 +1529,8 @@ public class ModuleFactory {
 	}
 	
 	/**
-	 * Return the current extension map keyed on extension point id
+	 * Return the current extension map keyed on extension point id. Changes to the returned map are
+	 * only seen by {@link #getExtensions(String)} after the next module is started or stopped.
 	 *
 	 * @return Map<String, List<Extension>>
 	 */
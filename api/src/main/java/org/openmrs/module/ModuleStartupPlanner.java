@@ -0,0 +1,241 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Plans the startup of the modules. The modules are started in the order of their dependencies, so
+ * that a module is only started after the modules it requires or is aware of, and the work of a
+ * startup that does not touch the database or the shared state of the module system, like parsing
+ * the config.xml files and extracting the jars, is done for all modules concurrently beforehand.
+ * <p>
+ * The time each module spends in each phase of the startup is recorded, so that a slow startup
+ * can be traced to a module.
+ *
+ * @since 1.12
+ */
+public class ModuleStartupPlanner {
+	
+	private static final Log log = LogFactory.getLog(ModuleStartupPlanner.class);
+	
+	// module id -> phase -> milliseconds, in the order the modules were first recorded
+	private static final Map<String, Map<String, Long>> timeline = new LinkedHashMap<String, Map<String, Long>>();
+	
+	/**
+	 * Work done for one item of a concurrent phase
+	 *
+	 * @param <T> the type of the items
+	 */
+	public interface Task<T> {
+		
+		/**
+		 * @param item the item to work on
+		 * @throws Exception if the work failed for the item
+		 */
+		void run(T item) throws Exception;
+	}
+	
+	/**
+	 * Sorts the given modules so that every module comes after the modules it requires or is aware
+	 * of. Modules that do not depend on each other keep their order, and modules with a circular
+	 * dependency are put at the end in their order, so that their startup fails as before.
+	 *
+	 * @param modules the modules to start, core modules first
+	 * @return the modules in the order to start them
+	 * @should put modules after the modules they require or are aware of
+	 * @should keep the order of independent modules
+	 * @should put modules with circular dependencies at the end
+	 */
+	public static List<Module> getStartupOrder(Collection<Module> modules) {
+		Map<String, Module> modulesByPackage = new HashMap<String, Module>();
+		for (Module module : modules) {
+			modulesByPackage.put(module.getPackageName(), module);
+		}
+		
+		Map<Module, List<Module>> dependencies = new HashMap<Module, List<Module>>();
+		for (Module module : modules) {
+			List<Module> moduleDependencies = new ArrayList<Module>();
+			List<String> packageNames = new ArrayList<String>();
+			if (module.getRequiredModules() != null) {
+				packageNames.addAll(module.getRequiredModules());
+			}
+			if (module.getAwareOfModules() != null) {
+				packageNames.addAll(module.getAwareOfModules());
+			}
+			for (String packageName : packageNames) {
+				Module dependency = modulesByPackage.get(packageName);
+				if (dependency != null && dependency != module) {
+					moduleDependencies.add(dependency);
+				}
+			}
+			dependencies.put(module, moduleDependencies);
+		}
+		
+		List<Module> remaining = new ArrayList<Module>(modules);
+		List<Module> ordered = new ArrayList<Module>(modules.size());
+		boolean added = true;
+		while (!remaining.isEmpty() && added) {
+			added = false;
+			for (Module module : remaining) {
+				if (ordered.containsAll(dependencies.get(module))) {
+					ordered.add(module);
+					remaining.remove(module);
+					added = true;
+					break;
+				}
+			}
+		}
+		ordered.addAll(remaining);
+		
+		return ordered;
+	}
+	
+	/**
+	 * Runs the given task for all items concurrently, with as many threads as there are processors,
+	 * and waits until it is done for all of them
+	 *
+	 * @param items the items to run the task for
+	 * @param task the task to run
+	 * @return the exceptions thrown by the task, by item in the order of the items
+	 */
+	public static <T> Map<T, Exception> runInParallel(Collection<T> items, final Task<T> task) {
+		Map<T, Exception> failures = new LinkedHashMap<T, Exception>();
+		if (items.isEmpty()) {
+			return failures;
+		}
+		
+		int threads = Math.min(items.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new StartupThreadFactory());
+		try {
+			Map<T, Future<Void>> futures = new LinkedHashMap<T, Future<Void>>();
+			for (final T item : items) {
+				futures.put(item, executor.submit(new Callable<Void>() {
+					
+					@Override
+					public Void call() throws Exception {
+						task.run(item);
+						return null;
+					}
+				}));
+			}
+			
+			for (Map.Entry<T, Future<Void>> entry : futures.entrySet()) {
+				try {
+					entry.getValue().get();
+				}
+				catch (ExecutionException e) {
+					failures.put(entry.getKey(), e.getCause() instanceof Exception ? (Exception) e.getCause()
+					        : new ModuleException("Error while starting modules", e.getCause()));
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					failures.put(entry.getKey(), e);
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		
+		return failures;
+	}
+	
+	/**
+	 * Records the time a module spent in a phase of its startup
+	 *
+	 * @param moduleId the id of the module
+	 * @param phase the name of the phase, e.g. extract
+	 * @param startMillis the value of {@link System#currentTimeMillis()} when the phase started
+	 */
+	public static void recordPhase(String moduleId, String phase, long startMillis) {
+		long millis = System.currentTimeMillis() - startMillis;
+		synchronized (timeline) {
+			Map<String, Long> phases = timeline.get(moduleId);
+			if (phases == null) {
+				phases = new LinkedHashMap<String, Long>();
+				timeline.put(moduleId, phases);
+			}
+			Long previous = phases.get(phase);
+			phases.put(phase, previous == null ? millis : previous + millis);
+		}
+	}
+	
+	/**
+	 * @return one line per module with the time it spent in each phase of its startup
+	 */
+	public static String getTimelineReport() {
+		StringBuilder report = new StringBuilder("Module startup timeline:");
+		synchronized (timeline) {
+			for (Map.Entry<String, Map<String, Long>> module : timeline.entrySet()) {
+				report.append("\n\t").append(module.getKey()).append(":");
+				long total = 0;
+				for (Map.Entry<String, Long> phase : module.getValue().entrySet()) {
+					report.append(" ").append(phase.getKey()).append(" ").append(phase.getValue()).append(" ms,");
+					total += phase.getValue();
+				}
+				report.append(" total ").append(total).append(" ms");
+			}
+		}
+		return report.toString();
+	}
+	
+	/**
+	 * Logs the startup timeline at info level
+	 */
+	public static void logTimeline() {
+		if (log.isInfoEnabled()) {
+			log.info(getTimelineReport());
+		}
+	}
+	
+	/**
+	 * Forgets the recorded startup timeline
+	 */
+	public static void clearTimeline() {
+		synchronized (timeline) {
+			timeline.clear();
+		}
+	}
+	
+	private static class StartupThreadFactory implements ThreadFactory {
+		
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+		
+		/**
+		 * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+		 */
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "Module Startup Worker-" + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -71,6 +71,8 @@ public class ModuleUtil {
 	 */
 	public static void startup(Properties props) throws ModuleMustStartException, OpenmrsCoreModuleException {
 		
+		ModuleStartupPlanner.clearTimeline();
+		
 		String moduleListString = props.getProperty(ModuleConstants.RUNTIMEPROPERTY_MODULE_LIST_TO_LOAD);
 		
 		if (moduleListString == null || moduleListString.length() == 0) {
@@ -131,8 +133,13 @@ public class ModuleUtil {
 		// start all of the modules we just loaded
 		ModuleFactory.startModules();
 		
+		// the files of removed and upgraded modules are no longer needed
+		ModuleExtractionCache.deleteStaleExtractions(ModuleFactory.getLoadedModules());
+		
 		// some debugging info
 		if (log.isDebugEnabled()) {
+			log.debug(ModuleStartupPlanner.getTimelineReport());
+			
 			Collection<Module> modules = ModuleFactory.getStartedModules();
 			if (modules == null || modules.size() == 0) {
 				log.debug("No modules loaded");
@@ -170,8 +177,10 @@ public class ModuleUtil {
 		
 		// clean up the static variables just in case they weren't done before
 		ModuleFactory.extensionMap = null;
+		ModuleFactory.invalidateExtensionIndex();
 		ModuleFactory.loadedModules = null;
 		ModuleFactory.moduleClassLoaders = null;
+		ModuleClassLoaderIndex.invalidate();
 		ModuleFactory.startedModules = null;
 	}
 	
@@ -832,12 +841,18 @@ public class ModuleUtil {
 		Thread.currentThread().setContextClassLoader(OpenmrsClassLoader.getInstance());
 		
 		ServiceContext.getInstance().startRefreshingContext();
+		ModuleClassLoaderIndex.resetStatistics();
+		long refreshStart = System.currentTimeMillis();
 		try {
 			ctx.refresh();
 		}
 		finally {
 			ServiceContext.getInstance().doneRefreshingContext();
 		}
+		if (log.isInfoEnabled()) {
+			log.info("Refreshed the application context in " + (System.currentTimeMillis() - refreshStart) + " ms, "
+			        + ModuleClassLoaderIndex.getStatistics());
+		}
 		
 		ctx.setClassLoader(OpenmrsClassLoader.getInstance());
 		Thread.currentThread().setContextClassLoader(OpenmrsClassLoader.getInstance());
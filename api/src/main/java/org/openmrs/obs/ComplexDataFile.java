@@ -0,0 +1,87 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.obs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Describes the file a view of the complex data of an obs is stored in, so that it can be streamed
+ * from the file instead of being read into a {@link ComplexData} object first.
+ *
+ * @since 1.12
+ * @see StreamingComplexObsHandler
+ */
+public class ComplexDataFile {
+	
+	private final String title;
+	
+	private final File file;
+	
+	/**
+	 * @param title the name to give the data, e.g. the name of the file that was uploaded
+	 * @param file the file the data is stored in
+	 */
+	public ComplexDataFile(String title, File file) {
+		this.title = title;
+		this.file = file;
+	}
+	
+	/**
+	 * @return the name to give the data, e.g. the name of the file that was uploaded
+	 */
+	public String getTitle() {
+		return title;
+	}
+	
+	/**
+	 * @return the file the data is stored in
+	 */
+	public File getFile() {
+		return file;
+	}
+	
+	/**
+	 * @return the number of bytes of the data
+	 */
+	public long getLength() {
+		return file.length();
+	}
+	
+	/**
+	 * @return the time the data was last changed, in milliseconds since the epoch
+	 */
+	public long getLastModified() {
+		return file.lastModified();
+	}
+	
+	/**
+	 * @return a tag that changes whenever the data changes
+	 */
+	public String getETag() {
+		return "\"" + Long.toHexString(getLength()) + "-" + Long.toHexString(getLastModified()) + "\"";
+	}
+	
+	/**
+	 * Opens a channel to read the data from. The caller has to close it.
+	 *
+	 * @return the channel
+	 * @throws IOException if the file cannot be opened
+	 */
+	public FileChannel openChannel() throws IOException {
+		return new FileInputStream(file).getChannel();
+	}
+}
@@ -0,0 +1,37 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.obs;
+
+import org.openmrs.Obs;
+
+/**
+ * A {@link ComplexObsHandler} that stores the complex data in files and can tell which file holds
+ * a view of it, so that large data like scanned documents can be streamed from the file without
+ * being read into memory.
+ *
+ * @since 1.12
+ * @see org.openmrs.api.ObsService#getComplexDataFile(Integer, String)
+ */
+public interface StreamingComplexObsHandler extends ComplexObsHandler {
+	
+	/**
+	 * Gets the file holding the given view of the complex data of the given obs
+	 *
+	 * @param obs a complex obs handled by this handler
+	 * @param view nullable view type, as for {@link ComplexObsHandler#getObs(Obs, String)}
+	 * @return the file, or null if the data is missing or the view cannot be served from a file
+	 */
+	public ComplexDataFile getComplexDataFile(Obs obs, String view);
+	
+}
@@ -24,6 +24,7 @@ import org.apache.commons.logging.LogFactory;
 import org.openmrs.Obs;
 import org.openmrs.api.context.Context;
 import org.openmrs.obs.ComplexData;
+import org.openmrs.obs.ComplexDataFile;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 
@@ -141,6 +142,42 @@ public class AbstractHandler {
 		return obs;
 	}
 	
+	/**
+	 * Returns the file the complex data is stored in, titled with the name of the file, for the views
+	 * accepted by {@link #isStreamableView(String)}. Other views return null, so that they are still
+	 * got from {@link org.openmrs.obs.ComplexObsHandler#getObs(Obs, String)}.
+	 * 
+	 * @see org.openmrs.obs.StreamingComplexObsHandler#getComplexDataFile(Obs, String)
+	 * @since 1.12
+	 */
+	public ComplexDataFile getComplexDataFile(Obs obs, String view) {
+		if (!isStreamableView(view)) {
+			return null;
+		}
+		
+		File file = getComplexDataFile(obs);
+		if (!file.exists()) {
+			log.error("Unable to find file associated with complex obs " + obs.getObsId() + " at "
+			        + file.getAbsolutePath());
+			return null;
+		}
+		return new ComplexDataFile(file.getName(), file);
+	}
+	
+	/**
+	 * Whether the given view of the complex data is the stored file itself, which is the case for no
+	 * view, the {@link OpenmrsConstants#RAW_VIEW} and downloads. Subclasses that change what
+	 * getObs returns for one of these views must override this too.
+	 * 
+	 * @param view nullable view type
+	 * @return true if the view can be served from the file returned by
+	 *         {@link #getComplexDataFile(Obs, String)}
+	 * @since 1.12
+	 */
+	protected boolean isStreamableView(String view) {
+		return view == null || OpenmrsConstants.RAW_VIEW.equals(view) || "download".equals(view);
+	}
+	
 	/**
 	 * @see org.openmrs.obs.ComplexObsHandler#purgeComplexData(org.openmrs.Obs)
 	 */
@@ -23,7 +23,8 @@ import org.apache.commons.logging.LogFactory;
 import org.openmrs.Obs;
 import org.openmrs.api.APIException;
 import org.openmrs.obs.ComplexData;
-import org.openmrs.obs.ComplexObsHandler;
+import org.openmrs.obs.ComplexDataFile;
+import org.openmrs.obs.StreamingComplexObsHandler;
 import org.openmrs.util.OpenmrsUtil;
 
 /**
@@ -32,7 +33,7 @@ import org.openmrs.util.OpenmrsUtil;
  * 
  * @since 1.5
  */
-public class BinaryDataHandler extends AbstractHandler implements ComplexObsHandler {
+public class BinaryDataHandler extends AbstractHandler implements StreamingComplexObsHandler {
 	
 	public static final Log log = LogFactory.getLog(BinaryDataHandler.class);
 	
@@ -55,16 +56,8 @@ public class BinaryDataHandler extends AbstractHandler implements ComplexObsHand
 		log.debug("file path: " + file.getAbsolutePath());
 		ComplexData complexData = null;
 		
-		// to handle problem with downloading/saving files with blank spaces or commas in their names
-		// also need to remove the "file" text appended to the end of the file name
-		String[] names = obs.getValueComplex().split("\\|");
-		String originalFilename = names[0];
-		if ("download".equals(view)) {
-			originalFilename = originalFilename.replaceAll(",", "").replaceAll(" ", "").replaceAll("file$", "");
-		}
-		
 		try {
-			complexData = new ComplexData(originalFilename, OpenmrsUtil.getFileAsBytes(file));
+			complexData = new ComplexData(getOriginalFilename(obs, view), OpenmrsUtil.getFileAsBytes(file));
 		}
 		catch (IOException e) {
 			log.error("Trying to read file: " + file.getAbsolutePath(), e);
@@ -75,6 +68,30 @@ public class BinaryDataHandler extends AbstractHandler implements ComplexObsHand
 		return obs;
 	}
 	
+	/**
+	 * @see org.openmrs.obs.StreamingComplexObsHandler#getComplexDataFile(org.openmrs.Obs,
+	 *      java.lang.String)
+	 */
+	@Override
+	public ComplexDataFile getComplexDataFile(Obs obs, String view) {
+		ComplexDataFile dataFile = super.getComplexDataFile(obs, view);
+		return dataFile == null ? null : new ComplexDataFile(getOriginalFilename(obs, view), dataFile.getFile());
+	}
+	
+	/**
+	 * @return the name of the file that was saved, which is fixed up for downloads
+	 */
+	private String getOriginalFilename(Obs obs, String view) {
+		// to handle problem with downloading/saving files with blank spaces or commas in their names
+		// also need to remove the "file" text appended to the end of the file name
+		String[] names = obs.getValueComplex().split("\\|");
+		String originalFilename = names[0];
+		if ("download".equals(view)) {
+			originalFilename = originalFilename.replaceAll(",", "").replaceAll(" ", "").replaceAll("file$", "");
+		}
+		return originalFilename;
+	}
+	
 	/**
 	 * TODO should this support a StringReader too?
 	 * 
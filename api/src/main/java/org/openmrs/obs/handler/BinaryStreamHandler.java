@@ -24,7 +24,9 @@ import org.apache.commons.logging.LogFactory;
 import org.openmrs.Obs;
 import org.openmrs.api.APIException;
 import org.openmrs.obs.ComplexData;
+import org.openmrs.obs.ComplexDataFile;
 import org.openmrs.obs.ComplexObsHandler;
+import org.openmrs.obs.StreamingComplexObsHandler;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 
@@ -34,7 +36,7 @@ import org.openmrs.util.OpenmrsUtil;
  * @see OpenmrsConstants#GLOBAL_PROPERTY_COMPLEX_OBS_DIR
  * @since 1.8
  */
-public class BinaryStreamHandler extends AbstractHandler implements ComplexObsHandler {
+public class BinaryStreamHandler extends AbstractHandler implements StreamingComplexObsHandler {
 	
 	public static final Log log = LogFactory.getLog(BinaryStreamHandler.class);
 	
@@ -60,15 +62,10 @@ public class BinaryStreamHandler extends AbstractHandler implements ComplexObsHa
 		
 		try {
 			File file = getComplexDataFile(obs);
-			String[] names = obs.getValueComplex().split("\\|");
-			String originalFilename = names[0];
-			if ("download".equals(view)) {
-				originalFilename = originalFilename.replace(",", "").replace(" ", "");
-			}
 			
 			if (file.exists()) {
 				FileInputStream fileInputStream = new FileInputStream(file);
-				obs.setComplexData(new ComplexData(originalFilename, fileInputStream));
+				obs.setComplexData(new ComplexData(getOriginalFilename(obs, view), fileInputStream));
 			} else {
 				log.error("Unable to find file associated with complex obs " + obs.getId());
 			}
@@ -79,6 +76,29 @@ public class BinaryStreamHandler extends AbstractHandler implements ComplexObsHa
 		return obs;
 	}
 	
+	/**
+	 * Returns the file titled like {@link #getObs(Obs, String)} does
+	 * 
+	 * @see StreamingComplexObsHandler#getComplexDataFile(Obs, String)
+	 */
+	@Override
+	public ComplexDataFile getComplexDataFile(Obs obs, String view) {
+		ComplexDataFile dataFile = super.getComplexDataFile(obs, view);
+		return dataFile == null ? null : new ComplexDataFile(getOriginalFilename(obs, view), dataFile.getFile());
+	}
+	
+	/**
+	 * @return the name of the file that was saved, which is fixed up for downloads
+	 */
+	private String getOriginalFilename(Obs obs, String view) {
+		String[] names = obs.getValueComplex().split("\\|");
+		String originalFilename = names[0];
+		if ("download".equals(view)) {
+			originalFilename = originalFilename.replace(",", "").replace(" ", "");
+		}
+		return originalFilename;
+	}
+	
 	/**
 	 * @see ComplexObsHandler#saveObs(Obs)
 	 */
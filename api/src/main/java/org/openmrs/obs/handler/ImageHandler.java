@@ -13,6 +13,8 @@
  */
 package org.openmrs.obs.handler;
 
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -27,7 +29,8 @@ import org.apache.commons.logging.LogFactory;
 import org.openmrs.Obs;
 import org.openmrs.api.APIException;
 import org.openmrs.obs.ComplexData;
-import org.openmrs.obs.ComplexObsHandler;
+import org.openmrs.obs.ComplexDataFile;
+import org.openmrs.obs.StreamingComplexObsHandler;
 import org.openmrs.util.OpenmrsConstants;
 
 /**
@@ -39,10 +42,21 @@ import org.openmrs.util.OpenmrsConstants;
  * @see OpenmrsConstants#GLOBAL_PROPERTY_COMPLEX_OBS_DIR
  * @since 1.5
  */
-public class ImageHandler extends AbstractHandler implements ComplexObsHandler {
+public class ImageHandler extends AbstractHandler implements StreamingComplexObsHandler {
 	
 	public static final Log log = LogFactory.getLog(ImageHandler.class);
 	
+	/**
+	 * The largest width or height of the images returned for the
+	 * {@link OpenmrsConstants#THUMBNAIL_VIEW}
+	 *
+	 * @since 1.12
+	 */
+	public static final int THUMBNAIL_SIZE = 200;
+	
+	// the thumbnails are cached in this directory next to the images
+	private static final String THUMBNAIL_DIR = "thumbnails";
+	
 	private Set<String> extensions;
 	
 	/**
@@ -60,12 +74,21 @@ public class ImageHandler extends AbstractHandler implements ComplexObsHandler {
 	}
 	
 	/**
-	 * Currently supports all views and puts the Image file data into the ComplexData object
+	 * Currently supports all views and puts the Image file data into the ComplexData object. For
+	 * the {@link OpenmrsConstants#THUMBNAIL_VIEW} a version of the image that fits into
+	 * {@link #THUMBNAIL_SIZE} is returned.
 	 * 
 	 * @see org.openmrs.obs.ComplexObsHandler#getObs(org.openmrs.Obs, java.lang.String)
 	 */
 	public Obs getObs(Obs obs, String view) {
 		File file = getComplexDataFile(obs);
+		if (OpenmrsConstants.THUMBNAIL_VIEW.equals(view) && file.exists()) {
+			File thumbnail = getThumbnailFile(file);
+			if (thumbnail != null) {
+				file = thumbnail;
+			}
+		}
+		
 		BufferedImage img = null;
 		try {
 			img = ImageIO.read(file);
@@ -81,6 +104,115 @@ public class ImageHandler extends AbstractHandler implements ComplexObsHandler {
 		return obs;
 	}
 	
+	/**
+	 * Returns the image file for the views it is streamed for, and the cached thumbnail for the
+	 * {@link OpenmrsConstants#THUMBNAIL_VIEW}
+	 * 
+	 * @see org.openmrs.obs.StreamingComplexObsHandler#getComplexDataFile(org.openmrs.Obs,
+	 *      java.lang.String)
+	 */
+	@Override
+	public ComplexDataFile getComplexDataFile(Obs obs, String view) {
+		ComplexDataFile dataFile = super.getComplexDataFile(obs, view);
+		if (dataFile == null || !OpenmrsConstants.THUMBNAIL_VIEW.equals(view)) {
+			return dataFile;
+		}
+		
+		File thumbnail = getThumbnailFile(dataFile.getFile());
+		return thumbnail == null ? dataFile : new ComplexDataFile(thumbnail.getName(), thumbnail);
+	}
+	
+	/**
+	 * The {@link OpenmrsConstants#THUMBNAIL_VIEW} is served from the cached thumbnail
+	 * 
+	 * @see org.openmrs.obs.handler.AbstractHandler#isStreamableView(java.lang.String)
+	 */
+	@Override
+	protected boolean isStreamableView(String view) {
+		return OpenmrsConstants.THUMBNAIL_VIEW.equals(view) || super.isStreamableView(view);
+	}
+	
+	/**
+	 * Gets the cached thumbnail of the given image, creating it if it is missing or older than the
+	 * image
+	 * 
+	 * @param image the image file
+	 * @return the thumbnail, or null if it could not be created
+	 */
+	protected File getThumbnailFile(File image) {
+		File thumbnail = getThumbnailLocation(image);
+		if (thumbnail.exists() && thumbnail.lastModified() >= image.lastModified()) {
+			return thumbnail;
+		}
+		
+		try {
+			BufferedImage img = ImageIO.read(image);
+			if (img == null) {
+				log.warn("Cannot create a thumbnail of " + image.getAbsolutePath() + ", it is not a readable image");
+				return null;
+			}
+			writeThumbnail(img, thumbnail);
+			return thumbnail;
+		}
+		catch (IOException e) {
+			log.error("Trying to create the thumbnail of file: " + image.getAbsolutePath(), e);
+			return null;
+		}
+	}
+	
+	/**
+	 * @return where the thumbnail of the given image file is cached
+	 */
+	private File getThumbnailLocation(File image) {
+		return new File(new File(image.getParentFile(), THUMBNAIL_DIR), image.getName() + ".png");
+	}
+	
+	/**
+	 * Scales the given image down to fit into {@link #THUMBNAIL_SIZE} and writes it as png
+	 */
+	private void writeThumbnail(BufferedImage img, File thumbnail) throws IOException {
+		double scale = Math.min(1.0, (double) THUMBNAIL_SIZE / Math.max(img.getWidth(), img.getHeight()));
+		int width = Math.max(1, (int) Math.round(img.getWidth() * scale));
+		int height = Math.max(1, (int) Math.round(img.getHeight() * scale));
+		
+		BufferedImage small = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = small.createGraphics();
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.drawImage(img, 0, 0, width, height, null);
+		}
+		finally {
+			graphics.dispose();
+		}
+		
+		// written to a temporary file first, so that a concurrent request never gets half a thumbnail
+		File dir = thumbnail.getParentFile();
+		if (!dir.exists() && !dir.mkdirs()) {
+			throw new IOException("Unable to create the thumbnail directory " + dir.getAbsolutePath());
+		}
+		File tmp = File.createTempFile(thumbnail.getName(), ".tmp", dir);
+		ImageIO.write(small, "png", tmp);
+		// renaming onto an existing file fails on some platforms
+		if (!tmp.renameTo(thumbnail) && !(thumbnail.delete() && tmp.renameTo(thumbnail))) {
+			tmp.delete();
+			throw new IOException("Unable to move the thumbnail to " + thumbnail.getAbsolutePath());
+		}
+	}
+	
+	/**
+	 * Deletes the cached thumbnail together with the image
+	 * 
+	 * @see org.openmrs.obs.handler.AbstractHandler#purgeComplexData(org.openmrs.Obs)
+	 */
+	@Override
+	public boolean purgeComplexData(Obs obs) {
+		File thumbnail = getThumbnailLocation(getComplexDataFile(obs));
+		if (thumbnail.exists() && !thumbnail.delete()) {
+			log.warn("Could not delete the thumbnail of obsId=" + obs.getObsId() + " at " + thumbnail.getAbsolutePath());
+		}
+		return super.purgeComplexData(obs);
+	}
+	
 	/**
 	 * @see org.openmrs.obs.ComplexObsHandler#saveObs(org.openmrs.Obs)
 	 */
@@ -119,6 +251,14 @@ public class ImageHandler extends AbstractHandler implements ComplexObsHandler {
 			// Write the file to the file system.
 			ImageIO.write(img, extension, outfile);
 			
+			// the thumbnail is created now, rather than when it is first viewed
+			try {
+				writeThumbnail(img, getThumbnailLocation(outfile));
+			}
+			catch (IOException e) {
+				log.warn("Unable to create the thumbnail of " + outfile.getAbsolutePath(), e);
+			}
+			
 			// Set the Title and URI for the valueComplex
 			obs.setValueComplex(extension + " image |" + outfile.getName());
 			
@@ -25,7 +25,8 @@ import org.apache.commons.logging.LogFactory;
 import org.openmrs.Obs;
 import org.openmrs.api.APIException;
 import org.openmrs.obs.ComplexData;
-import org.openmrs.obs.ComplexObsHandler;
+import org.openmrs.obs.ComplexDataFile;
+import org.openmrs.obs.StreamingComplexObsHandler;
 import org.openmrs.util.OpenmrsUtil;
 
 /**
@@ -34,7 +35,7 @@ import org.openmrs.util.OpenmrsUtil;
  * The in coming data are either char[] or java.io.Reader
  *
  */
-public class TextHandler extends AbstractHandler implements ComplexObsHandler {
+public class TextHandler extends AbstractHandler implements StreamingComplexObsHandler {
 	
 	public static final Log log = LogFactory.getLog(TextHandler.class);
 	
@@ -56,16 +57,10 @@ public class TextHandler extends AbstractHandler implements ComplexObsHandler {
 		log.debug("value complex: " + obs.getValueComplex());
 		log.debug("file path: " + file.getAbsolutePath());
 		ComplexData complexData = null;
-		// to handle problem with downloading/saving files with blank spaces or commas in their names
-		// also need to remove the "file" text appended to the end of the file name
-		String[] names = obs.getValueComplex().split("\\|");
-		String originalFilename = names[0];
-		if ("download".equals(view)) {
-			originalFilename = originalFilename.replaceAll(",", "").replaceAll(" ", "").replaceAll("file$", "");
-		}
 		
 		try {
-			complexData = new ComplexData(originalFilename, OpenmrsUtil.getFileAsString(file).toCharArray());
+			complexData = new ComplexData(getOriginalFilename(obs, view), OpenmrsUtil.getFileAsString(file)
+			        .toCharArray());
 		}
 		catch (IOException e) {
 			log.error("Trying to read file: " + file.getAbsolutePath(), e);
@@ -76,6 +71,30 @@ public class TextHandler extends AbstractHandler implements ComplexObsHandler {
 		return obs;
 	}
 	
+	/**
+	 * @see org.openmrs.obs.StreamingComplexObsHandler#getComplexDataFile(org.openmrs.Obs,
+	 *      java.lang.String)
+	 */
+	@Override
+	public ComplexDataFile getComplexDataFile(Obs obs, String view) {
+		ComplexDataFile dataFile = super.getComplexDataFile(obs, view);
+		return dataFile == null ? null : new ComplexDataFile(getOriginalFilename(obs, view), dataFile.getFile());
+	}
+	
+	/**
+	 * @return the name of the file that was saved, which is fixed up for downloads
+	 */
+	private String getOriginalFilename(Obs obs, String view) {
+		// to handle problem with downloading/saving files with blank spaces or commas in their names
+		// also need to remove the "file" text appended to the end of the file name
+		String[] names = obs.getValueComplex().split("\\|");
+		String originalFilename = names[0];
+		if ("download".equals(view)) {
+			originalFilename = originalFilename.replaceAll(",", "").replaceAll(" ", "").replaceAll("file$", "");
+		}
+		return originalFilename;
+	}
+	
 	/**
 	 * 
 	 * 
@@ -0,0 +1,261 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.patient;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PersonName;
+
+/**
+ * Derives the blocking keys of patients and scores how similar two patients are, to find likely
+ * duplicate patients without comparing every patient with every other patient. Only patients that
+ * share at least one blocking key are compared, see
+ * {@link org.openmrs.api.PatientService#updateDuplicatePatientCandidates(int)}.
+ *
+ * @since 1.12
+ */
+public class DuplicatePatientMatcher {
+	
+	/**
+	 * The number of trailing characters of an identifier used as its blocking key
+	 */
+	public static final int IDENTIFIER_FRAGMENT_LENGTH = 6;
+	
+	private static final double FAMILY_NAME_WEIGHT = 0.3;
+	
+	private static final double GIVEN_NAME_WEIGHT = 0.2;
+	
+	private static final double BIRTHDATE_WEIGHT = 0.25;
+	
+	private static final double BIRTH_YEAR_WEIGHT = 0.1;
+	
+	private static final double GENDER_WEIGHT = 0.05;
+	
+	private static final double IDENTIFIER_WEIGHT = 0.2;
+	
+	/**
+	 * The soundex digits of the letters A to Z
+	 */
+	private static final String SOUNDEX_CODES = "01230120022455012623010202";
+	
+	private DuplicatePatientMatcher() {
+	}
+	
+	/**
+	 * Gets the blocking keys of a patient: the phonetic code of each family name with the birth
+	 * year, the phonetic codes of each family and given name with the gender, and the trailing
+	 * characters of each identifier. Voided names and identifiers are ignored.
+	 *
+	 * @param patient the patient
+	 * @return the blocking keys, empty if the patient is voided
+	 * @should return the phonetic family name with the birth year
+	 * @should return the phonetic family and given name with the gender
+	 * @should return the trailing characters of the identifiers
+	 * @should return no keys for a voided patient
+	 */
+	public static Set<String> getBlockingKeys(Patient patient) {
+		Set<String> keys = new LinkedHashSet<String>();
+		if (patient.isVoided()) {
+			return keys;
+		}
+		
+		Integer birthYear = getField(patient.getBirthdate(), Calendar.YEAR);
+		for (PersonName name : getActiveNames(patient)) {
+			String familyName = soundex(name.getFamilyName());
+			if (familyName == null) {
+				continue;
+			}
+			if (birthYear != null) {
+				keys.add("family:" + familyName + ":" + birthYear);
+			}
+			String givenName = soundex(name.getGivenName());
+			if (givenName != null) {
+				keys.add("name:" + familyName + ":" + givenName + ":" + StringUtils.defaultString(patient.getGender()));
+			}
+		}
+		
+		for (PatientIdentifier identifier : patient.getActiveIdentifiers()) {
+			String value = normalizeIdentifier(identifier.getIdentifier());
+			if (value.length() > 0) {
+				keys.add("identifier:" + StringUtils.right(value, IDENTIFIER_FRAGMENT_LENGTH));
+			}
+		}
+		return keys;
+	}
+	
+	/**
+	 * Scores how similar two patients are by comparing their names, birthdates, genders and
+	 * identifiers. Names count the most if they are equal and less if they only sound alike,
+	 * identifiers count the most if they are equal and less if they only share their trailing
+	 * characters. Voided names and identifiers are ignored.
+	 *
+	 * @param patient a patient
+	 * @param otherPatient another patient
+	 * @return the score, from 0 if nothing matches to 1 if everything does
+	 * @should return one for patients with the same names birthdate gender and identifier
+	 * @should score names that sound alike lower than equal names
+	 * @should score the same birth year lower than the same birthdate
+	 * @should return zero for patients that have nothing in common
+	 */
+	public static double getScore(Patient patient, Patient otherPatient) {
+		double nameScore = 0;
+		for (PersonName name : getActiveNames(patient)) {
+			for (PersonName otherName : getActiveNames(otherPatient)) {
+				double score = compareNames(name.getFamilyName(), otherName.getFamilyName(), FAMILY_NAME_WEIGHT)
+				        + compareNames(name.getGivenName(), otherName.getGivenName(), GIVEN_NAME_WEIGHT);
+				nameScore = Math.max(nameScore, score);
+			}
+		}
+		
+		double birthdateScore = 0;
+		Date birthdate = patient.getBirthdate();
+		Date otherBirthdate = otherPatient.getBirthdate();
+		if (birthdate != null && otherBirthdate != null) {
+			if (getField(birthdate, Calendar.YEAR).equals(getField(otherBirthdate, Calendar.YEAR))) {
+				if (getField(birthdate, Calendar.DAY_OF_YEAR).equals(getField(otherBirthdate, Calendar.DAY_OF_YEAR))) {
+					birthdateScore = BIRTHDATE_WEIGHT;
+				} else {
+					birthdateScore = BIRTH_YEAR_WEIGHT;
+				}
+			}
+		}
+		
+		double genderScore = 0;
+		if (patient.getGender() != null && patient.getGender().equalsIgnoreCase(otherPatient.getGender())) {
+			genderScore = GENDER_WEIGHT;
+		}
+		
+		double identifierScore = 0;
+		for (PatientIdentifier identifier : patient.getActiveIdentifiers()) {
+			String value = normalizeIdentifier(identifier.getIdentifier());
+			for (PatientIdentifier otherIdentifier : otherPatient.getActiveIdentifiers()) {
+				String otherValue = normalizeIdentifier(otherIdentifier.getIdentifier());
+				if (value.length() == 0 || otherValue.length() == 0) {
+					continue;
+				}
+				if (value.equals(otherValue)) {
+					identifierScore = IDENTIFIER_WEIGHT;
+				} else if (StringUtils.right(value, IDENTIFIER_FRAGMENT_LENGTH).equals(
+				    StringUtils.right(otherValue, IDENTIFIER_FRAGMENT_LENGTH))) {
+					identifierScore = Math.max(identifierScore, IDENTIFIER_WEIGHT / 2);
+				}
+			}
+		}
+		
+		// round off the floating point error of the sum, so that a perfect match scores exactly 1
+		double score = nameScore + birthdateScore + genderScore + identifierScore;
+		return Math.round(score * 1000) / 1000.0;
+	}
+	
+	/**
+	 * Gets the American Soundex code of a name: its first letter followed by three digits for the
+	 * groups of consonants that sound alike, so that names that sound alike get the same code.
+	 *
+	 * @param name the name
+	 * @return the code, or null if the name has no letters
+	 * @should return the same code for names that sound alike
+	 * @should skip consonants separated by h or w that sound alike
+	 * @should pad short names with zeros
+	 * @should return null for a name without letters
+	 */
+	public static String soundex(String name) {
+		if (name == null) {
+			return null;
+		}
+		String letters = name.toUpperCase();
+		StringBuilder code = new StringBuilder(4);
+		char previousDigit = 0;
+		for (int i = 0; i < letters.length() && code.length() < 4; i++) {
+			char letter = letters.charAt(i);
+			if (letter < 'A' || letter > 'Z') {
+				continue;
+			}
+			char digit = SOUNDEX_CODES.charAt(letter - 'A');
+			if (code.length() == 0) {
+				code.append(letter);
+			} else if (digit != '0' && digit != previousDigit) {
+				code.append(digit);
+			}
+			// consonants separated by h or w are coded once, when separated by a vowel twice
+			if (letter != 'H' && letter != 'W') {
+				previousDigit = digit;
+			}
+		}
+		if (code.length() == 0) {
+			return null;
+		}
+		while (code.length() < 4) {
+			code.append('0');
+		}
+		return code.toString();
+	}
+	
+	private static double compareNames(String name, String otherName, double weight) {
+		if (StringUtils.isBlank(name) || StringUtils.isBlank(otherName)) {
+			return 0;
+		}
+		if (name.trim().equalsIgnoreCase(otherName.trim())) {
+			return weight;
+		}
+		String code = soundex(name);
+		if (code != null && code.equals(soundex(otherName))) {
+			return weight / 2;
+		}
+		return 0;
+	}
+	
+	private static List<PersonName> getActiveNames(Patient patient) {
+		List<PersonName> names = new ArrayList<PersonName>();
+		if (patient.getNames() != null) {
+			for (PersonName name : patient.getNames()) {
+				if (!name.isVoided()) {
+					names.add(name);
+				}
+			}
+		}
+		return names;
+	}
+	
+	/**
+	 * Upper case letters and digits only, so that formatting does not prevent a match
+	 */
+	private static String normalizeIdentifier(String identifier) {
+		StringBuilder normalized = new StringBuilder();
+		if (identifier != null) {
+			for (char c : identifier.toUpperCase().toCharArray()) {
+				if (Character.isLetterOrDigit(c)) {
+					normalized.append(c);
+				}
+			}
+		}
+		return normalized.toString();
+	}
+	
+	private static Integer getField(Date date, int field) {
+		if (date == null) {
+			return null;
+		}
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(date);
+		return calendar.get(field);
+	}
+}
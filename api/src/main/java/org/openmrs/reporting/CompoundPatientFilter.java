@@ -13,7 +13,6 @@
  */
 package org.openmrs.reporting;
 
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -23,6 +22,7 @@ import org.apache.commons.logging.LogFactory;
 import org.openmrs.Cohort;
 import org.openmrs.api.PatientSetService.BooleanOperator;
 import org.openmrs.report.EvaluationContext;
+import org.openmrs.util.CompressedIntegerSet;
 
 /**
  * @deprecated see reportingcompatibility module
@@ -68,7 +68,7 @@ public class CompoundPatientFilter extends AbstractPatientFilter implements Pati
 			}
 			return temp;
 		} else {
-			Set<Integer> ptIds = new HashSet<Integer>();
+			Set<Integer> ptIds = new CompressedIntegerSet();
 			for (PatientFilter pf : filters) {
 				ptIds.addAll(pf.filter(input, context).getMemberIds());
 				log.debug("or " + pf.getName() + " (" + pf.toString() + ")");
@@ -82,7 +82,7 @@ public class CompoundPatientFilter extends AbstractPatientFilter implements Pati
 	public Cohort filterInverse(Cohort input, EvaluationContext context) {
 		if (operator == BooleanOperator.AND) {
 			// NOT(AND(x, y)) -> OR(NOT x, NOT y)
-			Set<Integer> ptIds = new HashSet<Integer>();
+			Set<Integer> ptIds = new CompressedIntegerSet();
 			for (PatientFilter pf : filters) {
 				ptIds.addAll(pf.filterInverse(input, context).getMemberIds());
 			}
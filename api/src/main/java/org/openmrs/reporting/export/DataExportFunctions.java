@@ -107,6 +107,9 @@ public class DataExportFunctions {
 	// Map<conceptId + attr, Map<patientId, List<List<Obs values>>>>
 	protected Map<String, Map<Integer, List<List<Object>>>> conceptAttrObsMap = new HashMap<String, Map<Integer, List<List<Object>>>>();
 	
+	// Map<conceptId + attr, Map<patientId, List<List<most recent Obs values>>>>
+	protected Map<String, Map<Integer, List<List<Object>>>> conceptAttrLatestObsMap = new HashMap<String, Map<Integer, List<List<Object>>>>();
+	
 	// Map<RelationshipType, Map<patientId, List<Relationship>>>
 	protected Map<String, Map<Integer, List<Relationship>>> relationshipMap = new HashMap<String, Map<Integer, List<Relationship>>>();
 	
@@ -183,6 +186,10 @@ public class DataExportFunctions {
 			map.clear();
 		}
 		conceptAttrObsMap.clear();
+		for (Map map : conceptAttrLatestObsMap.values()) {
+			map.clear();
+		}
+		conceptAttrLatestObsMap.clear();
 		for (Map map : relationshipMap.values()) {
 			map.clear();
 		}
@@ -568,6 +575,23 @@ public class DataExportFunctions {
 		return patientIdObsMap.get(patientId);
 	}
 	
+	/**
+	 * Gets the values of the most recent observation of the given concept for the current patient
+	 *
+	 * @param c the question concept
+	 * @param attrs the attributes to get besides the value
+	 * @return a list with the values of the most recent obs, or null if the patient has none
+	 */
+	protected List<List<Object>> getLatestObsWithValues(Concept c, List<String> attrs) {
+		String key = c.getConceptId() + "" + attrs;
+		Map<Integer, List<List<Object>>> patientIdObsMap = conceptAttrLatestObsMap.get(key);
+		if (patientIdObsMap == null) {
+			patientIdObsMap = patientSetService.getObservationsValues(getPatientSetIfNotAllPatients(), c, attrs, 1, true);
+			conceptAttrLatestObsMap.put(key, patientIdObsMap);
+		}
+		return patientIdObsMap.get(patientId);
+	}
+	
 	/**
 	 * Gets a patient program given a program ID or program name.
 	 *
@@ -846,7 +870,13 @@ public class DataExportFunctions {
 		
 		attrs.add(0, null);
 		
-		List<List<Object>> returnList = getObsWithValues(concept, attrs);
+		List<List<Object>> returnList;
+		if (n.equals(1) && !conceptAttrObsMap.containsKey(concept.getConceptId() + "")) {
+			// only fetch the most recent obs of each patient instead of all of them
+			returnList = getLatestObsWithValues(concept, attrs);
+		} else {
+			returnList = getObsWithValues(concept, attrs);
+		}
 		
 		if (returnList == null) {
 			returnList = new Vector<List<Object>>();
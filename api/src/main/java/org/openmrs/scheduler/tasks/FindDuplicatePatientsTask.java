@@ -0,0 +1,61 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.scheduler.tasks;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+
+/**
+ * A scheduled task that finds likely duplicate patients, see
+ * {@link org.openmrs.api.PatientService#updateDuplicatePatientCandidates(int)}. The patients are
+ * compared in batches, each in its own transaction, and a run that is stopped resumes after the last
+ * batch that was compared. The likely duplicates are listed on the find duplicate patients page.
+ *
+ * @since 1.12
+ */
+public class FindDuplicatePatientsTask extends AbstractTask {
+	
+	private static final Log log = LogFactory.getLog(FindDuplicatePatientsTask.class);
+	
+	private static final int BATCH_SIZE = 500;
+	
+	/**
+	 * @see org.openmrs.scheduler.tasks.AbstractTask#execute()
+	 */
+	@Override
+	public void execute() {
+		if (!isExecuting) {
+			if (log.isDebugEnabled()) {
+				log.debug("Starting Find Duplicate Patients Task...");
+			}
+			
+			startExecuting();
+			try {
+				// the task definition is cleared when the task is shut down
+				while (getTaskDefinition() != null
+				        && Context.getPatientService().updateDuplicatePatientCandidates(BATCH_SIZE)) {
+					// every batch is committed, the patients it loaded are no longer needed
+					Context.clearSession();
+				}
+			}
+			catch (Exception e) {
+				log.error("Error while finding duplicate patients:", e);
+			}
+			finally {
+				stopExecuting();
+			}
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.scheduler.tasks;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+
+/**
+ * A scheduled task that rebuilds the summaries of the first and most recent obs of every person
+ * for every question concept, see {@link org.openmrs.api.ObsService#rebuildObsSummaries()}. It needs
+ * to be run once after upgrading, until then the most recent obs are read from the obs table.
+ *
+ * @since 1.12
+ */
+public class RebuildObsSummaryTask extends AbstractTask {
+	
+	private static final Log log = LogFactory.getLog(RebuildObsSummaryTask.class);
+	
+	/**
+	 * @see org.openmrs.scheduler.tasks.AbstractTask#execute()
+	 */
+	@Override
+	public void execute() {
+		if (!isExecuting) {
+			if (log.isDebugEnabled()) {
+				log.debug("Starting Rebuild Obs Summary Task...");
+			}
+			
+			startExecuting();
+			try {
+				Context.getObsService().rebuildObsSummaries();
+			}
+			catch (Exception e) {
+				log.error("Error while rebuilding the obs summaries:", e);
+			}
+			finally {
+				stopExecuting();
+			}
+		}
+	}
+}
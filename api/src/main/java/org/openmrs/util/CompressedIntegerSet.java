@@ -0,0 +1,869 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.util;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A compact, sorted set of integers meant for large sets of ids like the members of a
+ * {@link org.openmrs.Cohort}. Values are grouped by their upper 16 bits, and the lower 16 bits of
+ * each group are stored either in a sorted char array while the group is sparse or in a 64k bit
+ * bitmap once it holds more than {@value #ARRAY_CONTAINER_MAX_SIZE} values. This takes at most two
+ * bytes per value instead of the roughly 40 bytes a TreeSet needs for each boxed Integer.
+ * <p>
+ * Unions, intersections and differences of two such sets are computed group by group with
+ * {@link #union(CompressedIntegerSet, CompressedIntegerSet)},
+ * {@link #intersect(CompressedIntegerSet, CompressedIntegerSet)} and
+ * {@link #subtract(CompressedIntegerSet, CompressedIntegerSet)}, which {@link #addAll(Collection)},
+ * {@link #retainAll(Collection)} and {@link #removeAll(Collection)} use as well when given another
+ * CompressedIntegerSet. Use {@link #intIterator()} to iterate over the values without boxing them.
+ * <p>
+ * Iteration is in ascending order. This set does not permit null values and is not thread safe.
+ *
+ * @since 1.12
+ */
+public class CompressedIntegerSet extends AbstractSet<Integer> implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The largest number of values in a group that are stored in a sorted array
+	 */
+	public static final int ARRAY_CONTAINER_MAX_SIZE = 4096;
+	
+	/**
+	 * The signed upper 16 bits of the values in each group, in ascending order
+	 */
+	private int[] keys;
+	
+	private Container[] containers;
+	
+	private int containerCount = 0;
+	
+	private int size = 0;
+	
+	/**
+	 * Creates an empty set
+	 */
+	public CompressedIntegerSet() {
+		keys = new int[4];
+		containers = new Container[4];
+	}
+	
+	/**
+	 * Creates a set containing the given values
+	 *
+	 * @param values the values to add
+	 */
+	public CompressedIntegerSet(Collection<? extends Integer> values) {
+		this();
+		addAll(values);
+	}
+	
+	/**
+	 * An iterator over primitive int values
+	 */
+	public static interface IntIterator {
+		
+		/**
+		 * @return true if there are more values
+		 */
+		public boolean hasNext();
+		
+		/**
+		 * @return the next value
+		 * @throws NoSuchElementException if there are no more values
+		 */
+		public int next();
+	}
+	
+	/**
+	 * Returns the union of two sets as a new set
+	 *
+	 * @param a the first set
+	 * @param b the second set
+	 * @return a new set with all values in either set
+	 * @should return all values in either set
+	 */
+	public static CompressedIntegerSet union(CompressedIntegerSet a, CompressedIntegerSet b) {
+		CompressedIntegerSet result = new CompressedIntegerSet();
+		int i = 0;
+		int j = 0;
+		while (i < a.containerCount || j < b.containerCount) {
+			if (j >= b.containerCount || (i < a.containerCount && a.keys[i] < b.keys[j])) {
+				result.appendContainer(a.keys[i], a.containers[i].copy());
+				i++;
+			} else if (i >= a.containerCount || b.keys[j] < a.keys[i]) {
+				result.appendContainer(b.keys[j], b.containers[j].copy());
+				j++;
+			} else {
+				result.appendContainer(a.keys[i], a.containers[i].or(b.containers[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the intersection of two sets as a new set
+	 *
+	 * @param a the first set
+	 * @param b the second set
+	 * @return a new set with the values in both sets
+	 * @should return the values in both sets
+	 */
+	public static CompressedIntegerSet intersect(CompressedIntegerSet a, CompressedIntegerSet b) {
+		CompressedIntegerSet result = new CompressedIntegerSet();
+		int i = 0;
+		int j = 0;
+		while (i < a.containerCount && j < b.containerCount) {
+			if (a.keys[i] < b.keys[j]) {
+				i++;
+			} else if (b.keys[j] < a.keys[i]) {
+				j++;
+			} else {
+				result.appendContainer(a.keys[i], a.containers[i].and(b.containers[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the values of one set that are not in another one as a new set
+	 *
+	 * @param a the set to subtract from
+	 * @param b the set to subtract
+	 * @return a new set with the values in a that are not in b
+	 * @should return the values of the first set that are not in the second set
+	 */
+	public static CompressedIntegerSet subtract(CompressedIntegerSet a, CompressedIntegerSet b) {
+		CompressedIntegerSet result = new CompressedIntegerSet();
+		int j = 0;
+		for (int i = 0; i < a.containerCount; i++) {
+			while (j < b.containerCount && b.keys[j] < a.keys[i]) {
+				j++;
+			}
+			if (j < b.containerCount && b.keys[j] == a.keys[i]) {
+				result.appendContainer(a.keys[i], a.containers[i].andNot(b.containers[j]));
+			} else {
+				result.appendContainer(a.keys[i], a.containers[i].copy());
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * @param value the value to look for
+	 * @return true if this set contains the given value
+	 */
+	public boolean contains(int value) {
+		int index = indexOfKey(value >> 16);
+		return index >= 0 && containers[index].contains(value & 0xFFFF);
+	}
+	
+	/**
+	 * @see java.util.AbstractCollection#contains(java.lang.Object)
+	 */
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Integer && contains(((Integer) o).intValue());
+	}
+	
+	/**
+	 * Adds a value to this set
+	 *
+	 * @param value the value to add
+	 * @return true if the value was not in this set yet
+	 * @should add values to sparse and dense groups
+	 */
+	public boolean add(int value) {
+		int key = value >> 16;
+		int low = value & 0xFFFF;
+		int index = indexOfKey(key);
+		if (index < 0) {
+			index = -index - 1;
+			insertContainer(index, key, new ArrayContainer());
+		} else if (containers[index].contains(low)) {
+			return false;
+		}
+		containers[index] = containers[index].add(low);
+		size++;
+		return true;
+	}
+	
+	/**
+	 * @see java.util.AbstractCollection#add(java.lang.Object)
+	 */
+	@Override
+	public boolean add(Integer value) {
+		return add(value.intValue());
+	}
+	
+	/**
+	 * Removes a value from this set
+	 *
+	 * @param value the value to remove
+	 * @return true if the value was in this set
+	 */
+	public boolean remove(int value) {
+		int index = indexOfKey(value >> 16);
+		int low = value & 0xFFFF;
+		if (index < 0 || !containers[index].contains(low)) {
+			return false;
+		}
+		Container container = containers[index].remove(low);
+		if (container.cardinality() == 0) {
+			removeContainer(index);
+		} else {
+			containers[index] = container;
+		}
+		size--;
+		return true;
+	}
+	
+	/**
+	 * @see java.util.AbstractCollection#remove(java.lang.Object)
+	 */
+	@Override
+	public boolean remove(Object o) {
+		return o instanceof Integer && remove(((Integer) o).intValue());
+	}
+	
+	/**
+	 * @see java.util.AbstractCollection#addAll(java.util.Collection)
+	 */
+	@Override
+	public boolean addAll(Collection<? extends Integer> c) {
+		if (c instanceof CompressedIntegerSet) {
+			return replaceWith(union(this, (CompressedIntegerSet) c));
+		}
+		return super.addAll(c);
+	}
+	
+	/**
+	 * @see java.util.AbstractCollection#retainAll(java.util.Collection)
+	 * @should keep only the values in the given collection
+	 */
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		if (c instanceof CompressedIntegerSet) {
+			return replaceWith(intersect(this, (CompressedIntegerSet) c));
+		}
+		
+		CompressedIntegerSet retained = new CompressedIntegerSet();
+		for (IntIterator i = intIterator(); i.hasNext();) {
+			int value = i.next();
+			if (c.contains(value)) {
+				retained.add(value);
+			}
+		}
+		return replaceWith(retained);
+	}
+	
+	/**
+	 * @see java.util.AbstractSet#removeAll(java.util.Collection)
+	 * @should remove the values in the given collection
+	 */
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		if (c instanceof CompressedIntegerSet) {
+			return replaceWith(subtract(this, (CompressedIntegerSet) c));
+		}
+		
+		boolean modified = false;
+		for (Object o : c) {
+			modified |= remove(o);
+		}
+		return modified;
+	}
+	
+	/**
+	 * @see java.util.AbstractCollection#clear()
+	 */
+	@Override
+	public void clear() {
+		keys = new int[4];
+		containers = new Container[4];
+		containerCount = 0;
+		size = 0;
+	}
+	
+	/**
+	 * @see java.util.AbstractCollection#size()
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return an iterator over the values in ascending order that doesn't box them
+	 * @should iterate over all values in ascending order
+	 */
+	public IntIterator intIterator() {
+		return new Cursor();
+	}
+	
+	/**
+	 * @see java.util.AbstractCollection#iterator()
+	 * @should support removing values while iterating
+	 */
+	@Override
+	public Iterator<Integer> iterator() {
+		return new Iterator<Integer>() {
+			
+			private final Cursor cursor = new Cursor();
+			
+			private Integer last;
+			
+			public boolean hasNext() {
+				return cursor.hasNext();
+			}
+			
+			public Integer next() {
+				last = cursor.next();
+				return last;
+			}
+			
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				CompressedIntegerSet.this.remove(last.intValue());
+				
+				// the containers may have been replaced or removed, so find the next value again
+				int index = indexOfKey(last >> 16);
+				if (index >= 0) {
+					cursor.seek(index, (last & 0xFFFF) + 1);
+				} else {
+					cursor.seek(-index - 1, 0);
+				}
+				last = null;
+			}
+		};
+	}
+	
+	/**
+	 * @return the number of bytes used to store the values, to compare with other representations
+	 */
+	public long getSizeInBytes() {
+		long bytes = containerCount * 8L;
+		for (int i = 0; i < containerCount; i++) {
+			bytes += containers[i].getSizeInBytes();
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Replaces the contents of this set with the contents of the given one
+	 *
+	 * @return true if the size changed
+	 */
+	private boolean replaceWith(CompressedIntegerSet other) {
+		boolean modified = size != other.size;
+		keys = other.keys;
+		containers = other.containers;
+		containerCount = other.containerCount;
+		size = other.size;
+		return modified;
+	}
+	
+	/**
+	 * @return the index of the container for the given key, or (-(insertion point) - 1) if there
+	 *         is none
+	 */
+	private int indexOfKey(int key) {
+		// values are usually added in ascending order, so check the last container first
+		if (containerCount > 0 && keys[containerCount - 1] == key) {
+			return containerCount - 1;
+		}
+		return Arrays.binarySearch(keys, 0, containerCount, key);
+	}
+	
+	/**
+	 * Adds a container with a key greater than all current keys, skipping empty ones
+	 */
+	private void appendContainer(int key, Container container) {
+		if (container.cardinality() > 0) {
+			insertContainer(containerCount, key, container);
+			size += container.cardinality();
+		}
+	}
+	
+	private void insertContainer(int index, int key, Container container) {
+		if (containerCount == keys.length) {
+			keys = Arrays.copyOf(keys, containerCount * 2);
+			containers = Arrays.copyOf(containers, containerCount * 2);
+		}
+		System.arraycopy(keys, index, keys, index + 1, containerCount - index);
+		System.arraycopy(containers, index, containers, index + 1, containerCount - index);
+		keys[index] = key;
+		containers[index] = container;
+		containerCount++;
+	}
+	
+	private void removeContainer(int index) {
+		System.arraycopy(keys, index + 1, keys, index, containerCount - index - 1);
+		System.arraycopy(containers, index + 1, containers, index, containerCount - index - 1);
+		containerCount--;
+		containers[containerCount] = null;
+	}
+	
+	/**
+	 * Walks over the values of this set without boxing them
+	 */
+	private class Cursor implements IntIterator {
+		
+		private int containerIndex;
+		
+		/**
+		 * the position of the next value within the current container
+		 */
+		private int position;
+		
+		public Cursor() {
+			seek(0, 0);
+		}
+		
+		/**
+		 * Moves to the first value that is at least the given low value in the given container,
+		 * or in any container after it
+		 */
+		private void seek(int index, int low) {
+			containerIndex = index;
+			while (containerIndex < containerCount) {
+				position = low > 0xFFFF ? -1 : containers[containerIndex].seek(low);
+				if (position >= 0) {
+					return;
+				}
+				containerIndex++;
+				low = 0;
+			}
+		}
+		
+		public boolean hasNext() {
+			return containerIndex < containerCount;
+		}
+		
+		public int next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Container container = containers[containerIndex];
+			int value = (keys[containerIndex] << 16) | container.valueAt(position);
+			position = container.nextPosition(position);
+			if (position < 0) {
+				seek(containerIndex + 1, 0);
+			}
+			return value;
+		}
+	}
+	
+	/**
+	 * The lower 16 bits of the values in one group. Operations may return a different container if
+	 * the group is better stored in the other representation afterwards.
+	 */
+	private static abstract class Container implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		public abstract int cardinality();
+		
+		public abstract boolean contains(int low);
+		
+		public abstract Container add(int low);
+		
+		public abstract Container remove(int low);
+		
+		public abstract Container or(Container other);
+		
+		public abstract Container and(Container other);
+		
+		public abstract Container andNot(Container other);
+		
+		public abstract Container copy();
+		
+		/**
+		 * @return the position of the first value that is at least the given value or -1
+		 */
+		public abstract int seek(int low);
+		
+		/**
+		 * @return the position of the value after the one at the given position or -1
+		 */
+		public abstract int nextPosition(int position);
+		
+		public abstract int valueAt(int position);
+		
+		public abstract long getSizeInBytes();
+	}
+	
+	/**
+	 * Stores the values of a sparse group in a sorted array
+	 */
+	private static class ArrayContainer extends Container {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private char[] values;
+		
+		private int cardinality;
+		
+		public ArrayContainer() {
+			this(new char[4], 0);
+		}
+		
+		public ArrayContainer(char[] values, int cardinality) {
+			this.values = values;
+			this.cardinality = cardinality;
+		}
+		
+		@Override
+		public int cardinality() {
+			return cardinality;
+		}
+		
+		@Override
+		public boolean contains(int low) {
+			return Arrays.binarySearch(values, 0, cardinality, (char) low) >= 0;
+		}
+		
+		@Override
+		public Container add(int low) {
+			int index = Arrays.binarySearch(values, 0, cardinality, (char) low);
+			if (index >= 0) {
+				return this;
+			}
+			if (cardinality >= ARRAY_CONTAINER_MAX_SIZE) {
+				return toBitmap().add(low);
+			}
+			
+			index = -index - 1;
+			if (cardinality == values.length) {
+				values = Arrays.copyOf(values, Math.min(ARRAY_CONTAINER_MAX_SIZE, Math.max(4, cardinality * 2)));
+			}
+			System.arraycopy(values, index, values, index + 1, cardinality - index);
+			values[index] = (char) low;
+			cardinality++;
+			return this;
+		}
+		
+		@Override
+		public Container remove(int low) {
+			int index = Arrays.binarySearch(values, 0, cardinality, (char) low);
+			if (index >= 0) {
+				System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+				cardinality--;
+			}
+			return this;
+		}
+		
+		@Override
+		public Container or(Container other) {
+			if (other instanceof BitmapContainer) {
+				return other.or(this);
+			}
+			
+			ArrayContainer o = (ArrayContainer) other;
+			if (cardinality + o.cardinality > ARRAY_CONTAINER_MAX_SIZE) {
+				return toBitmap().or(o);
+			}
+			
+			char[] result = new char[cardinality + o.cardinality];
+			int i = 0, j = 0, k = 0;
+			while (i < cardinality && j < o.cardinality) {
+				if (values[i] < o.values[j]) {
+					result[k++] = values[i++];
+				} else if (o.values[j] < values[i]) {
+					result[k++] = o.values[j++];
+				} else {
+					result[k++] = values[i++];
+					j++;
+				}
+			}
+			while (i < cardinality) {
+				result[k++] = values[i++];
+			}
+			while (j < o.cardinality) {
+				result[k++] = o.values[j++];
+			}
+			return new ArrayContainer(result, k);
+		}
+		
+		@Override
+		public Container and(Container other) {
+			char[] result = new char[cardinality];
+			int k = 0;
+			if (other instanceof BitmapContainer) {
+				for (int i = 0; i < cardinality; i++) {
+					if (other.contains(values[i])) {
+						result[k++] = values[i];
+					}
+				}
+			} else {
+				ArrayContainer o = (ArrayContainer) other;
+				int i = 0, j = 0;
+				while (i < cardinality && j < o.cardinality) {
+					if (values[i] < o.values[j]) {
+						i++;
+					} else if (o.values[j] < values[i]) {
+						j++;
+					} else {
+						result[k++] = values[i++];
+						j++;
+					}
+				}
+			}
+			return new ArrayContainer(result, k);
+		}
+		
+		@Override
+		public Container andNot(Container other) {
+			char[] result = new char[cardinality];
+			int k = 0;
+			if (other instanceof BitmapContainer) {
+				for (int i = 0; i < cardinality; i++) {
+					if (!other.contains(values[i])) {
+						result[k++] = values[i];
+					}
+				}
+			} else {
+				ArrayContainer o = (ArrayContainer) other;
+				int i = 0, j = 0;
+				while (i < cardinality) {
+					if (j >= o.cardinality || values[i] < o.values[j]) {
+						result[k++] = values[i++];
+					} else if (o.values[j] < values[i]) {
+						j++;
+					} else {
+						i++;
+						j++;
+					}
+				}
+			}
+			return new ArrayContainer(result, k);
+		}
+		
+		@Override
+		public Container copy() {
+			return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+		}
+		
+		@Override
+		public int seek(int low) {
+			int index = Arrays.binarySearch(values, 0, cardinality, (char) low);
+			if (index < 0) {
+				index = -index - 1;
+			}
+			return index < cardinality ? index : -1;
+		}
+		
+		@Override
+		public int nextPosition(int position) {
+			return position + 1 < cardinality ? position + 1 : -1;
+		}
+		
+		@Override
+		public int valueAt(int position) {
+			return values[position];
+		}
+		
+		@Override
+		public long getSizeInBytes() {
+			return values.length * 2L;
+		}
+		
+		private BitmapContainer toBitmap() {
+			BitmapContainer bitmap = new BitmapContainer();
+			for (int i = 0; i < cardinality; i++) {
+				bitmap.set(values[i]);
+			}
+			return bitmap;
+		}
+	}
+	
+	/**
+	 * Stores the values of a dense group as a bitmap of all 65536 possible values
+	 */
+	private static class BitmapContainer extends Container {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final long[] words;
+		
+		private int cardinality;
+		
+		public BitmapContainer() {
+			this(new long[1024], 0);
+		}
+		
+		public BitmapContainer(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+		
+		@Override
+		public int cardinality() {
+			return cardinality;
+		}
+		
+		@Override
+		public boolean contains(int low) {
+			return (words[low >>> 6] & (1L << low)) != 0;
+		}
+		
+		private void set(int low) {
+			if (!contains(low)) {
+				words[low >>> 6] |= 1L << low;
+				cardinality++;
+			}
+		}
+		
+		@Override
+		public Container add(int low) {
+			set(low);
+			return this;
+		}
+		
+		@Override
+		public Container remove(int low) {
+			if (contains(low)) {
+				words[low >>> 6] &= ~(1L << low);
+				cardinality--;
+			}
+			// only go back to an array well below the limit so that values added and removed
+			// around it don't convert the container every time
+			return cardinality < ARRAY_CONTAINER_MAX_SIZE / 2 ? toArray() : this;
+		}
+		
+		@Override
+		public Container or(Container other) {
+			BitmapContainer result = (BitmapContainer) copy();
+			if (other instanceof BitmapContainer) {
+				long[] otherWords = ((BitmapContainer) other).words;
+				int count = 0;
+				for (int i = 0; i < words.length; i++) {
+					result.words[i] |= otherWords[i];
+					count += Long.bitCount(result.words[i]);
+				}
+				result.cardinality = count;
+			} else {
+				ArrayContainer o = (ArrayContainer) other;
+				for (int i = 0; i < o.cardinality; i++) {
+					result.set(o.values[i]);
+				}
+			}
+			return result;
+		}
+		
+		@Override
+		public Container and(Container other) {
+			if (other instanceof ArrayContainer) {
+				return other.and(this);
+			}
+			
+			long[] otherWords = ((BitmapContainer) other).words;
+			long[] result = new long[words.length];
+			int count = 0;
+			for (int i = 0; i < words.length; i++) {
+				result[i] = words[i] & otherWords[i];
+				count += Long.bitCount(result[i]);
+			}
+			return new BitmapContainer(result, count).optimize();
+		}
+		
+		@Override
+		public Container andNot(Container other) {
+			long[] result = words.clone();
+			int count = cardinality;
+			if (other instanceof BitmapContainer) {
+				long[] otherWords = ((BitmapContainer) other).words;
+				count = 0;
+				for (int i = 0; i < words.length; i++) {
+					result[i] &= ~otherWords[i];
+					count += Long.bitCount(result[i]);
+				}
+			} else {
+				ArrayContainer o = (ArrayContainer) other;
+				for (int i = 0; i < o.cardinality; i++) {
+					int low = o.values[i];
+					if ((result[low >>> 6] & (1L << low)) != 0) {
+						result[low >>> 6] &= ~(1L << low);
+						count--;
+					}
+				}
+			}
+			return new BitmapContainer(result, count).optimize();
+		}
+		
+		@Override
+		public Container copy() {
+			return new BitmapContainer(words.clone(), cardinality);
+		}
+		
+		@Override
+		public int seek(int low) {
+			int index = low >>> 6;
+			long word = words[index] & (-1L << low);
+			while (true) {
+				if (word != 0) {
+					return index * 64 + Long.numberOfTrailingZeros(word);
+				}
+				if (++index == words.length) {
+					return -1;
+				}
+				word = words[index];
+			}
+		}
+		
+		@Override
+		public int nextPosition(int position) {
+			return position + 1 > 0xFFFF ? -1 : seek(position + 1);
+		}
+		
+		@Override
+		public int valueAt(int position) {
+			return position;
+		}
+		
+		@Override
+		public long getSizeInBytes() {
+			return words.length * 8L;
+		}
+		
+		/**
+		 * @return this container or an array container with the same values if it is sparse enough
+		 */
+		private Container optimize() {
+			return cardinality <= ARRAY_CONTAINER_MAX_SIZE ? toArray() : this;
+		}
+		
+		private ArrayContainer toArray() {
+			char[] values = new char[Math.max(cardinality, 4)];
+			int k = 0;
+			for (int position = seek(0); position >= 0; position = nextPosition(position)) {
+				values[k++] = (char) position;
+			}
+			return new ArrayContainer(values, k);
+		}
+	}
+}
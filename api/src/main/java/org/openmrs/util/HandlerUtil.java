@@ -14,26 +14,63 @@
 package org.openmrs.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.annotation.Handler;
 import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
 
 /**
  * Utility class that provides useful methods for working with classes that are annotated with the
  * {@link Handler} annotation
+ * <p>
+ * The handlers found for a handler type and supported type are cached, the cache is cleared
+ * whenever the Spring application context is refreshed and when a module is started or stopped.
  * 
  * @since 1.5
  */
-public class HandlerUtil {
+@Component
+public class HandlerUtil implements ApplicationListener<ContextRefreshedEvent> {
 	
 	private static Log log = LogFactory.getLog(HandlerUtil.class);
 	
+	/**
+	 * The ordered handlers by handler type and supported type. The map is replaced rather than
+	 * cleared so that handlers looked up from an outdated context are never added to the new one.
+	 */
+	private static volatile ConcurrentMap<List<Class<?>>, List<?>> cachedHandlers =
+	        new ConcurrentHashMap<List<Class<?>>, List<?>>();
+	
+	/**
+	 * Clears the cached handlers when the application context is refreshed
+	 * 
+	 * @see org.springframework.context.ApplicationListener#onApplicationEvent(org.springframework.context.ApplicationEvent)
+	 */
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		clearCachedHandlers();
+	}
+	
+	/**
+	 * Clears the cached handlers so that they are looked up again from the registered components,
+	 * this needs to be called whenever the registered components change
+	 * 
+	 * @since 1.12
+	 */
+	public static void clearCachedHandlers() {
+		cachedHandlers = new ConcurrentHashMap<List<Class<?>>, List<?>>();
+	}
+	
 	/**
 	 * Retrieves a List of all registered components from the Context that are of the passed
 	 * handlerType and one or more of the following is true:
@@ -50,8 +87,26 @@ public class HandlerUtil {
 	 * @should return a list of all classes that can handle the passed type
 	 * @should return classes registered in a module
 	 * @should return an empty list if no classes can handle the passed type
+	 * @should not be affected by changes to previously returned lists
 	 */
+	@SuppressWarnings("unchecked")
 	public static <H, T> List<H> getHandlersForType(Class<H> handlerType, Class<T> type) {
+		ConcurrentMap<List<Class<?>>, List<?>> cache = cachedHandlers;
+		List<Class<?>> key = Arrays.<Class<?>> asList(handlerType, type);
+		List<H> handlers = (List<H>) cache.get(key);
+		if (handlers == null) {
+			handlers = findHandlersForType(handlerType, type);
+			cache.put(key, handlers);
+		}
+		
+		return new ArrayList<H>(handlers);
+	}
+	
+	/**
+	 * Looks up the handlers for {@link #getHandlersForType(Class, Class)} from the registered
+	 * components
+	 */
+	private static <H, T> List<H> findHandlersForType(Class<H> handlerType, Class<T> type) {
 		
 		List<H> handlers = new ArrayList<H>();
 		
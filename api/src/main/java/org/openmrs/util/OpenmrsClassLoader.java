@@ -42,7 +42,7 @@ import org.apache.commons.logging.LogFactory;
 import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.ModuleClassLoader;
-import org.openmrs.module.ModuleFactory;
+import org.openmrs.module.ModuleClassLoaderIndex;
 import org.openmrs.module.ModuleUtil;
 import org.openmrs.scheduler.SchedulerException;
 import org.openmrs.scheduler.SchedulerService;
@@ -124,33 +124,31 @@ public class OpenmrsClassLoader extends URLClassLoader {
 	 */
 	@Override
 	public Class<?> loadClass(String name, final boolean resolve) throws ClassNotFoundException {
-		for (ModuleClassLoader classLoader : ModuleFactory.getModuleClassLoaders()) {
-			// this is to prevent unnecessary looping over providedPackages
-			boolean tryToLoad = name.startsWith(classLoader.getModule().getPackageName() + ".");
-			
-			// the given class name doesn't match the config.xml package in this module,
-			// check the "providedPackage" list to see if its in a lib
-			if (!tryToLoad) {
-				
-				for (String providedPackage : classLoader.getAdditionalPackages()) {
-					// break out early if we match a package
-					if (name.startsWith(providedPackage + ".")) {
-						tryToLoad = true;
-						break;
-					}
-				}
+		long start = System.nanoTime();
+		try {
+			return loadClassFromModulesOrParent(name);
+		}
+		finally {
+			ModuleClassLoaderIndex.classLookupDone(start);
+		}
+	}
+	
+	private Class<?> loadClassFromModulesOrParent(String name) throws ClassNotFoundException {
+		ModuleClassLoaderIndex index = ModuleClassLoaderIndex.getInstance();
+		if (index.isMissingClass(name)) {
+			throw new ClassNotFoundException(name);
+		}
+		
+		// only the modules providing the package of the class or a package above it are asked
+		for (ModuleClassLoader classLoader : index.getClassLoadersForClass(name)) {
+			try {
+				//if (classLoader.isLoadingFromParent() == false)
+				Class<?> c = classLoader.loadClass(name);
+				loadedClasses.add(c);
+				return c;
 			}
-			
-			if (tryToLoad) {
-				try {
-					//if (classLoader.isLoadingFromParent() == false)
-					Class<?> c = classLoader.loadClass(name);
-					loadedClasses.add(c);
-					return c;
-				}
-				catch (ClassNotFoundException e) {
-					//log.debug("Didn't find entry for: " + name);
-				}
+			catch (ClassNotFoundException e) {
+				//log.debug("Didn't find entry for: " + name);
 			}
 		}
 		
@@ -175,6 +173,7 @@ public class OpenmrsClassLoader extends URLClassLoader {
 			ex = e;
 		}
 		
+		index.addMissingClass(name);
 		throw ex;
 	}
 	
@@ -187,23 +186,37 @@ public class OpenmrsClassLoader extends URLClassLoader {
 			log.trace("finding resource: " + name);
 		}
 		
-		URL result;
-		for (ModuleClassLoader classLoader : ModuleFactory.getModuleClassLoaders()) {
-			result = classLoader.findResource(name);
-			if (result != null) {
-				return result;
+		long start = System.nanoTime();
+		try {
+			ModuleClassLoaderIndex index = ModuleClassLoaderIndex.getInstance();
+			if (index.isMissingResource(name)) {
+				return null;
 			}
+			
+			URL result;
+			for (ModuleClassLoader classLoader : index.getClassLoadersForResource(name)) {
+				result = classLoader.findResource(name);
+				if (result != null) {
+					return result;
+				}
+			}
+			
+			// look for the resource in the parent
+			result = super.findResource(name);
+			
+			// expand the jar url if necessary
+			if (result != null && result.getProtocol().equals("jar") && name.contains("openmrs")) {
+				result = expandURL(result, getLibCacheFolder());
+			}
+			
+			if (result == null) {
+				index.addMissingResource(name);
+			}
+			return result;
 		}
-		
-		// look for the resource in the parent
-		result = super.findResource(name);
-		
-		// expand the jar url if necessary
-		if (result != null && result.getProtocol().equals("jar") && name.contains("openmrs")) {
-			result = expandURL(result, getLibCacheFolder());
+		finally {
+			ModuleClassLoaderIndex.resourceLookupDone(start);
 		}
-		
-		return result;
 	}
 	
 	/**
@@ -212,7 +225,7 @@ public class OpenmrsClassLoader extends URLClassLoader {
 	@Override
 	public Enumeration<URL> findResources(final String name) throws IOException {
 		Set<URI> results = new HashSet<URI>();
-		for (ModuleClassLoader classLoader : ModuleFactory.getModuleClassLoaders()) {
+		for (ModuleClassLoader classLoader : ModuleClassLoaderIndex.getInstance().getClassLoadersForResource(name)) {
 			Enumeration<URL> urls = classLoader.findResources(name);
 			while (urls.hasMoreElements()) {
 				URL result = urls.nextElement();
@@ -256,7 +269,7 @@ public class OpenmrsClassLoader extends URLClassLoader {
 	 */
 	@Override
 	public InputStream getResourceAsStream(String file) {
-		for (ModuleClassLoader classLoader : ModuleFactory.getModuleClassLoaders()) {
+		for (ModuleClassLoader classLoader : ModuleClassLoaderIndex.getInstance().getClassLoadersForResource(file)) {
 			InputStream result = classLoader.getResourceAsStream(file);
 			if (result != null) {
 				return result;
@@ -274,7 +287,7 @@ public class OpenmrsClassLoader extends URLClassLoader {
 	@Override
 	public Enumeration<URL> getResources(String packageName) throws IOException {
 		Set<URI> results = new HashSet<URI>();
-		for (ModuleClassLoader classLoader : ModuleFactory.getModuleClassLoaders()) {
+		for (ModuleClassLoader classLoader : ModuleClassLoaderIndex.getInstance().getClassLoadersForResource(packageName)) {
 			Enumeration<URL> urls = classLoader.getResources(packageName);
 			while (urls.hasMoreElements()) {
 				URL result = urls.nextElement();
@@ -372,6 +385,8 @@ public class OpenmrsClassLoader extends URLClassLoader {
 		
 		OpenmrsClassScanner.destroyInstance();
 		
+		ModuleClassLoaderIndex.invalidate();
+		
 		OpenmrsClassLoaderHolder.INSTANCE = null;
 	}
 	
@@ -223,6 +223,22 @@ public final class OpenmrsConstants {
 	 */
 	public static String AUTO_UPDATE_DATABASE_RUNTIME_PROPERTY = "auto_update_database";
 	
+	/**
+	 * The prefix of the runtime properties that a user can set to change the maximum number of
+	 * elements kept in memory by a second level cache region, e.g.
+	 * <code>cache.region.org.openmrs.Concept.maxElementsInMemory=20000</code>
+	 * 
+	 * @see #CACHE_REGION_MAX_ELEMENTS_RUNTIME_PROPERTY_SUFFIX
+	 * @since 1.12
+	 */
+	public static final String CACHE_REGION_RUNTIME_PROPERTY_PREFIX = "cache.region.";
+	
+	/**
+	 * @see #CACHE_REGION_RUNTIME_PROPERTY_PREFIX
+	 * @since 1.12
+	 */
+	public static final String CACHE_REGION_MAX_ELEMENTS_RUNTIME_PROPERTY_SUFFIX = ".maxElementsInMemory";
+	
 	/**
 	 * These words are ignored in concept and patient searches
 	 * 
@@ -850,6 +866,20 @@ public final class OpenmrsConstants {
 	
 	public static final String GLOBAL_PROPERTY_IGNORE_MISSING_NONLOCAL_PATIENTS = "hl7_processor.ignore_missing_patient_non_local";
 	
+	/**
+	 * Global property name for the number of worker threads used to process the hl7 inbound queue
+	 * 
+	 * @since 1.12
+	 */
+	public static final String GP_HL7_PROCESSOR_WORKERS = "hl7_processor.workers";
+	
+	/**
+	 * Global property name for the number of hl7 inbound queue entries claimed per batch
+	 * 
+	 * @since 1.12
+	 */
+	public static final String GP_HL7_PROCESSOR_BATCH_SIZE = "hl7_processor.batchSize";
+	
 	public static final String GLOBAL_PROPERTY_TRUE_CONCEPT = "concept.true";
 	
 	public static final String GLOBAL_PROPERTY_FALSE_CONCEPT = "concept.false";
@@ -1088,7 +1118,56 @@ public final class OpenmrsConstants {
 	 * 
 	 * @since 1.11
 	 */
-	public static final Integer SEARCH_INDEX_VERSION = 2;
+	public static final Integer SEARCH_INDEX_VERSION = 5;
+	
+	/**
+	 * @since 1.12
+	 */
+	public static final String GP_SEARCH_REBUILD_INDEX_AT_STARTUP = "search.rebuildIndexAtStartup";
+	
+	/**
+	 * @since 1.12
+	 */
+	public static final String GP_PATIENT_SEARCH_USE_INDEX = "patientSearch.useSearchIndex";
+	
+	/**
+	 * @since 1.12
+	 */
+	public static final String GP_SEARCH_INDEXER_THREADS = "search.indexerThreads";
+	
+	/**
+	 * @since 1.12
+	 */
+	public static final String GP_CONCEPT_INDEX_UPDATED_UNTIL = "search.conceptIndexUpdatedUntil";
+	
+	/**
+	 * @since 1.12
+	 */
+	public static final String GP_CONCEPT_SEARCH_USE_EDGE_NGRAMS = "search.conceptUseEdgeNGrams";
+	
+	/**
+	 * Global property name for whether the obs summary table has been built from all obs, so that
+	 * the most recent obs of a concept can be looked up in it
+	 * 
+	 * @since 1.12
+	 */
+	public static final String GP_OBS_SUMMARY_BUILT = "obs.summaryBuilt";
+	
+	/**
+	 * Global property name for the minimum score, between 0 and 1, of two patients sharing a
+	 * blocking key to be saved as likely duplicates by the Find Duplicate Patients Task
+	 * 
+	 * @since 1.12
+	 */
+	public static final String GP_DUPLICATE_PATIENTS_MINIMUM_SCORE = "patient.duplicatesMinimumScore";
+	
+	/**
+	 * Global property name for the id of the last patient compared by the Find Duplicate Patients
+	 * Task, the next run resumes after it
+	 * 
+	 * @since 1.12
+	 */
+	public static final String GP_DUPLICATE_PATIENTS_LAST_PATIENT_ID = "patient.duplicatesLastPatientId";
 	
 	/**
 	 * At OpenMRS startup these global properties/default values/descriptions are inserted into the
@@ -1421,6 +1500,13 @@ public final class OpenmrsConstants {
 		        "If true, hl7 messages for patients that are not found and are non-local will silently be dropped/ignored",
 		        BooleanDatatype.class, null));
 		
+		props.add(new GlobalProperty(GP_HL7_PROCESSOR_WORKERS, "1",
+		        "The number of worker threads used to process the hl7 inbound queue. Messages for the same patient "
+		                + "are always processed in the order they were received by the same worker"));
+		
+		props.add(new GlobalProperty(GP_HL7_PROCESSOR_BATCH_SIZE, "100",
+		        "The number of hl7 inbound queue entries claimed at a time and divided among the hl7 processor workers"));
+		
 		props
 		        .add(new GlobalProperty(
 		                GLOBAL_PROPERTY_SHOW_PATIENT_NAME,
@@ -1545,6 +1631,39 @@ public final class OpenmrsConstants {
 		props.add(new GlobalProperty(GP_SEARCH_INDEX_VERSION, "",
 		        "Indicates the index version. If it is blank, the index needs to be rebuilt."));
 		
+		props.add(new GlobalProperty(GP_SEARCH_REBUILD_INDEX_AT_STARTUP, "false",
+		        "true/false whether or not to rebuild the whole search index every time OpenMRS starts",
+		        BooleanDatatype.class, null));
+		
+		props.add(new GlobalProperty(GP_PATIENT_SEARCH_USE_INDEX, "false",
+		        "true/false whether or not to look up patients by name, identifier and searchable attributes in the "
+		                + "search index instead of the database tables", BooleanDatatype.class, null));
+		
+		props.add(new GlobalProperty(GP_SEARCH_INDEXER_THREADS, "",
+		        "The number of threads that load the objects to index when the search index is rebuilt. "
+		                + "If it is blank, the number of processors is used."));
+		
+		props.add(new GlobalProperty(GP_CONCEPT_INDEX_UPDATED_UNTIL, "",
+		        "The time up to which concept changes have been applied to the search index (yyyy-MM-dd HH:mm:ss.SSS). "
+		                + "It is set when the concept index is rebuilt or updated incrementally."));
+		
+		props.add(new GlobalProperty(GP_CONCEPT_SEARCH_USE_EDGE_NGRAMS, "false",
+		        "true/false whether or not to match the beginnings of words in concept names against their indexed "
+		                + "edge n-grams instead of expanding a wildcard query", BooleanDatatype.class, null));
+		
+		props.add(new GlobalProperty(GP_OBS_SUMMARY_BUILT, "false",
+		        "true/false whether or not the obs_summary table with the first and most recent obs of each person and "
+		                + "concept has been built. It is set by the Rebuild Obs Summary Task, and the most recent obs "
+		                + "are only looked up in the table while it is true", BooleanDatatype.class, null));
+		
+		props.add(new GlobalProperty(GP_DUPLICATE_PATIENTS_MINIMUM_SCORE, "0.6",
+		        "The minimum score, between 0 and 1, of two patients that share a blocking key to be saved as likely "
+		                + "duplicates by the Find Duplicate Patients Task"));
+		
+		props.add(new GlobalProperty(GP_DUPLICATE_PATIENTS_LAST_PATIENT_ID, "0",
+		        "The id of the last patient compared by the Find Duplicate Patients Task. The next run resumes after it, "
+		                + "it is reset to 0 when all patients have been compared"));
+		
 		props.add(new GlobalProperty(GLOBAL_PROPERTY_ALLOW_OVERLAPPING_VISITS, "true",
 		        "true/false whether or not to allow visits of a given patient to overlap", BooleanDatatype.class, null));
 		
@@ -1830,6 +1949,13 @@ public final class OpenmrsConstants {
 	
 	public static final String TEXT_VIEW = "TEXT_VIEW";
 	
+	/**
+	 * A small version of an image, see {@link org.openmrs.obs.handler.ImageHandler}
+	 *
+	 * @since 1.12
+	 */
+	public static final String THUMBNAIL_VIEW = "THUMBNAIL_VIEW";
+	
 	/** The data type to return on failing to load a custom data type. */
 	public static final String DEFAULT_CUSTOM_DATATYPE = FreeTextDatatype.class.getName();
 	
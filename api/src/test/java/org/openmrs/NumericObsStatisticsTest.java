@@ -0,0 +1,68 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class NumericObsStatisticsTest {
+	
+	/**
+	 * @see NumericObsStatistics#getPercentile(double)
+	 * @verifies return the minimum and maximum for zero and one
+	 */
+	@Test
+	public void getPercentile_shouldReturnTheMinimumAndMaximumForZeroAndOne() throws Exception {
+		NumericObsStatistics stats = new NumericObsStatistics(4, 0.0, 10.0, 5.0, new long[] { 1, 1, 1, 1 });
+		
+		assertEquals(0.0, stats.getPercentile(0), 0);
+		assertEquals(10.0, stats.getPercentile(1), 0);
+	}
+	
+	/**
+	 * @see NumericObsStatistics#getPercentile(double)
+	 * @verifies interpolate within the bucket of the percentile
+	 */
+	@Test
+	public void getPercentile_shouldInterpolateWithinTheBucketOfThePercentile() throws Exception {
+		// buckets of width 2.5, half of the values in the second one
+		NumericObsStatistics stats = new NumericObsStatistics(8, 0.0, 10.0, 5.0, new long[] { 2, 4, 1, 1 });
+		
+		assertEquals(2.5, stats.getPercentile(0.25), 0.0001);
+		assertEquals(3.75, stats.getPercentile(0.5), 0.0001);
+		assertEquals(8.75, stats.getPercentile(0.9375), 0.0001);
+	}
+	
+	/**
+	 * @see NumericObsStatistics#getPercentile(double)
+	 * @verifies return the value if all values are equal
+	 */
+	@Test
+	public void getPercentile_shouldReturnTheValueIfAllValuesAreEqual() throws Exception {
+		NumericObsStatistics stats = new NumericObsStatistics(3, 7.0, 7.0, 7.0, new long[] { 3, 0 });
+		
+		assertEquals(7.0, stats.getPercentile(0.5), 0);
+	}
+	
+	/**
+	 * @see NumericObsStatistics#getPercentile(double)
+	 * @verifies return null if there are no values
+	 */
+	@Test
+	public void getPercentile_shouldReturnNullIfThereAreNoValues() throws Exception {
+		assertNull(new NumericObsStatistics(0, null, null, null, null).getPercentile(0.5));
+	}
+}
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -800,4 +801,93 @@ public class AdministrationServiceTest extends BaseContextSensitiveTest {
 		BindException errors = new BindException(new Object(), "");
 		Context.getAdministrationService().validate(null, errors);
 	}
+	
+	/**
+	 * @see AdministrationService#getGlobalProperty(String)
+	 * @verifies return the new value after the property is saved
+	 */
+	@Test
+	public void getGlobalProperty_shouldReturnTheNewValueAfterThePropertyIsSaved() throws Exception {
+		executeDataSet(ADMIN_INITIAL_DATA_XML);
+		assertEquals("correct-value", adminService.getGlobalProperty("a_valid_gp_key"));
+		
+		GlobalProperty gp = adminService.getGlobalPropertyObject("a_valid_gp_key");
+		gp.setPropertyValue("new-value");
+		adminService.saveGlobalProperty(gp);
+		assertEquals("new-value", adminService.getGlobalProperty("a_valid_gp_key"));
+		
+		adminService.setGlobalProperty("A_VALID_GP_KEY", "newer-value");
+		assertEquals("newer-value", adminService.getGlobalProperty("a_valid_gp_key"));
+	}
+	
+	/**
+	 * @see AdministrationService#getGlobalProperty(String)
+	 * @verifies return null after the property is purged
+	 */
+	@Test
+	public void getGlobalProperty_shouldReturnNullAfterThePropertyIsPurged() throws Exception {
+		executeDataSet(ADMIN_INITIAL_DATA_XML);
+		assertEquals("correct-value", adminService.getGlobalProperty("a_valid_gp_key"));
+		
+		adminService.purgeGlobalProperty(adminService.getGlobalPropertyObject("a_valid_gp_key"));
+		assertNull(adminService.getGlobalProperty("a_valid_gp_key"));
+	}
+	
+	/**
+	 * @see AdministrationService#refreshGlobalPropertyCache()
+	 * @verifies pick up changes made directly in the database
+	 */
+	@Test
+	public void refreshGlobalPropertyCache_shouldPickUpChangesMadeDirectlyInTheDatabase() throws Exception {
+		executeDataSet(ADMIN_INITIAL_DATA_XML);
+		assertEquals("correct-value", adminService.getGlobalProperty("a_valid_gp_key"));
+		assertNull(adminService.getGlobalProperty("a_new_gp_key"));
+		
+		getConnection().createStatement().executeUpdate(
+		    "update global_property set property_value = 'changed-value' where property = 'a_valid_gp_key'");
+		getConnection().createStatement().executeUpdate(
+		    "insert into global_property (property, property_value, uuid) values ('a_new_gp_key', 'new-value', "
+		            + "'1f4cbe0b-2c5c-4c0b-b5b7-f8b9bd7c6c1e')");
+		Context.clearSession();
+		
+		adminService.refreshGlobalPropertyCache();
+		assertEquals("changed-value", adminService.getGlobalProperty("a_valid_gp_key"));
+		assertEquals("new-value", adminService.getGlobalProperty("a_new_gp_key"));
+	}
+	
+	/**
+	 * @see AdministrationService#refreshGlobalPropertyCache(String)
+	 * @verifies pick up a change made directly in the database to the given property
+	 */
+	@Test
+	public void refreshGlobalPropertyCache_shouldPickUpAChangeMadeDirectlyInTheDatabaseToTheGivenProperty()
+	        throws Exception {
+		executeDataSet(ADMIN_INITIAL_DATA_XML);
+		assertEquals("correct-value", adminService.getGlobalProperty("a_valid_gp_key"));
+		
+		getConnection().createStatement().executeUpdate(
+		    "update global_property set property_value = 'changed-value' where property = 'a_valid_gp_key'");
+		Context.clearSession();
+		
+		adminService.refreshGlobalPropertyCache("A_Valid_Gp_Key");
+		assertEquals("changed-value", adminService.getGlobalProperty("a_valid_gp_key"));
+	}
+	
+	/**
+	 * @see AdministrationService#getCacheStatistics()
+	 * @verifies return the summary and the statistics of each cache region
+	 */
+	@Test
+	public void getCacheStatistics_shouldReturnTheSummaryAndTheStatisticsOfEachCacheRegion() throws Exception {
+		Context.getEncounterService().getAllEncounterTypes();
+		
+		Map<String, Map<String, String>> cacheStatistics = adminService.getCacheStatistics();
+		Assert.assertTrue(cacheStatistics.get("CacheStatistics.title.summary").containsKey(
+		    "CacheStatistics.secondLevelCache.hitCount"));
+		
+		Map<String, String> encounterTypeRegion = cacheStatistics.get("org.openmrs.EncounterType");
+		Assert.assertNotNull(encounterTypeRegion);
+		Assert.assertTrue(Long.valueOf(encounterTypeRegion.get("CacheStatistics.elementCountInMemory")) > 0);
+		Assert.assertTrue(cacheStatistics.containsKey("org.openmrs.Concept.names"));
+	}
 }
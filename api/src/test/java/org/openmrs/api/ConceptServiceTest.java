@@ -15,6 +15,7 @@ package org.openmrs.api;
 
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.is;
@@ -29,6 +30,7 @@ import static org.openmrs.test.OpenmrsMatchers.hasId;
 import static org.openmrs.test.OpenmrsMatchers.hasConcept;
 import static org.openmrs.test.TestUtil.containsId;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -38,6 +40,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -64,6 +67,7 @@ import org.openmrs.ConceptProposal;
 import org.openmrs.ConceptReferenceTerm;
 import org.openmrs.ConceptSearchResult;
 import org.openmrs.ConceptSet;
+import org.openmrs.ConceptSnapshot;
 import org.openmrs.ConceptSource;
 import org.openmrs.ConceptStopWord;
 import org.openmrs.Drug;
@@ -3244,4 +3248,388 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 		
 		assertThat(concepts, contains(hasConcept(is(mdrTbProgram)), hasConcept(is(hivProgram))));
 	}
+	
+	/**
+	 * @see ConceptService#getConceptSnapshot(Integer)
+	 * @verifies return the names, answers and set members of the concept
+	 */
+	@Test
+	public void getConceptSnapshot_shouldReturnTheNamesAnswersAndSetMembersOfTheConcept() throws Exception {
+		ConceptSnapshot cd4Count = conceptService.getConceptSnapshot(5497);
+		assertEquals("CD4 COUNT", cd4Count.getName(Locale.ENGLISH));
+		assertEquals("CD4 COUNT", cd4Count.getFullySpecifiedName(Locale.UK));
+		assertEquals("CD4", cd4Count.getShortName(Locale.ENGLISH));
+		assertEquals(conceptService.getConcept(5497).getUuid(), cd4Count.getUuid());
+		
+		int[] answerIds = conceptService.getConceptSnapshot(21).getAnswerConceptIds();
+		Arrays.sort(answerIds);
+		assertTrue(Arrays.equals(new int[] { 7, 8, 22 }, answerIds));
+		
+		ConceptSnapshot foodConstruct = conceptService.getConceptSnapshot(23);
+		assertTrue(foodConstruct.isSet());
+		assertTrue(Arrays.equals(new int[] { 18, 20, 19 }, foodConstruct.getSetMemberIds()));
+	}
+	
+	/**
+	 * @see ConceptService#getConceptSnapshot(Integer)
+	 * @verifies return null if there is no concept with the given id
+	 */
+	@Test
+	public void getConceptSnapshot_shouldReturnNullIfThereIsNoConceptWithTheGivenId() throws Exception {
+		assertNull(conceptService.getConceptSnapshot(999999));
+	}
+	
+	/**
+	 * @see ConceptService#getConceptSnapshot(Integer)
+	 * @verifies return the changed names after the concept is saved
+	 */
+	@Test
+	public void getConceptSnapshot_shouldReturnTheChangedNamesAfterTheConceptIsSaved() throws Exception {
+		assertEquals("CD4 COUNT", conceptService.getConceptSnapshot(5497).getName(Locale.ENGLISH));
+		
+		Concept concept = conceptService.getConcept(5497);
+		concept.getFullySpecifiedName(Locale.ENGLISH).setName("CD4 COUNT CHANGED");
+		conceptService.saveConcept(concept);
+		
+		assertEquals("CD4 COUNT CHANGED", conceptService.getConceptSnapshot(5497).getName(Locale.ENGLISH));
+	}
+	
+	/**
+	 * @see ConceptService#getConceptsByMappings(Collection,String,boolean)
+	 * @verifies get the concepts with the given codes and source name or hl7 code
+	 */
+	@Test
+	public void getConceptsByMappings_shouldGetTheConceptsWithTheGivenCodesAndSourceNameOrHl7Code() throws Exception {
+		Map<String, Concept> concepts = conceptService.getConceptsByMappings(Arrays.asList("WGT234", "CD41003"), "SSTRM",
+		    true);
+		assertEquals(2, concepts.size());
+		assertEquals(5089, concepts.get("WGT234").getConceptId().intValue());
+		assertEquals(5497, concepts.get("CD41003").getConceptId().intValue());
+		
+		concepts = conceptService.getConceptsByMappings(Arrays.asList("WGT234", "CD41003"), "Some Standardized Terminology",
+		    true);
+		assertEquals(5089, concepts.get("WGT234").getConceptId().intValue());
+		assertEquals(5497, concepts.get("CD41003").getConceptId().intValue());
+	}
+	
+	/**
+	 * @see ConceptService#getConceptsByMappings(Collection,String,boolean)
+	 * @verifies leave out the codes that are not mapped
+	 */
+	@Test
+	public void getConceptsByMappings_shouldLeaveOutTheCodesThatAreNotMapped() throws Exception {
+		Map<String, Concept> concepts = conceptService.getConceptsByMappings(Arrays.asList("WGT234", "A random concept code",
+		    "retired code"), "SSTRM", true);
+		assertEquals(1, concepts.size());
+		assertEquals(5089, concepts.get("WGT234").getConceptId().intValue());
+		
+		assertTrue(conceptService.getConceptsByMappings(Arrays.asList("WGT234"), "A random source code", true).isEmpty());
+	}
+	
+	/**
+	 * @see ConceptService#getConceptsByMappings(Collection,String,boolean)
+	 * @verifies not return retired concepts if not asked to
+	 */
+	@Test
+	public void getConceptsByMappings_shouldNotReturnRetiredConceptsIfNotAskedTo() throws Exception {
+		List<String> codes = Arrays.asList("454545", "766554");
+		
+		Map<String, Concept> concepts = conceptService.getConceptsByMappings(codes, "SSTRM", true);
+		assertEquals(24, concepts.get("454545").getConceptId().intValue());
+		assertEquals(16, concepts.get("766554").getConceptId().intValue());
+		
+		concepts = conceptService.getConceptsByMappings(codes, "SSTRM", false);
+		assertEquals(1, concepts.size());
+		assertEquals(16, concepts.get("766554").getConceptId().intValue());
+	}
+	
+	/**
+	 * @see ConceptService#getConceptsByMappings(Collection,String,boolean)
+	 * @verifies throw an exception if a code maps to two non-retired concepts
+	 */
+	@Test(expected = APIException.class)
+	public void getConceptsByMappings_shouldThrowAnExceptionIfACodeMapsToTwoNonretiredConcepts() throws Exception {
+		conceptService.getConceptsByMappings(Arrays.asList("WGT234", "127689"), "SSTRM", true);
+	}
+	
+	/**
+	 * @see ConceptService#getConceptsByMappings(Collection,String,boolean)
+	 * @verifies return a concept mapped in the current transaction
+	 */
+	@Test
+	public void getConceptsByMappings_shouldReturnAConceptMappedInTheCurrentTransaction() throws Exception {
+		List<String> codes = Arrays.asList("retired code");
+		assertTrue(conceptService.getConceptsByMappings(codes, "SSTRM", true).isEmpty());
+		
+		Concept concept = conceptService.getConcept(5497);
+		concept.addConceptMapping(new ConceptMap(conceptService.getConceptReferenceTerm(11), conceptService
+		        .getConceptMapType(2)));
+		conceptService.saveConcept(concept);
+		
+		assertEquals(concept, conceptService.getConceptsByMappings(codes, "SSTRM", true).get("retired code"));
+		assertEquals(concept, conceptService.getConceptByMapping("retired code", "SSTRM"));
+	}
+	
+	/**
+	 * @see ConceptService#refreshConceptCaches()
+	 * @verifies pick up mappings added directly in the database
+	 */
+	@Test
+	public void refreshConceptCaches_shouldPickUpMappingsAddedDirectlyInTheDatabase() throws Exception {
+		assertNull(conceptService.getConceptByMapping("retired code", "SSTRM"));
+		
+		getConnection().createStatement().executeUpdate(
+		    "insert into concept_reference_map (concept_map_id, concept_id, concept_reference_term_id, "
+		            + "concept_map_type_id, creator, date_created, uuid) values (100, 5089, 11, 2, 1, '2004-08-12', "
+		            + "'3b0e1c9c-0b1f-4f6a-9d4e-7c1c3cb5e100')");
+		conceptService.refreshConceptCaches();
+		
+		assertEquals(5089, conceptService.getConceptByMapping("retired code", "SSTRM").getConceptId().intValue());
+	}
+	
+	/**
+	 * @see ConceptService#updateChangedConceptIndexes()
+	 * @verifies update the index of the concepts changed since the last update
+	 */
+	@Test
+	public void updateChangedConceptIndexes_shouldUpdateTheIndexOfTheConceptsChangedSinceTheLastUpdate() throws Exception {
+		Context.getAdministrationService().setGlobalProperty(OpenmrsConstants.GP_CONCEPT_INDEX_UPDATED_UNTIL,
+		    "2010-01-01 00:00:00.000");
+		getConnection().createStatement().executeUpdate(
+		    "update concept_name set name = 'Zyxwvut' where concept_name_id = 1847");
+		getConnection().createStatement().executeUpdate(
+		    "update concept set date_changed = '2012-01-01 00:00:00' where concept_id = 5497");
+		assertTrue(conceptService.getConceptsByName("Zyxwvut", Locale.ENGLISH, false).isEmpty());
+		
+		conceptService.updateChangedConceptIndexes();
+		
+		List<Concept> concepts = conceptService.getConceptsByName("Zyxwvut", Locale.ENGLISH, false);
+		assertEquals(1, concepts.size());
+		assertEquals(5497, concepts.get(0).getConceptId().intValue());
+	}
+	
+	/**
+	 * @see ConceptService#updateChangedConceptIndexes()
+	 * @verifies not update the index of the concepts not changed since the last update
+	 */
+	@Test
+	public void updateChangedConceptIndexes_shouldNotUpdateTheIndexOfTheConceptsNotChangedSinceTheLastUpdate()
+	        throws Exception {
+		Context.getAdministrationService().setGlobalProperty(OpenmrsConstants.GP_CONCEPT_INDEX_UPDATED_UNTIL,
+		    "2010-01-01 00:00:00.000");
+		getConnection().createStatement().executeUpdate(
+		    "update concept_name set name = 'Zyxwvut' where concept_name_id = 1439");
+		
+		conceptService.updateChangedConceptIndexes();
+		
+		assertTrue(conceptService.getConceptsByName("Zyxwvut", Locale.ENGLISH, false).isEmpty());
+	}
+	
+	/**
+	 * @see ConceptService#updateChangedConceptIndexes()
+	 * @verifies record the time up to which the index was updated
+	 */
+	@Test
+	public void updateChangedConceptIndexes_shouldRecordTheTimeUpToWhichTheIndexWasUpdated() throws Exception {
+		Context.getAdministrationService().setGlobalProperty(OpenmrsConstants.GP_CONCEPT_INDEX_UPDATED_UNTIL,
+		    "2010-01-01 00:00:00.000");
+		Date before = new Date();
+		
+		conceptService.updateChangedConceptIndexes();
+		
+		String updatedUntil = Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_CONCEPT_INDEX_UPDATED_UNTIL);
+		assertFalse(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").parse(updatedUntil).before(before));
+	}
+	
+	/**
+	 * @see ConceptService#getConcepts(String, List, boolean, List, List, List, List, Concept, Integer,
+	 *      Integer)
+	 * @verifies return the cached results of a repeated search
+	 */
+	@Test
+	public void getConcepts_shouldReturnTheCachedResultsOfARepeatedSearch() throws Exception {
+		List<Locale> locales = Collections.singletonList(Locale.ENGLISH);
+		assertTrue(conceptService.getConcepts("Zyxwvut", locales, false, null, null, null, null, null, null, null)
+		        .isEmpty());
+		assertEquals(0, conceptService.getCountOfConcepts("Zyxwvut", locales, false, null, null, null, null, null)
+		        .intValue());
+		
+		getConnection().createStatement().executeUpdate(
+		    "update concept_name set name = 'Zyxwvut' where concept_name_id = 1847");
+		Context.updateSearchIndexForType(ConceptName.class);
+		
+		assertTrue(conceptService.getConcepts("Zyxwvut", locales, false, null, null, null, null, null, null, null)
+		        .isEmpty());
+		assertEquals(0, conceptService.getCountOfConcepts("Zyxwvut", locales, false, null, null, null, null, null)
+		        .intValue());
+		
+		conceptService.refreshConceptCaches();
+		List<ConceptSearchResult> results = conceptService.getConcepts("Zyxwvut", locales, false, null, null, null, null,
+		    null, null, null);
+		assertEquals(1, results.size());
+		assertEquals(5497, results.get(0).getConcept().getConceptId().intValue());
+		assertEquals(1, conceptService.getCountOfConcepts("Zyxwvut", locales, false, null, null, null, null, null)
+		        .intValue());
+	}
+	
+	/**
+	 * @see ConceptService#getConcepts(String, List, boolean, List, List, List, List, Concept, Integer,
+	 *      Integer)
+	 * @verifies not return cached results after a concept is saved
+	 */
+	@Test
+	public void getConcepts_shouldNotReturnCachedResultsAfterAConceptIsSaved() throws Exception {
+		List<Locale> locales = Collections.singletonList(Locale.ENGLISH);
+		assertTrue(conceptService.getConcepts("Zyxwvut", locales, false, null, null, null, null, null, null, null)
+		        .isEmpty());
+		
+		Concept concept = conceptService.getConcept(5497);
+		concept.addName(new ConceptName("Zyxwvut", Locale.ENGLISH));
+		conceptService.saveConcept(concept);
+		Context.updateSearchIndexForType(ConceptName.class);
+		
+		List<ConceptSearchResult> results = conceptService.getConcepts("Zyxwvut", locales, false, null, null, null, null,
+		    null, null, null);
+		assertEquals(1, results.size());
+		assertEquals(5497, results.get(0).getConcept().getConceptId().intValue());
+	}
+	
+	/**
+	 * @see ConceptService#getConcepts(String, List, boolean, List, List, List, List, Concept, Integer,
+	 *      Integer)
+	 * @verifies find concepts with a misspelled word
+	 */
+	@Test
+	public void getConcepts_shouldFindConceptsWithAMisspelledWord() throws Exception {
+		executeDataSet("org/openmrs/api/include/ConceptServiceTest-names.xml");
+		
+		List<ConceptSearchResult> searchResults = conceptService.getConcepts("SALBUTEMOL", Collections
+		        .singletonList(new Locale("en", "US")), false, null, null, null, null, null, null, null);
+		
+		assertFalse(searchResults.isEmpty());
+		assertThat(searchResults.get(0).getConceptName().getName(), containsString("SALBUTAMOL"));
+	}
+	
+	/**
+	 * @see ConceptService#getConcepts(String, List, boolean, List, List, List, List, Concept, Integer,
+	 *      Integer)
+	 * @verifies find concepts by the beginning of a word with edge n-grams
+	 */
+	@Test
+	public void getConcepts_shouldFindConceptsByTheBeginningOfAWordWithEdgeNGrams() throws Exception {
+		Context.getAdministrationService().setGlobalProperty(OpenmrsConstants.GP_CONCEPT_SEARCH_USE_EDGE_NGRAMS, "true");
+		
+		List<ConceptSearchResult> results = conceptService.getConcepts("CD4 COU", Collections
+		        .singletonList(Locale.ENGLISH), false, null, null, null, null, null, null, null);
+		
+		assertFalse(results.isEmpty());
+		assertEquals(5497, results.get(0).getConcept().getConceptId().intValue());
+		assertTrue(conceptService.getConcepts("CD4 COX", Collections.singletonList(Locale.ENGLISH), false, null, null,
+		    null, null, null, null, null).isEmpty());
+	}
+	
+	/**
+	 * @see ConceptService#getConceptsByConceptSet(Concept)
+	 * @verifies include members added to a subset in the current transaction
+	 */
+	@Test
+	public void getConceptsByConceptSet_shouldIncludeMembersAddedToASubsetInTheCurrentTransaction() throws Exception {
+		Concept set = conceptService.getConcept(23);
+		Concept subset = conceptService.getConcept(29);
+		assertFalse(conceptService.getConceptsByConceptSet(set).contains(subset));
+		
+		set.addSetMember(subset);
+		conceptService.saveConcept(set);
+		
+		List<Concept> members = conceptService.getConceptsByConceptSet(set);
+		assertTrue(members.contains(subset));
+		assertTrue(members.contains(conceptService.getConcept(22)));
+	}
+	
+	/**
+	 * @see ConceptService#isConceptInSet(Concept,Concept)
+	 * @verifies return true for a concept in a subset
+	 */
+	@Test
+	public void isConceptInSet_shouldReturnTrueForAConceptInASubset() throws Exception {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		
+		assertTrue(conceptService.isConceptInSet(conceptService.getConcept(6), conceptService.getConcept(1)));
+		assertTrue(conceptService.isConceptInSet(conceptService.getConcept(3), conceptService.getConcept(1)));
+	}
+	
+	/**
+	 * @see ConceptService#isConceptInSet(Concept,Concept)
+	 * @verifies return false for a concept not in the set
+	 */
+	@Test
+	public void isConceptInSet_shouldReturnFalseForAConceptNotInTheSet() throws Exception {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		
+		assertFalse(conceptService.isConceptInSet(conceptService.getConcept(2), conceptService.getConcept(3)));
+		assertFalse(conceptService.isConceptInSet(conceptService.getConcept(1), conceptService.getConcept(1)));
+	}
+	
+	/**
+	 * @see ConceptService#isConceptInSet(Concept,Concept)
+	 * @verifies return false for a concept removed from the set in the current transaction
+	 */
+	@Test
+	public void isConceptInSet_shouldReturnFalseForAConceptRemovedFromTheSetInTheCurrentTransaction() throws Exception {
+		Concept set = conceptService.getConcept(23);
+		Concept member = conceptService.getConcept(18);
+		assertTrue(conceptService.isConceptInSet(member, set));
+		
+		for (Iterator<ConceptSet> i = set.getConceptSets().iterator(); i.hasNext();) {
+			if (i.next().getConcept().equals(member)) {
+				i.remove();
+			}
+		}
+		conceptService.saveConcept(set);
+		
+		assertFalse(conceptService.isConceptInSet(member, set));
+	}
+	
+	/**
+	 * @see ConceptService#getSetsContainingConcept(Concept)
+	 * @verifies return the sets directly containing the concept
+	 */
+	@Test
+	public void getSetsContainingConcept_shouldReturnTheSetsDirectlyContainingTheConcept() throws Exception {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		
+		List<ConceptSet> conceptSets = conceptService.getSetsContainingConcept(conceptService.getConcept(6));
+		assertEquals(1, conceptSets.size());
+		assertEquals(4, conceptSets.get(0).getConceptSet().getConceptId().intValue());
+	}
+	
+	/**
+	 * @see ConceptService#getSetsContainingConcept(Concept)
+	 * @verifies return an empty list for a concept in no set
+	 */
+	@Test
+	public void getSetsContainingConcept_shouldReturnAnEmptyListForAConceptInNoSet() throws Exception {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		
+		assertTrue(conceptService.getSetsContainingConcept(conceptService.getConcept(1)).isEmpty());
+	}
+	
+	/**
+	 * @see ConceptService#getSetsContainingConcept(Concept)
+	 * @verifies return a set the concept was added to in the current transaction
+	 */
+	@Test
+	public void getSetsContainingConcept_shouldReturnASetTheConceptWasAddedToInTheCurrentTransaction() throws Exception {
+		Concept set = conceptService.getConcept(23);
+		Concept member = conceptService.getConcept(5089);
+		assertTrue(conceptService.getSetsContainingConcept(member).isEmpty());
+		
+		set.addSetMember(member);
+		conceptService.saveConcept(set);
+		
+		List<ConceptSet> conceptSets = conceptService.getSetsContainingConcept(member);
+		assertEquals(1, conceptSets.size());
+		assertEquals(set, conceptSets.get(0).getConceptSet());
+	}
 }
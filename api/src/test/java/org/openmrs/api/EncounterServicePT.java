@@ -0,0 +1,90 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api;
+
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.openmrs.Concept;
+import org.openmrs.Encounter;
+import org.openmrs.Obs;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseContextSensitiveTest;
+
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.carrotsearch.junitbenchmarks.BenchmarkRule;
+import com.carrotsearch.junitbenchmarks.annotation.BenchmarkHistoryChart;
+
+/**
+ * Performance tests for {@link EncounterService#saveEncounter(Encounter)} with a growing number of
+ * obs, which shows whether the work done by the required data advice grows linearly with the size
+ * of the encounter.
+ */
+@BenchmarkHistoryChart
+public class EncounterServicePT extends BaseContextSensitiveTest {
+	
+	@Rule
+	public TestRule benchmarkRule = new BenchmarkRule();
+	
+	@Before
+	public void runBeforeEachTest() throws Exception {
+		executeDataSet(EncounterServiceTest.ENC_INITIAL_DATA_XML);
+	}
+	
+	@Test
+	@BenchmarkOptions(warmupRounds = 5, benchmarkRounds = 20)
+	public void shouldTestSaveEncounterWith10Obs() {
+		saveEncounterWithObs(10);
+	}
+	
+	@Test
+	@BenchmarkOptions(warmupRounds = 5, benchmarkRounds = 20)
+	public void shouldTestSaveEncounterWith100Obs() {
+		saveEncounterWithObs(100);
+	}
+	
+	@Test
+	@BenchmarkOptions(warmupRounds = 2, benchmarkRounds = 10)
+	public void shouldTestSaveEncounterWith1000Obs() {
+		saveEncounterWithObs(1000);
+	}
+	
+	private void saveEncounterWithObs(int numberOfObs) {
+		EncounterService es = Context.getEncounterService();
+		
+		Encounter enc = new Encounter();
+		enc.setLocation(Context.getLocationService().getLocation(1));
+		enc.setEncounterType(es.getEncounterType(1));
+		enc.setEncounterDatetime(new Date());
+		enc.setPatient(Context.getPatientService().getPatient(3));
+		enc.addProvider(es.getEncounterRole(1), Context.getProviderService().getProvider(1));
+		
+		Concept concept = Context.getConceptService().getConcept(5089);
+		for (int i = 0; i < numberOfObs; i++) {
+			Obs obs = new Obs();
+			obs.setConcept(concept);
+			obs.setValueNumeric((double) i);
+			enc.addObs(obs);
+		}
+		
+		assertNotNull(es.saveEncounter(enc).getEncounterId());
+		Context.flushSession();
+		Context.clearSession();
+	}
+}
@@ -1466,6 +1466,56 @@ public class EncounterServiceTest extends BaseContextSensitiveTest {
 		Assert.assertEquals(4, Context.getEncounterService().getCountOfEncounters("qwerty", true).intValue());
 	}
 	
+	/**
+	 * @see {@link EncounterService#getCountOfEncounters(String,null)}
+	 */
+	@Test
+	@Verifies(value = "should not count encounters the user is not allowed to view", method = "getCountOfEncounters(String,null)")
+	public void getCountOfEncounters_shouldNotCountEncountersTheUserIsNotAllowedToView() throws Exception {
+		executeDataSet(UNIQUE_ENC_WITH_PAGING_XML);
+		EncounterService encounterService = Context.getEncounterService();
+		EncounterType encounterType = encounterService.getEncounterType(1);
+		encounterType.setViewPrivilege(Context.getUserService().getPrivilege("Some Privilege For View Encounter Types"));
+		encounterService.saveEncounterType(encounterType);
+		
+		Context.logout();
+		Context.authenticate("test_user", "test");
+		Context.addProxyPrivilege(PrivilegeConstants.GET_ENCOUNTERS);
+		try {
+			Assert.assertEquals(0, encounterService.getCountOfEncounters("qwerty", true).intValue());
+		}
+		finally {
+			Context.removeProxyPrivilege(PrivilegeConstants.GET_ENCOUNTERS);
+			Context.logout();
+		}
+	}
+	
+	/**
+	 * @see {@link EncounterService#getEncounters(String,Integer,Integer,null,null)}
+	 */
+	@Test
+	@Verifies(value = "should not return encounters the user is not allowed to view", method = "getEncounters(String,Integer,Integer,null,null)")
+	public void getEncounters_shouldNotReturnEncountersTheUserIsNotAllowedToView() throws Exception {
+		executeDataSet(UNIQUE_ENC_WITH_PAGING_XML);
+		EncounterService encounterService = Context.getEncounterService();
+		Assert.assertFalse(encounterService.getEncounters("qwerty", 0, 2, true).isEmpty());
+		
+		EncounterType encounterType = encounterService.getEncounterType(1);
+		encounterType.setViewPrivilege(Context.getUserService().getPrivilege("Some Privilege For View Encounter Types"));
+		encounterService.saveEncounterType(encounterType);
+		
+		Context.logout();
+		Context.authenticate("test_user", "test");
+		Context.addProxyPrivilege(PrivilegeConstants.GET_ENCOUNTERS);
+		try {
+			Assert.assertTrue(encounterService.getEncounters("qwerty", 0, 2, true).isEmpty());
+		}
+		finally {
+			Context.removeProxyPrivilege(PrivilegeConstants.GET_ENCOUNTERS);
+			Context.logout();
+		}
+	}
+	
 	/**
 	 * TODO see ticket https://tickets.openmrs.org/browse/TRUNK-1956 to fix this test
 	 * 
@@ -40,6 +40,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 
 import javax.imageio.ImageIO;
 
@@ -49,6 +50,7 @@ import org.openmrs.Concept;
 import org.openmrs.ConceptName;
 import org.openmrs.Encounter;
 import org.openmrs.Location;
+import org.openmrs.NumericObsStatistics;
 import org.openmrs.Obs;
 import org.openmrs.Order;
 import org.openmrs.Patient;
@@ -56,6 +58,7 @@ import org.openmrs.Person;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.ObsServiceImpl;
 import org.openmrs.obs.ComplexData;
+import org.openmrs.obs.ComplexDataFile;
 import org.openmrs.obs.ComplexObsHandler;
 import org.openmrs.obs.handler.BinaryDataHandler;
 import org.openmrs.obs.handler.ImageHandler;
@@ -1726,4 +1729,313 @@ public class ObsServiceTest extends BaseContextSensitiveTest {
 		assertEquals(obs.getPerson(), obsSaved.getEncounter().getPatient());
 	}
 	
+	/**
+	 * @see ObsService#getObservationsByPerson(Person,Integer,Integer)
+	 * @verifies return the given page of the observations of the person the most recent first
+	 */
+	@Test
+	public void getObservationsByPerson_shouldReturnTheGivenPageOfTheObservationsOfThePersonTheMostRecentFirst()
+	        throws Exception {
+		ObsService obsService = Context.getObsService();
+		
+		List<Obs> firstPage = obsService.getObservationsByPerson(new Person(7), 0, 2);
+		assertEquals(2, firstPage.size());
+		assertEquals(16, firstPage.get(0).getObsId().intValue());
+		assertEquals(15, firstPage.get(1).getObsId().intValue());
+		
+		List<Obs> secondPage = obsService.getObservationsByPerson(new Person(7), 2, 2);
+		assertEquals(2, secondPage.size());
+		assertEquals(14, secondPage.get(0).getObsId().intValue());
+		assertEquals(13, secondPage.get(1).getObsId().intValue());
+	}
+	
+	/**
+	 * @see ObsService#getLatestObservations(Person,List)
+	 * @verifies return the most recent obs for each question
+	 */
+	@Test
+	public void getLatestObservations_shouldReturnTheMostRecentObsForEachQuestion() throws Exception {
+		Concept weight = Context.getConceptService().getConcept(5089);
+		Concept height = Context.getConceptService().getConcept(5497);
+		
+		Map<Concept, Obs> latest = Context.getObsService().getLatestObservations(new Person(7),
+		    Arrays.asList(weight, height));
+		
+		assertEquals(2, latest.size());
+		assertEquals(16, latest.get(weight).getObsId().intValue());
+		assertEquals(11, latest.get(height).getObsId().intValue());
+	}
+	
+	/**
+	 * @see ObsService#getLatestObservations(Person,List)
+	 * @verifies leave out questions without obs
+	 */
+	@Test
+	public void getLatestObservations_shouldLeaveOutQuestionsWithoutObs() throws Exception {
+		Concept height = Context.getConceptService().getConcept(5497);
+		Concept withoutObs = Context.getConceptService().getConcept(3);
+		
+		Map<Concept, Obs> latest = Context.getObsService().getLatestObservations(new Person(7),
+		    Arrays.asList(height, withoutObs));
+		
+		assertEquals(1, latest.size());
+		assertFalse(latest.containsKey(withoutObs));
+	}
+	
+	/**
+	 * @see ObsService#getLatestObservations(Person,List)
+	 * @verifies ignore voided obs
+	 */
+	@Test
+	public void getLatestObservations_shouldIgnoreVoidedObs() throws Exception {
+		ObsService obsService = Context.getObsService();
+		Concept weight = Context.getConceptService().getConcept(5089);
+		obsService.voidObs(obsService.getObs(16), "testing");
+		
+		Map<Concept, Obs> latest = obsService.getLatestObservations(new Person(7), Collections.singletonList(weight));
+		
+		assertEquals(10, latest.get(weight).getObsId().intValue());
+	}
+	
+	/**
+	 * @see ObsService#rebuildObsSummaries()
+	 * @verifies build the summaries of all persons and questions
+	 */
+	@Test
+	public void rebuildObsSummaries_shouldBuildTheSummariesOfAllPersonsAndQuestions() throws Exception {
+		Context.getObsService().rebuildObsSummaries();
+		
+		List<List<Object>> rows = Context.getAdministrationService().executeSQL(
+		    "select latest_obs_id, obs_count from obs_summary where person_id = 7 and concept_id = 5089", true);
+		assertEquals(1, rows.size());
+		assertEquals(16, ((Number) rows.get(0).get(0)).intValue());
+		assertEquals(3, ((Number) rows.get(0).get(1)).intValue());
+		assertEquals("true", Context.getAdministrationService().getGlobalProperty(OpenmrsConstants.GP_OBS_SUMMARY_BUILT));
+	}
+	
+	/**
+	 * @see ObsService#rebuildObsSummaries()
+	 * @verifies let the most recent observations be read from the summaries
+	 */
+	@Test
+	public void rebuildObsSummaries_shouldLetTheMostRecentObservationsBeReadFromTheSummaries() throws Exception {
+		ObsService obsService = Context.getObsService();
+		Concept weight = Context.getConceptService().getConcept(5089);
+		obsService.rebuildObsSummaries();
+		
+		// only the summary knows about this
+		Context.getAdministrationService().executeSQL(
+		    "update obs_summary set latest_obs_id = 10 where person_id = 7 and concept_id = 5089", false);
+		
+		Map<Concept, Obs> latest = obsService.getLatestObservations(new Person(7), Collections.singletonList(weight));
+		assertEquals(10, latest.get(weight).getObsId().intValue());
+	}
+	
+	/**
+	 * @see ObsService#getNumericObsStatistics(Concept)
+	 * @verifies return the count min max and mean of the values
+	 */
+	@Test
+	public void getNumericObsStatistics_shouldReturnTheCountMinMaxAndMeanOfTheValues() throws Exception {
+		NumericObsStatistics stats = Context.getObsService().getNumericObsStatistics(
+		    Context.getConceptService().getConcept(5089));
+		
+		assertEquals(3, stats.getCount());
+		assertEquals(50.0, stats.getMin(), 0);
+		assertEquals(61.0, stats.getMax(), 0);
+		assertEquals(55.333, stats.getMean(), 0.001);
+	}
+	
+	/**
+	 * @see ObsService#getNumericObsStatistics(Concept)
+	 * @verifies approximate the median of the values
+	 */
+	@Test
+	public void getNumericObsStatistics_shouldApproximateTheMedianOfTheValues() throws Exception {
+		NumericObsStatistics stats = Context.getObsService().getNumericObsStatistics(
+		    Context.getConceptService().getConcept(5089));
+		
+		// off by at most one of the buckets between the min and max
+		assertEquals(55.0, stats.getMedian(), 0.011);
+	}
+	
+	/**
+	 * @see ObsService#getNumericObsStatistics(Concept)
+	 * @verifies ignore voided obs
+	 */
+	@Test
+	public void getNumericObsStatistics_shouldIgnoreVoidedObs() throws Exception {
+		ObsService obsService = Context.getObsService();
+		obsService.voidObs(obsService.getObs(16), "testing");
+		
+		NumericObsStatistics stats = obsService.getNumericObsStatistics(Context.getConceptService().getConcept(5089));
+		
+		assertEquals(2, stats.getCount());
+		assertEquals(55.0, stats.getMax(), 0);
+	}
+	
+	/**
+	 * @see ObsService#getNumericObsStatistics(Concept)
+	 * @verifies return a count of zero for questions without obs
+	 */
+	@Test
+	public void getNumericObsStatistics_shouldReturnACountOfZeroForQuestionsWithoutObs() throws Exception {
+		NumericObsStatistics stats = Context.getObsService().getNumericObsStatistics(
+		    Context.getConceptService().getConcept(3));
+		
+		assertEquals(0, stats.getCount());
+		assertNull(stats.getMin());
+		assertNull(stats.getMedian());
+	}
+	
+	/**
+	 * @see ObsService#getNumericObsHistogram(Concept,Double,Double,int)
+	 * @verifies count the values in each bucket
+	 */
+	@Test
+	public void getNumericObsHistogram_shouldCountTheValuesInEachBucket() throws Exception {
+		long[] buckets = Context.getObsService().getNumericObsHistogram(Context.getConceptService().getConcept(5089),
+		    50.0, 61.0, 2);
+		
+		Assert.assertArrayEquals(new long[] { 2, 1 }, buckets);
+	}
+	
+	/**
+	 * @see ObsService#getNumericObsHistogram(Concept,Double,Double,int)
+	 * @verifies not count values outside of the range
+	 */
+	@Test
+	public void getNumericObsHistogram_shouldNotCountValuesOutsideOfTheRange() throws Exception {
+		long[] buckets = Context.getObsService().getNumericObsHistogram(Context.getConceptService().getConcept(5089),
+		    52.0, 60.0, 2);
+		
+		Assert.assertArrayEquals(new long[] { 1, 0 }, buckets);
+	}
+	
+	/**
+	 * @see ObsService#getNumericObsDailyMeans(Concept)
+	 * @verifies return the mean value of each day
+	 */
+	@Test
+	public void getNumericObsDailyMeans_shouldReturnTheMeanValueOfEachDay() throws Exception {
+		SortedMap<Date, Double> means = Context.getObsService().getNumericObsDailyMeans(
+		    Context.getConceptService().getConcept(5089));
+		
+		DateFormat ymd = new SimpleDateFormat("yyyy-MM-dd");
+		assertEquals(3, means.size());
+		assertEquals(50.0, means.get(ymd.parse("2008-07-01")), 0);
+		assertEquals(55.0, means.get(ymd.parse("2008-08-15")), 0);
+		assertEquals(61.0, means.get(ymd.parse("2008-08-19")), 0);
+	}
+	
+	/**
+	 * @see ObsService#getCodedObsFrequencies(Concept)
+	 * @verifies count the obs of each answer
+	 */
+	@Test
+	public void getCodedObsFrequencies_shouldCountTheObsOfEachAnswer() throws Exception {
+		Map<Concept, Long> frequencies = Context.getObsService().getCodedObsFrequencies(
+		    Context.getConceptService().getConcept(18));
+		
+		assertEquals(1, frequencies.size());
+		assertEquals(1L, frequencies.get(Context.getConceptService().getConcept(7)).longValue());
+	}
+	
+	/**
+	 * @see ObsService#getNumericObservationsOutsideRange(Concept,Double,Double,Integer)
+	 * @verifies return the obs with a value outside of the range
+	 */
+	@Test
+	public void getNumericObservationsOutsideRange_shouldReturnTheObsWithAValueOutsideOfTheRange() throws Exception {
+		List<Obs> outside = Context.getObsService().getNumericObservationsOutsideRange(
+		    Context.getConceptService().getConcept(5089), 52.0, 60.0, null);
+		
+		assertEquals(2, outside.size());
+		assertEquals(7, outside.get(0).getObsId().intValue());
+		assertEquals(16, outside.get(1).getObsId().intValue());
+	}
+	
+	/**
+	 * @see ObsService#getComplexDataFile(Integer,String)
+	 * @verifies return the file of the complex data
+	 */
+	@Test
+	public void getComplexDataFile_shouldReturnTheFileOfTheComplexData() throws Exception {
+		executeDataSet(COMPLEX_OBS_XML);
+		File complexObsDir = OpenmrsUtil.getDirectoryInApplicationDataDirectory(Context.getAdministrationService()
+		        .getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_COMPLEX_OBS_DIR));
+		File createdFile = new File(complexObsDir, "openmrs_logo_small.gif");
+		ImageIO.write(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), "gif", createdFile);
+		
+		try {
+			ComplexDataFile dataFile = Context.getObsService().getComplexDataFile(44, OpenmrsConstants.RAW_VIEW);
+			
+			Assert.assertEquals(createdFile, dataFile.getFile());
+			Assert.assertEquals(createdFile.length(), dataFile.getLength());
+		}
+		finally {
+			// the file is outside of the database, so it isn't rolled back
+			createdFile.delete();
+		}
+	}
+	
+	/**
+	 * @see ObsService#getComplexDataFile(Integer,String)
+	 * @verifies return a thumbnail of an image for the thumbnail view
+	 */
+	@Test
+	public void getComplexDataFile_shouldReturnAThumbnailOfAnImageForTheThumbnailView() throws Exception {
+		executeDataSet(COMPLEX_OBS_XML);
+		File complexObsDir = OpenmrsUtil.getDirectoryInApplicationDataDirectory(Context.getAdministrationService()
+		        .getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_COMPLEX_OBS_DIR));
+		File createdFile = new File(complexObsDir, "openmrs_logo_small.gif");
+		ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), "gif", createdFile);
+		
+		ComplexDataFile dataFile = null;
+		try {
+			dataFile = Context.getObsService().getComplexDataFile(44, OpenmrsConstants.THUMBNAIL_VIEW);
+			
+			Assert.assertFalse(createdFile.equals(dataFile.getFile()));
+			BufferedImage thumbnail = ImageIO.read(dataFile.getFile());
+			Assert.assertEquals(ImageHandler.THUMBNAIL_SIZE, thumbnail.getWidth());
+			Assert.assertEquals(150, thumbnail.getHeight());
+		}
+		finally {
+			createdFile.delete();
+			if (dataFile != null) {
+				dataFile.getFile().delete();
+			}
+		}
+	}
+	
+	/**
+	 * @see ObsService#getComplexDataFile(Integer,String)
+	 * @verifies return null for views that are not served from a file
+	 */
+	@Test
+	public void getComplexDataFile_shouldReturnNullForViewsThatAreNotServedFromAFile() throws Exception {
+		executeDataSet(COMPLEX_OBS_XML);
+		File complexObsDir = OpenmrsUtil.getDirectoryInApplicationDataDirectory(Context.getAdministrationService()
+		        .getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_COMPLEX_OBS_DIR));
+		File createdFile = new File(complexObsDir, "openmrs_logo_small.gif");
+		ImageIO.write(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), "gif", createdFile);
+		
+		try {
+			Assert.assertNull(Context.getObsService().getComplexDataFile(44, OpenmrsConstants.TEXT_VIEW));
+			Assert.assertNull(Context.getObsService().getComplexDataFile(44, "html_view"));
+		}
+		finally {
+			createdFile.delete();
+		}
+	}
+	
+	/**
+	 * @see ObsService#getComplexDataFile(Integer,String)
+	 * @verifies return null for non complex obs
+	 */
+	@Test
+	public void getComplexDataFile_shouldReturnNullForNonComplexObs() throws Exception {
+		Assert.assertNull(Context.getObsService().getComplexDataFile(7, OpenmrsConstants.RAW_VIEW));
+	}
+	
 }
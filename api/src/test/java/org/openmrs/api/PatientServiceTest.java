@@ -27,6 +27,7 @@ import static org.openmrs.test.TestUtil.assertCollectionContentsEquals;
 import static org.openmrs.util.AddressMatcher.containsAddress;
 import static org.openmrs.util.NameMatcher.containsFullName;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -52,6 +53,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.ArgumentMatcher;
 import org.openmrs.Concept;
+import org.openmrs.DuplicatePatientCandidate;
 import org.openmrs.Encounter;
 import org.openmrs.GlobalProperty;
 import org.openmrs.Location;
@@ -3556,4 +3558,284 @@ public class PatientServiceTest extends BaseContextSensitiveTest {
 		Patient notPreferredPatient = patientService.getPatient(7);
 		patientService.mergePatients(preferredPatient, notPreferredPatient);
 	}
+	
+	/**
+	 * @see {@link PatientService#getPatients(String,Integer,Integer)}
+	 */
+	@Test
+	@Verifies(value = "should find patients by name and identifier in the search index", method = "getPatients(String,Integer,Integer)")
+	public void getPatients_shouldFindPatientsByNameAndIdentifierInTheSearchIndex() throws Exception {
+		useSearchIndexForPatients();
+		
+		List<Patient> patients = patientService.getPatients("Hor", 0, null);
+		assertEquals(1, patients.size());
+		assertEquals(2, patients.get(0).getPatientId().intValue());
+		
+		patients = patientService.getPatients("horatio Hornblower2", 0, null);
+		assertEquals(1, patients.size());
+		assertEquals(2, patients.get(0).getPatientId().intValue());
+		
+		patients = patientService.getPatients("6ts-4", 0, null);
+		assertEquals(1, patients.size());
+		assertEquals(7, patients.get(0).getPatientId().intValue());
+		
+		assertEquals(0, patientService.getPatients("Nobody", 0, null).size());
+	}
+	
+	/**
+	 * @see {@link PatientService#getPatients(String,Integer,Integer)}
+	 */
+	@Test
+	@Verifies(value = "should not find voided identifiers in the search index", method = "getPatients(String,Integer,Integer)")
+	public void getPatients_shouldNotFindVoidedIdentifiersInTheSearchIndex() throws Exception {
+		useSearchIndexForPatients();
+		
+		assertEquals(0, patientService.getPatients("ABC123", 0, null).size());
+		// the identifier is not voided but the patient is
+		assertEquals(0, patientService.getPatients("XYZ", 0, null).size());
+	}
+	
+	/**
+	 * @see {@link PatientService#getCountOfPatients(String)}
+	 */
+	@Test
+	@Verifies(value = "should return the right count when searching the search index", method = "getCountOfPatients(String)")
+	public void getCountOfPatients_shouldReturnTheRightCountWhenSearchingTheSearchIndex() throws Exception {
+		useSearchIndexForPatients();
+		
+		assertEquals(1, patientService.getCountOfPatients("Hor").intValue());
+		assertEquals(1, patientService.getCountOfPatients("101-6").intValue());
+		assertEquals(0, patientService.getCountOfPatients("Nobody").intValue());
+	}
+	
+	/**
+	 * @see {@link PatientService#getPatients(String,Integer,Integer)}
+	 */
+	@Test
+	@Verifies(value = "should return the pages of the patients in name order from the search index", method = "getPatients(String,Integer,Integer)")
+	public void getPatients_shouldReturnThePagesOfThePatientsInNameOrderFromTheSearchIndex() throws Exception {
+		useSearchIndexForPatients();
+		
+		// John Hornblower3 and Johnny Doe
+		List<Patient> patients = patientService.getPatients("Joh", 0, null);
+		assertEquals(2, patients.size());
+		assertEquals(2, patients.get(0).getPatientId().intValue());
+		assertEquals(6, patients.get(1).getPatientId().intValue());
+		
+		patients = patientService.getPatients("Joh", 1, 1);
+		assertEquals(1, patients.size());
+		assertEquals(6, patients.get(0).getPatientId().intValue());
+		
+		assertEquals(0, patientService.getPatients("Joh", 2, 1).size());
+		assertEquals(2, patientService.getCountOfPatients("Joh").intValue());
+	}
+	
+	/**
+	 * @see {@link PatientService#getPatients(String,Integer,Integer)}
+	 */
+	@Test
+	@Verifies(value = "should match anywhere in the names with the search index", method = "getPatients(String,Integer,Integer)")
+	public void getPatients_shouldMatchAnywhereInTheNamesWithTheSearchIndex() throws Exception {
+		adminService.saveGlobalProperty(new GlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_SEARCH_MATCH_MODE,
+		        OpenmrsConstants.GLOBAL_PROPERTY_PATIENT_SEARCH_MATCH_ANYWHERE));
+		useSearchIndexForPatients();
+		
+		List<Patient> patients = patientService.getPatients("blower", 0, null);
+		assertEquals(1, patients.size());
+		assertEquals(2, patients.get(0).getPatientId().intValue());
+		
+		assertEquals(1, patientService.getCountOfPatients("loo").intValue());
+		assertEquals(0, patientService.getCountOfPatients("blowers").intValue());
+	}
+	
+	private void useSearchIndexForPatients() {
+		adminService.saveGlobalProperty(new GlobalProperty(OpenmrsConstants.GP_PATIENT_SEARCH_USE_INDEX, "true"));
+		Context.updateSearchIndexForType(PersonName.class);
+		Context.updateSearchIndexForType(PatientIdentifier.class);
+		Context.updateSearchIndexForType(PersonAttribute.class);
+	}
+	
+	/**
+	 * @see {@link PatientService#getDuplicatePatientsByAttributes(List)}
+	 */
+	@Test
+	@Verifies(value = "should fetch patients that exactly match on all given attributes", method = "getDuplicatePatientsByAttributes(List)")
+	public void getDuplicatePatientsByAttributes_shouldFetchPatientsThatExactlyMatchOnAllGivenAttributes() throws Exception {
+		List<Patient> patients = patientService.getDuplicatePatientsByAttributes(Arrays.asList("gender", "middleName"));
+		
+		// the females are sorted before the males
+		assertEquals(4, patients.size());
+		assertEquals(7, patients.get(0).getPatientId().intValue());
+		assertEquals(8, patients.get(1).getPatientId().intValue());
+		assertEquals(2, patients.get(2).getPatientId().intValue());
+		assertEquals(6, patients.get(3).getPatientId().intValue());
+	}
+	
+	/**
+	 * @see {@link PatientService#getDuplicatePatientsByAttributes(List)}
+	 */
+	@Test
+	@Verifies(value = "should not return patients that exactly match on some but not all given attributes", method = "getDuplicatePatientsByAttributes(List)")
+	public void getDuplicatePatientsByAttributes_shouldNotReturnPatientsThatExactlyMatchOnSomeButNotAllGivenAttributes()
+	        throws Exception {
+		assertEquals(0, patientService.getDuplicatePatientsByAttributes(Arrays.asList("gender", "familyName")).size());
+	}
+	
+	/**
+	 * @see {@link PatientService#getDuplicatePatientsByAttributes(List)}
+	 */
+	@Test
+	@Verifies(value = "should include voided patients only if asked to", method = "getDuplicatePatientsByAttributes(List)")
+	public void getDuplicatePatientsByAttributes_shouldIncludeVoidedPatientsOnlyIfAskedTo() throws Exception {
+		assertEquals(4, patientService.getDuplicatePatientsByAttributes(Arrays.asList("gender")).size());
+		
+		List<Patient> patients = patientService.getDuplicatePatientsByAttributes(Arrays.asList("gender", "includeVoided"));
+		assertEquals(5, patients.size());
+		assertEquals(999, patients.get(4).getPatientId().intValue());
+	}
+	
+	/**
+	 * @see {@link PatientService#getDuplicatePatientsByAttributes(List)}
+	 */
+	@Test
+	@Verifies(value = "should match names that differ only in case", method = "getDuplicatePatientsByAttributes(List)")
+	public void getDuplicatePatientsByAttributes_shouldMatchNamesThatDifferOnlyInCase() throws Exception {
+		Patient patient = saveHoratio("HORNBLOWER", "1980-01-01", "9001");
+		
+		List<Patient> patients = patientService.getDuplicatePatientsByAttributes(Arrays.asList("givenName", "familyName"));
+		assertEquals(2, patients.size());
+		assertEquals(2, patients.get(0).getPatientId().intValue());
+		assertEquals(patient, patients.get(1));
+	}
+	
+	/**
+	 * @see {@link PatientService#getDuplicatePatientsByAttributes(List)}
+	 */
+	@Test
+	@Verifies(value = "should return the likely duplicates if asked to", method = "getDuplicatePatientsByAttributes(List)")
+	public void getDuplicatePatientsByAttributes_shouldReturnTheLikelyDuplicatesIfAskedTo() throws Exception {
+		Patient patient = saveHoratio("Hornblower", "1975-04-08", "9001");
+		updateAllDuplicatePatientCandidates();
+		
+		List<Patient> patients = patientService.getDuplicatePatientsByAttributes(Arrays.asList("likelyDuplicates"));
+		assertEquals(2, patients.size());
+		assertEquals(2, patients.get(0).getPatientId().intValue());
+		assertEquals(patient, patients.get(1));
+	}
+	
+	/**
+	 * @see {@link PatientService#updateDuplicatePatientCandidates(int)}
+	 */
+	@Test
+	@Verifies(value = "should save patients sharing a blocking key that score high enough as likely duplicates", method = "updateDuplicatePatientCandidates(int)")
+	public void updateDuplicatePatientCandidates_shouldSavePatientsSharingABlockingKeyThatScoreHighEnoughAsLikelyDuplicates()
+	        throws Exception {
+		Patient patient = saveHoratio("Hornblower", "1975-04-08", "9001");
+		updateAllDuplicatePatientCandidates();
+		
+		List<DuplicatePatientCandidate> candidates = patientService.getDuplicatePatientCandidates(false, null, null);
+		assertEquals(1, candidates.size());
+		assertEquals(2, candidates.get(0).getPatient().getPatientId().intValue());
+		assertEquals(patient, candidates.get(0).getOtherPatient());
+		assertEquals(0.8, candidates.get(0).getScore(), 0);
+	}
+	
+	/**
+	 * @see {@link PatientService#updateDuplicatePatientCandidates(int)}
+	 */
+	@Test
+	@Verifies(value = "should not save patients that score too low", method = "updateDuplicatePatientCandidates(int)")
+	public void updateDuplicatePatientCandidates_shouldNotSavePatientsThatScoreTooLow() throws Exception {
+		// shares the phonetic family name and birth year with patient 2
+		saveHoratio("Hornblauer", "1975-12-01", "9001");
+		updateAllDuplicatePatientCandidates();
+		
+		assertEquals(0, patientService.getDuplicatePatientCandidates(true, null, null).size());
+	}
+	
+	/**
+	 * @see {@link PatientService#updateDuplicatePatientCandidates(int)}
+	 */
+	@Test
+	@Verifies(value = "should resume after the last compared patient", method = "updateDuplicatePatientCandidates(int)")
+	public void updateDuplicatePatientCandidates_shouldResumeAfterTheLastComparedPatient() throws Exception {
+		assertTrue(patientService.updateDuplicatePatientCandidates(2));
+		assertEquals("6", adminService.getGlobalProperty(OpenmrsConstants.GP_DUPLICATE_PATIENTS_LAST_PATIENT_ID));
+		
+		assertTrue(patientService.updateDuplicatePatientCandidates(2));
+		assertEquals("8", adminService.getGlobalProperty(OpenmrsConstants.GP_DUPLICATE_PATIENTS_LAST_PATIENT_ID));
+	}
+	
+	/**
+	 * @see {@link PatientService#updateDuplicatePatientCandidates(int)}
+	 */
+	@Test
+	@Verifies(value = "should start over when all patients have been compared", method = "updateDuplicatePatientCandidates(int)")
+	public void updateDuplicatePatientCandidates_shouldStartOverWhenAllPatientsHaveBeenCompared() throws Exception {
+		updateAllDuplicatePatientCandidates();
+		assertEquals("0", adminService.getGlobalProperty(OpenmrsConstants.GP_DUPLICATE_PATIENTS_LAST_PATIENT_ID));
+		
+		assertTrue(patientService.updateDuplicatePatientCandidates(2));
+		assertEquals("6", adminService.getGlobalProperty(OpenmrsConstants.GP_DUPLICATE_PATIENTS_LAST_PATIENT_ID));
+	}
+	
+	/**
+	 * @see {@link PatientService#updateDuplicatePatientCandidates(int)}
+	 */
+	@Test
+	@Verifies(value = "should delete the likely duplicates of voided patients", method = "updateDuplicatePatientCandidates(int)")
+	public void updateDuplicatePatientCandidates_shouldDeleteTheLikelyDuplicatesOfVoidedPatients() throws Exception {
+		Patient patient = saveHoratio("Hornblower", "1975-04-08", "9001");
+		updateAllDuplicatePatientCandidates();
+		assertEquals(1, patientService.getDuplicatePatientCandidates(true, null, null).size());
+		
+		patientService.voidPatient(patient, "duplicate");
+		updateAllDuplicatePatientCandidates();
+		assertEquals(0, patientService.getDuplicatePatientCandidates(true, null, null).size());
+	}
+	
+	/**
+	 * @see {@link PatientService#getDuplicatePatientCandidates(boolean,Integer,Integer)}
+	 */
+	@Test
+	@Verifies(value = "should return the most similar pairs first", method = "getDuplicatePatientCandidates(boolean,Integer,Integer)")
+	public void getDuplicatePatientCandidates_shouldReturnTheMostSimilarPairsFirst() throws Exception {
+		// only shares the birth year with patient 2
+		Patient patient = saveHoratio("Hornblower", "1975-12-01", "9001");
+		Patient otherPatient = saveHoratio("Hornblower", "1975-04-08", "9002");
+		updateAllDuplicatePatientCandidates();
+		
+		List<DuplicatePatientCandidate> candidates = patientService.getDuplicatePatientCandidates(false, null, null);
+		assertEquals(3, candidates.size());
+		assertEquals(2, candidates.get(0).getPatient().getPatientId().intValue());
+		assertEquals(otherPatient, candidates.get(0).getOtherPatient());
+		assertEquals(0.8, candidates.get(0).getScore(), 0);
+		assertEquals(0.65, candidates.get(1).getScore(), 0);
+		assertEquals(0.65, candidates.get(2).getScore(), 0);
+		
+		candidates = patientService.getDuplicatePatientCandidates(false, 1, 1);
+		assertEquals(1, candidates.size());
+		assertEquals(patient, candidates.get(0).getOtherPatient());
+	}
+	
+	/**
+	 * Saves a new male patient named Horatio, like patient 2 of the standard test dataset
+	 */
+	private Patient saveHoratio(String familyName, String birthdate, String identifier) throws Exception {
+		Patient patient = new Patient();
+		patient.addName(new PersonName("Horatio", null, familyName));
+		patient.setGender("M");
+		patient.setBirthdate(new SimpleDateFormat("yyyy-MM-dd").parse(birthdate));
+		PatientIdentifier patientIdentifier = new PatientIdentifier(identifier, new PatientIdentifierType(2),
+		        new Location(1));
+		patientIdentifier.setPreferred(true);
+		patient.addIdentifier(patientIdentifier);
+		return patientService.savePatient(patient);
+	}
+	
+	private void updateAllDuplicatePatientCandidates() {
+		while (patientService.updateDuplicatePatientCandidates(2)) {
+			// compare the next batch
+		}
+	}
 }
@@ -23,9 +23,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -33,6 +35,7 @@ import org.junit.Test;
 import org.openmrs.Cohort;
 import org.openmrs.Concept;
 import org.openmrs.DrugOrder;
+import org.openmrs.Encounter;
 import org.openmrs.EncounterType;
 import org.openmrs.Form;
 import org.openmrs.Location;
@@ -47,6 +50,7 @@ import org.openmrs.Relationship;
 import org.openmrs.RelationshipType;
 import org.openmrs.api.PatientSetService.GroupMethod;
 import org.openmrs.api.PatientSetService.Modifier;
+import org.openmrs.api.PatientSetService.PatientDataCallback;
 import org.openmrs.api.PatientSetService.TimeModifier;
 import org.openmrs.api.context.Context;
 import org.openmrs.test.BaseContextSensitiveTest;
@@ -398,4 +402,149 @@ public class PatientSetServiceTest extends BaseContextSensitiveTest {
 		Map<Integer, PatientState> results = Context.getPatientSetService().getCurrentStates(nobody, one);
 		Assert.assertEquals(results.size(), 0);
 	}
+	
+	/**
+	 * @see {@link PatientSetService#streamObservations(Cohort,Concept,Date,Date,PatientDataCallback)}
+	 */
+	@Test
+	@Verifies(value = "should pass the same obs to the callback as getObservations", method = "streamObservations(Cohort,Concept,Date,Date,PatientDataCallback)")
+	public void streamObservations_shouldPassTheSameObsToTheCallbackAsGetObservations() throws Exception {
+		Cohort cohort = service.getAllPatients();
+		Concept concept = Context.getConceptService().getConcept(5089);
+		Map<Integer, Set<Integer>> expected = new HashMap<Integer, Set<Integer>>();
+		for (Map.Entry<Integer, List<Obs>> entry : service.getObservations(cohort, concept).entrySet()) {
+			expected.put(entry.getKey(), getObsIds(entry.getValue()));
+		}
+		assertTrue(expected.size() > 0);
+		
+		CollectingCallback<List<Obs>> callback = new CollectingCallback<List<Obs>>();
+		service.streamObservations(cohort, concept, null, null, callback);
+		Map<Integer, Set<Integer>> actual = new HashMap<Integer, Set<Integer>>();
+		for (Map.Entry<Integer, List<Obs>> entry : callback.results.entrySet()) {
+			actual.put(entry.getKey(), getObsIds(entry.getValue()));
+		}
+		assertEquals(expected, actual);
+	}
+	
+	/**
+	 * @see {@link PatientSetService#streamObservations(Cohort,Concept,Date,Date,PatientDataCallback)}
+	 */
+	@Test
+	@Verifies(value = "should not call the callback for an empty cohort", method = "streamObservations(Cohort,Concept,Date,Date,PatientDataCallback)")
+	public void streamObservations_shouldNotCallTheCallbackForAnEmptyCohort() throws Exception {
+		CollectingCallback<List<Obs>> callback = new CollectingCallback<List<Obs>>();
+		service.streamObservations(new Cohort(), Context.getConceptService().getConcept(5089), null, null, callback);
+		assertTrue(callback.results.isEmpty());
+	}
+	
+	/**
+	 * @see {@link PatientSetService#streamObservationsValues(Cohort,Concept,List,Integer,boolean,PatientDataCallback)}
+	 */
+	@Test
+	@Verifies(value = "should pass the same values to the callback as getObservationsValues", method = "streamObservationsValues(Cohort,Concept,List,Integer,boolean,PatientDataCallback)")
+	public void streamObservationsValues_shouldPassTheSameValuesToTheCallbackAsGetObservationsValues() throws Exception {
+		Cohort cohort = service.getAllPatients();
+		Concept concept = Context.getConceptService().getConcept(5089);
+		Map<Integer, Set<List<Object>>> expected = new HashMap<Integer, Set<List<Object>>>();
+		for (Map.Entry<Integer, List<List<Object>>> entry : service.getObservationsValues(cohort, concept, null, null,
+		    true).entrySet()) {
+			expected.put(entry.getKey(), new HashSet<List<Object>>(entry.getValue()));
+		}
+		
+		CollectingCallback<List<List<Object>>> callback = new CollectingCallback<List<List<Object>>>();
+		service.streamObservationsValues(cohort, concept, null, null, true, callback);
+		Map<Integer, Set<List<Object>>> actual = new HashMap<Integer, Set<List<Object>>>();
+		for (Map.Entry<Integer, List<List<Object>>> entry : callback.results.entrySet()) {
+			actual.put(entry.getKey(), new HashSet<List<Object>>(entry.getValue()));
+		}
+		assertEquals(expected, actual);
+	}
+	
+	/**
+	 * @see {@link PatientSetService#streamEncountersByType(Cohort,List,PatientDataCallback)}
+	 */
+	@Test
+	@Verifies(value = "should pass the same encounters to the callback as getEncountersByType", method = "streamEncountersByType(Cohort,List,PatientDataCallback)")
+	public void streamEncountersByType_shouldPassTheSameEncountersToTheCallbackAsGetEncountersByType() throws Exception {
+		Cohort cohort = service.getAllPatients();
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		for (Map.Entry<Integer, Encounter> entry : service.getEncountersByType(cohort, (List<EncounterType>) null)
+		        .entrySet()) {
+			expected.put(entry.getKey(), entry.getValue().getEncounterId());
+		}
+		assertTrue(expected.size() > 0);
+		
+		CollectingCallback<Encounter> callback = new CollectingCallback<Encounter>();
+		service.streamEncountersByType(cohort, null, callback);
+		Map<Integer, Integer> actual = new HashMap<Integer, Integer>();
+		for (Map.Entry<Integer, Encounter> entry : callback.results.entrySet()) {
+			actual.put(entry.getKey(), entry.getValue().getEncounterId());
+		}
+		assertEquals(expected, actual);
+	}
+	
+	/**
+	 * @see {@link PatientSetService#streamPatientAttributes(Cohort,String,String,boolean,PatientDataCallback)}
+	 */
+	@Test
+	@Verifies(value = "should pass the same values to the callback as getPatientAttributes", method = "streamPatientAttributes(Cohort,String,String,boolean,PatientDataCallback)")
+	public void streamPatientAttributes_shouldPassTheSameValuesToTheCallbackAsGetPatientAttributes() throws Exception {
+		Cohort cohort = service.getAllPatients();
+		Map<Integer, Object> expected = service.getPatientAttributes(cohort, "PersonName", "givenName", false);
+		assertTrue(expected.size() > 0);
+		
+		CollectingCallback<Object> callback = new CollectingCallback<Object>();
+		service.streamPatientAttributes(cohort, "PersonName", "givenName", false, callback);
+		assertEquals(expected, callback.results);
+	}
+	
+	/**
+	 * @see {@link PatientSetService#streamCurrentDrugOrders(Cohort,Concept,PatientDataCallback)}
+	 */
+	@Test
+	@Verifies(value = "should pass the same drug orders to the callback as getCurrentDrugOrders", method = "streamCurrentDrugOrders(Cohort,Concept,PatientDataCallback)")
+	public void streamCurrentDrugOrders_shouldPassTheSameDrugOrdersToTheCallbackAsGetCurrentDrugOrders() throws Exception {
+		Cohort cohort = service.getAllPatients();
+		Map<Integer, Set<Integer>> expected = new HashMap<Integer, Set<Integer>>();
+		for (Map.Entry<Integer, List<DrugOrder>> entry : service.getCurrentDrugOrders(cohort, null).entrySet()) {
+			expected.put(entry.getKey(), getOrderIds(entry.getValue()));
+		}
+		
+		CollectingCallback<List<DrugOrder>> callback = new CollectingCallback<List<DrugOrder>>();
+		service.streamCurrentDrugOrders(cohort, null, callback);
+		Map<Integer, Set<Integer>> actual = new HashMap<Integer, Set<Integer>>();
+		for (Map.Entry<Integer, List<DrugOrder>> entry : callback.results.entrySet()) {
+			actual.put(entry.getKey(), getOrderIds(entry.getValue()));
+		}
+		assertEquals(expected, actual);
+	}
+	
+	private Set<Integer> getObsIds(List<Obs> obs) {
+		Set<Integer> ids = new HashSet<Integer>();
+		for (Obs o : obs) {
+			ids.add(o.getObsId());
+		}
+		return ids;
+	}
+	
+	private Set<Integer> getOrderIds(List<DrugOrder> orders) {
+		Set<Integer> ids = new HashSet<Integer>();
+		for (DrugOrder order : orders) {
+			ids.add(order.getOrderId());
+		}
+		return ids;
+	}
+	
+	/**
+	 * Collects the results passed to it and fails if a patient is passed more than once
+	 */
+	private static class CollectingCallback<T> implements PatientDataCallback<T> {
+		
+		private Map<Integer, T> results = new HashMap<Integer, T>();
+		
+		public void handle(Integer patientId, T data) {
+			Assert.assertFalse("patient " + patientId + " was passed twice", results.containsKey(patientId));
+			results.put(patientId, data);
+		}
+	}
 }
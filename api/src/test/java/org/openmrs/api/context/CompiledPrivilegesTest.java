@@ -0,0 +1,189 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.context;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.openmrs.Privilege;
+import org.openmrs.Role;
+import org.openmrs.User;
+import org.openmrs.test.Verifies;
+import org.openmrs.util.RoleConstants;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tests the {@link CompiledPrivileges} class
+ */
+public class CompiledPrivilegesTest {
+	
+	/**
+	 * @see {@link CompiledPrivileges#hasPrivilege(String)}
+	 */
+	@Test
+	@Verifies(value = "should return true if a role grants the privilege", method = "hasPrivilege(String)")
+	public void hasPrivilege_shouldReturnTrueIfARoleGrantsThePrivilege() throws Exception {
+		Role role = new Role("role");
+		role.addPrivilege(new Privilege("compiled privilege a"));
+		
+		CompiledPrivileges privileges = new CompiledPrivileges(Collections.singleton(role));
+		
+		assertTrue(privileges.hasPrivilege("compiled privilege a"));
+	}
+	
+	/**
+	 * @see {@link CompiledPrivileges#hasPrivilege(String)}
+	 */
+	@Test
+	@Verifies(value = "should return false for privileges that were never granted", method = "hasPrivilege(String)")
+	public void hasPrivilege_shouldReturnFalseForPrivilegesThatWereNeverGranted() throws Exception {
+		Role role = new Role("role");
+		role.addPrivilege(new Privilege("compiled privilege a"));
+		Role otherRole = new Role("other role");
+		otherRole.addPrivilege(new Privilege("compiled privilege b"));
+		
+		CompiledPrivileges privileges = new CompiledPrivileges(Collections.singleton(role));
+		
+		assertFalse(privileges.hasPrivilege("compiled privilege b"));
+		assertFalse(privileges.hasPrivilege("a privilege nobody has"));
+		assertFalse(privileges.hasPrivilege(null));
+	}
+	
+	/**
+	 * @see {@link CompiledPrivileges#CompiledPrivileges(java.util.Collection)}
+	 */
+	@Test
+	@Verifies(value = "should include privileges of inherited roles", method = "CompiledPrivileges(Collection)")
+	public void CompiledPrivileges_shouldIncludePrivilegesOfInheritedRoles() throws Exception {
+		Role grandParent = new Role("grand parent");
+		grandParent.addPrivilege(new Privilege("compiled privilege c"));
+		Role parent = new Role("parent");
+		parent.setInheritedRoles(Collections.singleton(grandParent));
+		Role child = new Role("child");
+		child.setInheritedRoles(Collections.singleton(parent));
+		
+		CompiledPrivileges privileges = new CompiledPrivileges(Collections.singleton(child));
+		
+		assertTrue(privileges.hasPrivilege("compiled privilege c"));
+	}
+	
+	/**
+	 * @see {@link CompiledPrivileges#CompiledPrivileges(java.util.Collection)}
+	 */
+	@Test
+	@Verifies(value = "should grant every privilege if one of the roles inherits from the super user role", method = "CompiledPrivileges(Collection)")
+	public void CompiledPrivileges_shouldGrantEveryPrivilegeIfOneOfTheRolesInheritsFromTheSuperUserRole()
+	        throws Exception {
+		Role role = new Role("role");
+		role.setInheritedRoles(Collections.singleton(new Role(RoleConstants.SUPERUSER)));
+		Set<Role> roles = new HashSet<Role>();
+		roles.add(role);
+		roles.add(null);
+		
+		CompiledPrivileges privileges = new CompiledPrivileges(roles);
+		
+		assertTrue(privileges.isSuperUser());
+		assertTrue(privileges.hasPrivilege("a privilege nobody has"));
+	}
+	
+	/**
+	 * @see {@link CompiledPrivileges#isCurrent()}
+	 */
+	@Test
+	@Verifies(value = "should return false after invalidate", method = "isCurrent()")
+	public void isCurrent_shouldReturnFalseAfterInvalidate() throws Exception {
+		Role role = new Role("role");
+		CompiledPrivileges privileges = new CompiledPrivileges(Collections.singleton(role));
+		assertTrue(privileges.isCurrent());
+		
+		role.addPrivilege(new Privilege("compiled privilege d"));
+		CompiledPrivileges.invalidate();
+		
+		assertFalse(privileges.isCurrent());
+		assertTrue(new CompiledPrivileges(Collections.singleton(role)).hasPrivilege("compiled privilege d"));
+	}
+	
+	/**
+	 * @see {@link CompiledPrivileges#isCurrent()}
+	 */
+	@Test
+	@Verifies(value = "should stay true when a role is changed without being saved", method = "isCurrent()")
+	public void isCurrent_shouldStayTrueWhenARoleIsChangedWithoutBeingSaved() throws Exception {
+		Role role = new Role("role");
+		CompiledPrivileges privileges = new CompiledPrivileges(Collections.singleton(role));
+		
+		role.addPrivilege(new Privilege("compiled privilege e"));
+		new User().addRole(role);
+		
+		assertTrue(privileges.isCurrent());
+	}
+	
+	/**
+	 * @see {@link CompiledPrivileges#invalidate()}
+	 */
+	@Test
+	@Verifies(value = "should outdate compiled privileges for all threads once the transaction commits", method = "invalidate()")
+	public void invalidate_shouldOutdateCompiledPrivilegesForAllThreadsOnceTheTransactionCommits() throws Exception {
+		CompiledPrivileges privileges = new CompiledPrivileges(Collections.singleton(new Role("role")));
+		
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			CompiledPrivileges.invalidate();
+			assertFalse(privileges.isCurrent());
+			
+			for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCommit();
+				synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+			}
+		}
+		finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		
+		assertFalse(privileges.isCurrent());
+	}
+	
+	/**
+	 * @see {@link CompiledPrivileges#invalidate()}
+	 */
+	@Test
+	@Verifies(value = "should not outdate compiled privileges if the transaction is rolled back", method = "invalidate()")
+	public void invalidate_shouldNotOutdateCompiledPrivilegesIfTheTransactionIsRolledBack() throws Exception {
+		CompiledPrivileges privileges = new CompiledPrivileges(Collections.singleton(new Role("role")));
+		CompiledPrivileges compiledInTransaction;
+		
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			CompiledPrivileges.invalidate();
+			compiledInTransaction = new CompiledPrivileges(Collections.singleton(new Role("role")));
+			
+			for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+			}
+		}
+		finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		
+		assertTrue(privileges.isCurrent());
+		// compiled from the changes that were rolled back
+		assertFalse(compiledInTransaction.isCurrent());
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.context;
+
+import static org.junit.Assert.assertNotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.ConceptService;
+import org.openmrs.api.PatientService;
+import org.openmrs.test.BaseContextSensitiveTest;
+import org.openmrs.test.SkipBaseSetup;
+
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.carrotsearch.junitbenchmarks.BenchmarkRule;
+import com.carrotsearch.junitbenchmarks.annotation.BenchmarkHistoryChart;
+
+/**
+ * Performance tests for {@link ServiceContext#getService(Class)} under contention. The baseline
+ * repeats the lookup the way it was done before the lock-free fast path was added, i.e. entering a
+ * shared monitor on every call.
+ */
+@SkipBaseSetup
+@BenchmarkHistoryChart
+public class ServiceContextPT extends BaseContextSensitiveTest {
+	
+	private static final int LOOKUPS_PER_ROUND = 100000;
+	
+	private static final Class<?>[] SERVICE_CLASSES = { AdministrationService.class, ConceptService.class,
+	        PatientService.class };
+	
+	private static final Object baselineLock = new Object();
+	
+	private static boolean baselineRefreshing = false;
+	
+	private static Map<Class<?>, Object> baselineServices;
+	
+	@Rule
+	public TestRule benchmarkRule = new BenchmarkRule();
+	
+	@Before
+	public void copyServices() throws Exception {
+		synchronized (baselineLock) {
+			if (baselineServices == null) {
+				baselineServices = new HashMap<Class<?>, Object>();
+				for (Class<?> cls : SERVICE_CLASSES) {
+					baselineServices.put(cls, ServiceContext.getInstance().getService(cls));
+				}
+			}
+		}
+	}
+	
+	@Test
+	@BenchmarkOptions(concurrency = 32, warmupRounds = 5, benchmarkRounds = 50)
+	public void shouldTestContendedGetService() {
+		ServiceContext serviceContext = ServiceContext.getInstance();
+		for (int i = 0; i < LOOKUPS_PER_ROUND; i++) {
+			assertNotNull(serviceContext.getService(SERVICE_CLASSES[i % SERVICE_CLASSES.length]));
+		}
+	}
+	
+	@Test
+	@BenchmarkOptions(concurrency = 32, warmupRounds = 5, benchmarkRounds = 50)
+	public void shouldTestContendedSynchronizedLookupBaseline() throws Exception {
+		for (int i = 0; i < LOOKUPS_PER_ROUND; i++) {
+			Class<?> cls = SERVICE_CLASSES[i % SERVICE_CLASSES.length];
+			synchronized (baselineLock) {
+				while (baselineRefreshing) {
+					baselineLock.wait();
+				}
+			}
+			assertNotNull(baselineServices.get(cls));
+		}
+	}
+}
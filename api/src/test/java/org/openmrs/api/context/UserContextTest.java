@@ -0,0 +1,65 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.context;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.Privilege;
+import org.openmrs.Role;
+import org.openmrs.api.UserService;
+import org.openmrs.test.BaseContextSensitiveTest;
+import org.openmrs.util.PrivilegeConstants;
+
+/**
+ * Tests the {@link UserContext} class
+ */
+public class UserContextTest extends BaseContextSensitiveTest {
+	
+	/**
+	 * The tests in this class become a different user, so log that user out after the whole class
+	 */
+	@AfterClass
+	public static void logOutAfterThisTestClass() {
+		Context.logout();
+	}
+	
+	/**
+	 * @see UserContext#hasPrivilege(String)
+	 * @verifies authorize privileges added to a role of the user once the role is saved
+	 */
+	@Test
+	public void hasPrivilege_shouldAuthorizePrivilegesAddedToARoleOfTheUserOnceTheRoleIsSaved() throws Exception {
+		UserService userService = Context.getUserService();
+		Privilege privilege = userService.savePrivilege(new Privilege("Compiled Test Privilege", "A test privilege"));
+		
+		// butch only has the Provider role
+		Context.becomeUser("3-4");
+		Assert.assertFalse(Context.hasPrivilege(privilege.getPrivilege()));
+		
+		Context.addProxyPrivilege(PrivilegeConstants.MANAGE_ROLES);
+		Context.addProxyPrivilege(privilege.getPrivilege());
+		try {
+			Role role = userService.getRole("Provider");
+			role.addPrivilege(privilege);
+			userService.saveRole(role);
+		}
+		finally {
+			Context.removeProxyPrivilege(PrivilegeConstants.MANAGE_ROLES);
+			Context.removeProxyPrivilege(privilege.getPrivilege());
+		}
+		
+		Assert.assertTrue(Context.hasPrivilege(privilege.getPrivilege()));
+	}
+}
@@ -20,11 +20,16 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.openmrs.Obs;
+import org.openmrs.ObsSummary;
+import org.openmrs.api.context.Context;
 import org.openmrs.test.BaseContextSensitiveTest;
 import org.openmrs.test.Verifies;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Tests for {@link org.openmrs.api.db.hibernate.HibernateObsDAO}
@@ -89,4 +94,49 @@ public class HibernateObsDAOTest extends BaseContextSensitiveTest {
 		    null, null, null, null, false, null);
 		Assert.assertArrayEquals(obsListExpected.toArray(), obsListActual.toArray());
 	}
+	
+	/**
+	 * @see HibernateObsDAO#updateObsSummaries(java.util.Map)
+	 */
+	@Test
+	public void updateObsSummaries_shouldUpdateTheSummariesFromTheNonVoidedObs() throws Exception {
+		Session session = sessionFactory.getCurrentSession();
+		Map<Integer, Set<Integer>> weightOfPerson7 = Collections.singletonMap(7, Collections.singleton(5089));
+		
+		dao.updateObsSummaries(weightOfPerson7);
+		ObsSummary summary = (ObsSummary) session.get(ObsSummary.class, new ObsSummary(7, 5089));
+		Assert.assertEquals(7, summary.getFirstObs().getObsId().intValue());
+		Assert.assertEquals(16, summary.getLatestObs().getObsId().intValue());
+		Assert.assertEquals(3, summary.getObsCount().intValue());
+		
+		Context.getObsService().voidObs(Context.getObsService().getObs(16), "testing");
+		dao.updateObsSummaries(weightOfPerson7);
+		Assert.assertEquals(10, summary.getLatestObs().getObsId().intValue());
+		Assert.assertEquals(2, summary.getObsCount().intValue());
+		
+		Context.getObsService().voidObs(Context.getObsService().getObs(7), "testing");
+		Context.getObsService().voidObs(Context.getObsService().getObs(10), "testing");
+		dao.updateObsSummaries(weightOfPerson7);
+		Assert.assertNull(session.get(ObsSummary.class, new ObsSummary(7, 5089)));
+	}
+	
+	/**
+	 * @see HibernateObsDAO#rebuildObsSummaries()
+	 */
+	@Test
+	public void rebuildObsSummaries_shouldBuildTheSummariesOfAllPersonsAndConcepts() throws Exception {
+		Session session = sessionFactory.getCurrentSession();
+		
+		dao.rebuildObsSummaries();
+		
+		ObsSummary weight = (ObsSummary) session.get(ObsSummary.class, new ObsSummary(7, 5089));
+		Assert.assertEquals(7, weight.getFirstObs().getObsId().intValue());
+		Assert.assertEquals(16, weight.getLatestObs().getObsId().intValue());
+		Assert.assertEquals(3, weight.getObsCount().intValue());
+		ObsSummary height = (ObsSummary) session.get(ObsSummary.class, new ObsSummary(7, 5497));
+		Assert.assertEquals(9, height.getFirstObs().getObsId().intValue());
+		Assert.assertEquals(11, height.getLatestObs().getObsId().intValue());
+		Assert.assertEquals(2, height.getObsCount().intValue());
+		Assert.assertNull(session.get(ObsSummary.class, new ObsSummary(7, 3)));
+	}
 }
@@ -0,0 +1,61 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.api.db.hibernate;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseContextSensitiveTest;
+import org.openmrs.util.OpenmrsConstants;
+
+public class ObsSummaryInterceptorTest extends BaseContextSensitiveTest {
+	
+	/**
+	 * @see ObsSummaryInterceptor#isSummaryUpToDate()
+	 * @verifies cache the global property until it is changed
+	 */
+	@Test
+	public void isSummaryUpToDate_shouldCacheTheGlobalPropertyUntilItIsChanged() throws Exception {
+		AdministrationService as = Context.getAdministrationService();
+		assertFalse(ObsSummaryInterceptor.isSummaryUpToDate());
+		
+		// behind the back of the global property listeners
+		as.executeSQL("insert into global_property (property, property_value, uuid) values ('"
+		        + OpenmrsConstants.GP_OBS_SUMMARY_BUILT + "', 'true', 'a3b9e2d4-6f1c-4b8e-9d2a-5c7e0f1b3d68')", false);
+		assertFalse(ObsSummaryInterceptor.isSummaryUpToDate());
+		
+		as.saveGlobalProperty(as.getGlobalPropertyObject(OpenmrsConstants.GP_OBS_SUMMARY_BUILT));
+		assertTrue(ObsSummaryInterceptor.isSummaryUpToDate());
+	}
+	
+	/**
+	 * @see ObsSummaryInterceptor#isSummaryUpToDate()
+	 * @verifies read the global property changed by the current transaction
+	 */
+	@Test
+	public void isSummaryUpToDate_shouldReadTheGlobalPropertyChangedByTheCurrentTransaction() throws Exception {
+		AdministrationService as = Context.getAdministrationService();
+		GlobalProperty summaryBuilt = new GlobalProperty(OpenmrsConstants.GP_OBS_SUMMARY_BUILT, "true");
+		as.saveGlobalProperty(summaryBuilt);
+		assertTrue(ObsSummaryInterceptor.isSummaryUpToDate());
+		
+		summaryBuilt.setPropertyValue("false");
+		as.saveGlobalProperty(summaryBuilt);
+		assertFalse(ObsSummaryInterceptor.isSummaryUpToDate());
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.hl7;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.test.BaseContextSensitiveTest;
+import org.openmrs.util.OpenmrsConstants;
+
+/**
+ * Tests the parallel mode of the {@link HL7InQueueProcessor}
+ */
+public class HL7InQueueProcessorTest extends BaseContextSensitiveTest {
+	
+	/**
+	 * Records the entries handed to each worker instead of processing them, so they stay pending
+	 */
+	private static class RecordingProcessor extends HL7InQueueProcessor {
+		
+		private final Map<Integer, List<Integer>> partitions = new HashMap<Integer, List<Integer>>();
+		
+		@Override
+		synchronized void processPartition(int worker, List<Integer> hl7InQueueIds, UserContext userContext) {
+			if (!partitions.containsKey(worker)) {
+				partitions.put(worker, new ArrayList<Integer>());
+			}
+			partitions.get(worker).addAll(hl7InQueueIds);
+		}
+		
+		public synchronized List<Integer> getAllProcessedIds() {
+			List<Integer> ids = new ArrayList<Integer>();
+			for (List<Integer> partition : partitions.values()) {
+				ids.addAll(partition);
+			}
+			return ids;
+		}
+	}
+	
+	@Before
+	public void runBeforeEachTest() throws Exception {
+		executeDataSet("org/openmrs/hl7/include/ORUTest-initialData.xml");
+		Context.getAdministrationService().setGlobalProperty(OpenmrsConstants.GP_HL7_PROCESSOR_WORKERS, "2");
+	}
+	
+	/**
+	 * @see HL7InQueueProcessor#processHL7InQueue()
+	 * @verifies process entries behind entries that stay pending with several workers
+	 */
+	@Test
+	public void processHL7InQueue_shouldProcessEntriesBehindEntriesThatStayPendingWithSeveralWorkers() throws Exception {
+		Context.getAdministrationService().setGlobalProperty(OpenmrsConstants.GP_HL7_PROCESSOR_BATCH_SIZE, "1");
+		
+		RecordingProcessor processor = new RecordingProcessor();
+		processor.processHL7InQueue();
+		
+		// both entries are still pending, but each is claimed exactly once
+		Assert.assertEquals(Arrays.asList(1, 2), processor.getAllProcessedIds());
+	}
+	
+	/**
+	 * @see HL7InQueueProcessor#processHL7InQueue()
+	 * @verifies process the entries of a patient in order on one worker
+	 */
+	@Test
+	public void processHL7InQueue_shouldProcessTheEntriesOfAPatientInOrderOnOneWorker() throws Exception {
+		HL7Service hl7Service = Context.getHL7Service();
+		String hl7Data = hl7Service.getHL7InQueue(1).getHL7Data();
+		List<Integer> patientEntryIds = new ArrayList<Integer>();
+		patientEntryIds.add(1);
+		for (int i = 0; i < 3; i++) {
+			HL7InQueue hl7InQueue = new HL7InQueue();
+			hl7InQueue.setHL7Data(hl7Data);
+			hl7InQueue.setHL7Source(hl7Service.getHL7Source(1));
+			hl7InQueue.setHL7SourceKey("key" + i);
+			hl7InQueue.setMessageState(HL7Constants.HL7_STATUS_PENDING);
+			hl7Service.saveHL7InQueue(hl7InQueue);
+			patientEntryIds.add(hl7InQueue.getHL7InQueueId());
+		}
+		
+		RecordingProcessor processor = new RecordingProcessor();
+		processor.processHL7InQueue();
+		
+		List<Integer> partition = null;
+		for (List<Integer> ids : processor.partitions.values()) {
+			if (ids.contains(1)) {
+				partition = new ArrayList<Integer>(ids);
+			}
+		}
+		partition.retainAll(patientEntryIds);
+		Assert.assertEquals(patientEntryIds, partition);
+	}
+}
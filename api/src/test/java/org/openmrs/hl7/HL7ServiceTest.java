@@ -75,6 +75,43 @@ public class HL7ServiceTest extends BaseContextSensitiveTest {
 		Assert.assertNotNull(hl7.getUuid());
 	}
 	
+	/**
+	 * @see {@link HL7Service#getNextHL7InQueueBatch(Integer,int)}
+	 */
+	@Test
+	@Verifies(value = "should return pending queue items ordered by id", method = "getNextHL7InQueueBatch(Integer,int)")
+	public void getNextHL7InQueueBatch_shouldReturnPendingQueueItemsOrderedById() throws Exception {
+		executeDataSet("org/openmrs/hl7/include/ORUTest-initialData.xml");
+		List<HL7InQueue> batch = Context.getHL7Service().getNextHL7InQueueBatch(null, 10);
+		assertEquals(2, batch.size());
+		assertEquals(1, batch.get(0).getHL7InQueueId().intValue());
+		assertEquals(2, batch.get(1).getHL7InQueueId().intValue());
+	}
+	
+	/**
+	 * @see {@link HL7Service#getNextHL7InQueueBatch(Integer,int)}
+	 */
+	@Test
+	@Verifies(value = "should not return more items than the given batch size", method = "getNextHL7InQueueBatch(Integer,int)")
+	public void getNextHL7InQueueBatch_shouldNotReturnMoreItemsThanTheGivenBatchSize() throws Exception {
+		executeDataSet("org/openmrs/hl7/include/ORUTest-initialData.xml");
+		List<HL7InQueue> batch = Context.getHL7Service().getNextHL7InQueueBatch(null, 1);
+		assertEquals(1, batch.size());
+		assertEquals(1, batch.get(0).getHL7InQueueId().intValue());
+	}
+	
+	/**
+	 * @see {@link HL7Service#getNextHL7InQueueBatch(Integer,int)}
+	 */
+	@Test
+	@Verifies(value = "should only return queue items after the given id", method = "getNextHL7InQueueBatch(Integer,int)")
+	public void getNextHL7InQueueBatch_shouldOnlyReturnQueueItemsAfterTheGivenId() throws Exception {
+		executeDataSet("org/openmrs/hl7/include/ORUTest-initialData.xml");
+		List<HL7InQueue> batch = Context.getHL7Service().getNextHL7InQueueBatch(1, 10);
+		assertEquals(1, batch.size());
+		assertEquals(2, batch.get(0).getHL7InQueueId().intValue());
+	}
+	
 	/**
 	 * @see {@link HL7Service#processHL7InQueue(HL7InQueue)}
 	 */
@@ -103,4 +103,49 @@ public class HL7UtilTest {
 		TimeZone.setDefault(originalTimeZone);
 	}
 	
+	/**
+	 * @see {@link HL7Util#getPatientIdentifierFromRawMessage(String)}
+	 */
+	@Test
+	@Verifies(value = "should return the first patient identifier in the pid segment", method = "getPatientIdentifierFromRawMessage(String)")
+	public void getPatientIdentifierFromRawMessage_shouldReturnTheFirstPatientIdentifierInThePidSegment()
+	        throws Exception {
+		String hl7 = "MSH|^~\\&|FORMENTRY|AMRS.ELD|HL7LISTENER|AMRS.ELD|20080226102656||ORU^R01|JqnfhKKtouEz8kzTk6Zo|P|2.5|1\r"
+		        + "PID|||7TU-8^^^^L~3^^^^PI||Doe^John\r" + "OBR|1|||1238^MEDICAL RECORD OBSERVATIONS^99DCT";
+		Assert.assertEquals("7TU-8", HL7Util.getPatientIdentifierFromRawMessage(hl7));
+	}
+	
+	/**
+	 * @see {@link HL7Util#getPatientIdentifierFromRawMessage(String)}
+	 */
+	@Test
+	@Verifies(value = "should return null if there is no pid segment", method = "getPatientIdentifierFromRawMessage(String)")
+	public void getPatientIdentifierFromRawMessage_shouldReturnNullIfThereIsNoPidSegment() throws Exception {
+		String hl7 = "MSH|^~\\&|FORMENTRY|AMRS.ELD|HL7LISTENER|AMRS.ELD|20080226102656||ORU^R01|JqnfhKKtouEz8kzTk6Zo|P|2.5|1\r"
+		        + "OBR|1|||1238^MEDICAL RECORD OBSERVATIONS^99DCT";
+		Assert.assertNull(HL7Util.getPatientIdentifierFromRawMessage(hl7));
+	}
+	
+	/**
+	 * @see {@link HL7Util#getPatientIdentifierFromRawMessage(String)}
+	 */
+	@Test
+	@Verifies(value = "should return null for a malformed message", method = "getPatientIdentifierFromRawMessage(String)")
+	public void getPatientIdentifierFromRawMessage_shouldReturnNullForAMalformedMessage() throws Exception {
+		Assert.assertNull(HL7Util.getPatientIdentifierFromRawMessage("a malformed hl7 message"));
+		Assert.assertNull(HL7Util.getPatientIdentifierFromRawMessage(null));
+	}
+	
+	/**
+	 * @see {@link HL7Util#getPatientIdentifierFromRawMessage(String)}
+	 */
+	@Test
+	@Verifies(value = "should use the encoding characters declared in the msh segment", method = "getPatientIdentifierFromRawMessage(String)")
+	public void getPatientIdentifierFromRawMessage_shouldUseTheEncodingCharactersDeclaredInTheMshSegment()
+	        throws Exception {
+		String hl7 = "MSH#$%\\&#FORMENTRY#AMRS.ELD#HL7LISTENER#AMRS.ELD#20080226102656##ORU$R01#JqnfhKKtouEz8kzTk6Zo#P#2.5#1\n"
+		        + "PID###3$$$$PI%4$$$$PI##Doe$John";
+		Assert.assertEquals("3", HL7Util.getPatientIdentifierFromRawMessage(hl7));
+	}
+	
 }
@@ -1228,6 +1228,8 @@ public class ORUR01HandlerTest extends BaseContextSensitiveTest {
 			Context.getObsService().removeHandler(handlerName);
 		}
 		Assert.assertEquals(data, handler.getCreatedObs().getComplexData().getData());
+		Assert.assertEquals(Context.getConceptService().getConcept(6043).getName().getName(), handler.getCreatedObs()
+		        .getComplexData().getTitle());
 	}
 	
 	private class ObsHandler implements ComplexObsHandler {
@@ -0,0 +1,132 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the methods in {@link ModuleClassLoaderIndex}
+ */
+public class ModuleClassLoaderIndexTest {
+	
+	private ModuleClassLoader fooClassLoader;
+	
+	private ModuleClassLoader barClassLoader;
+	
+	private ModuleClassLoaderIndex index;
+	
+	@Before
+	public void before() throws Exception {
+		fooClassLoader = mockClassLoader("foo", "org.openmrs.module.foo", "org.apache.commons.foo", "org.foolib");
+		barClassLoader = mockClassLoader("bar", "org.openmrs.module.bar", "org.apache.commons.bar");
+		index = new ModuleClassLoaderIndex(Arrays.asList(fooClassLoader, barClassLoader));
+	}
+	
+	private ModuleClassLoader mockClassLoader(String moduleId, String packageName, String... additionalPackages)
+	        throws Exception {
+		Module module = new Module(moduleId, moduleId, packageName, "author", "description", "1.0");
+		ModuleClassLoader classLoader = mock(ModuleClassLoader.class);
+		when(classLoader.getModule()).thenReturn(module);
+		when(classLoader.getAdditionalPackages()).thenReturn(new LinkedHashSet<String>(Arrays.asList(additionalPackages)));
+		when(classLoader.getURLs()).thenReturn(new URL[] { new URL("file:/lib-cache/" + moduleId + "/" + moduleId + ".jar") });
+		return classLoader;
+	}
+	
+	/**
+	 * @see ModuleClassLoaderIndex#getClassLoadersForClass(String)
+	 * @verifies return the modules providing the package of the class or a package above it
+	 */
+	@Test
+	public void getClassLoadersForClass_shouldReturnTheModulesProvidingThePackageOfTheClassOrAPackageAboveIt()
+	        throws Exception {
+		Assert.assertEquals(Collections.singletonList(fooClassLoader), index
+		        .getClassLoadersForClass("org.openmrs.module.foo.api.FooService"));
+		Assert.assertEquals(Collections.singletonList(barClassLoader), index
+		        .getClassLoadersForClass("org.apache.commons.bar.Bar"));
+		Assert.assertEquals(Collections.singletonList(fooClassLoader), index.getClassLoadersForClass("org.foolib.a.b.C"));
+		Assert.assertTrue(index.getClassLoadersForClass("org.openmrs.Concept").isEmpty());
+		Assert.assertTrue(index.getClassLoadersForClass("org.apache.commons.Foo").isEmpty());
+		Assert.assertTrue(index.getClassLoadersForClass("org.openmrs.module.foobar.Foo").isEmpty());
+	}
+	
+	/**
+	 * @see ModuleClassLoaderIndex#getClassLoadersForResource(String)
+	 * @verifies return the modules providing the directory of the resource or a directory below it
+	 */
+	@Test
+	public void getClassLoadersForResource_shouldReturnTheModulesProvidingTheDirectoryOfTheResourceOrADirectoryBelowIt()
+	        throws Exception {
+		Assert.assertEquals(Collections.singletonList(fooClassLoader), index
+		        .getClassLoadersForResource("org/openmrs/module/foo/messages.properties"));
+		Assert.assertEquals(Arrays.asList(fooClassLoader, barClassLoader), index
+		        .getClassLoadersForResource("org/apache/commons/"));
+		Assert.assertTrue(index.getClassLoadersForResource("org/openmrs/api/context/Context.class").isEmpty());
+	}
+	
+	/**
+	 * @see ModuleClassLoaderIndex#getClassLoadersForResource(String)
+	 * @verifies return all modules for resources outside of packages
+	 */
+	@Test
+	public void getClassLoadersForResource_shouldReturnAllModulesForResourcesOutsideOfPackages() throws Exception {
+		Assert.assertEquals(2, index.getClassLoadersForResource("config.xml").size());
+		Assert.assertEquals(2, index.getClassLoadersForResource("META-INF/services/javax.xml.Foo").size());
+		Assert.assertEquals(2, index.getClassLoadersForResource("web/module/resources/foo.js").size());
+	}
+	
+	/**
+	 * @see ModuleClassLoaderIndex#mayContainClass(ModuleClassLoader, String)
+	 * @verifies only match whole package names
+	 */
+	@Test
+	public void mayContainClass_shouldOnlyMatchWholePackageNames() throws Exception {
+		Assert.assertTrue(index.mayContainClass(fooClassLoader, "org.openmrs.module.foo.api.FooService"));
+		Assert.assertFalse(index.mayContainClass(fooClassLoader, "org.openmrs.module.foobar.Foo"));
+		Assert.assertTrue(index.mayContainClass(fooClassLoader, "DefaultPackageClass"));
+		Assert.assertFalse(index.mayContainClass(barClassLoader, "org.openmrs.module.foo.Foo"));
+	}
+	
+	/**
+	 * @see ModuleClassLoaderIndex#mayContainResource(ModuleClassLoader, String)
+	 * @verifies only match whole package names
+	 */
+	@Test
+	public void mayContainResource_shouldOnlyMatchWholePackageNames() throws Exception {
+		Assert.assertTrue(index.mayContainResource(fooClassLoader, "org/openmrs/module/foo/messages.properties"));
+		Assert.assertFalse(index.mayContainResource(fooClassLoader, "org/openmrs/module/foobar/messages.properties"));
+		Assert.assertTrue(index.mayContainResource(barClassLoader, "org/apache/commons/"));
+	}
+	
+	/**
+	 * @see ModuleClassLoaderIndex#isMissingClass(String)
+	 * @verifies remember the classes that were not found
+	 */
+	@Test
+	public void isMissingClass_shouldRememberTheClassesThatWereNotFound() throws Exception {
+		Assert.assertFalse(index.isMissingClass("org.foolib.Missing"));
+		index.addMissingClass("org.foolib.Missing");
+		Assert.assertTrue(index.isMissingClass("org.foolib.Missing"));
+		Assert.assertFalse(new ModuleClassLoaderIndex(Arrays.asList(fooClassLoader)).isMissingClass("org.foolib.Missing"));
+	}
+}
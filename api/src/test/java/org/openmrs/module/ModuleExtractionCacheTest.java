@@ -0,0 +1,147 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.util.OpenmrsUtil;
+
+/**
+ * Tests the methods in {@link ModuleExtractionCache}
+ */
+public class ModuleExtractionCacheTest {
+	
+	private static final String DATA_DIRECTORY_PROPERTY = "OPENMRS_APPLICATION_DATA_DIRECTORY";
+	
+	private File dataDirectory;
+	
+	@Before
+	public void createDataDirectory() throws Exception {
+		dataDirectory = File.createTempFile("moduleExtractionCacheTest", "");
+		dataDirectory.delete();
+		dataDirectory.mkdirs();
+		System.setProperty(DATA_DIRECTORY_PROPERTY, dataDirectory.getAbsolutePath());
+	}
+	
+	@After
+	public void deleteDataDirectory() throws Exception {
+		System.clearProperty(DATA_DIRECTORY_PROPERTY);
+		OpenmrsUtil.deleteDirectory(dataDirectory);
+	}
+	
+	private File newModuleFile(String name, String content) throws IOException {
+		File file = new File(dataDirectory, name + ".omod");
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(file));
+		try {
+			out.putNextEntry(new JarEntry("lib/library.jar"));
+			out.write(content.getBytes("UTF-8"));
+			out.closeEntry();
+		}
+		finally {
+			out.close();
+		}
+		return file;
+	}
+	
+	private Module newModule(String moduleId, File file) {
+		Module module = new Module(moduleId, moduleId, "org.openmrs.module." + moduleId, "author", "description", "1.0");
+		module.setFile(file);
+		return module;
+	}
+	
+	/**
+	 * @see ModuleExtractionCache#getExtractionFolder(Module)
+	 * @verifies extract the module file into a folder named after its hash
+	 */
+	@Test
+	public void getExtractionFolder_shouldExtractTheModuleFileIntoAFolderNamedAfterItsHash() throws Exception {
+		File file = newModuleFile("test", "library");
+		
+		File folder = ModuleExtractionCache.getExtractionFolder(newModule("test", file));
+		
+		Assert.assertEquals("test-" + ModuleExtractionCache.getFileHash(file), folder.getName());
+		Assert.assertEquals(file.length(), new File(folder, "test.jar").length());
+		Assert.assertTrue(new File(folder, "lib/library.jar").isFile());
+	}
+	
+	/**
+	 * @see ModuleExtractionCache#getExtractionFolder(Module)
+	 * @verifies reuse the folder of an unchanged module file
+	 */
+	@Test
+	public void getExtractionFolder_shouldReuseTheFolderOfAnUnchangedModuleFile() throws Exception {
+		Module module = newModule("test", newModuleFile("test", "library"));
+		File folder = ModuleExtractionCache.getExtractionFolder(module);
+		File marker = new File(folder, "marker");
+		marker.createNewFile();
+		
+		Assert.assertEquals(folder, ModuleExtractionCache.getExtractionFolder(module));
+		Assert.assertTrue(marker.exists());
+	}
+	
+	/**
+	 * @see ModuleExtractionCache#deleteStaleExtractions(java.util.Collection)
+	 * @verifies delete the folders of other module files
+	 */
+	@Test
+	public void deleteStaleExtractions_shouldDeleteTheFoldersOfOtherModuleFiles() throws Exception {
+		Module kept = newModule("kept", newModuleFile("kept", "library"));
+		File keptFolder = ModuleExtractionCache.getExtractionFolder(kept);
+		File staleFolder = ModuleExtractionCache.getExtractionFolder(newModule("stale", newModuleFile("stale", "other")));
+		
+		ModuleExtractionCache.deleteStaleExtractions(Collections.singletonList(kept));
+		
+		Assert.assertTrue(keptFolder.exists());
+		Assert.assertFalse(staleFolder.exists());
+	}
+	
+	/**
+	 * @see ModuleExtractionCache#getFileHash(File)
+	 * @verifies return the same hash for files with the same content
+	 */
+	@Test
+	public void getFileHash_shouldReturnTheSameHashForFilesWithTheSameContent() throws Exception {
+		File file = new File(dataDirectory, "a.txt");
+		File copy = new File(dataDirectory, "b.txt");
+		OpenmrsUtil.copyFile(new ByteArrayInputStream("content".getBytes("UTF-8")), new FileOutputStream(file));
+		OpenmrsUtil.copyFile(new ByteArrayInputStream("content".getBytes("UTF-8")), new FileOutputStream(copy));
+		
+		Assert.assertEquals(40, ModuleExtractionCache.getFileHash(file).length());
+		Assert.assertEquals(ModuleExtractionCache.getFileHash(file), ModuleExtractionCache.getFileHash(copy));
+	}
+	
+	/**
+	 * @see ModuleExtractionCache#getFileHash(File)
+	 * @verifies return a new hash when the file changes
+	 */
+	@Test
+	public void getFileHash_shouldReturnANewHashWhenTheFileChanges() throws Exception {
+		File file = newModuleFile("test", "library");
+		String hash = ModuleExtractionCache.getFileHash(file);
+		
+		newModuleFile("test", "a changed library");
+		
+		Assert.assertFalse(hash.equals(ModuleExtractionCache.getFileHash(file)));
+	}
+}
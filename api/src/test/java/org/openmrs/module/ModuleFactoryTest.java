@@ -0,0 +1,111 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.Extension.MEDIA_TYPE;
+
+/**
+ * Tests the methods in {@link ModuleFactory}
+ */
+public class ModuleFactoryTest {
+	
+	private Map<String, List<Extension>> originalExtensionMap;
+	
+	@Before
+	public void replaceExtensionMap() {
+		originalExtensionMap = ModuleFactory.extensionMap;
+		ModuleFactory.extensionMap = new HashMap<String, List<Extension>>();
+		ModuleFactory.invalidateExtensionIndex();
+	}
+	
+	@After
+	public void restoreExtensionMap() {
+		ModuleFactory.extensionMap = originalExtensionMap;
+		ModuleFactory.invalidateExtensionIndex();
+	}
+	
+	private Extension newExtension(String pointId, final MEDIA_TYPE mediaType) {
+		Extension extension = new Extension() {
+			
+			@Override
+			public MEDIA_TYPE getMediaType() {
+				return mediaType;
+			}
+		};
+		extension.setPointId(pointId);
+		
+		List<Extension> extensions = ModuleFactory.extensionMap.get(extension.getExtensionId());
+		if (extensions == null) {
+			extensions = new ArrayList<Extension>();
+			ModuleFactory.extensionMap.put(extension.getExtensionId(), extensions);
+		}
+		extensions.add(extension);
+		return extension;
+	}
+	
+	/**
+	 * @see ModuleFactory#getExtensions(String)
+	 * @verifies return the extensions of the point id and of all its media types
+	 */
+	@Test
+	public void getExtensions_shouldReturnTheExtensionsOfThePointIdAndOfAllItsMediaTypes() throws Exception {
+		Extension plain = newExtension("point", null);
+		Extension html = newExtension("point", MEDIA_TYPE.html);
+		Extension other = newExtension("otherPoint", MEDIA_TYPE.html);
+		
+		Assert.assertEquals(Arrays.asList(plain, html), ModuleFactory.getExtensions("point"));
+		Assert.assertEquals(Arrays.asList(html), ModuleFactory.getExtensions("point", MEDIA_TYPE.html));
+		Assert.assertEquals(Arrays.asList(plain, html), ModuleFactory.getExtensions("point", MEDIA_TYPE.java));
+		Assert.assertEquals(Arrays.asList(other), ModuleFactory.getExtensions("otherPoint"));
+	}
+	
+	/**
+	 * @see ModuleFactory#getExtensions(String)
+	 * @verifies return an empty list if no modules extend the point id
+	 */
+	@Test
+	public void getExtensions_shouldReturnAnEmptyListIfNoModulesExtendThePointId() throws Exception {
+		newExtension("point", MEDIA_TYPE.html);
+		
+		Assert.assertTrue(ModuleFactory.getExtensions("unknownPoint").isEmpty());
+		Assert.assertTrue(ModuleFactory.getExtensions("unknownPoint", MEDIA_TYPE.html).isEmpty());
+	}
+	
+	/**
+	 * @see ModuleFactory#getExtensions(String)
+	 * @verifies return the changed extensions once the index is invalidated
+	 */
+	@Test
+	public void getExtensions_shouldReturnTheChangedExtensionsOnceTheIndexIsInvalidated() throws Exception {
+		Extension html = newExtension("point", MEDIA_TYPE.html);
+		Assert.assertEquals(Arrays.asList(html), ModuleFactory.getExtensions("point"));
+		
+		Extension xml = newExtension("point", MEDIA_TYPE.xml);
+		ModuleFactory.invalidateExtensionIndex();
+		
+		List<Extension> extensions = ModuleFactory.getExtensions("point");
+		Assert.assertEquals(2, extensions.size());
+		Assert.assertTrue(extensions.containsAll(Arrays.asList(html, xml)));
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the methods in {@link ModuleStartupPlanner}
+ */
+public class ModuleStartupPlannerTest {
+	
+	private Module newModule(String moduleId, String... requiredModuleIds) {
+		Module module = new Module(moduleId, moduleId, "org.openmrs.module." + moduleId, "author", "description", "1.0");
+		Map<String, String> requiredModules = new HashMap<String, String>();
+		for (String requiredModuleId : requiredModuleIds) {
+			requiredModules.put("org.openmrs.module." + requiredModuleId, null);
+		}
+		module.setRequiredModulesMap(requiredModules);
+		return module;
+	}
+	
+	/**
+	 * @see ModuleStartupPlanner#getStartupOrder(java.util.Collection)
+	 * @verifies put modules after the modules they require or are aware of
+	 */
+	@Test
+	public void getStartupOrder_shouldPutModulesAfterTheModulesTheyRequireOrAreAwareOf() throws Exception {
+		Module a = newModule("a", "b");
+		Module b = newModule("b", "c");
+		Module c = newModule("c");
+		Module d = newModule("d");
+		d.setAwareOfModulesMap(Collections.<String, String> singletonMap("org.openmrs.module.a", null));
+		
+		Assert.assertEquals(Arrays.asList(c, b, a, d), ModuleStartupPlanner.getStartupOrder(Arrays.asList(d, a, b, c)));
+	}
+	
+	/**
+	 * @see ModuleStartupPlanner#getStartupOrder(java.util.Collection)
+	 * @verifies keep the order of independent modules
+	 */
+	@Test
+	public void getStartupOrder_shouldKeepTheOrderOfIndependentModules() throws Exception {
+		Module a = newModule("a");
+		Module b = newModule("b", "notloaded");
+		Module c = newModule("c");
+		
+		Assert.assertEquals(Arrays.asList(b, c, a), ModuleStartupPlanner.getStartupOrder(Arrays.asList(b, c, a)));
+	}
+	
+	/**
+	 * @see ModuleStartupPlanner#getStartupOrder(java.util.Collection)
+	 * @verifies put modules with circular dependencies at the end
+	 */
+	@Test
+	public void getStartupOrder_shouldPutModulesWithCircularDependenciesAtTheEnd() throws Exception {
+		Module a = newModule("a", "b");
+		Module b = newModule("b", "a");
+		Module c = newModule("c");
+		
+		Assert.assertEquals(Arrays.asList(c, a, b), ModuleStartupPlanner.getStartupOrder(Arrays.asList(a, b, c)));
+	}
+}
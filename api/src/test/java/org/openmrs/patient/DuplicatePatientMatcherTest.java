@@ -0,0 +1,181 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.patient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.text.SimpleDateFormat;
+import java.util.Set;
+
+import org.junit.Test;
+import org.openmrs.Location;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PatientIdentifierType;
+import org.openmrs.PersonName;
+import org.openmrs.test.Verifies;
+
+/**
+ * Tests the {@link DuplicatePatientMatcher}
+ */
+public class DuplicatePatientMatcherTest {
+	
+	private Patient createPatient(String givenName, String familyName, String gender, String birthdate, String identifier)
+	        throws Exception {
+		Patient patient = new Patient();
+		patient.addName(new PersonName(givenName, null, familyName));
+		patient.setGender(gender);
+		if (birthdate != null) {
+			patient.setBirthdate(new SimpleDateFormat("yyyy-MM-dd").parse(birthdate));
+		}
+		if (identifier != null) {
+			patient.addIdentifier(new PatientIdentifier(identifier, new PatientIdentifierType(1), new Location(1)));
+		}
+		return patient;
+	}
+	
+	/**
+	 * @see {@link DuplicatePatientMatcher#getBlockingKeys(Patient)}
+	 */
+	@Test
+	@Verifies(value = "should return the phonetic family name with the birth year", method = "getBlockingKeys(Patient)")
+	public void getBlockingKeys_shouldReturnThePhoneticFamilyNameWithTheBirthYear() throws Exception {
+		Set<String> keys = DuplicatePatientMatcher.getBlockingKeys(createPatient("Horatio", "Hornblower", "M",
+		    "1975-04-08", null));
+		assertTrue(keys.contains("family:H651:1975"));
+	}
+	
+	/**
+	 * @see {@link DuplicatePatientMatcher#getBlockingKeys(Patient)}
+	 */
+	@Test
+	@Verifies(value = "should return the phonetic family and given name with the gender", method = "getBlockingKeys(Patient)")
+	public void getBlockingKeys_shouldReturnThePhoneticFamilyAndGivenNameWithTheGender() throws Exception {
+		Set<String> keys = DuplicatePatientMatcher.getBlockingKeys(createPatient("Horatio", "Hornblower", "M", null,
+		    null));
+		assertEquals(1, keys.size());
+		assertTrue(keys.contains("name:H651:H630:M"));
+	}
+	
+	/**
+	 * @see {@link DuplicatePatientMatcher#getBlockingKeys(Patient)}
+	 */
+	@Test
+	@Verifies(value = "should return the trailing characters of the identifiers", method = "getBlockingKeys(Patient)")
+	public void getBlockingKeys_shouldReturnTheTrailingCharactersOfTheIdentifiers() throws Exception {
+		Set<String> keys = DuplicatePatientMatcher.getBlockingKeys(createPatient(null, null, "M", null, "ab-1234-56-7"));
+		assertEquals(1, keys.size());
+		assertTrue(keys.contains("identifier:234567"));
+	}
+	
+	/**
+	 * @see {@link DuplicatePatientMatcher#getBlockingKeys(Patient)}
+	 */
+	@Test
+	@Verifies(value = "should return no keys for a voided patient", method = "getBlockingKeys(Patient)")
+	public void getBlockingKeys_shouldReturnNoKeysForAVoidedPatient() throws Exception {
+		Patient patient = createPatient("Horatio", "Hornblower", "M", "1975-04-08", "101-6");
+		patient.setVoided(true);
+		assertTrue(DuplicatePatientMatcher.getBlockingKeys(patient).isEmpty());
+	}
+	
+	/**
+	 * @see {@link DuplicatePatientMatcher#getScore(Patient,Patient)}
+	 */
+	@Test
+	@Verifies(value = "should return one for patients with the same names birthdate gender and identifier", method = "getScore(Patient,Patient)")
+	public void getScore_shouldReturnOneForPatientsWithTheSameNamesBirthdateGenderAndIdentifier() throws Exception {
+		Patient patient = createPatient("Horatio", "Hornblower", "M", "1975-04-08", "101-6");
+		Patient otherPatient = createPatient("HORATIO", "hornblower", "M", "1975-04-08", "1016");
+		assertEquals(1.0, DuplicatePatientMatcher.getScore(patient, otherPatient), 0);
+	}
+	
+	/**
+	 * @see {@link DuplicatePatientMatcher#getScore(Patient,Patient)}
+	 */
+	@Test
+	@Verifies(value = "should score names that sound alike lower than equal names", method = "getScore(Patient,Patient)")
+	public void getScore_shouldScoreNamesThatSoundAlikeLowerThanEqualNames() throws Exception {
+		Patient patient = createPatient("Horatio", "Hornblower", null, null, null);
+		assertEquals(0.5, DuplicatePatientMatcher.getScore(patient, createPatient("Horatio", "Hornblower", null, null,
+		    null)), 0);
+		assertEquals(0.35, DuplicatePatientMatcher.getScore(patient, createPatient("Horatio", "Hornblauer", null, null,
+		    null)), 0);
+	}
+	
+	/**
+	 * @see {@link DuplicatePatientMatcher#getScore(Patient,Patient)}
+	 */
+	@Test
+	@Verifies(value = "should score the same birth year lower than the same birthdate", method = "getScore(Patient,Patient)")
+	public void getScore_shouldScoreTheSameBirthYearLowerThanTheSameBirthdate() throws Exception {
+		Patient patient = createPatient(null, null, null, "1975-04-08", null);
+		assertEquals(0.25, DuplicatePatientMatcher.getScore(patient, createPatient(null, null, null, "1975-04-08", null)),
+		    0);
+		assertEquals(0.1, DuplicatePatientMatcher.getScore(patient, createPatient(null, null, null, "1975-12-01", null)), 0);
+	}
+	
+	/**
+	 * @see {@link DuplicatePatientMatcher#getScore(Patient,Patient)}
+	 */
+	@Test
+	@Verifies(value = "should return zero for patients that have nothing in common", method = "getScore(Patient,Patient)")
+	public void getScore_shouldReturnZeroForPatientsThatHaveNothingInCommon() throws Exception {
+		Patient patient = createPatient("Horatio", "Hornblower", "M", "1975-04-08", "101-6");
+		Patient otherPatient = createPatient("Anet", "Oloo", "F", "1976-08-25", "7TU-8");
+		assertEquals(0.0, DuplicatePatientMatcher.getScore(patient, otherPatient), 0);
+	}
+	
+	/**
+	 * @see {@link DuplicatePatientMatcher#soundex(String)}
+	 */
+	@Test
+	@Verifies(value = "should return the same code for names that sound alike", method = "soundex(String)")
+	public void soundex_shouldReturnTheSameCodeForNamesThatSoundAlike() throws Exception {
+		assertEquals("R163", DuplicatePatientMatcher.soundex("Robert"));
+		assertEquals("R163", DuplicatePatientMatcher.soundex("Rupert"));
+		assertEquals("T522", DuplicatePatientMatcher.soundex("Tymczak"));
+		assertEquals("P236", DuplicatePatientMatcher.soundex("Pfister"));
+	}
+	
+	/**
+	 * @see {@link DuplicatePatientMatcher#soundex(String)}
+	 */
+	@Test
+	@Verifies(value = "should skip consonants separated by h or w that sound alike", method = "soundex(String)")
+	public void soundex_shouldSkipConsonantsSeparatedByHOrWThatSoundAlike() throws Exception {
+		assertEquals("A261", DuplicatePatientMatcher.soundex("Ashcraft"));
+	}
+	
+	/**
+	 * @see {@link DuplicatePatientMatcher#soundex(String)}
+	 */
+	@Test
+	@Verifies(value = "should pad short names with zeros", method = "soundex(String)")
+	public void soundex_shouldPadShortNamesWithZeros() throws Exception {
+		assertEquals("D000", DuplicatePatientMatcher.soundex("Doe"));
+	}
+	
+	/**
+	 * @see {@link DuplicatePatientMatcher#soundex(String)}
+	 */
+	@Test
+	@Verifies(value = "should return null for a name without letters", method = "soundex(String)")
+	public void soundex_shouldReturnNullForANameWithoutLetters() throws Exception {
+		assertNull(DuplicatePatientMatcher.soundex("123"));
+		assertNull(DuplicatePatientMatcher.soundex(null));
+	}
+}
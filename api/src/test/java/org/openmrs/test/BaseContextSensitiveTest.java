@@ -686,6 +686,15 @@ public abstract class BaseContextSensitiveTest extends AbstractJUnit4SpringConte
 		//Do the actual update/insert:
 		//insert new rows, update existing rows, and leave others alone
 		DatabaseOperation.REFRESH.execute(dbUnitConn, dataset);
+		
+		//the rows were written behind the back of hibernate, so anything it cached might be stale
+		clearHibernateCache();
+		
+		//the dataset might contain global properties
+		Context.getAdministrationService().refreshGlobalPropertyCache();
+		
+		//or concepts and mappings
+		Context.getConceptService().refreshConceptCaches();
 	}
 	
 	private IDatabaseConnection setupDatabaseConnection(Connection connection) throws DatabaseUnitException {
@@ -744,6 +753,25 @@ public abstract class BaseContextSensitiveTest extends AbstractJUnit4SpringConte
 		SessionFactory sf = (SessionFactory) applicationContext.getBean("sessionFactory");
 		sf.getCache().evictCollectionRegions();
 		sf.getCache().evictEntityRegions();
+		sf.getCache().evictQueryRegions();
+	}
+	
+	/**
+	 * Method to clear the global property cache, values loaded by a previous test might have been
+	 * rolled back
+	 */
+	@Before
+	public void clearGlobalPropertyCache() {
+		Context.getAdministrationService().refreshGlobalPropertyCache();
+	}
+	
+	/**
+	 * Method to clear the concept snapshots and mappings kept in memory, values loaded by a
+	 * previous test might have been rolled back
+	 */
+	@Before
+	public void clearConceptCaches() {
+		Context.getConceptService().refreshConceptCaches();
 	}
 	
 	/**
@@ -813,6 +841,8 @@ public abstract class BaseContextSensitiveTest extends AbstractJUnit4SpringConte
 		for (Class<?> indexType : getIndexedTypes()) {
 			Context.updateSearchIndexForType(indexType);
 		}
+		// searches cached before the update would not see the modified concepts
+		Context.getConceptService().refreshConceptCaches();
 	}
 	
 	@After
@@ -0,0 +1,171 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.test.Verifies;
+
+/**
+ * Tests the methods in {@link CompressedIntegerSet}
+ */
+public class CompressedIntegerSetTest {
+	
+	/**
+	 * Builds a set with a sparse group, a dense group and a negative value
+	 */
+	private TreeSet<Integer> buildValues(int start, int step) {
+		TreeSet<Integer> values = new TreeSet<Integer>();
+		values.add(-5);
+		for (int i = start; i < 10000; i += step) {
+			values.add(i);
+		}
+		for (int i = 200000 + start; i < 200000 + 5 * CompressedIntegerSet.ARRAY_CONTAINER_MAX_SIZE; i += step) {
+			values.add(i);
+		}
+		return values;
+	}
+	
+	/**
+	 * @see {@link CompressedIntegerSet#add(int)}
+	 */
+	@Test
+	@Verifies(value = "should add values to sparse and dense groups", method = "add(int)")
+	public void add_shouldAddValuesToSparseAndDenseGroups() throws Exception {
+		TreeSet<Integer> expected = buildValues(0, 1);
+		CompressedIntegerSet set = new CompressedIntegerSet(expected);
+		
+		Assert.assertEquals(expected.size(), set.size());
+		Assert.assertEquals(expected, set);
+		Assert.assertFalse(set.add(200001));
+		Assert.assertTrue(set.contains(-5));
+		Assert.assertFalse(set.contains(-6));
+		Assert.assertFalse(set.contains("200001"));
+	}
+	
+	/**
+	 * @see {@link CompressedIntegerSet#intIterator()}
+	 */
+	@Test
+	@Verifies(value = "should iterate over all values in ascending order", method = "intIterator()")
+	public void intIterator_shouldIterateOverAllValuesInAscendingOrder() throws Exception {
+		TreeSet<Integer> expected = buildValues(3, 2);
+		CompressedIntegerSet set = new CompressedIntegerSet(expected);
+		
+		List<Integer> actual = new ArrayList<Integer>();
+		for (CompressedIntegerSet.IntIterator i = set.intIterator(); i.hasNext();) {
+			actual.add(i.next());
+		}
+		Assert.assertEquals(new ArrayList<Integer>(expected), actual);
+	}
+	
+	/**
+	 * @see {@link CompressedIntegerSet#iterator()}
+	 */
+	@Test
+	@Verifies(value = "should support removing values while iterating", method = "iterator()")
+	public void iterator_shouldSupportRemovingValuesWhileIterating() throws Exception {
+		TreeSet<Integer> expected = buildValues(0, 1);
+		CompressedIntegerSet set = new CompressedIntegerSet(expected);
+		
+		for (Iterator<Integer> i = set.iterator(); i.hasNext();) {
+			if (i.next() % 3 != 0) {
+				i.remove();
+			}
+		}
+		for (Iterator<Integer> i = expected.iterator(); i.hasNext();) {
+			if (i.next() % 3 != 0) {
+				i.remove();
+			}
+		}
+		Assert.assertEquals(new ArrayList<Integer>(expected), new ArrayList<Integer>(set));
+	}
+	
+	/**
+	 * @see {@link CompressedIntegerSet#union(CompressedIntegerSet,CompressedIntegerSet)}
+	 */
+	@Test
+	@Verifies(value = "should return all values in either set", method = "union(CompressedIntegerSet,CompressedIntegerSet)")
+	public void union_shouldReturnAllValuesInEitherSet() throws Exception {
+		TreeSet<Integer> a = buildValues(0, 2);
+		TreeSet<Integer> b = buildValues(0, 3);
+		b.add(1000000);
+		
+		TreeSet<Integer> expected = new TreeSet<Integer>(a);
+		expected.addAll(b);
+		Assert.assertEquals(expected, CompressedIntegerSet.union(new CompressedIntegerSet(a), new CompressedIntegerSet(b)));
+	}
+	
+	/**
+	 * @see {@link CompressedIntegerSet#intersect(CompressedIntegerSet,CompressedIntegerSet)}
+	 */
+	@Test
+	@Verifies(value = "should return the values in both sets", method = "intersect(CompressedIntegerSet,CompressedIntegerSet)")
+	public void intersect_shouldReturnTheValuesInBothSets() throws Exception {
+		TreeSet<Integer> a = buildValues(0, 2);
+		TreeSet<Integer> b = buildValues(0, 3);
+		
+		TreeSet<Integer> expected = new TreeSet<Integer>(a);
+		expected.retainAll(b);
+		Assert.assertEquals(expected, CompressedIntegerSet.intersect(new CompressedIntegerSet(a), new CompressedIntegerSet(
+		        b)));
+	}
+	
+	/**
+	 * @see {@link CompressedIntegerSet#subtract(CompressedIntegerSet,CompressedIntegerSet)}
+	 */
+	@Test
+	@Verifies(value = "should return the values of the first set that are not in the second set", method = "subtract(CompressedIntegerSet,CompressedIntegerSet)")
+	public void subtract_shouldReturnTheValuesOfTheFirstSetThatAreNotInTheSecondSet() throws Exception {
+		TreeSet<Integer> a = buildValues(0, 1);
+		TreeSet<Integer> b = buildValues(0, 3);
+		
+		TreeSet<Integer> expected = new TreeSet<Integer>(a);
+		expected.removeAll(b);
+		Assert.assertEquals(expected, CompressedIntegerSet.subtract(new CompressedIntegerSet(a), new CompressedIntegerSet(
+		        b)));
+	}
+	
+	/**
+	 * @see {@link CompressedIntegerSet#retainAll(java.util.Collection)}
+	 */
+	@Test
+	@Verifies(value = "should keep only the values in the given collection", method = "retainAll(Collection)")
+	public void retainAll_shouldKeepOnlyTheValuesInTheGivenCollection() throws Exception {
+		CompressedIntegerSet set = new CompressedIntegerSet(Arrays.asList(1, 2, 3, 70000));
+		
+		Assert.assertTrue(set.retainAll(new HashSet<Integer>(Arrays.asList(2, 70000, 80000))));
+		Assert.assertEquals(new TreeSet<Integer>(Arrays.asList(2, 70000)), set);
+	}
+	
+	/**
+	 * @see {@link CompressedIntegerSet#removeAll(java.util.Collection)}
+	 */
+	@Test
+	@Verifies(value = "should remove the values in the given collection", method = "removeAll(Collection)")
+	public void removeAll_shouldRemoveTheValuesInTheGivenCollection() throws Exception {
+		CompressedIntegerSet set = new CompressedIntegerSet(Arrays.asList(1, 2, 3, 70000));
+		
+		Assert.assertTrue(set.removeAll(Arrays.asList(2, 70000, 80000)));
+		Assert.assertEquals(new TreeSet<Integer>(Arrays.asList(1, 3)), set);
+		Assert.assertFalse(set.removeAll(new CompressedIntegerSet(Arrays.asList(4))));
+	}
+}
@@ -57,6 +57,23 @@ public class HandlerUtilTest extends BaseContextSensitiveTest {
 		Assert.assertEquals(0, l.size());
 	}
 	
+	/**
+	 * @see {@link HandlerUtil#getHandlersForType(Class, Class)}
+	 */
+	@Test
+	@Verifies(value = "should not be affected by changes to previously returned lists", method = "getHandlersForType(Class, Class)")
+	public void getHandlersForType_shouldNotBeAffectedByChangesToPreviouslyReturnedLists() throws Exception {
+		List<Validator> l = HandlerUtil.getHandlersForType(Validator.class, DrugOrder.class);
+		l.clear();
+		
+		l = HandlerUtil.getHandlersForType(Validator.class, DrugOrder.class);
+		Assert.assertEquals(2, l.size());
+		Assert.assertEquals(DrugOrderValidator.class, l.get(0).getClass());
+		
+		HandlerUtil.clearCachedHandlers();
+		Assert.assertEquals(l, HandlerUtil.getHandlersForType(Validator.class, DrugOrder.class));
+	}
+	
 	/**
 	 * @see {@link HandlerUtil#getPreferredHandler(Class, Class)}
 	 */
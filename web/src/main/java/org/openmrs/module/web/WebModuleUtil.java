@@ -26,11 +26,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.Set;
 import java.util.Vector;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -57,7 +59,9 @@ import org.openmrs.api.context.Context;
 import org.openmrs.module.Module;
 import org.openmrs.module.ModuleConstants;
 import org.openmrs.module.ModuleException;
+import org.openmrs.module.ModuleExtractionCache;
 import org.openmrs.module.ModuleFactory;
+import org.openmrs.module.ModuleStartupPlanner;
 import org.openmrs.module.ModuleUtil;
 import org.openmrs.module.web.filter.ModuleFilterConfig;
 import org.openmrs.module.web.filter.ModuleFilterDefinition;
@@ -101,6 +105,12 @@ public class WebModuleUtil {
 	private static List<ModuleFilterMapping> moduleFilterMappings = Collections
 	        .synchronizedList(new Vector<ModuleFilterMapping>());
 	
+	// the modules whose web resources were copied at startup, with whether they need a context refresh
+	private static Map<Module, Boolean> copiedWebResources = Collections.synchronizedMap(new HashMap<Module, Boolean>());
+	
+	// the file in WEB-INF recording the hash of the module files whose web resources are in the webapp
+	private static final String WEB_RESOURCES_INDEX_FILE_NAME = "module_web_resources.properties";
+	
 	/**
 	 * Performs the webapp specific startup needs for modules Normal startup is done in
 	 * {@link ModuleFactory#startModule(Module)} If delayContextRefresh is true, the spring context
@@ -141,104 +151,10 @@ public class WebModuleUtil {
 			
 			// flag to tell whether we added any xml/dwr/etc changes that necessitate a refresh
 			// of the web application context
-			boolean moduleNeedsContextRefresh = false;
-			
-			// copy the html files into the webapp (from /web/module/ in the module)
-			// also looks for a spring context file. If found, schedules spring to be restarted
-			JarFile jarFile = null;
-			OutputStream outStream = null;
-			InputStream inStream = null;
-			try {
-				File modFile = mod.getFile();
-				jarFile = new JarFile(modFile);
-				Enumeration<JarEntry> entries = jarFile.entries();
-				
-				while (entries.hasMoreElements()) {
-					JarEntry entry = entries.nextElement();
-					String name = entry.getName();
-					log.debug("Entry name: " + name);
-					if (name.startsWith("web/module/")) {
-						// trim out the starting path of "web/module/"
-						String filepath = name.substring(11);
-						
-						StringBuffer absPath = new StringBuffer(realPath + "/WEB-INF");
-						
-						// If this is within the tag file directory, copy it into /WEB-INF/tags/module/moduleId/...
-						if (filepath.startsWith("tags/")) {
-							filepath = filepath.substring(5);
-							absPath.append("/tags/module/");
-						}
-						// Otherwise, copy it into /WEB-INF/view/module/moduleId/...
-						else {
-							absPath.append("/view/module/");
-						}
-						
-						// if a module id has a . in it, we should treat that as a /, i.e. files in the module
-						// ui.springmvc should go in folder names like .../ui/springmvc/...
-						absPath.append(mod.getModuleIdAsPath() + "/" + filepath);
-						if (log.isDebugEnabled()) {
-							log.debug("Moving file from: " + name + " to " + absPath);
-						}
-						
-						// get the output file
-						File outFile = new File(absPath.toString().replace("/", File.separator));
-						if (entry.isDirectory()) {
-							if (!outFile.exists()) {
-								outFile.mkdirs();
-							}
-						} else {
-							// make the parent directories in case it doesn't exist
-							File parentDir = outFile.getParentFile();
-							if (!parentDir.exists()) {
-								parentDir.mkdirs();
-							}
-							
-							//if (outFile.getName().endsWith(".jsp") == false)
-							//	outFile = new File(absPath.replace("/", File.separator) + MODULE_NON_JSP_EXTENSION);
-							
-							// copy the contents over to the webapp for non directories
-							outStream = new FileOutputStream(outFile, false);
-							inStream = jarFile.getInputStream(entry);
-							OpenmrsUtil.copyFile(inStream, outStream);
-						}
-					} else if (name.equals("moduleApplicationContext.xml") || name.equals("webModuleApplicationContext.xml")) {
-						moduleNeedsContextRefresh = true;
-					} else if (name.equals(mod.getModuleId() + "Context.xml")) {
-						String msg = "DEPRECATED: '" + name
-						        + "' should be named 'moduleApplicationContext.xml' now. Please update/upgrade. ";
-						throw new ModuleException(msg, mod.getModuleId());
-					}
-				}
-			}
-			catch (IOException io) {
-				log.warn("Unable to copy files from module " + mod.getModuleId() + " to the web layer", io);
-			}
-			finally {
-				if (jarFile != null) {
-					try {
-						jarFile.close();
-					}
-					catch (IOException io) {
-						log.warn("Couldn't close jar file: " + jarFile.getName(), io);
-					}
-				}
-				if (inStream != null) {
-					try {
-						inStream.close();
-					}
-					catch (IOException io) {
-						log.warn("Couldn't close InputStream: " + io);
-					}
-				}
-				if (outStream != null) {
-					try {
-						outStream.close();
-					}
-					catch (IOException io) {
-						log.warn("Couldn't close OutputStream: " + io);
-					}
-				}
-			}
+			// (the web resources were already copied if the module is started at openmrs startup)
+			Boolean copiedWebResourcesNeedRefresh = copiedWebResources.remove(mod);
+			boolean moduleNeedsContextRefresh = copiedWebResourcesNeedRefresh != null ? copiedWebResourcesNeedRefresh
+			        : copyWebResourcesIntoWebapp(mod, realPath);
 			
 			// find and add the dwr code to the dwr-modules.xml file (if defined)
 			InputStream inputStream = null;
@@ -294,11 +210,8 @@ public class WebModuleUtil {
 				}
 			}
 			
-			// mark to delete the entire module web directory on exit
-			// this will usually only be used when an improper shutdown has occurred.
-			String folderPath = realPath + "/WEB-INF/view/module/" + mod.getModuleIdAsPath();
-			File outFile = new File(folderPath.replace("/", File.separator));
-			outFile.deleteOnExit();
+			// the module web directory is kept on exit, so that it is not copied again at the next
+			// startup if the module is unchanged
 			
 			// additional checks on module needing a context refresh
 			if (moduleNeedsContextRefresh == false) {
@@ -374,6 +287,269 @@ public class WebModuleUtil {
 		return false;
 	}
 	
+	/**
+	 * Copies the files in the web/module folder of the given modules into the webapp concurrently,
+	 * so that {@link #startModule(Module, ServletContext, boolean)} does not have to copy them one
+	 * module at a time. The modules copy into separate folders, the files shared by the modules are
+	 * still written when the modules are started.
+	 *
+	 * @param modules the modules about to be started
+	 * @param servletContext the current ServletContext
+	 * @since 1.12
+	 */
+	public static void copyWebResourcesIntoWebapp(Collection<Module> modules, ServletContext servletContext) {
+		String path = getRealPath(servletContext);
+		final String realPath = path != null ? path : System.getProperty("user.dir");
+		
+		Map<Module, Exception> failures = ModuleStartupPlanner.runInParallel(modules,
+		    new ModuleStartupPlanner.Task<Module>() {
+			    
+			    @Override
+			    public void run(Module mod) throws Exception {
+				    if (ModuleFactory.isModuleStarted(mod) && !mod.hasStartupError()) {
+					    long start = System.currentTimeMillis();
+					    copiedWebResources.put(mod, copyWebResourcesIntoWebapp(mod, realPath));
+					    ModuleStartupPlanner.recordPhase(mod.getModuleId(), "web resources", start);
+				    }
+			    }
+		    });
+		for (Map.Entry<Module, Exception> failure : failures.entrySet()) {
+			// the module fails when it is started and its web resources are copied again
+			log.debug("Unable to copy the web resources of module " + failure.getKey().getModuleId(), failure.getValue());
+		}
+		
+		deleteStaleWebResources(realPath);
+	}
+	
+	/**
+	 * Copies the files in the web/module folder of the module into the webapp, unless they were
+	 * already copied from the same module file by an earlier startup
+	 *
+	 * @param mod the module whose web resources to copy
+	 * @param realPath the real path of the webapp
+	 * @return true if the module has a spring context file, which requires a context refresh
+	 */
+	private static boolean copyWebResourcesIntoWebapp(Module mod, String realPath) {
+		String hash = null;
+		try {
+			hash = ModuleExtractionCache.getFileHash(mod.getFile());
+			Boolean copiedNeedsRefresh = getCopiedWebResources(mod, hash, realPath);
+			if (copiedNeedsRefresh != null) {
+				log.debug("The web resources of module " + mod.getModuleId() + " are unchanged");
+				return copiedNeedsRefresh;
+			}
+		}
+		catch (IOException io) {
+			log.warn("Unable to hash the file of module " + mod.getModuleId(), io);
+		}
+		
+		boolean moduleNeedsContextRefresh = false;
+		boolean copied = false;
+		boolean hasViews = false;
+		
+		// copy the html files into the webapp (from /web/module/ in the module)
+		// also looks for a spring context file. If found, schedules spring to be restarted
+		JarFile jarFile = null;
+		OutputStream outStream = null;
+		InputStream inStream = null;
+		try {
+			File modFile = mod.getFile();
+			jarFile = new JarFile(modFile);
+			Enumeration<JarEntry> entries = jarFile.entries();
+			
+			while (entries.hasMoreElements()) {
+				JarEntry entry = entries.nextElement();
+				String name = entry.getName();
+				log.debug("Entry name: " + name);
+				if (name.startsWith("web/module/")) {
+					// trim out the starting path of "web/module/"
+					String filepath = name.substring(11);
+					
+					StringBuffer absPath = new StringBuffer(realPath + "/WEB-INF");
+					
+					// If this is within the tag file directory, copy it into /WEB-INF/tags/module/moduleId/...
+					if (filepath.startsWith("tags/")) {
+						filepath = filepath.substring(5);
+						absPath.append("/tags/module/");
+					}
+					// Otherwise, copy it into /WEB-INF/view/module/moduleId/...
+					else {
+						absPath.append("/view/module/");
+						hasViews = true;
+					}
+					
+					// if a module id has a . in it, we should treat that as a /, i.e. files in the module
+					// ui.springmvc should go in folder names like .../ui/springmvc/...
+					absPath.append(mod.getModuleIdAsPath() + "/" + filepath);
+					if (log.isDebugEnabled()) {
+						log.debug("Moving file from: " + name + " to " + absPath);
+					}
+					
+					// get the output file
+					File outFile = new File(absPath.toString().replace("/", File.separator));
+					if (entry.isDirectory()) {
+						if (!outFile.exists()) {
+							outFile.mkdirs();
+						}
+					} else {
+						// make the parent directories in case it doesn't exist
+						File parentDir = outFile.getParentFile();
+						if (!parentDir.exists()) {
+							parentDir.mkdirs();
+						}
+						
+						//if (outFile.getName().endsWith(".jsp") == false)
+						//	outFile = new File(absPath.replace("/", File.separator) + MODULE_NON_JSP_EXTENSION);
+						
+						// copy the contents over to the webapp for non directories
+						outStream = new FileOutputStream(outFile, false);
+						inStream = jarFile.getInputStream(entry);
+						OpenmrsUtil.copyFile(inStream, outStream);
+					}
+				} else if (name.equals("moduleApplicationContext.xml") || name.equals("webModuleApplicationContext.xml")) {
+					moduleNeedsContextRefresh = true;
+				} else if (name.equals(mod.getModuleId() + "Context.xml")) {
+					String msg = "DEPRECATED: '" + name
+					        + "' should be named 'moduleApplicationContext.xml' now. Please update/upgrade. ";
+					throw new ModuleException(msg, mod.getModuleId());
+				}
+			}
+			copied = true;
+		}
+		catch (IOException io) {
+			log.warn("Unable to copy files from module " + mod.getModuleId() + " to the web layer", io);
+		}
+		finally {
+			if (jarFile != null) {
+				try {
+					jarFile.close();
+				}
+				catch (IOException io) {
+					log.warn("Couldn't close jar file: " + jarFile.getName(), io);
+				}
+			}
+			if (inStream != null) {
+				try {
+					inStream.close();
+				}
+				catch (IOException io) {
+					log.warn("Couldn't close InputStream: " + io);
+				}
+			}
+			if (outStream != null) {
+				try {
+					outStream.close();
+				}
+				catch (IOException io) {
+					log.warn("Couldn't close OutputStream: " + io);
+				}
+			}
+		}
+		
+		if (copied && hash != null) {
+			setCopiedWebResources(mod.getModuleId(), hash + "," + moduleNeedsContextRefresh + "," + hasViews, realPath);
+		}
+		
+		return moduleNeedsContextRefresh;
+	}
+	
+	/**
+	 * @return whether the web resources copied from the given module file need a context refresh,
+	 *         or null if they are not in the webapp
+	 */
+	private static synchronized Boolean getCopiedWebResources(Module mod, String hash, String realPath) {
+		String copied = loadWebResourcesIndex(realPath).getProperty(mod.getModuleId());
+		if (copied == null) {
+			return null;
+		}
+		
+		String[] values = copied.split(",");
+		if (values.length != 3 || !values[0].equals(hash)) {
+			// remove the files of the earlier version of the module
+			deleteWebResources(mod.getModuleId(), realPath);
+			return null;
+		}
+		
+		// the files may have been removed from the webapp in the meantime
+		File viewFolder = new File((realPath + "/WEB-INF/view/module/" + mod.getModuleIdAsPath()).replace("/",
+		    File.separator));
+		if (Boolean.valueOf(values[2]) && !viewFolder.exists()) {
+			return null;
+		}
+		
+		return Boolean.valueOf(values[1]);
+	}
+	
+	/**
+	 * Records the web resources of a module in the webapp
+	 *
+	 * @param moduleId the id of the module
+	 * @param copied the hash of the module file, whether a context refresh is needed and whether
+	 *            there are views, or null if the web resources were deleted
+	 * @param realPath the real path of the webapp
+	 */
+	private static synchronized void setCopiedWebResources(String moduleId, String copied, String realPath) {
+		Properties index = loadWebResourcesIndex(realPath);
+		if (copied != null) {
+			index.setProperty(moduleId, copied);
+		} else if (index.remove(moduleId) == null) {
+			return;
+		}
+		OpenmrsUtil.storeProperties(index, getWebResourcesIndexFile(realPath), "The web resources of the modules");
+	}
+	
+	private static Properties loadWebResourcesIndex(String realPath) {
+		Properties index = new Properties();
+		File indexFile = getWebResourcesIndexFile(realPath);
+		if (indexFile.exists()) {
+			OpenmrsUtil.loadProperties(index, indexFile);
+		}
+		return index;
+	}
+	
+	private static File getWebResourcesIndexFile(String realPath) {
+		return new File((realPath + "/WEB-INF/" + WEB_RESOURCES_INDEX_FILE_NAME).replace("/", File.separator));
+	}
+	
+	/**
+	 * Deletes the web resources of the given module from the webapp
+	 *
+	 * @param moduleId the id of the module
+	 * @param realPath the real path of the webapp
+	 */
+	private static synchronized void deleteWebResources(String moduleId, String realPath) {
+		String moduleIdAsPath = moduleId.replace('.', '/');
+		for (String folder : new String[] { "/WEB-INF/view/module/", "/WEB-INF/tags/module/" }) {
+			File moduleWebFolder = new File((realPath + folder + moduleIdAsPath).replace("/", File.separator));
+			if (moduleWebFolder.exists()) {
+				try {
+					OpenmrsUtil.deleteDirectory(moduleWebFolder);
+				}
+				catch (IOException io) {
+					log.warn("Couldn't delete: " + moduleWebFolder.getAbsolutePath(), io);
+				}
+			}
+		}
+		setCopiedWebResources(moduleId, null, realPath);
+	}
+	
+	/**
+	 * Deletes the web resources of the modules that are no longer loaded from the webapp
+	 *
+	 * @param realPath the real path of the webapp
+	 */
+	private static synchronized void deleteStaleWebResources(String realPath) {
+		Set<String> loadedModuleIds = new HashSet<String>();
+		for (Module mod : ModuleFactory.getLoadedModules()) {
+			loadedModuleIds.add(mod.getModuleId());
+		}
+		for (String moduleId : loadWebResourcesIndex(realPath).stringPropertyNames()) {
+			if (!loadedModuleIds.contains(moduleId)) {
+				deleteWebResources(moduleId, realPath);
+			}
+		}
+	}
+	
 	/**
 	 * Method visibility is package-private for testing
 	 *
@@ -762,9 +938,9 @@ public class WebModuleUtil {
 			}
 		}
 		
-		// call web shutdown for each module
+		// call web shutdown for each module, keeping their web resources for the next startup
 		for (Module mod : ModuleFactory.getLoadedModules()) {
-			stopModule(mod, servletContext, true);
+			stopModule(mod, servletContext, true, false);
 		}
 		
 	}
@@ -787,6 +963,19 @@ public class WebModuleUtil {
 	 * @param skipRefresh
 	 */
 	private static void stopModule(Module mod, ServletContext servletContext, boolean skipRefresh) {
+		stopModule(mod, servletContext, skipRefresh, true);
+	}
+	
+	/**
+	 * Reverses all visible activities done by startModule(org.openmrs.module.Module)
+	 *
+	 * @param mod
+	 * @param servletContext
+	 * @param skipRefresh
+	 * @param deleteWebResources false to keep the web files of the module in the webapp
+	 */
+	private static void stopModule(Module mod, ServletContext servletContext, boolean skipRefresh,
+	        boolean deleteWebResources) {
 		
 		String moduleId = mod.getModuleId();
 		String modulePackage = mod.getPackageName();
@@ -794,22 +983,15 @@ public class WebModuleUtil {
 		// stop all dependent modules
 		for (Module dependentModule : ModuleFactory.getStartedModules()) {
 			if (!dependentModule.equals(mod) && dependentModule.getRequiredModules().contains(modulePackage)) {
-				stopModule(dependentModule, servletContext, skipRefresh);
+				stopModule(dependentModule, servletContext, skipRefresh, deleteWebResources);
 			}
 		}
 		
 		String realPath = getRealPath(servletContext);
 		
 		// delete the web files from the webapp
-		String absPath = realPath + "/WEB-INF/view/module/" + moduleId;
-		File moduleWebFolder = new File(absPath.replace("/", File.separator));
-		if (moduleWebFolder.exists()) {
-			try {
-				OpenmrsUtil.deleteDirectory(moduleWebFolder);
-			}
-			catch (IOException io) {
-				log.warn("Couldn't delete: " + moduleWebFolder.getAbsolutePath(), io);
-			}
+		if (deleteWebResources) {
+			deleteWebResources(moduleId, realPath);
 		}
 		
 		// (not) deleting module message properties
@@ -21,6 +21,7 @@ import org.openmrs.api.context.Context;
 import org.openmrs.module.MandatoryModuleException;
 import org.openmrs.module.Module;
 import org.openmrs.module.ModuleFactory;
+import org.openmrs.module.ModuleStartupPlanner;
 import org.openmrs.module.ModuleMustStartException;
 import org.openmrs.module.OpenmrsCoreModuleException;
 import org.openmrs.module.web.WebModuleUtil;
@@ -597,8 +598,11 @@ public final class Listener extends ContextLoader implements ServletContextListe
 		
 		List<Module> startedModules = new ArrayList<Module>();
 		startedModules.addAll(ModuleFactory.getStartedModules());
+		WebModuleUtil.copyWebResourcesIntoWebapp(startedModules, servletContext);
+		
 		boolean someModuleNeedsARefresh = false;
 		for (Module mod : startedModules) {
+			long start = System.currentTimeMillis();
 			try {
 				boolean thisModuleCausesRefresh = WebModuleUtil.startModule(mod, servletContext,
 				/* delayContextRefresh */true);
@@ -607,8 +611,10 @@ public final class Listener extends ContextLoader implements ServletContextListe
 			catch (Exception e) {
 				mod.setStartupErrorMessage("Unable to start module", e);
 			}
+			ModuleStartupPlanner.recordPhase(mod.getModuleId(), "web start", start);
 		}
 		
+		// one refresh of the context for all modules
 		if (someModuleNeedsARefresh) {
 			try {
 				WebModuleUtil.refreshWAC(servletContext, true, null);
@@ -661,6 +667,8 @@ public final class Listener extends ContextLoader implements ServletContextListe
 			WebModuleUtil.loadServlets(mod, servletContext);
 			WebModuleUtil.loadFilters(mod, servletContext);
 		}
+		
+		ModuleStartupPlanner.logTimeline();
 	}
 	
 	/**
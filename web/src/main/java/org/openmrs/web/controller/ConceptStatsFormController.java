@@ -14,13 +14,10 @@
 package org.openmrs.web.controller;
 
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Vector;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -32,17 +29,17 @@ import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.data.general.DefaultPieDataset;
-import org.jfree.data.statistics.HistogramDataset;
+import org.jfree.data.statistics.SimpleHistogramBin;
+import org.jfree.data.statistics.SimpleHistogramDataset;
 import org.jfree.data.time.Day;
 import org.jfree.data.time.TimeSeries;
 import org.jfree.data.time.TimeSeriesCollection;
 import org.openmrs.Concept;
 import org.openmrs.ConceptDatatype;
-import org.openmrs.Obs;
+import org.openmrs.NumericObsStatistics;
 import org.openmrs.api.ConceptService;
 import org.openmrs.api.ObsService;
 import org.openmrs.api.context.Context;
-import org.openmrs.util.OpenmrsConstants;
 import org.springframework.context.support.MessageSourceAccessor;
 import org.springframework.validation.BindException;
 import org.springframework.web.servlet.ModelAndView;
@@ -54,6 +51,12 @@ public class ConceptStatsFormController extends SimpleFormController {
 	/** Logger for this class and subclasses */
 	protected final Log log = LogFactory.getLog(getClass());
 	
+	// the number of bars of the histograms
+	private static final int HISTOGRAM_BUCKETS = 100;
+	
+	// the maximum number of outliers listed, they are all counted
+	private static final int MAX_OUTLIERS = 1000;
+	
 	/**
 	 * @see org.springframework.web.servlet.mvc.AbstractFormController#processFormSubmission(javax.servlet.http.HttpServletRequest,
 	 *      javax.servlet.http.HttpServletResponse, java.lang.Object,
@@ -142,125 +145,62 @@ public class ConceptStatsFormController extends SimpleFormController {
 				if (ConceptDatatype.NUMERIC.equals(concept.getDatatype().getHl7Abbreviation())) {
 					map.put("displayType", "numeric");
 					
-					List<Obs> numericAnswers = obsService.getObservations(null, null, Collections.singletonList(concept),
-					    null, Collections.singletonList(OpenmrsConstants.PERSON_TYPE.PERSON), null, Collections
-					            .singletonList("valueNumeric"), null, null, null, null, false);
+					// the statistics are computed by the database, the obs would not fit into memory for common questions
+					NumericObsStatistics stats = obsService.getNumericObsStatistics(concept);
+					map.put("size", stats.getCount());
 					
-					if (numericAnswers.size() > 0) {
-						Double min = numericAnswers.get(0).getValueNumeric();
-						Double max = (Double) numericAnswers.get(numericAnswers.size() - 1).getValueNumeric();
-						Double median = (Double) numericAnswers.get(numericAnswers.size() / 2).getValueNumeric();
-						
-						Map<Double, Integer> counts = new HashMap<Double, Integer>(); // counts for the histogram
-						Double total = 0.0; // sum of values. used for mean
-						
-						// dataset setup for lineChart
-						TimeSeries timeSeries = new TimeSeries(concept.getName().getName(), Day.class);
-						TimeSeriesCollection timeDataset = new TimeSeriesCollection();
-						Calendar calendar = Calendar.getInstance();
-						
-						// array for histogram
-						double[] obsNumerics = new double[(numericAnswers.size())];
-						
-						Integer i = 0;
-						for (Obs obs : numericAnswers) {
-							Date date = (Date) obs.getObsDatetime();
-							Double value = (Double) obs.getValueNumeric();
-							
-							// for mean calculation
-							total += value;
-							
-							// for histogram
-							obsNumerics[i++] = value;
-							Integer count = counts.get(value);
-							counts.put(value, count == null ? 1 : count + 1);
-							
-							// for line chart
-							calendar.setTime(date);
-							Day day = new Day(calendar.get(Calendar.DAY_OF_MONTH), calendar.get(Calendar.MONTH) + 1, // January = 0 
-							        calendar.get(Calendar.YEAR) < 1900 ? 1900 : calendar.get(Calendar.YEAR) // jfree chart doesn't like the 19th century
-							);
-							timeSeries.addOrUpdate(day, value);
-						}
+					if (stats.getCount() > 0) {
+						String name = concept.getName().getName();
+						Double min = stats.getMin();
+						Double max = stats.getMax();
 						
-						Double size = new Double(numericAnswers.size());
-						Double mean = total / size;
-						
-						map.put("size", numericAnswers.size());
 						map.put("min", min);
 						map.put("max", max);
-						map.put("mean", mean);
-						map.put("median", median);
+						map.put("mean", stats.getMean());
+						map.put("median", stats.getMedian());
 						
 						// create histogram chart
-						HistogramDataset histDataset = new HistogramDataset(); // dataset for histogram
-						histDataset.addSeries(concept.getName().getName(), obsNumerics, counts.size());
-						
-						JFreeChart histogram = ChartFactory.createHistogram(concept.getName().getName(), msa
-						        .getMessage("Concept.stats.histogramDomainAxisTitle"), msa
-						        .getMessage("Concept.stats.histogramRangeAxisTitle"), histDataset, PlotOrientation.VERTICAL,
-						    false, true, false);
-						map.put("histogram", histogram);
+						long[] buckets = obsService.getNumericObsHistogram(concept, min, max, HISTOGRAM_BUCKETS);
+						map.put("histogram", createHistogram(name, msa, min, max, buckets));
 						
-						if (size > 25) {
+						if (stats.getCount() > 25) {
 							// calculate 98th percentile of the data:
-							Double x = 0.98;
-							Integer xpercentile = (int) (x * size);
-							Double upperQuartile = numericAnswers.get(xpercentile).getValueNumeric();
-							Double lowerQuartile = numericAnswers.get((int) (size - xpercentile)).getValueNumeric();
+							Double upperQuartile = stats.getPercentile(0.98);
+							Double lowerQuartile = stats.getPercentile(0.02);
 							Double innerQuartile = upperQuartile - lowerQuartile;
 							Double innerQuartileLimit = innerQuartile * 1.5; // outliers will be greater than this from the upper/lower quartile
 							Double upperQuartileLimit = upperQuartile + innerQuartileLimit;
 							Double lowerQuartileLimit = lowerQuartile - innerQuartileLimit;
 							
-							List<Obs> outliers = new Vector<Obs>();
-							
-							// move outliers to the outliers list
-							// removing lower quartile outliers
-							for (i = 0; i < size - xpercentile; i++) {
-								Obs possibleOutlier = numericAnswers.get(i);
-								if (possibleOutlier.getValueNumeric() >= lowerQuartileLimit) {
-									break; // quit if this value is greater than the lower limit
-								}
-								outliers.add(possibleOutlier);
-							}
-							
-							// removing upper quartile outliers
-							for (i = size.intValue() - 1; i >= xpercentile; i--) {
-								Obs possibleOutlier = numericAnswers.get(i);
-								if (possibleOutlier.getValueNumeric() <= upperQuartileLimit) {
-									break; // quit if this value is less than the upper limit
-								}
-								outliers.add(possibleOutlier);
-							}
-							numericAnswers.removeAll(outliers);
-							
-							double[] obsNumericsOutliers = new double[(numericAnswers.size())];
-							i = 0;
-							counts.clear();
-							for (Obs values : numericAnswers) {
-								Double value = values.getValueNumeric();
-								obsNumericsOutliers[i++] = value;
-								Integer count = counts.get(value);
-								counts.put(value, count == null ? 1 : count + 1);
-							}
-							
 							// create outlier histogram chart
-							HistogramDataset outlierHistDataset = new HistogramDataset();
-							outlierHistDataset.addSeries(concept.getName().getName(), obsNumericsOutliers, counts.size());
-							
-							JFreeChart histogramOutliers = ChartFactory.createHistogram(concept.getName().getName(), msa
-							        .getMessage("Concept.stats.histogramDomainAxisTitle"), msa
-							        .getMessage("Concept.stats.histogramRangeAxisTitle"), outlierHistDataset,
-							    PlotOrientation.VERTICAL, false, true, false);
-							map.put("histogramOutliers", histogramOutliers);
-							map.put("outliers", outliers);
+							Double from = Math.max(min, lowerQuartileLimit);
+							Double to = Math.min(max, upperQuartileLimit);
+							long[] bucketsWithoutOutliers = obsService.getNumericObsHistogram(concept, from, to,
+							    HISTOGRAM_BUCKETS);
+							map.put("histogramOutliers", createHistogram(name, msa, from, to, bucketsWithoutOutliers));
 							
+							long outlierCount = stats.getCount();
+							for (long count : bucketsWithoutOutliers) {
+								outlierCount -= count;
+							}
+							map.put("outlierCount", outlierCount);
+							map.put("outliers", obsService.getNumericObservationsOutsideRange(concept, lowerQuartileLimit,
+							    upperQuartileLimit, MAX_OUTLIERS));
 						}
 						
 						// create line graph chart
+						TimeSeries timeSeries = new TimeSeries(name, Day.class);
+						Calendar calendar = Calendar.getInstance();
+						for (Map.Entry<Date, Double> dailyMean : obsService.getNumericObsDailyMeans(concept).entrySet()) {
+							calendar.setTime(dailyMean.getKey());
+							Day day = new Day(calendar.get(Calendar.DAY_OF_MONTH), calendar.get(Calendar.MONTH) + 1, // January = 0 
+							        calendar.get(Calendar.YEAR) < 1900 ? 1900 : calendar.get(Calendar.YEAR) // jfree chart doesn't like the 19th century
+							);
+							timeSeries.addOrUpdate(day, dailyMean.getValue());
+						}
+						TimeSeriesCollection timeDataset = new TimeSeriesCollection();
 						timeDataset.addSeries(timeSeries);
-						JFreeChart lineChart = ChartFactory.createTimeSeriesChart(concept.getName().getName(), msa
+						JFreeChart lineChart = ChartFactory.createTimeSeriesChart(name, msa
 						        .getMessage("Concept.stats.lineChartDomainAxisLabel"), msa
 						        .getMessage("Concept.stats.lineChartRangeAxisLabel"), timeDataset, false, true, false);
 						map.put("timeSeries", lineChart);
@@ -270,65 +210,36 @@ public class ConceptStatsFormController extends SimpleFormController {
 					// create bar chart for boolean answers
 					map.put("displayType", "boolean");
 					
-					List<Obs> obs = obsService.getObservations(null, null, Collections.singletonList(concept), null,
-					    Collections.singletonList(OpenmrsConstants.PERSON_TYPE.PERSON), null, null, null, null, null, null,
-					    false);
-					
-					DefaultPieDataset pieDataset = new DefaultPieDataset();
-					
 					// count the number of unique answers
-					Map<String, Integer> counts = new HashMap<String, Integer>();
-					for (Obs o : obs) {
-						Boolean answer = o.getValueAsBoolean();
-						if (answer == null) {
-							answer = false;
-						}
-						String name = answer.toString();
-						Integer count = counts.get(name);
-						counts.put(name, count == null ? 1 : count + 1);
-					}
-					
-					// put the counts into the dataset
-					for (Map.Entry<String, Integer> entry : counts.entrySet()) {
-						pieDataset.setValue(entry.getKey(), entry.getValue());
+					Concept trueConcept = cs.getTrueConcept();
+					Map<String, Long> counts = new HashMap<String, Long>();
+					for (Map.Entry<Concept, Long> entry : obsService.getCodedObsFrequencies(concept).entrySet()) {
+						String name = Boolean.toString(trueConcept.equals(entry.getKey()));
+						Long count = counts.get(name);
+						counts.put(name, count == null ? entry.getValue() : count + entry.getValue());
 					}
 					
-					JFreeChart pieChart = ChartFactory.createPieChart(concept.getName().getName(), pieDataset, true, true,
-					    false);
-					map.put("pieChart", pieChart);
+					map.put("pieChart", createPieChart(concept.getName().getName(), counts));
 					
 				} else if (ConceptDatatype.CODED.equals(concept.getDatatype().getHl7Abbreviation())) {
 					// create pie graph for coded answers
 					map.put("displayType", "coded");
 					
-					List<Obs> obs = obsService.getObservations(null, null, Collections.singletonList(concept), null,
-					    Collections.singletonList(OpenmrsConstants.PERSON_TYPE.PERSON), null, null, null, null, null, null,
-					    false);
-					
-					DefaultPieDataset pieDataset = new DefaultPieDataset();
-					
 					// count the number of unique answers
-					Map<String, Integer> counts = new HashMap<String, Integer>();
-					for (Obs o : obs) {
-						Concept value = o.getValueCoded();
+					Map<String, Long> counts = new HashMap<String, Long>();
+					for (Map.Entry<Concept, Long> entry : obsService.getCodedObsFrequencies(concept).entrySet()) {
+						Concept value = entry.getKey();
 						String name;
 						if (value == null) {
 							name = "[value_coded is null]";
 						} else {
 							name = value.getName().getName();
 						}
-						Integer count = counts.get(name);
-						counts.put(name, count == null ? 1 : count + 1);
+						Long count = counts.get(name);
+						counts.put(name, count == null ? entry.getValue() : count + entry.getValue());
 					}
 					
-					// put the counts into the dataset
-					for (Map.Entry<String, Integer> entry : counts.entrySet()) {
-						pieDataset.setValue(entry.getKey(), entry.getValue());
-					}
-					
-					JFreeChart pieChart = ChartFactory.createPieChart(concept.getName().getName(), pieDataset, true, true,
-					    false);
-					map.put("pieChart", pieChart);
+					map.put("pieChart", createPieChart(concept.getName().getName(), counts));
 					
 				}
 			}
@@ -343,4 +254,56 @@ public class ConceptStatsFormController extends SimpleFormController {
 		return map;
 	}
 	
+	/**
+	 * Creates a histogram chart of values that have already been counted in equally wide buckets
+	 *
+	 * @param title the title of the chart
+	 * @param msa the messages for the axis titles
+	 * @param from the lower bound of the first bucket
+	 * @param to the upper bound of the last bucket
+	 * @param buckets the number of values in each bucket
+	 * @return the chart
+	 */
+	private JFreeChart createHistogram(String title, MessageSourceAccessor msa, double from, double to, long[] buckets) {
+		SimpleHistogramDataset histDataset = new SimpleHistogramDataset(title);
+		histDataset.setAdjustForBinSize(false);
+		if (to > from) {
+			double width = (to - from) / buckets.length;
+			for (int i = 0; i < buckets.length; i++) {
+				boolean last = i == buckets.length - 1;
+				SimpleHistogramBin bin = new SimpleHistogramBin(from + i * width, last ? to : from + (i + 1) * width, true,
+				        last);
+				bin.setItemCount((int) buckets[i]);
+				histDataset.addBin(bin);
+			}
+		} else {
+			// all values are equal
+			SimpleHistogramBin bin = new SimpleHistogramBin(from - 0.5, from + 0.5);
+			bin.setItemCount((int) buckets[0]);
+			histDataset.addBin(bin);
+		}
+		
+		return ChartFactory.createHistogram(title, msa.getMessage("Concept.stats.histogramDomainAxisTitle"), msa
+		        .getMessage("Concept.stats.histogramRangeAxisTitle"), histDataset, PlotOrientation.VERTICAL, false, true,
+		    false);
+	}
+	
+	/**
+	 * Creates a pie chart of the given counts
+	 *
+	 * @param title the title of the chart
+	 * @param counts the counts by answer
+	 * @return the chart
+	 */
+	private JFreeChart createPieChart(String title, Map<String, Long> counts) {
+		DefaultPieDataset pieDataset = new DefaultPieDataset();
+		
+		// put the counts into the dataset
+		for (Map.Entry<String, Long> entry : counts.entrySet()) {
+			pieDataset.setValue(entry.getKey(), entry.getValue());
+		}
+		
+		return ChartFactory.createPieChart(title, pieDataset, true, true, false);
+	}
+	
 }
@@ -14,6 +14,7 @@
 package org.openmrs.web.controller;
 
 import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -35,10 +36,12 @@ import org.openmrs.ConceptNumeric;
 import org.openmrs.Encounter;
 import org.openmrs.Obs;
 import org.openmrs.Patient;
+import org.openmrs.PatientProgram;
 import org.openmrs.Person;
 import org.openmrs.Relationship;
 import org.openmrs.RelationshipType;
 import org.openmrs.User;
+import org.openmrs.Visit;
 import org.openmrs.api.AdministrationService;
 import org.openmrs.api.ConceptService;
 import org.openmrs.api.context.Context;
@@ -67,9 +70,10 @@ public class PortletController implements Controller {
 	 *     (if the request has a patientId attribute)
 	 *          (Integer) patientId
 	 *          (Patient) patient
-	 *          (List<Obs>) patientObs
-	 *          (List<Encounter>) patientEncounters
-	 *          (List<Visit>) patientVisits
+	 *          (List<Obs>) patientObs // loaded when first used
+	 *          (Collection<Obs>) patientLatestObs // most recent weight, height and dashboard.header.showConcept obs
+	 *          (List<Encounter>) patientEncounters // loaded when first used
+	 *          (List<Visit>) patientVisits // loaded when first used
 	 *          (List<Visit>) activeVisits
 	 *          (Obs) patientWeight // most recent weight obs
 	 *          (Obs) patientHeight // most recent height obs
@@ -179,64 +183,72 @@ public class PortletController implements Controller {
 				if (!model.containsKey("patient")) {
 					// we can't continue if the user can't view patients
 					if (Context.hasPrivilege(PrivilegeConstants.VIEW_PATIENTS)) {
-						Patient p = Context.getPatientService().getPatient(patientId);
+						final Patient p = Context.getPatientService().getPatient(patientId);
 						model.put("patient", p);
 						if (p.isDead()) {
 							patientVariation = "Dead";
 						}
 						
+						// the lists of encounters, visits, obs and programs are only loaded when a portlet
+						// uses them, the patient header only needs the latest obs of a few concepts
+						
 						// add encounters if this user can view them
 						if (Context.hasPrivilege(PrivilegeConstants.VIEW_ENCOUNTERS)) {
-							model.put("patientEncounters", Context.getEncounterService().getEncountersByPatient(p));
+							model.put("patientEncounters", new LazyList<Encounter>() {
+								
+								@Override
+								protected List<Encounter> load() {
+									return Context.getEncounterService().getEncountersByPatient(p);
+								}
+							});
 						}
 						
 						// add visits if this user can view them
 						if (Context.hasPrivilege(PrivilegeConstants.VIEW_VISITS)) {
 							model.put("person", p);
 							PortletControllerUtil.addFormToEditAndViewUrlMaps(model);
-							model.put("patientVisits", Context.getVisitService().getVisitsByPatient(p));
+							model.put("patientVisits", new LazyList<Visit>() {
+								
+								@Override
+								protected List<Visit> load() {
+									return Context.getVisitService().getVisitsByPatient(p);
+								}
+							});
 							model.put("activeVisits", Context.getVisitService().getActiveVisitsByPatient(p));
 						}
 						
 						if (Context.hasPrivilege(PrivilegeConstants.VIEW_OBS)) {
-							List<Obs> patientObs = Context.getObsService().getObservationsByPerson(p);
-							model.put("patientObs", patientObs);
-							Obs latestWeight = null;
-							Obs latestHeight = null;
-							String bmiAsString = "?";
-							try {
-								String weightString = as.getGlobalProperty("concept.weight");
-								ConceptNumeric weightConcept = null;
-								if (StringUtils.hasLength(weightString)) {
-									weightConcept = cs.getConceptNumeric(cs.getConcept(Integer.valueOf(weightString))
-									        .getConceptId());
-								}
-								String heightString = as.getGlobalProperty("concept.height");
-								ConceptNumeric heightConcept = null;
-								if (StringUtils.hasLength(heightString)) {
-									heightConcept = cs.getConceptNumeric(cs.getConcept(Integer.valueOf(heightString))
-									        .getConceptId());
-								}
-								for (Obs obs : patientObs) {
-									if (obs.getConcept().equals(weightConcept)) {
-										if (latestWeight == null
-										        || obs.getObsDatetime().compareTo(latestWeight.getObsDatetime()) > 0) {
-											latestWeight = obs;
-										}
-									} else if (obs.getConcept().equals(heightConcept)) {
-										if (latestHeight == null
-										        || obs.getObsDatetime().compareTo(latestHeight.getObsDatetime()) > 0) {
-											latestHeight = obs;
-										}
-									}
-								}
-								if (latestWeight != null) {
-									model.put("patientWeight", latestWeight);
-								}
-								if (latestHeight != null) {
-									model.put("patientHeight", latestHeight);
+							model.put("patientObs", new LazyList<Obs>() {
+								
+								@Override
+								protected List<Obs> load() {
+									return Context.getObsService().getObservationsByPerson(p);
 								}
-								if (latestWeight != null && latestHeight != null) {
+							});
+							// the latest obs are shown even if the BMI cannot be calculated from them
+							ConceptNumeric weightConcept = getConceptNumeric(as.getGlobalProperty("concept.weight"));
+							ConceptNumeric heightConcept = getConceptNumeric(as.getGlobalProperty("concept.height"));
+							List<Concept> latestConcepts = getConcepts(as.getGlobalProperty("dashboard.header.showConcept"));
+							if (weightConcept != null) {
+								latestConcepts.add(weightConcept);
+							}
+							if (heightConcept != null) {
+								latestConcepts.add(heightConcept);
+							}
+							Map<Concept, Obs> latestObs = Context.getObsService().getLatestObservations(p, latestConcepts);
+							model.put("patientLatestObs", latestObs.values());
+							
+							Obs latestWeight = latestObs.get(weightConcept);
+							Obs latestHeight = latestObs.get(heightConcept);
+							if (latestWeight != null) {
+								model.put("patientWeight", latestWeight);
+							}
+							if (latestHeight != null) {
+								model.put("patientHeight", latestHeight);
+							}
+							String bmiAsString = "?";
+							if (latestWeight != null && latestHeight != null) {
+								try {
 									double weightInKg;
 									double heightInM;
 									if (weightConcept.getUnits().equals("kg")) {
@@ -262,23 +274,35 @@ public class PortletController implements Controller {
 									String temp = "" + bmi;
 									bmiAsString = temp.substring(0, temp.indexOf('.') + 2);
 								}
-							}
-							catch (Exception ex) {
-								if (latestWeight != null && latestHeight != null) {
+								catch (Exception ex) {
 									log.error("Failed to calculate BMI even though a weight and height were found", ex);
 								}
 							}
 							model.put("patientBmiAsString", bmiAsString);
 						} else {
 							model.put("patientObs", new HashSet<Obs>());
+							model.put("patientLatestObs", new HashSet<Obs>());
 						}
 						
 						if (Context.hasPrivilege(PrivilegeConstants.VIEW_PROGRAMS)
 						        && Context.hasPrivilege(PrivilegeConstants.VIEW_PATIENT_PROGRAMS)) {
-							model.put("patientPrograms", Context.getProgramWorkflowService().getPatientPrograms(p, null,
-							    null, null, null, null, false));
-							model.put("patientCurrentPrograms", Context.getProgramWorkflowService().getPatientPrograms(p,
-							    null, null, new Date(), new Date(), null, false));
+							model.put("patientPrograms", new LazyList<PatientProgram>() {
+								
+								@Override
+								protected List<PatientProgram> load() {
+									return Context.getProgramWorkflowService().getPatientPrograms(p, null, null, null,
+									    null, null, false);
+								}
+							});
+							final Date now = new Date();
+							model.put("patientCurrentPrograms", new LazyList<PatientProgram>() {
+								
+								@Override
+								protected List<PatientProgram> load() {
+									return Context.getProgramWorkflowService().getPatientPrograms(p, null, null, now, now,
+									    null, false);
+								}
+							});
 						}
 						
 						model.put("patientId", patientId);
@@ -403,4 +427,73 @@ public class PortletController implements Controller {
 	protected void populateModel(HttpServletRequest request, Map<String, Object> model) {
 	}
 	
+	/**
+	 * @param conceptId the id of a numeric concept, may be null
+	 * @return the numeric concept, or null if the id is invalid or not of a numeric concept
+	 */
+	private ConceptNumeric getConceptNumeric(String conceptId) {
+		if (StringUtils.hasText(conceptId)) {
+			try {
+				return Context.getConceptService().getConceptNumeric(Integer.valueOf(conceptId.trim()));
+			}
+			catch (NumberFormatException ex) {
+				log.debug("Ignoring invalid concept id: " + conceptId);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * @param conceptIds a comma separated list of concept ids, may be null
+	 * @return the concepts, leaving out ids of concepts that do not exist
+	 */
+	private List<Concept> getConcepts(String conceptIds) {
+		List<Concept> concepts = new ArrayList<Concept>();
+		if (StringUtils.hasText(conceptIds)) {
+			for (String conceptId : conceptIds.split(",")) {
+				try {
+					Concept c = Context.getConceptService().getConcept(Integer.valueOf(conceptId.trim()));
+					if (c != null) {
+						concepts.add(c);
+					}
+				}
+				catch (NumberFormatException ex) {
+					log.debug("Ignoring invalid concept id: " + conceptId);
+				}
+			}
+		}
+		return concepts;
+	}
+	
+	/**
+	 * A list that is only loaded when it is first used, so that the portlets that do not show it do
+	 * not pay for it. It must be used within the request that created it.
+	 */
+	private abstract static class LazyList<E> extends AbstractList<E> {
+		
+		private List<E> list;
+		
+		/**
+		 * @return the elements of the list
+		 */
+		protected abstract List<E> load();
+		
+		private List<E> getList() {
+			if (list == null) {
+				list = load();
+			}
+			return list;
+		}
+		
+		@Override
+		public E get(int index) {
+			return getList().get(index);
+		}
+		
+		@Override
+		public int size() {
+			return getList().size();
+		}
+	}
+	
 }
@@ -0,0 +1,47 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.web.controller.maintenance;
+
+import java.util.Map;
+
+import org.openmrs.api.context.Context;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.ModelMap;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * This backs the maintenance/cacheStatistics.jsp page that lists the hit and miss counts of the
+ * second level cache and of each of its regions.
+ * 
+ * @since 1.12
+ */
+@Controller
+public class CacheStatisticsController {
+	
+	/**
+	 * Called for GET requests only on the cacheStatistics page.
+	 * 
+	 * @param model map
+	 * @should add the cache summary and the cache regions to the model map
+	 */
+	@RequestMapping(method = RequestMethod.GET, value = "/admin/maintenance/cacheStatistics")
+	public String showPage(ModelMap model) {
+		Map<String, Map<String, String>> cacheStatistics = Context.getAdministrationService().getCacheStatistics();
+		model.addAttribute("cacheSummary", cacheStatistics.remove("CacheStatistics.title.summary"));
+		model.addAttribute("cacheRegions", cacheStatistics);
+		return "/admin/maintenance/cacheStatistics";
+	}
+	
+}
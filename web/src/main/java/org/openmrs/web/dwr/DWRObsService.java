@@ -15,8 +15,13 @@ package org.openmrs.web.dwr;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 
@@ -30,6 +35,7 @@ import org.openmrs.Encounter;
 import org.openmrs.Location;
 import org.openmrs.Obs;
 import org.openmrs.Person;
+import org.openmrs.api.ObsService;
 import org.openmrs.api.context.Context;
 import org.openmrs.util.OpenmrsUtil;
 
@@ -318,4 +324,72 @@ public class DWRObsService {
 		
 		return oItem;
 	}
+	
+	/**
+	 * Returns a map of results with the values as count of the observations of the person and a
+	 * page of them, the most recent first, while the keys are 'count' and 'objectList'
+	 * respectively. This lets the patient dashboard load the observations page by page instead of
+	 * all at once.
+	 *
+	 * @param personId the id of the person
+	 * @param start the beginning index
+	 * @param length the number of observations to return
+	 * @param getMatchCount whether to count the observations of the person
+	 * @return a map of results
+	 * @since 1.12
+	 */
+	public Map<String, Object> findCountAndObservations(Integer personId, Integer start, Integer length,
+	        boolean getMatchCount) {
+		Map<String, Object> resultsMap = new HashMap<String, Object>();
+		Vector<Object> objectList = new Vector<Object>();
+		int obsCount = 0;
+		
+		Person p = personId == null ? null : Context.getPersonService().getPerson(personId);
+		if (p != null) {
+			ObsService os = Context.getObsService();
+			if (getMatchCount) {
+				obsCount = os.getObservationCount(Collections.singletonList(p), null, null, null, null, null, null, null,
+				    null, false);
+			}
+			
+			if (obsCount > 0 || !getMatchCount) {
+				for (Obs obs : os.getObservationsByPerson(p, start, length)) {
+					objectList.add(new ObsListItem(obs, Context.getLocale()));
+				}
+			}
+		}
+		
+		resultsMap.put("count", obsCount);
+		resultsMap.put("objectList", objectList);
+		return resultsMap;
+	}
+	
+	/**
+	 * Gets the most recent observation of the person for each of the given concepts
+	 *
+	 * @param personId the id of the person
+	 * @param conceptIds the ids of the question concepts
+	 * @return the most recent observations, concepts without observations are left out
+	 * @since 1.12
+	 */
+	public Vector<ObsListItem> getLatestObservations(Integer personId, List<Integer> conceptIds) {
+		Vector<ObsListItem> ret = new Vector<ObsListItem>();
+		Person p = personId == null ? null : Context.getPersonService().getPerson(personId);
+		if (p == null || conceptIds == null) {
+			return ret;
+		}
+		
+		List<Concept> questions = new ArrayList<Concept>();
+		for (Integer conceptId : conceptIds) {
+			Concept c = Context.getConceptService().getConcept(conceptId);
+			if (c != null) {
+				questions.add(c);
+			}
+		}
+		
+		for (Obs obs : Context.getObsService().getLatestObservations(p, questions).values()) {
+			ret.add(new ObsListItem(obs, Context.getLocale()));
+		}
+		return ret;
+	}
 }
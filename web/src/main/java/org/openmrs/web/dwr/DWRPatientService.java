@@ -321,10 +321,12 @@ public class DWRPatientService implements GlobalPropertyListener {
 	}
 	
 	/**
-	 * find all patients with duplicate attributes (searchOn)
+	 * find all patients with duplicate attributes (searchOn), or the likely duplicates found by the
+	 * Find Duplicate Patients Task if searchOn contains "likelyDuplicates"
 	 *
 	 * @param searchOn
 	 * @return list of patientListItems
+	 * @see org.openmrs.api.PatientService#getDuplicatePatientsByAttributes(List)
 	 */
 	public Vector<Object> findDuplicatePatients(String[] searchOn) {
 		Vector<Object> patientList = new Vector<Object>();
@@ -338,7 +340,7 @@ public class DWRPatientService implements GlobalPropertyListener {
 			List<Patient> patients = Context.getPatientService().getDuplicatePatientsByAttributes(options);
 			
 			if (patients.size() > 200) {
-				patients.subList(0, 200);
+				patients = patients.subList(0, 200);
 			}
 			
 			for (Patient p : patients) {
@@ -19,6 +19,7 @@ import java.util.Locale;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.Obs;
+import org.openmrs.api.context.Context;
 import org.openmrs.util.Format;
 import org.openmrs.util.Format.FORMAT_TYPE;
 
@@ -65,7 +66,8 @@ public class ObsListItem {
 				encounterName = obs.getEncounter().getForm() == null ? "" : obs.getEncounter().getForm().getName();
 			}
 			personName = obs.getPerson().getPersonName().getFullName();
-			conceptName = obs.getConcept().getName(locale).getName();
+			// the snapshot avoids loading and walking the names of the concept for every row
+			conceptName = Context.getConceptService().getConceptSnapshot(obs.getConcept().getConceptId()).getName(locale);
 			if (obs.getOrder() != null) {
 				order = obs.getOrder().getOrderId().toString();
 			}
@@ -27,6 +27,7 @@ import org.apache.commons.logging.LogFactory;
 import org.openmrs.User;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.context.UserContext;
+import org.openmrs.module.ModuleFactory;
 import org.openmrs.util.OpenmrsClassLoader;
 import org.openmrs.web.WebConstants;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -106,6 +107,10 @@ public class OpenmrsFilter extends OncePerRequestFilter {
 		Context.setUserContext(userContext);
 		Thread.currentThread().setContextClassLoader(OpenmrsClassLoader.getInstance());
 		
+		// count the extension lookups of this request, mostly done by the extension point tags
+		ModuleFactory.resetExtensionLookupStatistics();
+		long start = System.currentTimeMillis();
+		
 		log.debug("before chain.Filter");
 		
 		// continue the filter chain (going on to spring, authorization, etc)
@@ -116,7 +121,10 @@ public class OpenmrsFilter extends OncePerRequestFilter {
 			Context.clearUserContext();
 		}
 		
-		log.debug("after chain.doFilter");
+		if (log.isDebugEnabled()) {
+			log.debug("after chain.doFilter: " + httpRequest.getRequestURI() + " took "
+			        + (System.currentTimeMillis() - start) + " ms with " + ModuleFactory.getExtensionLookupStatistics());
+		}
 		
 	}
 	
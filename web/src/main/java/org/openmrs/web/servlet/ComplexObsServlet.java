@@ -17,6 +17,9 @@ import java.awt.image.RenderedImage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 import javax.imageio.ImageIO;
 import javax.servlet.ServletException;
@@ -30,6 +33,7 @@ import org.apache.commons.logging.LogFactory;
 import org.openmrs.Obs;
 import org.openmrs.api.context.Context;
 import org.openmrs.obs.ComplexData;
+import org.openmrs.obs.ComplexDataFile;
 import org.openmrs.util.OpenmrsUtil;
 import org.openmrs.util.PrivilegeConstants;
 import org.openmrs.web.WebConstants;
@@ -64,6 +68,17 @@ public class ComplexObsServlet extends HttpServlet {
 			return;
 		}
 		
+		// data stored in a file is streamed from it, without reading it into memory
+		ComplexDataFile dataFile = Context.getObsService().getComplexDataFile(Integer.valueOf(obsId), view);
+		if (dataFile != null) {
+			if ("download".equals(viewType)) {
+				response.setHeader("Content-Disposition", "attachment; filename=" + dataFile.getTitle());
+				response.setHeader("Pragma", "no-cache");
+			}
+			writeFile(request, response, dataFile);
+			return;
+		}
+		
 		Obs complexObs = Context.getObsService().getComplexObs(Integer.valueOf(obsId), view);
 		ComplexData cd = complexObs.getComplexData();
 		Object data = cd.getData();
@@ -95,4 +110,177 @@ public class ComplexObsServlet extends HttpServlet {
 		}
 	}
 	
+	/**
+	 * Writes the given file to the response. Requests for a version the client already has are
+	 * answered with 304 Not Modified, and a request for a single range of bytes with 206 Partial
+	 * Content and only those bytes.
+	 */
+	private void writeFile(HttpServletRequest request, HttpServletResponse response, ComplexDataFile dataFile)
+	        throws IOException {
+		String eTag = dataFile.getETag();
+		long lastModified = dataFile.getLastModified();
+		long length = dataFile.getLength();
+		
+		response.setHeader("ETag", eTag);
+		response.setDateHeader("Last-Modified", lastModified);
+		response.setHeader("Accept-Ranges", "bytes");
+		if (isNotModified(request, eTag, lastModified)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+		
+		String contentType = getServletContext().getMimeType(dataFile.getTitle());
+		response.setContentType(contentType == null ? "application/octet-stream" : contentType);
+		
+		long position = 0;
+		long count = length;
+		long[] range = isRangeCurrent(request, eTag, lastModified) ? getRange(request.getHeader("Range"), length) : null;
+		if (range != null) {
+			if (range.length == 0) {
+				response.setHeader("Content-Range", "bytes */" + length);
+				response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return;
+			}
+			position = range[0];
+			count = range[1] - range[0] + 1;
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+		}
+		// setContentLength takes an int, which is too small for large files
+		response.setHeader("Content-Length", String.valueOf(count));
+		
+		FileChannel channel = dataFile.openChannel();
+		try {
+			WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+			while (count > 0) {
+				long sent = channel.transferTo(position, count, out);
+				if (sent <= 0) {
+					// the file got shorter
+					break;
+				}
+				position += sent;
+				count -= sent;
+			}
+		}
+		finally {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * @param request the request
+	 * @param eTag the current entity tag of the data
+	 * @param lastModified the time the data was last changed
+	 * @return true if the If-None-Match or If-Modified-Since header of the request shows that the
+	 *         client already has the current data
+	 * @should return true if the etag matches
+	 * @should return false if the etag does not match even if the data was not modified since
+	 * @should return true if the data was not modified since
+	 * @should return false if the data was modified since
+	 */
+	boolean isNotModified(HttpServletRequest request, String eTag, long lastModified) {
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+			return matchesETag(ifNoneMatch, eTag);
+		}
+		
+		long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+		// the header only has a precision of seconds
+		return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+	}
+	
+	/**
+	 * @return true if the request has no If-Range header or the one it has matches the current
+	 *         data, so that a range of it can be sent
+	 */
+	private boolean isRangeCurrent(HttpServletRequest request, String eTag, long lastModified) {
+		String ifRange = request.getHeader("If-Range");
+		if (ifRange == null) {
+			return true;
+		}
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+			return matchesETag(ifRange, eTag);
+		}
+		long date = getDateHeader(request, "If-Range");
+		return date != -1 && lastModified / 1000 <= date / 1000;
+	}
+	
+	/**
+	 * @return true if the given list of entity tags contains the given one or is *
+	 */
+	private boolean matchesETag(String eTags, String eTag) {
+		for (String candidate : eTags.split(",")) {
+			candidate = candidate.trim();
+			if ("*".equals(candidate) || candidate.equals(eTag) || candidate.equals("W/" + eTag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * @return the value of the given date header, or -1 if it is missing or not a date
+	 */
+	private long getDateHeader(HttpServletRequest request, String name) {
+		try {
+			return request.getDateHeader(name);
+		}
+		catch (IllegalArgumentException e) {
+			return -1;
+		}
+	}
+	
+	/**
+	 * Parses the value of a Range header. Only a single range of bytes is supported, a request
+	 * for several ranges is answered with the whole data.
+	 * 
+	 * @param range the value of the Range header
+	 * @param length the length of the data
+	 * @return the first and last byte of the range, null if the whole data is to be sent, or an
+	 *         empty array if the range does not overlap with the data
+	 * @should return the first and last byte of the range
+	 * @should return the end of the data for an open range
+	 * @should return the end of the data for a suffix range
+	 * @should limit the range to the length of the data
+	 * @should return an empty array for a range after the end of the data
+	 * @should return null for several ranges
+	 * @should return null for an invalid range
+	 */
+	static long[] getRange(String range, long length) {
+		if (range == null || !range.startsWith("bytes=")) {
+			return null;
+		}
+		String spec = range.substring("bytes=".length()).trim();
+		int dash = spec.indexOf('-');
+		if (dash < 0 || spec.indexOf(',') >= 0) {
+			return null;
+		}
+		
+		try {
+			String first = spec.substring(0, dash).trim();
+			String last = spec.substring(dash + 1).trim();
+			long start;
+			long end;
+			if (first.length() == 0) {
+				// the last bytes of the data
+				start = Math.max(0, length - Long.parseLong(last));
+				end = length - 1;
+			} else {
+				start = Long.parseLong(first);
+				end = last.length() == 0 ? length - 1 : Long.parseLong(last);
+				if (end < start) {
+					return null;
+				}
+				end = Math.min(end, length - 1);
+			}
+			if (start >= length || start > end) {
+				return new long[0];
+			}
+			return new long[] { start, end };
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+	
 }
@@ -0,0 +1,46 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.web.controller.maintenance;
+
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.openmrs.test.Verifies;
+import org.openmrs.web.test.BaseWebContextSensitiveTest;
+import org.springframework.ui.ModelMap;
+
+/**
+ * Tests the {@link CacheStatisticsController} controller
+ */
+public class CacheStatisticsControllerTest extends BaseWebContextSensitiveTest {
+	
+	/**
+	 * @see {@link CacheStatisticsController#showPage(ModelMap)}
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	@Verifies(value = "should add the cache summary and the cache regions to the model map", method = "showPage(ModelMap)")
+	public void showPage_shouldAddTheCacheSummaryAndTheCacheRegionsToTheModelMap() {
+		ModelMap model = new ModelMap();
+		Assert.assertEquals("/admin/maintenance/cacheStatistics", new CacheStatisticsController().showPage(model));
+		
+		Assert.assertTrue(((Map<String, String>) model.get("cacheSummary"))
+		        .containsKey("CacheStatistics.secondLevelCache.hitCount"));
+		Map<String, Map<String, String>> regions = (Map<String, Map<String, String>>) model.get("cacheRegions");
+		Assert.assertTrue(regions.containsKey("org.openmrs.Concept"));
+		Assert.assertFalse(regions.containsKey("CacheStatistics.title.summary"));
+	}
+}
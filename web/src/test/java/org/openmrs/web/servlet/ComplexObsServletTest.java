@@ -0,0 +1,146 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.web.servlet;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Tests for the {@link ComplexObsServlet} class.
+ */
+public class ComplexObsServletTest {
+	
+	private static final String ETAG = "\"1f-1234\"";
+	
+	// 2014-08-01 12:00:00 GMT
+	private static final long LAST_MODIFIED = 1406894400000L;
+	
+	/**
+	 * @see ComplexObsServlet#isNotModified(javax.servlet.http.HttpServletRequest, String, long)
+	 * @verifies return true if the etag matches
+	 */
+	@Test
+	public void isNotModified_shouldReturnTrueIfTheEtagMatches() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("If-None-Match", "\"other\", " + ETAG);
+		
+		Assert.assertTrue(new ComplexObsServlet().isNotModified(request, ETAG, LAST_MODIFIED));
+	}
+	
+	/**
+	 * @see ComplexObsServlet#isNotModified(javax.servlet.http.HttpServletRequest, String, long)
+	 * @verifies return false if the etag does not match even if the data was not modified since
+	 */
+	@Test
+	public void isNotModified_shouldReturnFalseIfTheEtagDoesNotMatchEvenIfTheDataWasNotModifiedSince()
+	        throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("If-None-Match", "\"other\"");
+		request.addHeader("If-Modified-Since", LAST_MODIFIED);
+		
+		Assert.assertFalse(new ComplexObsServlet().isNotModified(request, ETAG, LAST_MODIFIED));
+	}
+	
+	/**
+	 * @see ComplexObsServlet#isNotModified(javax.servlet.http.HttpServletRequest, String, long)
+	 * @verifies return true if the data was not modified since
+	 */
+	@Test
+	public void isNotModified_shouldReturnTrueIfTheDataWasNotModifiedSince() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("If-Modified-Since", LAST_MODIFIED);
+		
+		// the milliseconds are lost in the header
+		Assert.assertTrue(new ComplexObsServlet().isNotModified(request, ETAG, LAST_MODIFIED + 500));
+	}
+	
+	/**
+	 * @see ComplexObsServlet#isNotModified(javax.servlet.http.HttpServletRequest, String, long)
+	 * @verifies return false if the data was modified since
+	 */
+	@Test
+	public void isNotModified_shouldReturnFalseIfTheDataWasModifiedSince() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("If-Modified-Since", LAST_MODIFIED);
+		
+		Assert.assertFalse(new ComplexObsServlet().isNotModified(request, ETAG, LAST_MODIFIED + 1000));
+	}
+	
+	/**
+	 * @see ComplexObsServlet#getRange(String, long)
+	 * @verifies return the first and last byte of the range
+	 */
+	@Test
+	public void getRange_shouldReturnTheFirstAndLastByteOfTheRange() throws Exception {
+		Assert.assertArrayEquals(new long[] { 0, 99 }, ComplexObsServlet.getRange("bytes=0-99", 1000));
+	}
+	
+	/**
+	 * @see ComplexObsServlet#getRange(String, long)
+	 * @verifies return the end of the data for an open range
+	 */
+	@Test
+	public void getRange_shouldReturnTheEndOfTheDataForAnOpenRange() throws Exception {
+		Assert.assertArrayEquals(new long[] { 500, 999 }, ComplexObsServlet.getRange("bytes=500-", 1000));
+	}
+	
+	/**
+	 * @see ComplexObsServlet#getRange(String, long)
+	 * @verifies return the end of the data for a suffix range
+	 */
+	@Test
+	public void getRange_shouldReturnTheEndOfTheDataForASuffixRange() throws Exception {
+		Assert.assertArrayEquals(new long[] { 900, 999 }, ComplexObsServlet.getRange("bytes=-100", 1000));
+		Assert.assertArrayEquals(new long[] { 0, 999 }, ComplexObsServlet.getRange("bytes=-5000", 1000));
+	}
+	
+	/**
+	 * @see ComplexObsServlet#getRange(String, long)
+	 * @verifies limit the range to the length of the data
+	 */
+	@Test
+	public void getRange_shouldLimitTheRangeToTheLengthOfTheData() throws Exception {
+		Assert.assertArrayEquals(new long[] { 100, 999 }, ComplexObsServlet.getRange("bytes=100-5000", 1000));
+	}
+	
+	/**
+	 * @see ComplexObsServlet#getRange(String, long)
+	 * @verifies return an empty array for a range after the end of the data
+	 */
+	@Test
+	public void getRange_shouldReturnAnEmptyArrayForARangeAfterTheEndOfTheData() throws Exception {
+		Assert.assertEquals(0, ComplexObsServlet.getRange("bytes=1000-", 1000).length);
+	}
+	
+	/**
+	 * @see ComplexObsServlet#getRange(String, long)
+	 * @verifies return null for several ranges
+	 */
+	@Test
+	public void getRange_shouldReturnNullForSeveralRanges() throws Exception {
+		Assert.assertNull(ComplexObsServlet.getRange("bytes=0-9,20-29", 1000));
+	}
+	
+	/**
+	 * @see ComplexObsServlet#getRange(String, long)
+	 * @verifies return null for an invalid range
+	 */
+	@Test
+	public void getRange_shouldReturnNullForAnInvalidRange() throws Exception {
+		Assert.assertNull(ComplexObsServlet.getRange("bytes=20-10", 1000));
+		Assert.assertNull(ComplexObsServlet.getRange("bytes=a-b", 1000));
+		Assert.assertNull(ComplexObsServlet.getRange("items=0-9", 1000));
+	}
+}
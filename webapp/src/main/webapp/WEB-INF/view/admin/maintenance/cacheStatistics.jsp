@@ -0,0 +1,48 @@
+<%@ include file="/WEB-INF/template/include.jsp"%>
+
+<openmrs:require privilege="View Administration Functions" otherwise="/login.htm"
+	redirect="/admin/maintenance/cacheStatistics.htm" />
+
+<%@ include file="/WEB-INF/template/header.jsp"%>
+<%@ include file="localHeader.jsp"%>
+
+<h2><openmrs:message code="CacheStatistics.title" /></h2>
+
+<table cellpadding="4" cellspacing="0" border="0" width="50%">
+	<tr>
+		<th align="left"><openmrs:message code="SystemInfo.name" /></th>
+		<th align="left"><openmrs:message code="SystemInfo.value" /></th>
+	</tr>
+	<c:forEach items="${cacheSummary}" var="info" varStatus="status">
+		<tr class='${status.index % 2 == 0 ? "evenRow" : "oddRow"}'>
+			<td nowrap><openmrs:message code="${ info.key }" /></td>
+			<td>${ info.value }</td>
+		</tr>
+	</c:forEach>
+</table>
+
+<br/>
+<h3><openmrs:message code="CacheStatistics.title.regions" /></h3>
+
+<table cellpadding="4" cellspacing="0" border="0">
+	<tr>
+		<th align="left"><openmrs:message code="CacheStatistics.region" /></th>
+		<th align="right"><openmrs:message code="CacheStatistics.hitCount" /></th>
+		<th align="right"><openmrs:message code="CacheStatistics.missCount" /></th>
+		<th align="right"><openmrs:message code="CacheStatistics.putCount" /></th>
+		<th align="right"><openmrs:message code="CacheStatistics.hitRatio" /></th>
+		<th align="right"><openmrs:message code="CacheStatistics.elementCountInMemory" /></th>
+	</tr>
+	<c:forEach items="${cacheRegions}" var="region" varStatus="status">
+		<tr class='${status.index % 2 == 0 ? "evenRow" : "oddRow"}'>
+			<td nowrap>${ region.key }</td>
+			<td align="right">${ region.value['CacheStatistics.hitCount'] }</td>
+			<td align="right">${ region.value['CacheStatistics.missCount'] }</td>
+			<td align="right">${ region.value['CacheStatistics.putCount'] }</td>
+			<td align="right">${ region.value['CacheStatistics.hitRatio'] }</td>
+			<td align="right">${ region.value['CacheStatistics.elementCountInMemory'] }</td>
+		</tr>
+	</c:forEach>
+</table>
+
+<%@ include file="/WEB-INF/template/footer.jsp"%>
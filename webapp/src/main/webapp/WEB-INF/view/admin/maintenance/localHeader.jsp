@@ -16,6 +16,13 @@
 			</a>
 		</li>
 	</openmrs:hasPrivilege>
+	<openmrs:hasPrivilege privilege="View Administration Functions">
+		<li <c:if test='<%= request.getRequestURI().contains("cacheStatistics") %>'>class="active"</c:if>>
+			<a href="${pageContext.request.contextPath}/admin/maintenance/cacheStatistics.htm">
+				<openmrs:message code="CacheStatistics.title"/>
+			</a>
+		</li>
+	</openmrs:hasPrivilege>
 	<openmrs:hasPrivilege privilege="View Patients">
 		<li <c:if test='<%= request.getRequestURI().contains("quickReport") %>'>class="active"</c:if>>
 			<a href="${pageContext.request.contextPath}/admin/maintenance/quickReport.htm">
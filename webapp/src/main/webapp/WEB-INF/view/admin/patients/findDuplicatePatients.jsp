@@ -100,7 +100,7 @@
 		);
 		
 		searchWidget.findObjects = function(phrase) {
-			if (searchOn.length > 1)
+			if (searchOn.length > 1 || jQuery('#likelyDuplicates').is(':checked'))
 				DWRPatientService.findDuplicatePatients(searchOn, searchWidget.simpleClosure(searchWidget, "doObjectsFound"));
 		}
 		
@@ -124,6 +124,7 @@
 <input type="checkbox" name="attr" id="familyName" value="familyName" onclick="selectAttribute(this)" onactivate="selectAttribute(this)"/><label for="familyName"><openmrs:message code="PersonName.familyName"/></label> <br/>
 <br/>
 <input type="checkbox" name="attr" id="includeVoided" value="includeVoided" onclick="selectAttribute(this)" onactivate="selectAttribute(this)"/><label for="includeVoided"><openmrs:message code="Patient.merge.includeVoided"/></label> <br/>
+<input type="checkbox" name="attr" id="likelyDuplicates" value="likelyDuplicates" onclick="selectAttribute(this)" onactivate="selectAttribute(this)"/><label for="likelyDuplicates"><openmrs:message code="Patient.merge.likelyDuplicates"/></label> <br/>
 
 <br />
 <input type="button" value='<openmrs:message code="general.search"/>' onclick="showSearch(event)" /><br />
@@ -113,7 +113,7 @@
 						<td valign="top"><openmrs:message code="Concept.stats.histogramOutliers"/></td>
 						<td>
 							<openmrs:displayChart chart="${histogramOutliers}" width="800" height="300" />
-							<br/> <a href="#" onclick="return showHideOutliers(this)"><openmrs:message code="Concept.stats.histogram.showOutliers"/></a> (<c:out value="${fn:length(outliers)}"/>)
+							<br/> <a href="#" onclick="return showHideOutliers(this)"><openmrs:message code="Concept.stats.histogram.showOutliers"/></a> (<c:out value="${outlierCount}"/>)
 							<br/>
 							<div id="outliers" style="display: none">
 								<table>
@@ -172,10 +172,10 @@
 				code="Patient.bmi" />: ${model.patientBmiAsString}</th>
 		<th class="patientHeaderObsWeightHeightHeader"><small> (
 				<openmrs:message code="Patient.weight" />: <openmrs_tag:mostRecentObs
-					observations="${model.patientObs}" concept="${weightConceptId}"
+					observations="${model.patientLatestObs}" concept="${weightConceptId}"
 					showUnits="true" locale="${model.locale}" showDate="false" /> , <openmrs:message
 					code="Patient.height" />: <openmrs_tag:mostRecentObs
-					observations="${model.patientObs}" concept="${heightConceptId}"
+					observations="${model.patientLatestObs}" concept="${heightConceptId}"
 					showUnits="true" locale="${model.locale}" showDate="false" /> )
 		</small></th>
 
@@ -185,7 +185,7 @@
                     <span title="${n.description}">${sn}:</span>
                 </openmrs:concept>
                 <openmrs_tag:mostRecentObs
-                    observations="${model.patientObs}" concept="${conceptId}"
+                    observations="${model.patientLatestObs}" concept="${conceptId}"
                     showUnits="true" locale="${model.locale}" showDate="false" />
             </td>
         </c:forEach>